@@ -36,6 +36,7 @@ import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import org.apache.pinot.broker.api.RequestStatistics;
 import org.apache.pinot.broker.requesthandler.BrokerRequestHandler;
 import org.apache.pinot.common.metrics.BrokerMeter;
@@ -161,6 +162,43 @@ public class PinotClientRequest {
     }
   }
 
+  @POST
+  @Produces(MediaType.APPLICATION_JSON)
+  @Path("query/sql/stream")
+  @ApiOperation(value = "Querying pinot using sql, and streaming the selection rows as they arrive from the servers")
+  @ApiResponses(value = {@ApiResponse(code = 200, message = "Query response"), @ApiResponse(code = 500, message = "Internal Server Error")})
+  public Response processSqlQueryStreamingPost(String query) {
+    ObjectNode sqlRequestJson;
+    try {
+      JsonNode requestJson = JsonUtils.stringToJsonNode(query);
+      if (!requestJson.has(Request.SQL)) {
+        throw new IllegalStateException("Payload is missing the query string field 'sql'");
+      }
+      sqlRequestJson = ((ObjectNode) requestJson).put(Request.QUERY_OPTIONS, constructSqlQueryOptions());
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while processing POST request", e);
+      brokerMetrics.addMeteredGlobalValue(BrokerMeter.UNCAUGHT_POST_EXCEPTIONS, 1L);
+      throw new WebApplicationException(e, Response.Status.INTERNAL_SERVER_ERROR);
+    }
+    // The rows are flushed to the client as they arrive, so the response is sent with chunked transfer encoding
+    StreamingOutput streamingOutput = outputStream -> {
+      StreamingBrokerResponseWriter responseWriter = new StreamingBrokerResponseWriter(outputStream);
+      BrokerResponse brokerResponse;
+      try {
+        brokerResponse =
+            requestHandler.handleStreamingRequest(sqlRequestJson, null, new RequestStatistics(), responseWriter);
+      } catch (Exception e) {
+        LOGGER.error("Caught exception while processing streaming POST request", e);
+        brokerMetrics.addMeteredGlobalValue(BrokerMeter.UNCAUGHT_POST_EXCEPTIONS, 1L);
+        // NOTE: The 200 status might already be committed with the streamed rows, report the exception in the response
+        responseWriter.finishWithException(e);
+        return;
+      }
+      responseWriter.finish(brokerResponse);
+    };
+    return Response.ok(streamingOutput).build();
+  }
+
   private String constructSqlQueryOptions() {
     return Request.QueryOptionKey.GROUP_BY_MODE + "=" + Request.SQL + ";" + Request.QueryOptionKey.RESPONSE_FORMAT + "="
         + Request.SQL;
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.api.resources;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.pinot.broker.requesthandler.StreamingResultObserver;
+import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.response.BrokerResponse;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.response.broker.QueryProcessingException;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.spi.utils.JsonUtils;
+
+
+/**
+ * The <code>StreamingBrokerResponseWriter</code> class writes the broker response as JSON to the output stream while
+ * the selection rows are streamed from the servers, and flushes the output after each batch of rows so that the client
+ * can consume the rows before the query finishes.
+ * <p>The JSON written is of the same format as the SQL broker response, where the result table comes first and the
+ * execution statistics follow after all the rows are written.
+ */
+public class StreamingBrokerResponseWriter implements StreamingResultObserver {
+  private static final String RESULT_TABLE = "resultTable";
+
+  private final JsonGenerator _jsonGenerator;
+  private boolean _resultTableStarted;
+
+  public StreamingBrokerResponseWriter(OutputStream outputStream)
+      throws IOException {
+    _jsonGenerator = JsonUtils.DEFAULT_WRITER.getFactory().createGenerator(outputStream);
+    _jsonGenerator.writeStartObject();
+  }
+
+  @Override
+  public void onDataSchema(DataSchema dataSchema)
+      throws IOException {
+    _jsonGenerator.writeObjectFieldStart(RESULT_TABLE);
+    _jsonGenerator.writeFieldName("dataSchema");
+    _jsonGenerator.writeTree(JsonUtils.objectToJsonNode(dataSchema));
+    _jsonGenerator.writeArrayFieldStart("rows");
+    _resultTableStarted = true;
+  }
+
+  @Override
+  public void onRows(List<Object[]> rows)
+      throws IOException {
+    for (Object[] row : rows) {
+      _jsonGenerator.writeObject(row);
+    }
+    _jsonGenerator.flush();
+  }
+
+  /**
+   * Writes the exception caught while processing the query as the broker response exceptions and closes the JSON
+   * object. The HTTP status is already committed once the output starts, so the failure can only be reported inside
+   * the response.
+   */
+  public void finishWithException(Exception exception)
+      throws IOException {
+    BrokerResponseNative brokerResponse = new BrokerResponseNative();
+    brokerResponse.addToExceptions(new QueryProcessingException(QueryException.BROKER_GATHER_ERROR_CODE,
+        QueryException.getTruncatedStackTrace(exception)));
+    finish(brokerResponse);
+  }
+
+  /**
+   * Writes the rest of the broker response and closes the JSON object. The result table in the broker response is only
+   * written if no row has been streamed (e.g. the query cannot be streamed).
+   */
+  public void finish(BrokerResponse brokerResponse)
+      throws IOException {
+    if (_resultTableStarted) {
+      _jsonGenerator.writeEndArray();
+      _jsonGenerator.writeEndObject();
+    }
+    ObjectNode brokerResponseJson = (ObjectNode) JsonUtils.objectToJsonNode(brokerResponse);
+    if (_resultTableStarted) {
+      brokerResponseJson.remove(RESULT_TABLE);
+    }
+    Iterator<Map.Entry<String, JsonNode>> fields = brokerResponseJson.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      _jsonGenerator.writeFieldName(field.getKey());
+      _jsonGenerator.writeTree(field.getValue());
+    }
+    _jsonGenerator.writeEndObject();
+    _jsonGenerator.flush();
+  }
+}
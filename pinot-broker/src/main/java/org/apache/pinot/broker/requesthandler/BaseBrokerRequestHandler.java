@@ -117,6 +117,8 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
   private final int _defaultHllLog2m;
   private final boolean _enableQueryLimitOverride;
   private final boolean _enableDistinctCountBitmapOverride;
+  // Null if the compilation cache is disabled
+  private final BrokerRequestCompilationCache _compilationCache;
 
   public BaseBrokerRequestHandler(PinotConfiguration config, RoutingManager routingManager,
       AccessControlFactory accessControlFactory, QueryQuotaManager queryQuotaManager, TableCache tableCache,
@@ -144,6 +146,10 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
         Broker.DEFAULT_BROKER_QUERY_LOG_MAX_RATE_PER_SECOND));
     _numDroppedLog = new AtomicInteger(0);
     _numDroppedLogRateLimiter = RateLimiter.create(1.0);
+    long compilationCacheMaxBytes = config.getProperty(Broker.CONFIG_OF_BROKER_REQUEST_COMPILATION_CACHE_MAX_BYTES,
+        Broker.DEFAULT_BROKER_REQUEST_COMPILATION_CACHE_MAX_BYTES);
+    _compilationCache = compilationCacheMaxBytes > 0 ? new BrokerRequestCompilationCache(compilationCacheMaxBytes,
+        brokerMetrics) : null;
 
     LOGGER
         .info("Broker Id: {}, timeout: {}ms, query response limit: {}, query log length: {}, query log max rate: {}qps",
@@ -159,11 +165,24 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     }
   }
 
-  @SuppressWarnings("Duplicates")
   @Override
   public BrokerResponse handleRequest(JsonNode request, @Nullable RequesterIdentity requesterIdentity,
       RequestStatistics requestStatistics)
       throws Exception {
+    return handleRequest(request, requesterIdentity, requestStatistics, null);
+  }
+
+  @Override
+  public BrokerResponse handleStreamingRequest(JsonNode request, @Nullable RequesterIdentity requesterIdentity,
+      RequestStatistics requestStatistics, StreamingResultObserver streamingResultObserver)
+      throws Exception {
+    return handleRequest(request, requesterIdentity, requestStatistics, streamingResultObserver);
+  }
+
+  @SuppressWarnings("Duplicates")
+  private BrokerResponse handleRequest(JsonNode request, @Nullable RequesterIdentity requesterIdentity,
+      RequestStatistics requestStatistics, @Nullable StreamingResultObserver streamingResultObserver)
+      throws Exception {
     long requestId = _requestIdGenerator.incrementAndGet();
     requestStatistics.setBrokerId(_brokerId);
     requestStatistics.setRequestId(requestId);
@@ -178,7 +197,11 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     long compilationStartTimeNs = System.nanoTime();
     BrokerRequest brokerRequest;
     try {
-      brokerRequest = PinotQueryParserFactory.get(pinotQueryRequest.getQueryFormat()).compileToBrokerRequest(query);
+      if (_compilationCache != null) {
+        brokerRequest = _compilationCache.compile(pinotQueryRequest.getQueryFormat(), query);
+      } else {
+        brokerRequest = PinotQueryParserFactory.get(pinotQueryRequest.getQueryFormat()).compileToBrokerRequest(query);
+      }
     } catch (Exception e) {
       LOGGER.info("Caught exception while compiling request {}: {}, {}", requestId, query, e.getMessage());
       _brokerMetrics.addMeteredGlobalValue(BrokerMeter.REQUEST_COMPILATION_EXCEPTIONS, 1);
@@ -292,10 +315,17 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     String timeColumn = getTimeColumnName(TableNameBuilder.OFFLINE.tableNameWithType(rawTableName));
     BrokerRequest offlineBrokerRequest = null;
     BrokerRequest realtimeBrokerRequest = null;
+    TimeBoundaryInfo timeBoundaryInfo = null;
     if ((offlineTableName != null) && (realtimeTableName != null)) {
       // Hybrid
-      offlineBrokerRequest = _brokerRequestOptimizer.optimize(getOfflineBrokerRequest(brokerRequest), timeColumn);
-      realtimeBrokerRequest = _brokerRequestOptimizer.optimize(getRealtimeBrokerRequest(brokerRequest), timeColumn);
+      timeBoundaryInfo = _routingManager.getTimeBoundaryInfo(offlineTableName);
+      if (timeBoundaryInfo == null) {
+        LOGGER.warn("Failed to find time boundary info for hybrid table: {}", rawTableName);
+      }
+      offlineBrokerRequest =
+          _brokerRequestOptimizer.optimize(getOfflineBrokerRequest(brokerRequest, timeBoundaryInfo), timeColumn);
+      realtimeBrokerRequest =
+          _brokerRequestOptimizer.optimize(getRealtimeBrokerRequest(brokerRequest, timeBoundaryInfo), timeColumn);
       requestStatistics.setFanoutType(RequestStatistics.FanoutType.HYBRID);
     } else if (offlineTableName != null) {
       // OFFLINE only
@@ -346,6 +376,22 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
     }
     requestStatistics.setNumUnavailableSegments(numUnavailableSegments);
 
+    // For hybrid table, skip the time boundary filter if all the selected segments are entirely on the queried side of
+    // the time boundary, so that the servers do not need to apply the extra filter on every segment
+    if (timeBoundaryInfo != null) {
+      long timeBoundary = Long.parseLong(timeBoundaryInfo.getTimeValue());
+      if (offlineRoutingTable != null && _routingManager
+          .isWithinTimeRange(offlineTableName, offlineRoutingTable, Long.MIN_VALUE, timeBoundary)) {
+        offlineBrokerRequest =
+            _brokerRequestOptimizer.optimize(getOfflineBrokerRequest(brokerRequest, null), timeColumn);
+      }
+      if (realtimeRoutingTable != null && _routingManager
+          .isWithinTimeRange(realtimeTableName, realtimeRoutingTable, timeBoundary + 1, Long.MAX_VALUE)) {
+        realtimeBrokerRequest =
+            _brokerRequestOptimizer.optimize(getRealtimeBrokerRequest(brokerRequest, null), timeColumn);
+      }
+    }
+
     if (offlineBrokerRequest == null && realtimeBrokerRequest == null) {
       LOGGER.info("No server found for request {}: {}", requestId, query);
       _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.NO_SERVER_FOUND_EXCEPTIONS, 1);
@@ -380,9 +426,16 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
 
     // Execute the query
     ServerStats serverStats = new ServerStats();
-    BrokerResponse brokerResponse =
-        processBrokerRequest(requestId, brokerRequest, offlineBrokerRequest, offlineRoutingTable, realtimeBrokerRequest,
-            realtimeRoutingTable, remainingTimeMs, serverStats, requestStatistics);
+    BrokerResponse brokerResponse;
+    if (streamingResultObserver != null) {
+      brokerResponse =
+          processStreamingBrokerRequest(requestId, brokerRequest, offlineBrokerRequest, offlineRoutingTable,
+              realtimeBrokerRequest, realtimeRoutingTable, remainingTimeMs, serverStats, requestStatistics,
+              streamingResultObserver);
+    } else {
+      brokerResponse = processBrokerRequest(requestId, brokerRequest, offlineBrokerRequest, offlineRoutingTable,
+          realtimeBrokerRequest, realtimeRoutingTable, remainingTimeMs, serverStats, requestStatistics);
+    }
     long executionEndTimeNs = System.nanoTime();
     _brokerMetrics
         .addPhaseTiming(rawTableName, BrokerQueryPhase.QUERY_EXECUTION, executionEndTimeNs - routingEndTimeNs);
@@ -1102,41 +1155,41 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
 
   /**
    * Helper method to create an OFFLINE broker request from the given hybrid broker request.
-   * <p>This step will attach the time boundary to the request.
+   * <p>This step will attach the time boundary (if provided) to the request.
    */
-  private BrokerRequest getOfflineBrokerRequest(BrokerRequest hybridBrokerRequest) {
+  private BrokerRequest getOfflineBrokerRequest(BrokerRequest hybridBrokerRequest,
+      @Nullable TimeBoundaryInfo timeBoundaryInfo) {
     BrokerRequest offlineRequest = hybridBrokerRequest.deepCopy();
     String rawTableName = hybridBrokerRequest.getQuerySource().getTableName();
     String offlineTableName = TableNameBuilder.OFFLINE.tableNameWithType(rawTableName);
     offlineRequest.getQuerySource().setTableName(offlineTableName);
-    attachTimeBoundary(rawTableName, offlineRequest, true);
+    if (timeBoundaryInfo != null) {
+      attachTimeBoundary(offlineRequest, timeBoundaryInfo, true);
+    }
     return offlineRequest;
   }
 
   /**
    * Helper method to create a REALTIME broker request from the given hybrid broker request.
-   * <p>This step will attach the time boundary to the request.
+   * <p>This step will attach the time boundary (if provided) to the request.
    */
-  private BrokerRequest getRealtimeBrokerRequest(BrokerRequest hybridBrokerRequest) {
+  private BrokerRequest getRealtimeBrokerRequest(BrokerRequest hybridBrokerRequest,
+      @Nullable TimeBoundaryInfo timeBoundaryInfo) {
     BrokerRequest realtimeRequest = hybridBrokerRequest.deepCopy();
     String rawTableName = hybridBrokerRequest.getQuerySource().getTableName();
     String realtimeTableName = TableNameBuilder.REALTIME.tableNameWithType(rawTableName);
     realtimeRequest.getQuerySource().setTableName(realtimeTableName);
-    attachTimeBoundary(rawTableName, realtimeRequest, false);
+    if (timeBoundaryInfo != null) {
+      attachTimeBoundary(realtimeRequest, timeBoundaryInfo, false);
+    }
     return realtimeRequest;
   }
 
   /**
    * Helper method to attach time boundary to a broker request.
    */
-  private void attachTimeBoundary(String rawTableName, BrokerRequest brokerRequest, boolean isOfflineRequest) {
-    TimeBoundaryInfo timeBoundaryInfo =
-        _routingManager.getTimeBoundaryInfo(TableNameBuilder.OFFLINE.tableNameWithType(rawTableName));
-    if (timeBoundaryInfo == null) {
-      LOGGER.warn("Failed to find time boundary info for hybrid table: {}", rawTableName);
-      return;
-    }
-
+  private static void attachTimeBoundary(BrokerRequest brokerRequest, TimeBoundaryInfo timeBoundaryInfo,
+      boolean isOfflineRequest) {
     // Create a time range filter
     FilterQuery timeFilterQuery = new FilterQuery();
     // Use -1 to prevent collision with other filters
@@ -1182,6 +1235,21 @@ public abstract class BaseBrokerRequestHandler implements BrokerRequestHandler {
       long timeoutMs, ServerStats serverStats, RequestStatistics requestStatistics)
       throws Exception;
 
+  /**
+   * Processes the optimized broker requests for both OFFLINE and REALTIME table in streaming mode, where the selection
+   * rows can be passed to the given observer instead of being set into the returned broker response.
+   * <p>By default, the requests are processed in non-streaming mode.
+   */
+  protected BrokerResponse processStreamingBrokerRequest(long requestId, BrokerRequest originalBrokerRequest,
+      @Nullable BrokerRequest offlineBrokerRequest, @Nullable Map<ServerInstance, List<String>> offlineRoutingTable,
+      @Nullable BrokerRequest realtimeBrokerRequest, @Nullable Map<ServerInstance, List<String>> realtimeRoutingTable,
+      long timeoutMs, ServerStats serverStats, RequestStatistics requestStatistics,
+      StreamingResultObserver streamingResultObserver)
+      throws Exception {
+    return processBrokerRequest(requestId, originalBrokerRequest, offlineBrokerRequest, offlineRoutingTable,
+        realtimeBrokerRequest, realtimeRoutingTable, timeoutMs, serverStats, requestStatistics);
+  }
+
   /**
    * Helper class to pass the per server statistics.
    */
@@ -0,0 +1,474 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.function.FunctionRegistry;
+import org.apache.pinot.common.metrics.BrokerMeter;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.request.Expression;
+import org.apache.pinot.common.request.Function;
+import org.apache.pinot.common.request.Literal;
+import org.apache.pinot.common.request.PinotQuery;
+import org.apache.pinot.core.requesthandler.PinotQueryParserFactory;
+import org.apache.pinot.pql.parsers.PinotQuery2BrokerRequestConverter;
+import org.apache.pinot.sql.parsers.CalciteSqlParser;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.apache.pinot.common.utils.CommonConstants.Broker.Request.SQL;
+
+
+/**
+ * Bounded LRU cache of the compiled queries, used to skip parsing and compiling the query for frequently repeated
+ * queries (e.g. dashboard queries).
+ * <p>SQL queries are cached as templates keyed on the query text with the literals replaced by parameter slots, so that
+ * the queries only differing in the literals (e.g. a dashboard query with a sliding time filter) share the same cache
+ * entry. The template is the {@link PinotQuery} compiled from the query with each literal replaced by a unique
+ * placeholder. On a cache hit, the placeholders are bound to the literals of the query, and the {@link PinotQuery} is
+ * converted into the {@link BrokerRequest}. A query is templated only if each placeholder shows up exactly once as a
+ * literal of the compiled {@link PinotQuery}, and binding the literals back into the template gives the same
+ * {@link PinotQuery} as compiling the query, otherwise (e.g. literals used as alias, or folded into the query options)
+ * the query is cached by its exact text. The numbers following LIMIT, OFFSET or TOP, and the prefixed or non-ASCII
+ * string literals are kept in the template key as is.
+ * <p>PQL queries are cached by the exact query text.
+ * <p>Only the output of the query compiler is cached, which is a function of the query format and text only. The
+ * table/column name resolution and the query rewrites depending on the table config and schema are still applied on
+ * each request, so the cache does not need to be invalidated on table config or schema changes.
+ * <p>Queries calling scalar functions are not cached because the scalar functions with literal arguments are evaluated
+ * at compile time, and some of them are not deterministic (e.g. {@code now()}).
+ * <p>The compiled queries are cached in the serialized (thrift compact) format, so that the cache can be bounded by the
+ * bytes held (serialized compiled query plus cache key). Each call deserializes a new copy of the cached query because
+ * the broker request handler modifies the broker request in place.
+ */
+@ThreadSafe
+public class BrokerRequestCompilationCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BrokerRequestCompilationCache.class);
+  private static final Pattern FUNCTION_CALL_PATTERN = Pattern.compile("([A-Za-z_][A-Za-z0-9_]*)\\s*\\(");
+  private static final PinotQuery2BrokerRequestConverter CONVERTER = new PinotQuery2BrokerRequestConverter();
+
+  private static final String TEMPLATE_KEY_PREFIX = "sql-template:";
+  // Cached for the SQL query templates that cannot be parameterized
+  private static final byte[] NOT_TEMPLATABLE = new byte[0];
+
+  // Placeholders for the parameters, which should never show up in the compiled query otherwise
+  private static final String STRING_PLACEHOLDER_PREFIX = "__pinot_parameter_";
+  private static final String STRING_PLACEHOLDER_SUFFIX = "__";
+  private static final long LONG_PLACEHOLDER_BASE = 1L << 62;
+  private static final long DOUBLE_PLACEHOLDER_BASE = 1L << 40;
+
+  private final Cache<String, byte[]> _cache;
+  private final BrokerMetrics _brokerMetrics;
+
+  /**
+   * @param maxBytes Max bytes of the cached queries (serialized compiled query plus cache key)
+   * @param brokerMetrics Broker metrics
+   */
+  public BrokerRequestCompilationCache(long maxBytes, BrokerMetrics brokerMetrics) {
+    _cache = CacheBuilder.newBuilder().maximumWeight(maxBytes)
+        .weigher((String key, byte[] value) -> Character.BYTES * key.length() + value.length).build();
+    _brokerMetrics = brokerMetrics;
+  }
+
+  /**
+   * Returns the compiled {@link BrokerRequest} for the given query, from the cache if possible.
+   */
+  public BrokerRequest compile(String queryFormat, String query) {
+    boolean cacheable = isCacheable(query);
+    if (cacheable && queryFormat.equalsIgnoreCase(SQL)) {
+      ParameterizedQuery parameterizedQuery = ParameterizedQuery.parse(query);
+      if (parameterizedQuery != null) {
+        String templateKey = TEMPLATE_KEY_PREFIX + parameterizedQuery._template;
+        byte[] cachedTemplate = _cache.getIfPresent(templateKey);
+        if (cachedTemplate == null) {
+          _brokerMetrics.addMeteredGlobalValue(BrokerMeter.REQUEST_COMPILATION_CACHE_MISSES, 1);
+          PinotQuery pinotQuery = CalciteSqlParser.compileToPinotQuery(query);
+          byte[] template = getTemplate(parameterizedQuery, pinotQuery);
+          _cache.put(templateKey, template);
+          BrokerRequest brokerRequest = CONVERTER.convert(pinotQuery);
+          if (template == NOT_TEMPLATABLE) {
+            put(queryFormat, query, brokerRequest);
+          }
+          return brokerRequest;
+        }
+        if (cachedTemplate != NOT_TEMPLATABLE) {
+          PinotQuery pinotQuery = deserialize(new PinotQuery(), cachedTemplate);
+          if (pinotQuery != null) {
+            _brokerMetrics.addMeteredGlobalValue(BrokerMeter.REQUEST_COMPILATION_CACHE_HITS, 1);
+            bindParameters(pinotQuery, parameterizedQuery._parameters, null);
+            return CONVERTER.convert(pinotQuery);
+          }
+          // Should not happen, fall back to compiling the query
+          _cache.invalidate(templateKey);
+        }
+      }
+    }
+
+    String key = queryFormat.toLowerCase() + ':' + query;
+    byte[] cachedBytes = _cache.getIfPresent(key);
+    if (cachedBytes != null) {
+      BrokerRequest brokerRequest = deserialize(new BrokerRequest(), cachedBytes);
+      if (brokerRequest != null) {
+        _brokerMetrics.addMeteredGlobalValue(BrokerMeter.REQUEST_COMPILATION_CACHE_HITS, 1);
+        return brokerRequest;
+      }
+      // Should not happen, fall back to compiling the query
+      _cache.invalidate(key);
+    }
+    _brokerMetrics.addMeteredGlobalValue(BrokerMeter.REQUEST_COMPILATION_CACHE_MISSES, 1);
+    BrokerRequest brokerRequest = PinotQueryParserFactory.get(queryFormat).compileToBrokerRequest(query);
+    if (cacheable) {
+      put(queryFormat, query, brokerRequest);
+    }
+    return brokerRequest;
+  }
+
+  private void put(String queryFormat, String query, BrokerRequest brokerRequest) {
+    byte[] bytes = serialize(brokerRequest);
+    if (bytes != null) {
+      _cache.put(queryFormat.toLowerCase() + ':' + query, bytes);
+    }
+  }
+
+  /**
+   * Returns the serialized template for the parameterized query, or {@link #NOT_TEMPLATABLE} if the compiled query
+   * cannot be reproduced by binding the parameters into the template.
+   */
+  private static byte[] getTemplate(ParameterizedQuery parameterizedQuery, PinotQuery pinotQuery) {
+    PinotQuery templateQuery;
+    try {
+      templateQuery = CalciteSqlParser.compileToPinotQuery(parameterizedQuery._placeholderQuery);
+    } catch (Exception e) {
+      // Some literals cannot be replaced by the placeholders (e.g. date literals)
+      return NOT_TEMPLATABLE;
+    }
+    byte[] template = serialize(templateQuery);
+    if (template == null) {
+      return NOT_TEMPLATABLE;
+    }
+    int[] numBindings = new int[parameterizedQuery._parameters.size()];
+    bindParameters(templateQuery, parameterizedQuery._parameters, numBindings);
+    for (int numBinding : numBindings) {
+      if (numBinding != 1) {
+        return NOT_TEMPLATABLE;
+      }
+    }
+    return templateQuery.equals(pinotQuery) ? template : NOT_TEMPLATABLE;
+  }
+
+  /**
+   * Binds the parameters to the placeholders in the query, and counts the bindings for each parameter if
+   * {@code numBindings} is provided.
+   */
+  private static void bindParameters(PinotQuery pinotQuery, List<Object> parameters, @Nullable int[] numBindings) {
+    bindParameters(pinotQuery.getSelectList(), parameters, numBindings);
+    bindParameters(pinotQuery.getFilterExpression(), parameters, numBindings);
+    bindParameters(pinotQuery.getGroupByList(), parameters, numBindings);
+    bindParameters(pinotQuery.getOrderByList(), parameters, numBindings);
+    bindParameters(pinotQuery.getHavingExpression(), parameters, numBindings);
+  }
+
+  private static void bindParameters(@Nullable List<Expression> expressions, List<Object> parameters,
+      @Nullable int[] numBindings) {
+    if (expressions != null) {
+      for (Expression expression : expressions) {
+        bindParameters(expression, parameters, numBindings);
+      }
+    }
+  }
+
+  private static void bindParameters(@Nullable Expression expression, List<Object> parameters,
+      @Nullable int[] numBindings) {
+    if (expression == null) {
+      return;
+    }
+    Literal literal = expression.getLiteral();
+    if (literal != null) {
+      int index = bindParameter(literal, parameters);
+      if (index >= 0 && numBindings != null) {
+        numBindings[index]++;
+      }
+      return;
+    }
+    Function function = expression.getFunctionCall();
+    if (function != null) {
+      bindParameters(function.getOperands(), parameters, numBindings);
+    }
+  }
+
+  /**
+   * Replaces the placeholder in the literal with the parameter value, and returns the index of the parameter, or -1 if
+   * the literal is not a placeholder.
+   */
+  private static int bindParameter(Literal literal, List<Object> parameters) {
+    switch (literal.getSetField()) {
+      case STRING_VALUE: {
+        String value = literal.getStringValue();
+        if (value.startsWith(STRING_PLACEHOLDER_PREFIX) && value.endsWith(STRING_PLACEHOLDER_SUFFIX)) {
+          int index;
+          try {
+            index = Integer.parseInt(value.substring(STRING_PLACEHOLDER_PREFIX.length(),
+                value.length() - STRING_PLACEHOLDER_SUFFIX.length()));
+          } catch (NumberFormatException e) {
+            return -1;
+          }
+          if (index >= 0 && index < parameters.size() && parameters.get(index) instanceof String) {
+            literal.setStringValue((String) parameters.get(index));
+            return index;
+          }
+        }
+        return -1;
+      }
+      case LONG_VALUE: {
+        // Negative numbers might be compiled into negative literals
+        long value = literal.getLongValue();
+        boolean negative = value < 0;
+        long offset = (negative ? -value : value) - LONG_PLACEHOLDER_BASE;
+        if (offset >= 0 && offset < parameters.size() && parameters.get((int) offset) instanceof Long) {
+          long parameter = (Long) parameters.get((int) offset);
+          literal.setLongValue(negative ? -parameter : parameter);
+          return (int) offset;
+        }
+        return -1;
+      }
+      case DOUBLE_VALUE: {
+        double value = literal.getDoubleValue();
+        boolean negative = value < 0;
+        double offset = (negative ? -value : value) - DOUBLE_PLACEHOLDER_BASE - 0.5;
+        int index = (int) offset;
+        if (index == offset && index >= 0 && index < parameters.size() && parameters.get(index) instanceof Double) {
+          double parameter = (Double) parameters.get(index);
+          literal.setDoubleValue(negative ? -parameter : parameter);
+          return index;
+        }
+        return -1;
+      }
+      default:
+        return -1;
+    }
+  }
+
+  @Nullable
+  private static byte[] serialize(TBase<?, ?> object) {
+    try {
+      return new TSerializer(new TCompactProtocol.Factory()).serialize(object);
+    } catch (TException e) {
+      LOGGER.warn("Caught exception while serializing the compiled query: {}", object, e);
+      return null;
+    }
+  }
+
+  @Nullable
+  private static <T extends TBase<?, ?>> T deserialize(T object, byte[] bytes) {
+    try {
+      new TDeserializer(new TCompactProtocol.Factory()).deserialize(object, bytes);
+      return object;
+    } catch (TException e) {
+      LOGGER.warn("Caught exception while deserializing the cached compiled query", e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns {@code true} if the query does not call any scalar function that could be evaluated at compile time.
+   */
+  static boolean isCacheable(String query) {
+    Matcher matcher = FUNCTION_CALL_PATTERN.matcher(query);
+    while (matcher.find()) {
+      if (FunctionRegistry.containsFunction(matcher.group(1))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of cached queries (including the templates).
+   */
+  public long size() {
+    return _cache.size();
+  }
+
+  /**
+   * SQL query with the literals extracted as parameters.
+   * <ul>
+   *   <li>Template: the query with the literals replaced by '?' (numbers) or '?.' (decimals) or ''?'' (strings)</li>
+   *   <li>Placeholder query: the query with the literals replaced by the unique placeholders</li>
+   *   <li>Parameters: the literal values ({@link String}, {@link Long} or {@link Double}), same as the compiler</li>
+   * </ul>
+   */
+  static class ParameterizedQuery {
+    final String _template;
+    final String _placeholderQuery;
+    final List<Object> _parameters;
+
+    private ParameterizedQuery(String template, String placeholderQuery, List<Object> parameters) {
+      _template = template;
+      _placeholderQuery = placeholderQuery;
+      _parameters = parameters;
+    }
+
+    /**
+     * Parses the literals of the SQL query, returns {@code null} if the query has no literal to be parameterized, has
+     * dynamic parameters, or cannot be tokenized.
+     */
+    @Nullable
+    static ParameterizedQuery parse(String query) {
+      StringBuilder template = new StringBuilder(query.length());
+      StringBuilder placeholderQuery = new StringBuilder(query.length() + 64);
+      List<Object> parameters = new ArrayList<>();
+      // Whether the numbers are the argument of LIMIT/OFFSET/TOP, which are not compiled into literals
+      boolean limitContext = false;
+      int length = query.length();
+      int i = 0;
+      while (i < length) {
+        char c = query.charAt(i);
+        int end;
+        if (c == '\'' || c == '"' || c == '`') {
+          end = getQuotedEnd(query, i);
+          if (end < 0) {
+            return null;
+          }
+          if (c == '\'' && (i == 0 || !isIdentifierChar(query.charAt(i - 1)))) {
+            String value = query.substring(i + 1, end - 1);
+            if (isPlainAscii(value)) {
+              int index = parameters.size();
+              parameters.add(value.replace("''", "'"));
+              template.append("'?'");
+              placeholderQuery.append('\'').append(STRING_PLACEHOLDER_PREFIX).append(index)
+                  .append(STRING_PLACEHOLDER_SUFFIX).append('\'');
+              i = end;
+              limitContext = false;
+              continue;
+            }
+          }
+          limitContext = false;
+        } else if (isDigit(c) && (i == 0 || (!isIdentifierChar(query.charAt(i - 1)) && query.charAt(i - 1) != '.'))) {
+          end = i + 1;
+          while (end < length && isDigit(query.charAt(end))) {
+            end++;
+          }
+          boolean decimal = end + 1 < length && query.charAt(end) == '.' && isDigit(query.charAt(end + 1));
+          if (decimal) {
+            end++;
+            while (end < length && isDigit(query.charAt(end))) {
+              end++;
+            }
+          }
+          // Keep the exponent numbers (e.g. 1e3) and the other number formats as is
+          if (!limitContext && (end == length || (!isIdentifierChar(query.charAt(end))
+              && query.charAt(end) != '.'))) {
+            int index = parameters.size();
+            BigDecimal value = new BigDecimal(query.substring(i, end));
+            if (decimal) {
+              parameters.add(value.doubleValue());
+              template.append("?.");
+              placeholderQuery.append(DOUBLE_PLACEHOLDER_BASE + index).append(".5");
+            } else {
+              parameters.add(value.longValue());
+              template.append('?');
+              placeholderQuery.append(LONG_PLACEHOLDER_BASE + index);
+            }
+            i = end;
+            continue;
+          }
+        } else if (isIdentifierChar(c)) {
+          end = i + 1;
+          while (end < length && isIdentifierChar(query.charAt(end))) {
+            end++;
+          }
+          String word = query.substring(i, end);
+          limitContext = word.equalsIgnoreCase("LIMIT") || word.equalsIgnoreCase("OFFSET") || word.equalsIgnoreCase(
+              "TOP");
+        } else {
+          // The template uses '?' for the parameters, so the queries with dynamic parameters cannot be templated
+          if (c == '?') {
+            return null;
+          }
+          end = i + 1;
+          if (c != ',' && !Character.isWhitespace(c)) {
+            limitContext = false;
+          }
+        }
+        template.append(query, i, end);
+        placeholderQuery.append(query, i, end);
+        i = end;
+      }
+      if (parameters.isEmpty()) {
+        return null;
+      }
+      return new ParameterizedQuery(template.toString(), placeholderQuery.toString(), parameters);
+    }
+
+    /**
+     * Returns the end (exclusive) of the quoted string or identifier starting at the given index, or -1 if it is not
+     * terminated. The quote character is escaped by doubling it.
+     */
+    private static int getQuotedEnd(String query, int start) {
+      char quote = query.charAt(start);
+      int length = query.length();
+      int i = start + 1;
+      while (i < length) {
+        if (query.charAt(i) == quote) {
+          if (i + 1 < length && query.charAt(i + 1) == quote) {
+            i += 2;
+          } else {
+            return i + 1;
+          }
+        } else {
+          i++;
+        }
+      }
+      return -1;
+    }
+
+    private static boolean isPlainAscii(String value) {
+      int length = value.length();
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c < ' ' || c > '~' || c == '\\') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isDigit(char c) {
+      return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierChar(char c) {
+      return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+  }
+}
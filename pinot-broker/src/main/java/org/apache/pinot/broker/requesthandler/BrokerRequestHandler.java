@@ -36,4 +36,15 @@ public interface BrokerRequestHandler {
   BrokerResponse handleRequest(JsonNode request, @Nullable RequesterIdentity requesterIdentity,
       RequestStatistics requestStatistics)
       throws Exception;
+
+  /**
+   * Handles the request in streaming mode, where the selection rows are passed to the given observer as they arrive
+   * from the servers instead of being gathered into the returned broker response. Queries that cannot be streamed are
+   * handled the same way as {@link #handleRequest(JsonNode, RequesterIdentity, RequestStatistics)}.
+   */
+  default BrokerResponse handleStreamingRequest(JsonNode request, @Nullable RequesterIdentity requesterIdentity,
+      RequestStatistics requestStatistics, StreamingResultObserver streamingResultObserver)
+      throws Exception {
+    return handleRequest(request, requesterIdentity, requestStatistics);
+  }
 }
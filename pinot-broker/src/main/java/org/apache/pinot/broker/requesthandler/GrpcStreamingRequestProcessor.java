@@ -0,0 +1,379 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.Context;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.broker.api.RequestStatistics;
+import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.metrics.BrokerMeter;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.metrics.BrokerQueryPhase;
+import org.apache.pinot.common.proto.Server;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.response.broker.QueryProcessingException;
+import org.apache.pinot.common.utils.CommonConstants.Query.Response;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataTable;
+import org.apache.pinot.common.utils.grpc.GrpcQueryClient;
+import org.apache.pinot.common.utils.grpc.GrpcRequestBuilder;
+import org.apache.pinot.core.common.datatable.DataTableFactory;
+import org.apache.pinot.core.common.datatable.DataTableImplV2;
+import org.apache.pinot.core.query.reduce.BrokerReduceService;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.core.query.request.context.utils.BrokerRequestToQueryContextConverter;
+import org.apache.pinot.core.query.request.context.utils.QueryContextUtils;
+import org.apache.pinot.core.query.selection.SelectionOperatorUtils;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.core.transport.ServerRoutingInstance;
+import org.apache.pinot.core.util.QueryOptions;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>GrpcStreamingRequestProcessor</code> class routes selection-only queries to the gRPC query servers in
+ * streaming mode, and forwards the selection rows to a {@link StreamingResultObserver} as the data blocks arrive.
+ * <p>Data blocks are buffered in a bounded queue per query, so that the broker heap usage does not grow with the size
+ * of the result: once the queue is full the server streams are no longer drained, and gRPC flow control pushes back
+ * on the servers. Once the query limit is reached, the remaining server streams are cancelled.
+ * <p>Each server stream is drained by a thread from a bounded pool. The server streams beyond the pool size are
+ * rejected and reported as exceptions in the broker response. The gRPC clients idle for a while (e.g. for the servers
+ * removed from the cluster) are closed.
+ */
+@ThreadSafe
+public class GrpcStreamingRequestProcessor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(GrpcStreamingRequestProcessor.class);
+  // Marker put into the data block queue when a server stream is finished
+  private static final DataTable END_OF_STREAM = new DataTableImplV2();
+  private static final long OFFER_TIMEOUT_MS = 100L;
+  private static final long THREAD_KEEP_ALIVE_SECONDS = 60L;
+  private static final long GRPC_QUERY_CLIENT_EXPIRE_MINUTES = 30L;
+
+  private final String _brokerId;
+  private final BrokerMetrics _brokerMetrics;
+  private final BrokerReduceService _brokerReduceService;
+  private final int _maxBufferedDataBlocks;
+  private final ThreadPoolExecutor _executorService;
+  // Map from "hostname_grpcPort" to the gRPC query client
+  private final LoadingCache<String, GrpcQueryClient> _grpcQueryClients;
+
+  public GrpcStreamingRequestProcessor(String brokerId, BrokerMetrics brokerMetrics,
+      BrokerReduceService brokerReduceService, int maxBufferedDataBlocks, int maxThreads) {
+    _brokerId = brokerId;
+    _brokerMetrics = brokerMetrics;
+    _brokerReduceService = brokerReduceService;
+    _maxBufferedDataBlocks = maxBufferedDataBlocks;
+    // NOTE: Use SynchronousQueue so that the server streams are rejected instead of queued once all threads are busy
+    _executorService = new ThreadPoolExecutor(maxThreads, maxThreads, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new SynchronousQueue<>(),
+        new ThreadFactoryBuilder().setNameFormat("grpc-streaming-%d").setDaemon(true).build());
+    _executorService.allowCoreThreadTimeOut(true);
+    // NOTE: Closing the gRPC query client does not affect the ongoing server streams
+    _grpcQueryClients = CacheBuilder.newBuilder().expireAfterAccess(GRPC_QUERY_CLIENT_EXPIRE_MINUTES, TimeUnit.MINUTES)
+        .removalListener((RemovalNotification<String, GrpcQueryClient> notification) -> notification.getValue().close())
+        .build(new CacheLoader<String, GrpcQueryClient>() {
+          @Override
+          public GrpcQueryClient load(String key) {
+            int separatorIndex = key.lastIndexOf('_');
+            return new GrpcQueryClient(key.substring(0, separatorIndex),
+                Integer.parseInt(key.substring(separatorIndex + 1)));
+          }
+        });
+  }
+
+  /**
+   * Returns {@code true} if the given query can be streamed, i.e. it is a selection-only query with non-zero limit and
+   * SQL response format, and all the servers queried have gRPC query server enabled.
+   */
+  public boolean canStream(BrokerRequest brokerRequest,
+      @Nullable Map<ServerInstance, List<String>> offlineRoutingTable,
+      @Nullable Map<ServerInstance, List<String>> realtimeRoutingTable) {
+    if (!new QueryOptions(brokerRequest.getQueryOptions()).isResponseFormatSQL()) {
+      return false;
+    }
+    QueryContext queryContext = BrokerRequestToQueryContextConverter.convert(brokerRequest);
+    if (QueryContextUtils.isAggregationQuery(queryContext) || queryContext.getOrderByExpressions() != null
+        || queryContext.getLimit() == 0) {
+      return false;
+    }
+    return hasGrpcPorts(offlineRoutingTable) && hasGrpcPorts(realtimeRoutingTable);
+  }
+
+  private static boolean hasGrpcPorts(@Nullable Map<ServerInstance, List<String>> routingTable) {
+    if (routingTable != null) {
+      for (ServerInstance serverInstance : routingTable.keySet()) {
+        if (serverInstance.getGrpcPort() <= 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Processes the optimized broker requests for both OFFLINE and REALTIME table in streaming mode.
+   * <p>The selection rows are passed to the given observer, and the returned broker response only contains the
+   * execution statistics and the exceptions.
+   */
+  public BrokerResponseNative processBrokerRequest(long requestId, BrokerRequest originalBrokerRequest,
+      @Nullable BrokerRequest offlineBrokerRequest, @Nullable Map<ServerInstance, List<String>> offlineRoutingTable,
+      @Nullable BrokerRequest realtimeBrokerRequest, @Nullable Map<ServerInstance, List<String>> realtimeRoutingTable,
+      long timeoutMs, RequestStatistics requestStatistics, StreamingResultObserver streamingResultObserver)
+      throws Exception {
+    assert offlineBrokerRequest != null || realtimeBrokerRequest != null;
+
+    String rawTableName = TableNameBuilder.extractRawTableName(originalBrokerRequest.getQuerySource().getTableName());
+    QueryContext queryContext = BrokerRequestToQueryContextConverter.convert(originalBrokerRequest);
+    assert !QueryContextUtils.isAggregationQuery(queryContext) && queryContext.getOrderByExpressions() == null;
+
+    long scatterGatherStartTimeNs = System.nanoTime();
+    StreamingQuery streamingQuery = new StreamingQuery();
+    if (offlineBrokerRequest != null) {
+      streamingQuery.submit(requestId, offlineBrokerRequest, offlineRoutingTable, TableType.OFFLINE);
+    }
+    if (realtimeBrokerRequest != null) {
+      streamingQuery.submit(requestId, realtimeBrokerRequest, realtimeRoutingTable, TableType.REALTIME);
+    }
+    boolean limitReached;
+    try {
+      limitReached = streamingQuery
+          .consume(queryContext, System.currentTimeMillis() + timeoutMs, rawTableName, streamingResultObserver);
+    } finally {
+      streamingQuery.cancel();
+    }
+    _brokerMetrics
+        .addPhaseTiming(rawTableName, BrokerQueryPhase.SCATTER_GATHER, System.nanoTime() - scatterGatherStartTimeNs);
+
+    // NOTE: Server responses in streaming mode only contain the metadata, the reduced response does not have results
+    long reduceStartTimeNs = System.nanoTime();
+    int numServersQueried = streamingQuery._numServersQueried;
+    Map<ServerRoutingInstance, DataTable> metadataMap = new HashMap<>(streamingQuery._metadataMap);
+    int numServersResponded = metadataMap.size();
+    BrokerResponseNative brokerResponse =
+        _brokerReduceService.reduceOnDataTable(originalBrokerRequest, metadataMap, _brokerMetrics);
+    long reduceTimeNanos = System.nanoTime() - reduceStartTimeNs;
+    requestStatistics.setReduceTimeNanos(reduceTimeNanos);
+    _brokerMetrics.addPhaseTiming(rawTableName, BrokerQueryPhase.REDUCE, reduceTimeNanos);
+
+    brokerResponse.setNumServersQueried(numServersQueried);
+    brokerResponse.setNumServersResponded(numServersResponded);
+    for (QueryProcessingException processingException : streamingQuery.getProcessingExceptions()) {
+      brokerResponse.addToExceptions(processingException);
+    }
+    if (brokerResponse.getExceptionsSize() > 0) {
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.BROKER_RESPONSES_WITH_PROCESSING_EXCEPTIONS, 1);
+    }
+    // Servers whose streams got cancelled after the limit is reached do not respond with the metadata
+    if (!limitReached && numServersQueried > numServersResponded) {
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.BROKER_RESPONSES_WITH_PARTIAL_SERVERS_RESPONDED, 1);
+    }
+    return brokerResponse;
+  }
+
+  public void shutDown() {
+    _executorService.shutdownNow();
+    _grpcQueryClients.invalidateAll();
+  }
+
+  private GrpcQueryClient getGrpcQueryClient(ServerInstance serverInstance) {
+    return _grpcQueryClients.getUnchecked(serverInstance.getHostname() + "_" + serverInstance.getGrpcPort());
+  }
+
+  /**
+   * Per query state shared between the threads draining the server streams and the thread emitting the rows.
+   */
+  private class StreamingQuery {
+    final BlockingQueue<DataTable> _dataBlocks = new ArrayBlockingQueue<>(_maxBufferedDataBlocks);
+    final Map<ServerRoutingInstance, DataTable> _metadataMap = new ConcurrentHashMap<>();
+    final List<QueryProcessingException> _processingExceptions = new ArrayList<>();
+    final List<Context.CancellableContext> _contexts = new ArrayList<>();
+    int _numServersQueried;
+    // Number of server streams submitted to the executor
+    int _numStreams;
+    volatile boolean _cancelled;
+
+    void submit(long requestId, BrokerRequest brokerRequest, Map<ServerInstance, List<String>> routingTable,
+        TableType tableType) {
+      for (Map.Entry<ServerInstance, List<String>> entry : routingTable.entrySet()) {
+        ServerInstance serverInstance = entry.getKey();
+        ServerRoutingInstance serverRoutingInstance = serverInstance.toServerRoutingInstance(tableType);
+        Server.ServerRequest serverRequest =
+            new GrpcRequestBuilder().setRequestId((int) requestId).setBrokerId(_brokerId)
+                .setEnableTrace(brokerRequest.isEnableTrace()).setEnableStreaming(true)
+                .setBrokerRequest(brokerRequest).setSegments(entry.getValue()).build();
+        GrpcQueryClient grpcQueryClient = getGrpcQueryClient(serverInstance);
+        Context.CancellableContext context = Context.current().withCancellation();
+        _numServersQueried++;
+        try {
+          _executorService.submit(context.wrap(() -> drain(grpcQueryClient, serverRequest, serverRoutingInstance)));
+        } catch (RejectedExecutionException e) {
+          LOGGER.warn("Rejected server stream for request {} to server: {}, too many concurrent server streams",
+              requestId, serverRoutingInstance);
+          addProcessingException(QueryException.BROKER_REQUEST_SEND_ERROR_CODE,
+              serverRoutingInstance + ": too many concurrent server streams on the broker");
+          continue;
+        }
+        _contexts.add(context);
+        _numStreams++;
+      }
+    }
+
+    /**
+     * Drains the responses from a server stream, runs within the cancellable gRPC context of the stream.
+     */
+    void drain(GrpcQueryClient grpcQueryClient, Server.ServerRequest serverRequest,
+        ServerRoutingInstance serverRoutingInstance) {
+      try {
+        Iterator<Server.ServerResponse> serverResponses = grpcQueryClient.submit(serverRequest);
+        while (serverResponses.hasNext()) {
+          Server.ServerResponse serverResponse = serverResponses.next();
+          DataTable dataTable = DataTableFactory.getDataTable(serverResponse.getPayload().asReadOnlyByteBuffer());
+          String responseType = serverResponse.getMetadataMap().get(Response.MetadataKeys.RESPONSE_TYPE);
+          if (Response.ResponseType.DATA.equals(responseType)) {
+            if (!offer(dataTable)) {
+              return;
+            }
+          } else {
+            _metadataMap.put(serverRoutingInstance, dataTable);
+          }
+        }
+      } catch (Exception e) {
+        if (!_cancelled) {
+          LOGGER.warn("Caught exception while streaming response from server: {}", serverRoutingInstance, e);
+          addProcessingException(QueryException.BROKER_GATHER_ERROR_CODE,
+              serverRoutingInstance + ": " + QueryException.getTruncatedStackTrace(e));
+        }
+      } finally {
+        try {
+          offer(END_OF_STREAM);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    /**
+     * Puts the data block into the queue, blocks while the queue is full. Returns {@code false} if the query is
+     * cancelled before the data block can be put.
+     */
+    boolean offer(DataTable dataTable)
+        throws InterruptedException {
+      while (!_dataBlocks.offer(dataTable, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        if (_cancelled) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Consumes the data blocks until all the server streams are finished or the query limit is reached, and returns
+     * whether the limit is reached.
+     */
+    boolean consume(QueryContext queryContext, long endTimeMs, String rawTableName,
+        StreamingResultObserver streamingResultObserver)
+        throws Exception {
+      int numRowsRemaining = queryContext.getLimit();
+      int numStreamsFinished = 0;
+      DataSchema dataSchema = null;
+      DataSchema.ColumnDataType[] columnDataTypes = null;
+      while (numStreamsFinished < _numStreams && numRowsRemaining > 0) {
+        long remainingTimeMs = endTimeMs - System.currentTimeMillis();
+        if (remainingTimeMs <= 0) {
+          addProcessingException(QueryException.BROKER_TIMEOUT_ERROR_CODE, String
+              .format("%d out of %d server streams did not finish before timeout", _numStreams - numStreamsFinished,
+                  _numStreams));
+          return false;
+        }
+        DataTable dataBlock = _dataBlocks.poll(remainingTimeMs, TimeUnit.MILLISECONDS);
+        if (dataBlock == null) {
+          continue;
+        }
+        if (dataBlock == END_OF_STREAM) {
+          numStreamsFinished++;
+          continue;
+        }
+        DataSchema dataBlockSchema = dataBlock.getDataSchema();
+        if (dataSchema == null) {
+          dataSchema = dataBlockSchema;
+          columnDataTypes = dataSchema.getColumnDataTypes();
+          DataSchema resultDataSchema = new DataSchema(dataSchema.getColumnNames().clone(), columnDataTypes);
+          BrokerReduceService.updateAlias(queryContext, resultDataSchema);
+          streamingResultObserver.onDataSchema(resultDataSchema);
+        } else if (!dataSchema.isTypeCompatibleWith(dataBlockSchema)) {
+          _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.RESPONSE_MERGE_EXCEPTIONS, 1L);
+          addProcessingException(QueryException.MERGE_RESPONSE_ERROR_CODE,
+              QueryException.MERGE_RESPONSE_ERROR.getMessage() + ": data block with schema: " + dataBlockSchema
+                  + " got dropped due to data schema inconsistency.");
+          continue;
+        }
+        int numRows = Math.min(dataBlock.getNumberOfRows(), numRowsRemaining);
+        int numColumns = columnDataTypes.length;
+        List<Object[]> rows = new ArrayList<>(numRows);
+        for (int rowId = 0; rowId < numRows; rowId++) {
+          Object[] row = SelectionOperatorUtils.extractRowFromDataTable(dataBlock, rowId);
+          for (int i = 0; i < numColumns; i++) {
+            row[i] = SelectionOperatorUtils.convertValueToType(row[i], columnDataTypes[i]);
+          }
+          rows.add(row);
+        }
+        streamingResultObserver.onRows(rows);
+        numRowsRemaining -= numRows;
+      }
+      return numRowsRemaining == 0;
+    }
+
+    synchronized void addProcessingException(int errorCode, String message) {
+      _processingExceptions.add(new QueryProcessingException(errorCode, message));
+    }
+
+    synchronized List<QueryProcessingException> getProcessingExceptions() {
+      return new ArrayList<>(_processingExceptions);
+    }
+
+    void cancel() {
+      _cancelled = true;
+      for (Context.CancellableContext context : _contexts) {
+        context.cancel(null);
+      }
+    }
+  }
+}
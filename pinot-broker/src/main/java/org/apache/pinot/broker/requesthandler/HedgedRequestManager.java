@@ -0,0 +1,275 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.broker.routing.RoutingManager;
+import org.apache.pinot.common.metrics.BrokerMeter;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.core.transport.AsyncQueryResponse;
+import org.apache.pinot.core.transport.QueryRouter;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.core.transport.ServerResponse;
+import org.apache.pinot.core.transport.ServerRoutingInstance;
+import org.apache.pinot.spi.config.table.TableType;
+
+
+/**
+ * The {@code HedgedRequestManager} hedges the requests to the slow servers to reduce the tail latency of the queries.
+ * <p>The manager tracks the recent response latencies of each server. If a server has not responded within the
+ * configured percentile of its recent latencies (no less than the min delay), the same segments are sent to the
+ * alternative replicas not queried yet, including the ones picked for the earlier hedged requests of the same query
+ * (see {@link RoutingManager#getHedgeRoutingTable}), and the response arrived first is taken (see
+ * {@link QueryRouter#submitHedgedRequest}).
+ * <p>The hedged requests are capped by a global budget: each request sent to a server earns a fraction (the budget
+ * percentage) of a token, and each hedged request costs one token.
+ */
+@ThreadSafe
+public class HedgedRequestManager {
+  // Number of recent latencies tracked for each server
+  private static final int LATENCY_WINDOW_SIZE = 128;
+  // Min number of latencies tracked for a server before hedging the requests to it
+  private static final int MIN_NUM_LATENCIES = 16;
+  // Max number of tokens accumulated, which bounds the burst of the hedged requests
+  private static final double MAX_NUM_TOKENS = 10;
+
+  private final QueryRouter _queryRouter;
+  private final RoutingManager _routingManager;
+  private final BrokerMetrics _brokerMetrics;
+  private final double _latencyPercentile;
+  private final long _minDelayMs;
+  private final double _tokensPerRequest;
+  private final ConcurrentHashMap<ServerRoutingInstance, LatencyWindow> _latencyWindowMap = new ConcurrentHashMap<>();
+
+  // Guarded by this
+  private double _numTokens;
+
+  public HedgedRequestManager(QueryRouter queryRouter, RoutingManager routingManager, BrokerMetrics brokerMetrics,
+      double latencyPercentile, long minDelayMs, double budgetPercent) {
+    _queryRouter = queryRouter;
+    _routingManager = routingManager;
+    _brokerMetrics = brokerMetrics;
+    _latencyPercentile = latencyPercentile;
+    _minDelayMs = minDelayMs;
+    _tokensPerRequest = budgetPercent / 100;
+  }
+
+  /**
+   * Waits until the query is done, hedges the requests to the slow servers when needed, and returns a map from the
+   * server to the response (see {@link AsyncQueryResponse#getResponse()}).
+   */
+  public Map<ServerRoutingInstance, ServerResponse> getResponse(AsyncQueryResponse asyncQueryResponse,
+      String rawTableName, @Nullable BrokerRequest offlineBrokerRequest,
+      @Nullable Map<ServerInstance, List<String>> offlineRoutingTable, @Nullable BrokerRequest realtimeBrokerRequest,
+      @Nullable Map<ServerInstance, List<String>> realtimeRoutingTable, long startTimeMs)
+      throws InterruptedException {
+    List<HedgeCandidate> hedgeCandidates = new ArrayList<>();
+    int numServerRequests = 0;
+    if (offlineBrokerRequest != null) {
+      assert offlineRoutingTable != null;
+      addHedgeCandidates(hedgeCandidates, offlineBrokerRequest, offlineRoutingTable, TableType.OFFLINE, startTimeMs);
+      numServerRequests += offlineRoutingTable.size();
+    }
+    if (realtimeBrokerRequest != null) {
+      assert realtimeRoutingTable != null;
+      addHedgeCandidates(hedgeCandidates, realtimeBrokerRequest, realtimeRoutingTable, TableType.REALTIME,
+          startTimeMs);
+      numServerRequests += realtimeRoutingTable.size();
+    }
+    addTokens(numServerRequests);
+
+    // Hedge the requests in the order of the hedge time
+    hedgeCandidates.sort(Comparator.comparingLong(hedgeCandidate -> hedgeCandidate._hedgeTimeMs));
+    List<ServerRoutingInstance> hedgedServers = new ArrayList<>();
+    Map<ServerRoutingInstance, ServerResponse> response;
+    try {
+      for (HedgeCandidate hedgeCandidate : hedgeCandidates) {
+        if (asyncQueryResponse.awaitResponses(hedgeCandidate._hedgeTimeMs - System.currentTimeMillis())) {
+          // All servers responded
+          break;
+        }
+        if (System.currentTimeMillis() < hedgeCandidate._hedgeTimeMs) {
+          // Query timed out
+          break;
+        }
+        ServerRoutingInstance server = hedgeCandidate._server;
+        if (asyncQueryResponse.hasResponded(server)) {
+          continue;
+        }
+        Map<ServerInstance, List<String>> routingTable = hedgeCandidate._routingTable;
+        BrokerRequest brokerRequest = hedgeCandidate._brokerRequest;
+        List<String> segments = routingTable.get(hedgeCandidate._serverInstance);
+        Set<ServerInstance> queriedServerInstances = hedgeCandidate._queriedServerInstances;
+        Map<ServerInstance, List<String>> hedgeRoutingTable = _routingManager
+            .getHedgeRoutingTable(brokerRequest.getQuerySource().getTableName(), segments, queriedServerInstances);
+        if (hedgeRoutingTable == null) {
+          _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.HEDGED_REQUESTS_NO_ALTERNATIVE_REPLICA, 1);
+          continue;
+        }
+        if (!tryAcquireToken()) {
+          _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.HEDGED_REQUESTS_BUDGET_EXCEEDED, 1);
+          continue;
+        }
+        _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.HEDGED_REQUESTS, 1);
+        // NOTE: Exclude the hedge servers from the following hedged requests so that each server only receives one
+        //       request for the query, otherwise the responses for the same server would overwrite each other
+        queriedServerInstances.addAll(hedgeRoutingTable.keySet());
+        if (_queryRouter.submitHedgedRequest(asyncQueryResponse, rawTableName, server, brokerRequest,
+            hedgeRoutingTable)) {
+          hedgedServers.add(server);
+        }
+      }
+    } catch (InterruptedException e) {
+      // Keep the interrupted flag so that getResponse() in the finally block returns immediately
+      Thread.currentThread().interrupt();
+      throw e;
+    } finally {
+      // NOTE: Always get the response so that the query is marked done and the servers not responded are cancelled
+      response = asyncQueryResponse.getResponse();
+    }
+    int numHedgedRequestsWon = asyncQueryResponse.getNumHedgedRequestsWon();
+    if (numHedgedRequestsWon > 0) {
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.HEDGED_REQUESTS_WON, numHedgedRequestsWon);
+    }
+    recordLatencies(response, hedgedServers, startTimeMs);
+    return response;
+  }
+
+  private void addHedgeCandidates(List<HedgeCandidate> hedgeCandidates, BrokerRequest brokerRequest,
+      Map<ServerInstance, List<String>> routingTable, TableType tableType, long startTimeMs) {
+    // Shared by all the hedge candidates of the same table type
+    Set<ServerInstance> queriedServerInstances = new HashSet<>(routingTable.keySet());
+    for (ServerInstance serverInstance : routingTable.keySet()) {
+      ServerRoutingInstance server = serverInstance.toServerRoutingInstance(tableType);
+      LatencyWindow latencyWindow = _latencyWindowMap.get(server);
+      if (latencyWindow != null) {
+        long latencyMs = latencyWindow.getPercentile(_latencyPercentile);
+        if (latencyMs >= 0) {
+          long hedgeTimeMs = startTimeMs + Math.max(latencyMs, _minDelayMs);
+          hedgeCandidates.add(
+              new HedgeCandidate(server, serverInstance, brokerRequest, routingTable, queriedServerInstances,
+                  hedgeTimeMs));
+        }
+      }
+    }
+  }
+
+  /**
+   * Records the latencies of the responded servers, and the elapsed time (as the lower bound of the latency) for the
+   * hedged servers not responded so that the slow servers are not under-estimated.
+   */
+  private void recordLatencies(Map<ServerRoutingInstance, ServerResponse> response,
+      List<ServerRoutingInstance> hedgedServers, long startTimeMs) {
+    for (Map.Entry<ServerRoutingInstance, ServerResponse> entry : response.entrySet()) {
+      int responseDelayMs = entry.getValue().getResponseDelayMs();
+      if (responseDelayMs >= 0) {
+        recordLatency(entry.getKey(), responseDelayMs);
+      }
+    }
+    long elapsedTimeMs = System.currentTimeMillis() - startTimeMs;
+    for (ServerRoutingInstance hedgedServer : hedgedServers) {
+      if (!response.containsKey(hedgedServer)) {
+        recordLatency(hedgedServer, elapsedTimeMs);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  void recordLatency(ServerRoutingInstance server, long latencyMs) {
+    _latencyWindowMap.computeIfAbsent(server, k -> new LatencyWindow()).add(latencyMs);
+  }
+
+  @VisibleForTesting
+  synchronized void addTokens(int numServerRequests) {
+    _numTokens = Math.min(_numTokens + numServerRequests * _tokensPerRequest, MAX_NUM_TOKENS);
+  }
+
+  @VisibleForTesting
+  synchronized boolean tryAcquireToken() {
+    if (_numTokens >= 1) {
+      _numTokens--;
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the configured percentile of the recent latencies of the given server, or {@code -1} if not enough
+   * latencies are tracked.
+   */
+  @VisibleForTesting
+  long getLatencyPercentile(ServerRoutingInstance server) {
+    LatencyWindow latencyWindow = _latencyWindowMap.get(server);
+    return latencyWindow != null ? latencyWindow.getPercentile(_latencyPercentile) : -1;
+  }
+
+  private static class HedgeCandidate {
+    final ServerRoutingInstance _server;
+    final ServerInstance _serverInstance;
+    final BrokerRequest _brokerRequest;
+    final Map<ServerInstance, List<String>> _routingTable;
+    final Set<ServerInstance> _queriedServerInstances;
+    final long _hedgeTimeMs;
+
+    HedgeCandidate(ServerRoutingInstance server, ServerInstance serverInstance, BrokerRequest brokerRequest,
+        Map<ServerInstance, List<String>> routingTable, Set<ServerInstance> queriedServerInstances, long hedgeTimeMs) {
+      _server = server;
+      _serverInstance = serverInstance;
+      _brokerRequest = brokerRequest;
+      _routingTable = routingTable;
+      _queriedServerInstances = queriedServerInstances;
+      _hedgeTimeMs = hedgeTimeMs;
+    }
+  }
+
+  /**
+   * Ring buffer of the recent latencies of a server.
+   */
+  private static class LatencyWindow {
+    final long[] _latencies = new long[LATENCY_WINDOW_SIZE];
+    long _numLatencies;
+
+    synchronized void add(long latencyMs) {
+      _latencies[(int) (_numLatencies++ % LATENCY_WINDOW_SIZE)] = latencyMs;
+    }
+
+    synchronized long getPercentile(double percentile) {
+      int numLatencies = (int) Math.min(_numLatencies, LATENCY_WINDOW_SIZE);
+      if (numLatencies < MIN_NUM_LATENCIES) {
+        return -1;
+      }
+      long[] sortedLatencies = Arrays.copyOf(_latencies, numLatencies);
+      Arrays.sort(sortedLatencies);
+      int index = (int) Math.ceil(percentile / 100 * numLatencies) - 1;
+      return sortedLatencies[Math.max(0, Math.min(index, numLatencies - 1))];
+    }
+  }
+}
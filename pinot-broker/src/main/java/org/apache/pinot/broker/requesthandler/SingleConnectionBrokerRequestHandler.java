@@ -35,6 +35,7 @@ import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.response.BrokerResponse;
 import org.apache.pinot.common.response.broker.BrokerResponseNative;
 import org.apache.pinot.common.response.broker.QueryProcessingException;
+import org.apache.pinot.common.utils.CommonConstants.Broker;
 import org.apache.pinot.common.utils.DataTable;
 import org.apache.pinot.common.utils.HashUtil;
 import org.apache.pinot.common.utils.helix.TableCache;
@@ -43,6 +44,7 @@ import org.apache.pinot.core.transport.QueryRouter;
 import org.apache.pinot.core.transport.ServerInstance;
 import org.apache.pinot.core.transport.ServerResponse;
 import org.apache.pinot.core.transport.ServerRoutingInstance;
+import org.apache.pinot.core.util.QueryOptions;
 import org.apache.pinot.spi.env.PinotConfiguration;
 import org.apache.pinot.spi.utils.builder.TableNameBuilder;
 
@@ -54,12 +56,46 @@ import org.apache.pinot.spi.utils.builder.TableNameBuilder;
 @ThreadSafe
 public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandler {
   private final QueryRouter _queryRouter;
+  private final HedgedRequestManager _hedgedRequestManager;
+  private final double _partialResultsTimeoutRatio;
+  private final GrpcStreamingRequestProcessor _streamingRequestProcessor;
 
   public SingleConnectionBrokerRequestHandler(PinotConfiguration config, RoutingManager routingManager,
       AccessControlFactory accessControlFactory, QueryQuotaManager queryQuotaManager, TableCache tableCache,
       BrokerMetrics brokerMetrics) {
     super(config, routingManager, accessControlFactory, queryQuotaManager, tableCache, brokerMetrics);
-    _queryRouter = new QueryRouter(_brokerId, brokerMetrics);
+    long requestBatchDelayUs = config
+        .getProperty(Broker.CONFIG_OF_BROKER_REQUEST_BATCH_DELAY_US, Broker.DEFAULT_BROKER_REQUEST_BATCH_DELAY_US);
+    boolean nativeTransportEnabled = config.getProperty(Broker.CONFIG_OF_BROKER_NETTY_NATIVE_TRANSPORT_ENABLED,
+        Broker.DEFAULT_BROKER_NETTY_NATIVE_TRANSPORT_ENABLED);
+    boolean queryCancellationEnabled = config.getProperty(Broker.CONFIG_OF_BROKER_QUERY_CANCELLATION_ENABLED,
+        Broker.DEFAULT_BROKER_QUERY_CANCELLATION_ENABLED);
+    _queryRouter = new QueryRouter(_brokerId, brokerMetrics, requestBatchDelayUs, nativeTransportEnabled,
+        queryCancellationEnabled);
+    boolean hedgedRequestEnabled = config
+        .getProperty(Broker.CONFIG_OF_BROKER_HEDGED_REQUEST_ENABLED, Broker.DEFAULT_BROKER_HEDGED_REQUEST_ENABLED);
+    if (hedgedRequestEnabled) {
+      double latencyPercentile = config.getProperty(Broker.CONFIG_OF_BROKER_HEDGED_REQUEST_LATENCY_PERCENTILE,
+          Broker.DEFAULT_BROKER_HEDGED_REQUEST_LATENCY_PERCENTILE);
+      long minDelayMs = config.getProperty(Broker.CONFIG_OF_BROKER_HEDGED_REQUEST_MIN_DELAY_MS,
+          Broker.DEFAULT_BROKER_HEDGED_REQUEST_MIN_DELAY_MS);
+      double budgetPercent = config.getProperty(Broker.CONFIG_OF_BROKER_HEDGED_REQUEST_BUDGET_PERCENT,
+          Broker.DEFAULT_BROKER_HEDGED_REQUEST_BUDGET_PERCENT);
+      _hedgedRequestManager =
+          new HedgedRequestManager(_queryRouter, routingManager, brokerMetrics, latencyPercentile, minDelayMs,
+              budgetPercent);
+    } else {
+      _hedgedRequestManager = null;
+    }
+    _partialResultsTimeoutRatio = config.getProperty(Broker.CONFIG_OF_BROKER_PARTIAL_RESULTS_TIMEOUT_RATIO,
+        Broker.DEFAULT_BROKER_PARTIAL_RESULTS_TIMEOUT_RATIO);
+    int maxBufferedDataBlocks = config.getProperty(Broker.CONFIG_OF_BROKER_STREAMING_MAX_BUFFERED_DATA_BLOCKS,
+        Broker.DEFAULT_BROKER_STREAMING_MAX_BUFFERED_DATA_BLOCKS);
+    int maxStreamingThreads =
+        config.getProperty(Broker.CONFIG_OF_BROKER_STREAMING_MAX_THREADS, Broker.DEFAULT_BROKER_STREAMING_MAX_THREADS);
+    _streamingRequestProcessor =
+        new GrpcStreamingRequestProcessor(_brokerId, brokerMetrics, _brokerReduceService, maxBufferedDataBlocks,
+            maxStreamingThreads);
   }
 
   @Override
@@ -69,6 +105,7 @@ public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandl
   @Override
   public synchronized void shutDown() {
     _queryRouter.shutDown();
+    _streamingRequestProcessor.shutDown();
   }
 
   @Override
@@ -80,11 +117,24 @@ public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandl
     assert offlineBrokerRequest != null || realtimeBrokerRequest != null;
 
     String rawTableName = TableNameBuilder.extractRawTableName(originalBrokerRequest.getQuerySource().getTableName());
+    // For the partial results queries, only wait for the servers until the soft timeout. The servers still execute the
+    // query with the query timeout, and are cancelled (if enabled) once the broker stops waiting for them.
+    Map<String, String> queryOptions = originalBrokerRequest.getQueryOptions();
+    boolean partialResultsEnabled = queryOptions != null && QueryOptions.isPartialResults(queryOptions);
+    long waitTimeoutMs = partialResultsEnabled ? getPartialResultsTimeoutMs(queryOptions, timeoutMs) : timeoutMs;
     long scatterGatherStartTimeNs = System.nanoTime();
+    long scatterGatherStartTimeMs = System.currentTimeMillis();
     AsyncQueryResponse asyncQueryResponse = _queryRouter
         .submitQuery(requestId, rawTableName, offlineBrokerRequest, offlineRoutingTable, realtimeBrokerRequest,
-            realtimeRoutingTable, timeoutMs);
-    Map<ServerRoutingInstance, ServerResponse> response = asyncQueryResponse.getResponse();
+            realtimeRoutingTable, waitTimeoutMs);
+    Map<ServerRoutingInstance, ServerResponse> response;
+    if (_hedgedRequestManager != null) {
+      response = _hedgedRequestManager
+          .getResponse(asyncQueryResponse, rawTableName, offlineBrokerRequest, offlineRoutingTable,
+              realtimeBrokerRequest, realtimeRoutingTable, scatterGatherStartTimeMs);
+    } else {
+      response = asyncQueryResponse.getResponse();
+    }
     _brokerMetrics
         .addPhaseTiming(rawTableName, BrokerQueryPhase.SCATTER_GATHER, System.nanoTime() - scatterGatherStartTimeNs);
     // TODO Use scatterGatherStats as serverStats
@@ -112,6 +162,13 @@ public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandl
 
     brokerResponse.setNumServersQueried(numServersQueried);
     brokerResponse.setNumServersResponded(numServersResponded);
+    if (partialResultsEnabled && numServersQueried > numServersResponded) {
+      // Report all the segments routed to the servers as queried so that the coverage of the partial results can be
+      // computed from the segments processed by the responded servers
+      brokerResponse.setPartialResult(true);
+      brokerResponse.setNumSegmentsQueried(getNumSegments(offlineRoutingTable) + getNumSegments(realtimeRoutingTable));
+      _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.BROKER_RESPONSES_WITH_PARTIAL_RESULTS, 1);
+    }
 
     Exception brokerRequestSendException = asyncQueryResponse.getBrokerRequestSendException();
     if (brokerRequestSendException != null) {
@@ -129,4 +186,44 @@ public class SingleConnectionBrokerRequestHandler extends BaseBrokerRequestHandl
 
     return brokerResponse;
   }
+
+  /**
+   * Returns the soft timeout for the partial results query, which is the query option if exists, or the configured
+   * ratio of the query timeout. The soft timeout is bounded by the query timeout.
+   */
+  private long getPartialResultsTimeoutMs(Map<String, String> queryOptions, long timeoutMs) {
+    Long partialResultsTimeoutMs = QueryOptions.getPartialResultsTimeoutMs(queryOptions);
+    if (partialResultsTimeoutMs != null) {
+      return Math.min(partialResultsTimeoutMs, timeoutMs);
+    } else {
+      return Math.max((long) (timeoutMs * _partialResultsTimeoutRatio), 1L);
+    }
+  }
+
+  private static int getNumSegments(@Nullable Map<ServerInstance, List<String>> routingTable) {
+    if (routingTable == null) {
+      return 0;
+    }
+    int numSegments = 0;
+    for (List<String> segments : routingTable.values()) {
+      numSegments += segments.size();
+    }
+    return numSegments;
+  }
+
+  @Override
+  protected BrokerResponse processStreamingBrokerRequest(long requestId, BrokerRequest originalBrokerRequest,
+      @Nullable BrokerRequest offlineBrokerRequest, @Nullable Map<ServerInstance, List<String>> offlineRoutingTable,
+      @Nullable BrokerRequest realtimeBrokerRequest, @Nullable Map<ServerInstance, List<String>> realtimeRoutingTable,
+      long timeoutMs, ServerStats serverStats, RequestStatistics requestStatistics,
+      StreamingResultObserver streamingResultObserver)
+      throws Exception {
+    if (_streamingRequestProcessor.canStream(originalBrokerRequest, offlineRoutingTable, realtimeRoutingTable)) {
+      return _streamingRequestProcessor
+          .processBrokerRequest(requestId, originalBrokerRequest, offlineBrokerRequest, offlineRoutingTable,
+              realtimeBrokerRequest, realtimeRoutingTable, timeoutMs, requestStatistics, streamingResultObserver);
+    }
+    return processBrokerRequest(requestId, originalBrokerRequest, offlineBrokerRequest, offlineRoutingTable,
+        realtimeBrokerRequest, realtimeRoutingTable, timeoutMs, serverStats, requestStatistics);
+  }
 }
@@ -0,0 +1,38 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import java.io.IOException;
+import java.util.List;
+import org.apache.pinot.common.utils.DataSchema;
+
+
+/**
+ * The <code>StreamingResultObserver</code> receives the selection rows of a streaming query as they arrive from the
+ * servers, so that they can be written to the client without materializing the whole result on the broker.
+ * <p>{@link #onDataSchema(DataSchema)} is invoked once before the first call to {@link #onRows(List)}.
+ */
+public interface StreamingResultObserver {
+
+  void onDataSchema(DataSchema dataSchema)
+      throws IOException;
+
+  void onRows(List<Object[]> rows)
+      throws IOException;
+}
@@ -42,6 +42,7 @@ import org.apache.pinot.broker.routing.instanceselector.InstanceSelector;
 import org.apache.pinot.broker.routing.instanceselector.InstanceSelectorFactory;
 import org.apache.pinot.broker.routing.segmentpruner.SegmentPruner;
 import org.apache.pinot.broker.routing.segmentpruner.SegmentPrunerFactory;
+import org.apache.pinot.broker.routing.segmentpruner.TimeSegmentPruner;
 import org.apache.pinot.broker.routing.segmentselector.SegmentPreSelector;
 import org.apache.pinot.broker.routing.segmentselector.SegmentPreSelectorFactory;
 import org.apache.pinot.broker.routing.segmentselector.SegmentSelector;
@@ -328,10 +329,14 @@ public class RoutingManager implements ClusterChangeHandler {
 
     // Add time boundary manager if both offline and real-time part exist for a hybrid table
     TimeBoundaryManager timeBoundaryManager = null;
+    // Add time segment pruner to both offline and real-time part of a hybrid table
+    TimeSegmentPruner timeSegmentPruner = null;
     String rawTableName = TableNameBuilder.extractRawTableName(tableNameWithType);
+    String otherTableName;
     if (TableNameBuilder.isOfflineTableResource(tableNameWithType)) {
       // Current table is offline
       String realtimeTableName = TableNameBuilder.REALTIME.tableNameWithType(rawTableName);
+      otherTableName = realtimeTableName;
       if (_routingEntryMap.containsKey(realtimeTableName)) {
         LOGGER.info("Adding time boundary manager for table: {}", tableNameWithType);
         timeBoundaryManager = new TimeBoundaryManager(tableConfig, _propertyStore);
@@ -340,6 +345,7 @@ public class RoutingManager implements ClusterChangeHandler {
     } else {
       // Current table is real-time
       String offlineTableName = TableNameBuilder.OFFLINE.tableNameWithType(rawTableName);
+      otherTableName = offlineTableName;
       RoutingEntry offlineTableRoutingEntry = _routingEntryMap.get(offlineTableName);
       if (offlineTableRoutingEntry != null && offlineTableRoutingEntry.getTimeBoundaryManager() == null) {
         LOGGER.info("Adding time boundary manager for table: {}", offlineTableName);
@@ -363,6 +369,24 @@ public class RoutingManager implements ClusterChangeHandler {
         offlineTableRoutingEntry.setTimeBoundaryManager(offlineTableTimeBoundaryManager);
       }
     }
+    RoutingEntry otherTableRoutingEntry = _routingEntryMap.get(otherTableName);
+    if (otherTableRoutingEntry != null) {
+      timeSegmentPruner = getTimeSegmentPruner(tableConfig, externalView, preSelectedOnlineSegments);
+      if (otherTableRoutingEntry.getTimeSegmentPruner() == null) {
+        TableConfig otherTableConfig = ZKMetadataProvider.getTableConfig(_propertyStore, otherTableName);
+        Preconditions.checkState(otherTableConfig != null, "Failed to find table config for table: %s", otherTableName);
+        // NOTE: External view might be null for new created tables. In such case, create an empty one.
+        ExternalView otherTableExternalView = getExternalView(otherTableName);
+        if (otherTableExternalView == null) {
+          otherTableExternalView = new ExternalView(otherTableName);
+        }
+        Set<String> otherTableOnlineSegments = getOnlineSegments(otherTableName);
+        Preconditions.checkState(otherTableOnlineSegments != null, "Failed to find ideal state for table: %s",
+            otherTableName);
+        otherTableRoutingEntry.setTimeSegmentPruner(getTimeSegmentPruner(otherTableConfig, otherTableExternalView,
+            otherTableRoutingEntry.preSelect(otherTableOnlineSegments)));
+      }
+    }
 
     QueryConfig queryConfig = tableConfig.getQueryConfig();
     Long queryTimeoutMs = queryConfig != null ? queryConfig.getTimeoutMs() : null;
@@ -370,6 +394,7 @@ public class RoutingManager implements ClusterChangeHandler {
     RoutingEntry routingEntry =
         new RoutingEntry(tableNameWithType, segmentPreSelector, segmentSelector, segmentPruners, instanceSelector,
             externalViewVersion, timeBoundaryManager, queryTimeoutMs);
+    routingEntry.setTimeSegmentPruner(timeSegmentPruner);
     if (_routingEntryMap.put(tableNameWithType, routingEntry) == null) {
       LOGGER.info("Built routing for table: {}", tableNameWithType);
     } else {
@@ -377,6 +402,26 @@ public class RoutingManager implements ClusterChangeHandler {
     }
   }
 
+  /**
+   * Returns the time segment pruner for the given table, or {@code null} if the pruner cannot be constructed (e.g. time
+   * column is not configured).
+   */
+  @Nullable
+  private TimeSegmentPruner getTimeSegmentPruner(TableConfig tableConfig, ExternalView externalView,
+      Set<String> preSelectedOnlineSegments) {
+    String tableNameWithType = tableConfig.getTableName();
+    try {
+      TimeSegmentPruner timeSegmentPruner = new TimeSegmentPruner(tableConfig, _propertyStore);
+      timeSegmentPruner.init(externalView, preSelectedOnlineSegments);
+      LOGGER.info("Added time segment pruner for table: {}", tableNameWithType);
+      return timeSegmentPruner;
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while adding time segment pruner for table: {}, skipping time pruning",
+          tableNameWithType, e);
+      return null;
+    }
+  }
+
   /**
    * Removes the routing for the given table.
    */
@@ -385,16 +430,24 @@ public class RoutingManager implements ClusterChangeHandler {
     if (_routingEntryMap.remove(tableNameWithType) != null) {
       LOGGER.info("Removed routing for table: {}", tableNameWithType);
 
-      // Remove time boundary manager for the offline part routing if the removed routing is the real-time part of a
-      // hybrid table
+      // Remove time boundary manager and time segment pruner for the offline part routing if the removed routing is
+      // the real-time part of a hybrid table
+      String rawTableName = TableNameBuilder.extractRawTableName(tableNameWithType);
       if (TableNameBuilder.isRealtimeTableResource(tableNameWithType)) {
-        String offlineTableName =
-            TableNameBuilder.OFFLINE.tableNameWithType(TableNameBuilder.extractRawTableName(tableNameWithType));
+        String offlineTableName = TableNameBuilder.OFFLINE.tableNameWithType(rawTableName);
         RoutingEntry routingEntry = _routingEntryMap.get(offlineTableName);
         if (routingEntry != null) {
           routingEntry.setTimeBoundaryManager(null);
+          routingEntry.setTimeSegmentPruner(null);
           LOGGER.info("Removed time boundary manager for table: {}", offlineTableName);
         }
+      } else {
+        // Remove time segment pruner for the real-time part routing if the removed routing is the offline part of a
+        // hybrid table
+        RoutingEntry routingEntry = _routingEntryMap.get(TableNameBuilder.REALTIME.tableNameWithType(rawTableName));
+        if (routingEntry != null) {
+          routingEntry.setTimeSegmentPruner(null);
+        }
       }
     } else {
       LOGGER.warn("Routing does not exist for table: {}, skipping removing routing", tableNameWithType);
@@ -449,6 +502,40 @@ public class RoutingManager implements ClusterChangeHandler {
     return new RoutingTable(serverInstanceToSegmentsMap, selectionResult.getUnavailableSegments());
   }
 
+  /**
+   * Returns the routing table (a map from server instance to list of segments hosted by the server) to hedge the
+   * request for the given segments, where none of the excluded server instances (the ones already queried) is selected,
+   * or {@code null} if the routing does not exist or any of the segments does not have an alternative server instance.
+   */
+  @Nullable
+  public Map<ServerInstance, List<String>> getHedgeRoutingTable(String tableNameWithType, List<String> segments,
+      Set<ServerInstance> excludedServerInstances) {
+    RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
+    if (routingEntry == null) {
+      return null;
+    }
+    Set<String> excludedInstances = new HashSet<>();
+    for (Map.Entry<String, ServerInstance> entry : _enabledServerInstanceMap.entrySet()) {
+      if (excludedServerInstances.contains(entry.getValue())) {
+        excludedInstances.add(entry.getKey());
+      }
+    }
+    Map<String, String> segmentToInstanceMap =
+        routingEntry.getInstanceSelector().selectAlternativeInstances(segments, excludedInstances);
+    if (segmentToInstanceMap == null) {
+      return null;
+    }
+    Map<ServerInstance, List<String>> serverInstanceToSegmentsMap = new HashMap<>();
+    for (Map.Entry<String, String> entry : segmentToInstanceMap.entrySet()) {
+      ServerInstance serverInstance = _enabledServerInstanceMap.get(entry.getValue());
+      if (serverInstance == null) {
+        return null;
+      }
+      serverInstanceToSegmentsMap.computeIfAbsent(serverInstance, k -> new ArrayList<>()).add(entry.getKey());
+    }
+    return serverInstanceToSegmentsMap;
+  }
+
   /**
    * Returns the time boundary info for the given offline table, or {@code null} if the routing or time boundary does
    * not exist.
@@ -464,6 +551,30 @@ public class RoutingManager implements ClusterChangeHandler {
     return timeBoundaryManager != null ? timeBoundaryManager.getTimeBoundaryInfo() : null;
   }
 
+  /**
+   * Returns {@code true} if all the segments in the given routing table are known to be within the given time range
+   * (both ends inclusive, in the unit of the time column), {@code false} otherwise or if the routing or time segment
+   * pruner does not exist.
+   * <p>NOTE: Time segment pruner is only available for the hybrid table.
+   */
+  public boolean isWithinTimeRange(String tableNameWithType, Map<ServerInstance, List<String>> routingTable,
+      long startTime, long endTime) {
+    RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
+    if (routingEntry == null) {
+      return false;
+    }
+    TimeSegmentPruner timeSegmentPruner = routingEntry.getTimeSegmentPruner();
+    if (timeSegmentPruner == null) {
+      return false;
+    }
+    for (List<String> segments : routingTable.values()) {
+      if (!timeSegmentPruner.isWithinTimeRange(segments, startTime, endTime)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Returns the table-level query timeout in milliseconds for the given table, or {@code null} if the timeout is not
    * configured in the table config.
@@ -486,6 +597,8 @@ public class RoutingManager implements ClusterChangeHandler {
     transient int _lastUpdateExternalViewVersion;
     // Time boundary manager is only available for the offline part of the hybrid table
     transient TimeBoundaryManager _timeBoundaryManager;
+    // Time segment pruner is only available for the hybrid table
+    transient TimeSegmentPruner _timeSegmentPruner;
 
     RoutingEntry(String tableNameWithType, SegmentPreSelector segmentPreSelector, SegmentSelector segmentSelector,
         List<SegmentPruner> segmentPruners, InstanceSelector instanceSelector, int lastUpdateExternalViewVersion,
@@ -517,10 +630,27 @@ public class RoutingManager implements ClusterChangeHandler {
       return _timeBoundaryManager;
     }
 
+    void setTimeSegmentPruner(@Nullable TimeSegmentPruner timeSegmentPruner) {
+      _timeSegmentPruner = timeSegmentPruner;
+    }
+
+    @Nullable
+    TimeSegmentPruner getTimeSegmentPruner() {
+      return _timeSegmentPruner;
+    }
+
+    Set<String> preSelect(Set<String> onlineSegments) {
+      return _segmentPreSelector.preSelect(onlineSegments);
+    }
+
     Long getQueryTimeoutMs() {
       return _queryTimeoutMs;
     }
 
+    InstanceSelector getInstanceSelector() {
+      return _instanceSelector;
+    }
+
     // NOTE: The change gets applied in sequence, and before change applied to all components, there could be some
     // inconsistency between components, which is fine because the inconsistency only exists for the newly changed
     // segments and only lasts for a very short time.
@@ -531,6 +661,10 @@ public class RoutingManager implements ClusterChangeHandler {
         segmentPruner.onExternalViewChange(externalView, preSelectedOnlineSegments);
       }
       _instanceSelector.onExternalViewChange(externalView, preSelectedOnlineSegments);
+      TimeSegmentPruner timeSegmentPruner = _timeSegmentPruner;
+      if (timeSegmentPruner != null) {
+        timeSegmentPruner.onExternalViewChange(externalView, preSelectedOnlineSegments);
+      }
       if (_timeBoundaryManager != null) {
         _timeBoundaryManager.onExternalViewChange(externalView, preSelectedOnlineSegments);
       }
@@ -545,6 +679,10 @@ public class RoutingManager implements ClusterChangeHandler {
       for (SegmentPruner segmentPruner : _segmentPruners) {
         segmentPruner.refreshSegment(segment);
       }
+      TimeSegmentPruner timeSegmentPruner = _timeSegmentPruner;
+      if (timeSegmentPruner != null) {
+        timeSegmentPruner.refreshSegment(segment);
+      }
       if (_timeBoundaryManager != null) {
         _timeBoundaryManager.refreshSegment(segment);
       }
@@ -556,6 +694,10 @@ public class RoutingManager implements ClusterChangeHandler {
         for (SegmentPruner segmentPruner : _segmentPruners) {
           selectedSegments = segmentPruner.prune(brokerRequest, selectedSegments);
         }
+        TimeSegmentPruner timeSegmentPruner = _timeSegmentPruner;
+        if (timeSegmentPruner != null) {
+          selectedSegments = timeSegmentPruner.prune(brokerRequest, selectedSegments);
+        }
       }
       if (!selectedSegments.isEmpty()) {
         return _instanceSelector.select(brokerRequest, selectedSegments);
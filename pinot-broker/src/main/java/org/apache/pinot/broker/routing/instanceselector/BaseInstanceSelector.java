@@ -236,6 +236,40 @@ abstract class BaseInstanceSelector implements InstanceSelector {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Rotates the start replica based on the request id to balance the load, but uses the same start replica for all
+   * the segments so that the segments with the same replicas are hedged to the same instance.
+   */
+  @Nullable
+  @Override
+  public Map<String, String> selectAlternativeInstances(List<String> segments, Set<String> excludedInstances) {
+    int requestId = (int) (_requestId.getAndIncrement() % MAX_REQUEST_ID);
+    Map<String, List<String>> segmentToEnabledInstancesMap = _segmentToEnabledInstancesMap;
+    Map<String, String> segmentToSelectedInstanceMap = new HashMap<>(HashUtil.getHashMapCapacity(segments.size()));
+    for (String segment : segments) {
+      List<String> enabledInstances = segmentToEnabledInstancesMap.get(segment);
+      if (enabledInstances == null) {
+        return null;
+      }
+      String selectedInstance = null;
+      int numEnabledInstances = enabledInstances.size();
+      for (int i = 0; i < numEnabledInstances; i++) {
+        String instance = enabledInstances.get((requestId + i) % numEnabledInstances);
+        if (!excludedInstances.contains(instance)) {
+          selectedInstance = instance;
+          break;
+        }
+      }
+      if (selectedInstance == null) {
+        return null;
+      }
+      segmentToSelectedInstanceMap.put(segment, selectedInstance);
+    }
+    return segmentToSelectedInstanceMap;
+  }
+
   /**
    * Selects the server instances for the given segments based on the request id and segment to enabled ONLINE/CONSUMING
    * instances map, returns a map from segment to selected server instance hosting the segment.
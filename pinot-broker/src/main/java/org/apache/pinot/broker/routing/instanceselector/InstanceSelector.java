@@ -21,6 +21,7 @@ package org.apache.pinot.broker.routing.instanceselector;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 import org.apache.helix.model.ExternalView;
 import org.apache.pinot.common.request.BrokerRequest;
 
@@ -59,6 +60,14 @@ public interface InstanceSelector {
    */
   SelectionResult select(BrokerRequest brokerRequest, List<String> segments);
 
+  /**
+   * Selects the alternative server instances (other than the excluded instances) for the given segments, returns a map
+   * from segment to selected server instance hosting the segment, or {@code null} if any of the segments does not have
+   * an alternative enabled instance. Used to hedge the request to a slow server.
+   */
+  @Nullable
+  Map<String, String> selectAlternativeInstances(List<String> segments, Set<String> excludedInstances);
+
   class SelectionResult {
     private final Map<String, String> _segmentToInstanceMap;
     private final List<String> _unavailableSegments;
@@ -0,0 +1,275 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.routing.segmentpruner;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.apache.helix.AccessOption;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.apache.pinot.common.metadata.ZKMetadataProvider;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.utils.CommonConstants;
+import org.apache.pinot.common.utils.CommonConstants.Helix.StateModel.SegmentStateModel;
+import org.apache.pinot.common.utils.request.FilterQueryTree;
+import org.apache.pinot.common.utils.request.RequestUtils;
+import org.apache.pinot.core.query.request.context.ExpressionContext;
+import org.apache.pinot.core.query.request.context.predicate.RangePredicate;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.data.DateTimeFieldSpec;
+import org.apache.pinot.spi.data.DateTimeFormatSpec;
+import org.apache.pinot.spi.data.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The {@code TimeSegmentPruner} prunes segments based on the their time range (start/end time) stored in ZK. The pruner
+ * supports queries with filter (or nested filter) of EQUALITY, IN and RANGE predicates on the time column.
+ * <p>For hybrid tables, the pruner prunes the real-time segments entirely before the time boundary and the offline
+ * segments entirely after the time boundary with the time boundary filter attached to the query.
+ * <p>Segments without valid time range (e.g. consuming segments) are never pruned.
+ * <p>TODO: Support SDF (simple date format) time column
+ */
+public class TimeSegmentPruner implements SegmentPruner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TimeSegmentPruner.class);
+  private static final TimeInterval INVALID_TIME_INTERVAL = new TimeInterval(Long.MIN_VALUE, Long.MAX_VALUE);
+
+  private final String _tableNameWithType;
+  private final ZkHelixPropertyStore<ZNRecord> _propertyStore;
+  private final String _segmentZKMetadataPathPrefix;
+  private final String _timeColumn;
+  private final TimeUnit _timeUnit;
+  private final Map<String, TimeInterval> _timeIntervalMap = new ConcurrentHashMap<>();
+  // Segments without valid time range when not ONLINE yet (e.g. consuming segments), whose segment ZK metadata should
+  // be re-read once they become ONLINE (e.g. committed)
+  private final Set<String> _segmentsPendingOnline = ConcurrentHashMap.newKeySet();
+
+  public TimeSegmentPruner(TableConfig tableConfig, ZkHelixPropertyStore<ZNRecord> propertyStore) {
+    _tableNameWithType = tableConfig.getTableName();
+    _propertyStore = propertyStore;
+    _segmentZKMetadataPathPrefix = ZKMetadataProvider.constructPropertyStorePathForResource(_tableNameWithType) + "/";
+
+    Schema schema = ZKMetadataProvider.getTableSchema(_propertyStore, _tableNameWithType);
+    Preconditions.checkState(schema != null, "Failed to find schema for table: %s", _tableNameWithType);
+    _timeColumn = tableConfig.getValidationConfig().getTimeColumnName();
+    Preconditions
+        .checkNotNull(_timeColumn, "Time column must be configured in table config for table: %s", _tableNameWithType);
+    DateTimeFieldSpec dateTimeSpec = schema.getSpecForTimeColumn(_timeColumn);
+    Preconditions.checkNotNull(dateTimeSpec, "Field spec must be specified in schema for time column: %s of table: %s",
+        _timeColumn, _tableNameWithType);
+    DateTimeFormatSpec formatSpec = new DateTimeFormatSpec(dateTimeSpec.getFormat());
+    _timeUnit = formatSpec.getColumnUnit();
+    Preconditions
+        .checkNotNull(_timeUnit, "Time unit must be configured in the field spec for time column: %s of table: %s",
+            _timeColumn, _tableNameWithType);
+  }
+
+  @Override
+  public void init(ExternalView externalView, Set<String> onlineSegments) {
+    // Bulk load time info for all online segments
+    int numSegments = onlineSegments.size();
+    List<String> segments = new ArrayList<>(numSegments);
+    List<String> segmentZKMetadataPaths = new ArrayList<>(numSegments);
+    for (String segment : onlineSegments) {
+      segments.add(segment);
+      segmentZKMetadataPaths.add(_segmentZKMetadataPathPrefix + segment);
+    }
+    List<ZNRecord> znRecords = _propertyStore.get(segmentZKMetadataPaths, null, AccessOption.PERSISTENT);
+    for (int i = 0; i < numSegments; i++) {
+      String segment = segments.get(i);
+      TimeInterval timeInterval = extractTimeIntervalFromSegmentZKMetadataZNRecord(segment, znRecords.get(i));
+      _timeIntervalMap.put(segment, timeInterval);
+      if (timeInterval == INVALID_TIME_INTERVAL && !isOnline(externalView, segment)) {
+        _segmentsPendingOnline.add(segment);
+      }
+    }
+  }
+
+  private static boolean isOnline(ExternalView externalView, String segment) {
+    Map<String, String> instanceStateMap = externalView.getStateMap(segment);
+    return instanceStateMap != null && instanceStateMap.containsValue(SegmentStateModel.ONLINE);
+  }
+
+  private TimeInterval readTimeInterval(String segment) {
+    return extractTimeIntervalFromSegmentZKMetadataZNRecord(segment,
+        _propertyStore.get(_segmentZKMetadataPathPrefix + segment, null, AccessOption.PERSISTENT));
+  }
+
+  private TimeInterval extractTimeIntervalFromSegmentZKMetadataZNRecord(String segment, @Nullable ZNRecord znRecord) {
+    if (znRecord == null) {
+      LOGGER.warn("Failed to find segment ZK metadata for segment: {}, table: {}", segment, _tableNameWithType);
+      return INVALID_TIME_INTERVAL;
+    }
+
+    // NOTE: Consuming segments do not have the start/end time set, and should not be pruned
+    long startTime = znRecord.getLongField(CommonConstants.Segment.START_TIME, -1);
+    long endTime = znRecord.getLongField(CommonConstants.Segment.END_TIME, -1);
+    if (startTime < 0 || endTime < startTime) {
+      return INVALID_TIME_INTERVAL;
+    }
+
+    TimeUnit timeUnit = znRecord.getEnumField(CommonConstants.Segment.TIME_UNIT, TimeUnit.class, TimeUnit.DAYS);
+    return new TimeInterval(_timeUnit.convert(startTime, timeUnit), _timeUnit.convert(endTime, timeUnit));
+  }
+
+  @Override
+  public synchronized void onExternalViewChange(ExternalView externalView, Set<String> onlineSegments) {
+    // NOTE: We don't update all the segment ZK metadata for every external view change, but only the new added/removed
+    //       ones, and the ones without valid time range that just become ONLINE (e.g. committed consuming segments,
+    //       which have the start/end time set on commit without a refresh message). The refreshed segment ZK metadata
+    //       change won't be picked up.
+    _timeIntervalMap.keySet().retainAll(onlineSegments);
+    _segmentsPendingOnline.retainAll(onlineSegments);
+    for (String segment : onlineSegments) {
+      TimeInterval timeInterval = _timeIntervalMap.get(segment);
+      boolean online = isOnline(externalView, segment);
+      if (timeInterval == null || (online && _segmentsPendingOnline.contains(segment))) {
+        timeInterval = readTimeInterval(segment);
+        _timeIntervalMap.put(segment, timeInterval);
+        if (timeInterval == INVALID_TIME_INTERVAL && !online) {
+          _segmentsPendingOnline.add(segment);
+        } else {
+          _segmentsPendingOnline.remove(segment);
+        }
+      }
+    }
+  }
+
+  @Override
+  public synchronized void refreshSegment(String segment) {
+    _timeIntervalMap.put(segment, readTimeInterval(segment));
+  }
+
+  @Override
+  public List<String> prune(BrokerRequest brokerRequest, List<String> segments) {
+    FilterQueryTree filterQueryTree = RequestUtils.generateFilterQueryTree(brokerRequest);
+    if (filterQueryTree == null) {
+      return segments;
+    }
+    List<String> selectedSegments = new ArrayList<>();
+    for (String segment : segments) {
+      TimeInterval timeInterval = _timeIntervalMap.get(segment);
+      if (timeInterval == null || timeInterval == INVALID_TIME_INTERVAL || isTimeMatch(filterQueryTree,
+          timeInterval)) {
+        selectedSegments.add(segment);
+      }
+    }
+    return selectedSegments;
+  }
+
+  /**
+   * Returns {@code true} if all the given segments are known to be within the given time range (both ends inclusive, in
+   * the unit of the time column), in which case the time filter for the range can be skipped for the segments.
+   */
+  public boolean isWithinTimeRange(List<String> segments, long startTime, long endTime) {
+    for (String segment : segments) {
+      TimeInterval timeInterval = _timeIntervalMap.get(segment);
+      if (timeInterval == null || timeInterval == INVALID_TIME_INTERVAL || timeInterval._startTime < startTime
+          || timeInterval._endTime > endTime) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isTimeMatch(FilterQueryTree filterQueryTree, TimeInterval timeInterval) {
+    switch (filterQueryTree.getOperator()) {
+      case AND:
+        for (FilterQueryTree child : filterQueryTree.getChildren()) {
+          if (!isTimeMatch(child, timeInterval)) {
+            return false;
+          }
+        }
+        return true;
+      case OR:
+        for (FilterQueryTree child : filterQueryTree.getChildren()) {
+          if (isTimeMatch(child, timeInterval)) {
+            return true;
+          }
+        }
+        return false;
+      case EQUALITY:
+      case IN:
+        if (filterQueryTree.getColumn().equals(_timeColumn)) {
+          try {
+            for (String value : filterQueryTree.getValue()) {
+              long time = Long.parseLong(value);
+              if (time >= timeInterval._startTime && time <= timeInterval._endTime) {
+                return true;
+              }
+            }
+            return false;
+          } catch (NumberFormatException e) {
+            return true;
+          }
+        }
+        return true;
+      case RANGE:
+        if (filterQueryTree.getColumn().equals(_timeColumn)) {
+          RangePredicate rangePredicate =
+              new RangePredicate(ExpressionContext.forIdentifier(_timeColumn), filterQueryTree.getValue().get(0));
+          try {
+            return isRangeMatch(rangePredicate, timeInterval);
+          } catch (NumberFormatException e) {
+            return true;
+          }
+        }
+        return true;
+      default:
+        return true;
+    }
+  }
+
+  private static boolean isRangeMatch(RangePredicate rangePredicate, TimeInterval timeInterval) {
+    String lowerBound = rangePredicate.getLowerBound();
+    if (!lowerBound.equals(RangePredicate.UNBOUNDED)) {
+      long lowerTime = Long.parseLong(lowerBound);
+      if (rangePredicate.isLowerInclusive() ? timeInterval._endTime < lowerTime : timeInterval._endTime <= lowerTime) {
+        return false;
+      }
+    }
+    String upperBound = rangePredicate.getUpperBound();
+    if (!upperBound.equals(RangePredicate.UNBOUNDED)) {
+      long upperTime = Long.parseLong(upperBound);
+      if (rangePredicate.isUpperInclusive() ? timeInterval._startTime > upperTime
+          : timeInterval._startTime >= upperTime) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class TimeInterval {
+    final long _startTime;
+    final long _endTime;
+
+    TimeInterval(long startTime, long endTime) {
+      _startTime = startTime;
+      _endTime = endTime;
+    }
+  }
+}
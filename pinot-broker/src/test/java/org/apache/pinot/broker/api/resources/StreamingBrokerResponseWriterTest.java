@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.api.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.response.broker.ResultTable;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.spi.utils.JsonUtils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+
+public class StreamingBrokerResponseWriterTest {
+  private static final DataSchema DATA_SCHEMA = new DataSchema(new String[]{"foo", "bar"},
+      new DataSchema.ColumnDataType[]{DataSchema.ColumnDataType.INT, DataSchema.ColumnDataType.STRING});
+
+  @Test
+  public void testStreamedRows()
+      throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    StreamingBrokerResponseWriter writer = new StreamingBrokerResponseWriter(outputStream);
+    writer.onDataSchema(DATA_SCHEMA);
+    writer.onRows(Arrays.asList(new Object[]{1, "a"}, new Object[]{2, "b"}));
+    // Rows should be flushed before the query finishes
+    // NOTE: Serialize the data schema with the same writer because the order of its fields is not fixed
+    assertEquals(outputStream.toString(),
+        "{\"resultTable\":{\"dataSchema\":" + JsonUtils.objectToString(DATA_SCHEMA) + ",\"rows\":[[1,\"a\"],[2,\"b\"]");
+    writer.onRows(Collections.singletonList(new Object[]{3, "c"}));
+    BrokerResponseNative brokerResponse = new BrokerResponseNative();
+    brokerResponse.setNumDocsScanned(3);
+    writer.finish(brokerResponse);
+
+    // NOTE: Compare the parsed JSON because numbers are parsed as different node types than the serialized ones
+    ObjectNode expected = (ObjectNode) JsonUtils.stringToJsonNode(brokerResponse.toJsonString());
+    expected.set("resultTable", JsonUtils.stringToJsonNode(JsonUtils.objectToString(new ResultTable(DATA_SCHEMA,
+        Arrays.asList(new Object[]{1, "a"}, new Object[]{2, "b"}, new Object[]{3, "c"})))));
+    assertTrue(JsonUtils.stringToJsonNode(outputStream.toString()).equals(expected));
+  }
+
+  @Test
+  public void testNonStreamedResponse()
+      throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    StreamingBrokerResponseWriter writer = new StreamingBrokerResponseWriter(outputStream);
+    BrokerResponseNative brokerResponse = new BrokerResponseNative();
+    brokerResponse.setResultTable(new ResultTable(DATA_SCHEMA, Collections.singletonList(new Object[]{1, "a"})));
+    writer.finish(brokerResponse);
+    JsonNode expected = JsonUtils.stringToJsonNode(brokerResponse.toJsonString());
+    assertTrue(JsonUtils.stringToJsonNode(outputStream.toString()).equals(expected));
+  }
+
+  @Test
+  public void testFinishWithException()
+      throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    StreamingBrokerResponseWriter writer = new StreamingBrokerResponseWriter(outputStream);
+    writer.onDataSchema(DATA_SCHEMA);
+    writer.onRows(Collections.singletonList(new Object[]{1, "a"}));
+    writer.finishWithException(new RuntimeException("Something went wrong"));
+
+    // The streamed rows should be kept, and the exception should be reported in a complete JSON document
+    JsonNode response = JsonUtils.stringToJsonNode(outputStream.toString());
+    assertEquals(response.get("resultTable").get("rows").size(), 1);
+    JsonNode exceptions = response.get("exceptions");
+    assertEquals(exceptions.size(), 1);
+    assertEquals(exceptions.get(0).get("errorCode").asInt(), QueryException.BROKER_GATHER_ERROR_CODE);
+    assertTrue(exceptions.get(0).get("message").asText().contains("Something went wrong"));
+  }
+}
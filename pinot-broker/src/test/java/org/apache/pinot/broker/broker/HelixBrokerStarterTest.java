@@ -18,7 +18,9 @@
  */
 package org.apache.pinot.broker.broker;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.apache.helix.model.ExternalView;
@@ -35,6 +37,7 @@ import org.apache.pinot.common.utils.config.TagNameUtils;
 import org.apache.pinot.controller.helix.ControllerTest;
 import org.apache.pinot.controller.helix.core.PinotHelixResourceManager;
 import org.apache.pinot.controller.utils.SegmentMetadataMockUtils;
+import org.apache.pinot.core.transport.ServerInstance;
 import org.apache.pinot.pql.parsers.Pql2Compiler;
 import org.apache.pinot.spi.config.table.TableConfig;
 import org.apache.pinot.spi.config.table.TableType;
@@ -53,6 +56,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
@@ -221,6 +225,34 @@ public class HelixBrokerStarterTest extends ControllerTest {
         .equals(Integer.toString(newEndTime - 1)), 30_000L, "Failed to update the time boundary for refreshed segment");
   }
 
+  /**
+   * This test verifies that the time range check for hybrid table is based on the start/end time of all the selected
+   * segments.
+   */
+  @Test
+  public void testIsWithinTimeRange() {
+    RoutingManager routingManager = _brokerStarter.getRoutingManager();
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest("SELECT * FROM " + OFFLINE_TABLE_NAME);
+    Map<ServerInstance, List<String>> routingTable =
+        routingManager.getRoutingTable(brokerRequest).getServerInstanceToSegmentsMap();
+    assertFalse(routingTable.isEmpty());
+
+    // All the OFFLINE segments start at 0 and end no later than 20 (refreshed segment)
+    TestUtils.waitForCondition(aVoid -> routingManager.isWithinTimeRange(OFFLINE_TABLE_NAME,
+        routingManager.getRoutingTable(brokerRequest).getServerInstanceToSegmentsMap(), 0, 20), 30_000L,
+        "Failed to find all the OFFLINE segments within the time range");
+    assertFalse(routingManager.isWithinTimeRange(OFFLINE_TABLE_NAME, routingTable, 1, 20));
+    assertFalse(routingManager.isWithinTimeRange(OFFLINE_TABLE_NAME, routingTable, 0, 9));
+
+    // Segments without cached time range should not be considered within the time range
+    Map<ServerInstance, List<String>> unknownSegmentRoutingTable = Collections
+        .singletonMap(routingTable.keySet().iterator().next(), Collections.singletonList("unknownSegment"));
+    assertFalse(routingManager.isWithinTimeRange(OFFLINE_TABLE_NAME, unknownSegmentRoutingTable, 0, 20));
+
+    // Table without routing should not be considered within the time range
+    assertFalse(routingManager.isWithinTimeRange("unknownTable_OFFLINE", routingTable, 0, 20));
+  }
+
   @AfterClass
   public void tearDown() {
     stopFakeInstances();
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.Arrays;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.sql.parsers.CalciteSqlCompiler;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class BrokerRequestCompilationCacheTest {
+  private static final CalciteSqlCompiler SQL_COMPILER = new CalciteSqlCompiler();
+
+  @Test
+  public void testCompile() {
+    BrokerRequestCompilationCache cache =
+        new BrokerRequestCompilationCache(1024 * 1024, new BrokerMetrics("", new MetricsRegistry(), false));
+    String query = "SELECT COUNT(*) FROM myTable WHERE foo = 'bar' GROUP BY baz";
+    BrokerRequest expected = SQL_COMPILER.compileToBrokerRequest(query);
+
+    BrokerRequest brokerRequest1 = cache.compile("sql", query);
+    assertEquals(brokerRequest1, expected);
+    assertEquals(cache.size(), 1);
+
+    // Modifying the returned broker request should not affect the cached one
+    brokerRequest1.getQuerySource().setTableName("myTable_OFFLINE");
+    brokerRequest1.getPinotQuery().getDataSource().setTableName("myTable_OFFLINE");
+    BrokerRequest brokerRequest2 = cache.compile("SQL", query);
+    assertNotSame(brokerRequest2, brokerRequest1);
+    assertEquals(brokerRequest2, expected);
+    assertEquals(cache.size(), 1);
+
+    // Same query text with different format should be cached separately
+    cache.compile("pql", "SELECT COUNT(*) FROM myTable");
+    cache.compile("sql", "SELECT COUNT(*) FROM myTable");
+    assertEquals(cache.size(), 3);
+  }
+
+  @Test
+  public void testTemplate() {
+    BrokerRequestCompilationCache cache =
+        new BrokerRequestCompilationCache(1024 * 1024, new BrokerMetrics("", new MetricsRegistry(), false));
+    String queryFormat = "SELECT country, SUM(clicks) FROM myTable WHERE daysSinceEpoch BETWEEN %d AND %d "
+        + "AND browser IN ('%s', 'firefox') AND price > %s AND delta > -%d GROUP BY country "
+        + "HAVING SUM(clicks) > %d ORDER BY SUM(clicks) DESC LIMIT 10";
+    String[] queries = new String[]{
+        String.format(queryFormat, 18000, 18030, "chrome", "1.5", 3, 100),
+        String.format(queryFormat, 18001, 18031, "it''s", "2.25", 5, 0),
+        String.format(queryFormat, 18001, 18001, "firefox", "0.0", 0, 18001)
+    };
+    for (String query : queries) {
+      assertEquals(cache.compile("sql", query), SQL_COMPILER.compileToBrokerRequest(query));
+    }
+    // All the queries share the same template
+    assertEquals(cache.size(), 1);
+
+    // Different LIMIT should not share the template
+    String query = queries[0].replace("LIMIT 10", "LIMIT 20");
+    assertEquals(cache.compile("sql", query), SQL_COMPILER.compileToBrokerRequest(query));
+    assertEquals(cache.size(), 2);
+
+    // Literal in the query options cannot be templated, and the query should be cached by the exact query text
+    cache = new BrokerRequestCompilationCache(1024 * 1024, new BrokerMetrics("", new MetricsRegistry(), false));
+    query = "SELECT SUM(clicks) FROM myTable WHERE country = 'us' OPTION(timeoutMs=1000)";
+    assertEquals(cache.compile("sql", query), SQL_COMPILER.compileToBrokerRequest(query));
+    assertEquals(cache.size(), 2);
+    query = "SELECT SUM(clicks) FROM myTable WHERE country = 'us' OPTION(timeoutMs=2000)";
+    assertEquals(cache.compile("sql", query), SQL_COMPILER.compileToBrokerRequest(query));
+    assertEquals(cache.size(), 3);
+  }
+
+  @Test
+  public void testParameterizedQuery() {
+    BrokerRequestCompilationCache.ParameterizedQuery parameterizedQuery =
+        BrokerRequestCompilationCache.ParameterizedQuery.parse(
+            "SELECT \"col1\", col2 FROM myTable WHERE col1 = 'a''b' AND col2 > 1.5 AND col3 IN (-3, 4) "
+                + "AND col4 = N'c' AND col5 > 1e3 LIMIT 5, 10");
+    assertNotNull(parameterizedQuery);
+    assertEquals(parameterizedQuery._template,
+        "SELECT \"col1\", col2 FROM myTable WHERE col1 = '?' AND col2 > ?. AND col3 IN (-?, ?) "
+            + "AND col4 = N'c' AND col5 > 1e3 LIMIT 5, 10");
+    assertEquals(parameterizedQuery._parameters, Arrays.asList("a'b", 1.5, 3L, 4L));
+
+    // No literal
+    assertNull(BrokerRequestCompilationCache.ParameterizedQuery.parse("SELECT * FROM myTable LIMIT 10"));
+    // Dynamic parameter
+    assertNull(BrokerRequestCompilationCache.ParameterizedQuery.parse("SELECT * FROM myTable WHERE a = ? AND b = 1"));
+    // Unterminated string
+    assertNull(BrokerRequestCompilationCache.ParameterizedQuery.parse("SELECT * FROM myTable WHERE a = 'b"));
+  }
+
+  @Test
+  public void testMaxBytes() {
+    String query = "SELECT COUNT(*) FROM myTable WHERE foo = 'bar' GROUP BY baz";
+
+    // Query larger than the max bytes should not be cached
+    BrokerRequestCompilationCache cache =
+        new BrokerRequestCompilationCache(query.length(), new BrokerMetrics("", new MetricsRegistry(), false));
+    assertEquals(cache.compile("sql", query), SQL_COMPILER.compileToBrokerRequest(query));
+    assertEquals(cache.size(), 0);
+  }
+
+  @Test
+  public void testIsCacheable() {
+    assertTrue(BrokerRequestCompilationCache.isCacheable("SELECT COUNT(*) FROM myTable WHERE foo > 10"));
+    assertTrue(BrokerRequestCompilationCache.isCacheable("SELECT DISTINCTCOUNT(foo), SUM(bar) FROM myTable"));
+    // Scalar functions might be evaluated at compile time
+    assertFalse(BrokerRequestCompilationCache.isCacheable("SELECT * FROM myTable WHERE ts > now() - 3600000"));
+    assertFalse(BrokerRequestCompilationCache.isCacheable("SELECT * FROM myTable WHERE ts > NOW ()"));
+    assertFalse(BrokerRequestCompilationCache.isCacheable("SELECT * FROM myTable WHERE ts > to_epoch_seconds(1)"));
+
+    BrokerRequestCompilationCache cache =
+        new BrokerRequestCompilationCache(1024 * 1024, new BrokerMetrics("", new MetricsRegistry(), false));
+    cache.compile("sql", "SELECT * FROM myTable WHERE ts > now() - 3600000");
+    assertEquals(cache.size(), 0);
+  }
+}
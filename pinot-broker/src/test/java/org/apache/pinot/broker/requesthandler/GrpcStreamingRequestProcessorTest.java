@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import com.yammer.metrics.core.MetricsRegistry;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.pinot.broker.api.RequestStatistics;
+import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.proto.PinotQueryServerGrpc;
+import org.apache.pinot.common.proto.Server.ServerRequest;
+import org.apache.pinot.common.proto.Server.ServerResponse;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.utils.CommonConstants.Broker.Request;
+import org.apache.pinot.common.utils.CommonConstants.Helix;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataTable;
+import org.apache.pinot.core.common.datatable.DataTableBuilder;
+import org.apache.pinot.core.common.datatable.DataTableImplV2;
+import org.apache.pinot.core.operator.streaming.StreamingResponseUtils;
+import org.apache.pinot.core.query.reduce.BrokerReduceService;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.sql.parsers.CalciteSqlCompiler;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class GrpcStreamingRequestProcessorTest {
+  private static final CalciteSqlCompiler SQL_COMPILER = new CalciteSqlCompiler();
+  private static final int NUM_DATA_BLOCKS = 100;
+  private static final int NUM_ROWS_PER_DATA_BLOCK = 10;
+  private static final DataSchema DATA_SCHEMA =
+      new DataSchema(new String[]{"foo"}, new DataSchema.ColumnDataType[]{DataSchema.ColumnDataType.INT});
+
+  private final FakeQueryServer _queryServer = new FakeQueryServer();
+  private Server _server;
+  private ServerInstance _serverInstance;
+  private GrpcStreamingRequestProcessor _processor;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    _server = ServerBuilder.forPort(0).addService(_queryServer).build().start();
+    InstanceConfig instanceConfig = new InstanceConfig("Server_localhost_1234");
+    instanceConfig.getRecord().setSimpleField(Helix.Instance.GRPC_PORT_KEY, Integer.toString(_server.getPort()));
+    _serverInstance = new ServerInstance(instanceConfig);
+    _processor = new GrpcStreamingRequestProcessor("testBroker", new BrokerMetrics("", new MetricsRegistry(), false),
+        new BrokerReduceService(), 2, 4);
+  }
+
+  @Test
+  public void testCanStream() {
+    Map<ServerInstance, List<String>> routingTable =
+        Collections.singletonMap(_serverInstance, Collections.singletonList("segment"));
+    assertTrue(_processor.canStream(getBrokerRequest("SELECT foo FROM myTable LIMIT 10"), routingTable, null));
+    assertFalse(_processor.canStream(getBrokerRequest("SELECT foo FROM myTable ORDER BY foo"), routingTable, null));
+    assertFalse(_processor.canStream(getBrokerRequest("SELECT COUNT(*) FROM myTable"), routingTable, null));
+    assertFalse(_processor.canStream(getBrokerRequest("SELECT foo FROM myTable LIMIT 0"), routingTable, null));
+
+    // Server without gRPC port
+    Map<ServerInstance, List<String>> nonGrpcRoutingTable = Collections
+        .singletonMap(new ServerInstance(new InstanceConfig("Server_localhost_1234")),
+            Collections.singletonList("segment"));
+    assertFalse(_processor.canStream(getBrokerRequest("SELECT foo FROM myTable"), nonGrpcRoutingTable, null));
+  }
+
+  @Test
+  public void testStreamAllRows()
+      throws Exception {
+    int numRows = NUM_DATA_BLOCKS * NUM_ROWS_PER_DATA_BLOCK;
+    BrokerRequest brokerRequest = getBrokerRequest("SELECT foo AS bar FROM myTable LIMIT " + (numRows + 1));
+    CollectingObserver observer = new CollectingObserver();
+    BrokerResponseNative brokerResponse = process(brokerRequest, observer);
+
+    assertNotNull(observer._dataSchema);
+    assertEquals(observer._dataSchema.getColumnNames(), new String[]{"bar"});
+    assertEquals(observer._rows.size(), numRows);
+    for (int i = 0; i < numRows; i++) {
+      assertEquals(observer._rows.get(i)[0], i);
+    }
+    assertEquals(brokerResponse.getNumServersQueried(), 1);
+    assertEquals(brokerResponse.getNumServersResponded(), 1);
+    assertEquals(brokerResponse.getNumDocsScanned(), numRows);
+    assertEquals(brokerResponse.getExceptionsSize(), 0);
+  }
+
+  @Test
+  public void testCancelStreamOnLimitReached()
+      throws Exception {
+    CountDownLatch cancelled = new CountDownLatch(1);
+    _queryServer._cancelled = cancelled;
+    CollectingObserver observer = new CollectingObserver();
+    BrokerResponseNative brokerResponse = process(getBrokerRequest("SELECT foo FROM myTable LIMIT 25"), observer);
+
+    assertEquals(observer._rows.size(), 25);
+    assertEquals(observer._rows.get(24)[0], 24);
+    assertEquals(brokerResponse.getExceptionsSize(), 0);
+    assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+    _queryServer._cancelled = null;
+  }
+
+  @Test
+  public void testRejectStreamsBeyondMaxThreads()
+      throws Exception {
+    GrpcStreamingRequestProcessor processor =
+        new GrpcStreamingRequestProcessor("testBroker", new BrokerMetrics("", new MetricsRegistry(), false),
+            new BrokerReduceService(), 2, 1);
+    InstanceConfig instanceConfig = new InstanceConfig("Server_127.0.0.1_1234");
+    instanceConfig.getRecord().setSimpleField(Helix.Instance.GRPC_PORT_KEY, Integer.toString(_server.getPort()));
+    Map<ServerInstance, List<String>> routingTable = new HashMap<>();
+    routingTable.put(_serverInstance, Collections.singletonList("segment"));
+    routingTable.put(new ServerInstance(instanceConfig), Collections.singletonList("segment"));
+    BrokerRequest brokerRequest = getBrokerRequest("SELECT foo FROM myTable LIMIT 10000");
+    CollectingObserver observer = new CollectingObserver();
+    BrokerResponseNative brokerResponse;
+    try {
+      brokerResponse =
+          processor.processBrokerRequest(1L, brokerRequest, brokerRequest, routingTable, null, null, 10_000L,
+              new RequestStatistics(), observer);
+    } finally {
+      processor.shutDown();
+    }
+
+    // Only one server stream can be drained with one thread, the other one should be rejected
+    assertEquals(observer._rows.size(), NUM_DATA_BLOCKS * NUM_ROWS_PER_DATA_BLOCK);
+    assertEquals(brokerResponse.getNumServersQueried(), 2);
+    assertEquals(brokerResponse.getNumServersResponded(), 1);
+    assertEquals(brokerResponse.getExceptionsSize(), 1);
+    assertEquals(brokerResponse.getProcessingExceptions().get(0).getErrorCode(),
+        QueryException.BROKER_REQUEST_SEND_ERROR_CODE);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _processor.shutDown();
+    _server.shutdownNow();
+  }
+
+  private BrokerResponseNative process(BrokerRequest brokerRequest, StreamingResultObserver observer)
+      throws Exception {
+    return _processor.processBrokerRequest(1L, brokerRequest, brokerRequest,
+        Collections.singletonMap(_serverInstance, Collections.singletonList("segment")), null, null, 10_000L,
+        new RequestStatistics(), observer);
+  }
+
+  private static BrokerRequest getBrokerRequest(String query) {
+    BrokerRequest brokerRequest = SQL_COMPILER.compileToBrokerRequest(query);
+    brokerRequest.setQueryOptions(Collections.singletonMap(Request.QueryOptionKey.RESPONSE_FORMAT, Request.SQL));
+    return brokerRequest;
+  }
+
+  private static class CollectingObserver implements StreamingResultObserver {
+    DataSchema _dataSchema;
+    List<Object[]> _rows = new ArrayList<>();
+
+    @Override
+    public void onDataSchema(DataSchema dataSchema) {
+      _dataSchema = dataSchema;
+    }
+
+    @Override
+    public void onRows(List<Object[]> rows) {
+      _rows.addAll(rows);
+    }
+  }
+
+  /**
+   * Query server streaming data blocks with sequential integer values, followed by the metadata. When the cancellation
+   * latch is set, keeps streaming data blocks until the stream is cancelled.
+   */
+  private static class FakeQueryServer extends PinotQueryServerGrpc.PinotQueryServerImplBase {
+    volatile CountDownLatch _cancelled;
+
+    @Override
+    public void submit(ServerRequest request, StreamObserver<ServerResponse> responseObserver) {
+      ServerCallStreamObserver<ServerResponse> serverCallStreamObserver =
+          (ServerCallStreamObserver<ServerResponse>) responseObserver;
+      CountDownLatch cancelled = _cancelled;
+      if (cancelled != null) {
+        serverCallStreamObserver.setOnCancelHandler(cancelled::countDown);
+      }
+      try {
+        int value = 0;
+        long endTimeMs = System.currentTimeMillis() + 10_000L;
+        for (int i = 0; cancelled != null || i < NUM_DATA_BLOCKS; i++) {
+          if (cancelled != null) {
+            while (!serverCallStreamObserver.isReady()) {
+              if (serverCallStreamObserver.isCancelled() || System.currentTimeMillis() > endTimeMs) {
+                return;
+              }
+              Thread.sleep(1L);
+            }
+          }
+          DataTableBuilder dataTableBuilder = new DataTableBuilder(DATA_SCHEMA);
+          for (int j = 0; j < NUM_ROWS_PER_DATA_BLOCK; j++) {
+            dataTableBuilder.startRow();
+            dataTableBuilder.setColumn(0, value++);
+            dataTableBuilder.finishRow();
+          }
+          responseObserver.onNext(StreamingResponseUtils.getDataResponse(dataTableBuilder.build()));
+        }
+        DataTable metadataTable = new DataTableImplV2();
+        metadataTable.getMetadata().put(DataTable.NUM_DOCS_SCANNED_METADATA_KEY, Integer.toString(value));
+        responseObserver.onNext(StreamingResponseUtils.getMetadataResponse(metadataTable));
+        responseObserver.onCompleted();
+      } catch (Exception e) {
+        if (!serverCallStreamObserver.isCancelled()) {
+          responseObserver.onError(e);
+        }
+      }
+    }
+  }
+}
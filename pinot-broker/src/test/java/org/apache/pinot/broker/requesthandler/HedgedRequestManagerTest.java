@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.pinot.broker.routing.RoutingManager;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.request.QuerySource;
+import org.apache.pinot.core.transport.AsyncQueryResponse;
+import org.apache.pinot.core.transport.QueryRouter;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.core.transport.ServerRoutingInstance;
+import org.apache.pinot.spi.config.table.TableType;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+
+public class HedgedRequestManagerTest {
+  private static final ServerRoutingInstance SERVER = new ServerRoutingInstance("localhost", 12345, TableType.OFFLINE);
+
+  @Test
+  public void testLatencyPercentile() {
+    HedgedRequestManager hedgedRequestManager =
+        new HedgedRequestManager(mock(QueryRouter.class), mock(RoutingManager.class), mock(BrokerMetrics.class), 90, 10,
+            5);
+
+    // Not enough latencies tracked
+    assertEquals(hedgedRequestManager.getLatencyPercentile(SERVER), -1);
+    for (int i = 1; i < 16; i++) {
+      hedgedRequestManager.recordLatency(SERVER, i);
+    }
+    assertEquals(hedgedRequestManager.getLatencyPercentile(SERVER), -1);
+
+    // Latencies: 1-100
+    for (int i = 16; i <= 100; i++) {
+      hedgedRequestManager.recordLatency(SERVER, i);
+    }
+    assertEquals(hedgedRequestManager.getLatencyPercentile(SERVER), 90);
+
+    // Only the recent 128 latencies should be tracked: 101-228
+    for (int i = 101; i <= 228; i++) {
+      hedgedRequestManager.recordLatency(SERVER, i);
+    }
+    assertEquals(hedgedRequestManager.getLatencyPercentile(SERVER), 216);
+  }
+
+  @Test
+  public void testHedgeBudget() {
+    HedgedRequestManager hedgedRequestManager =
+        new HedgedRequestManager(mock(QueryRouter.class), mock(RoutingManager.class), mock(BrokerMetrics.class), 90, 10,
+            5);
+
+    // 5% budget, 20 server requests earn 1 token
+    assertFalse(hedgedRequestManager.tryAcquireToken());
+    hedgedRequestManager.addTokens(19);
+    assertFalse(hedgedRequestManager.tryAcquireToken());
+    hedgedRequestManager.addTokens(1);
+    assertTrue(hedgedRequestManager.tryAcquireToken());
+    assertFalse(hedgedRequestManager.tryAcquireToken());
+
+    // Tokens should be capped to bound the burst of the hedged requests
+    hedgedRequestManager.addTokens(1000);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(hedgedRequestManager.tryAcquireToken());
+    }
+    assertFalse(hedgedRequestManager.tryAcquireToken());
+  }
+
+  @Test
+  public void testExcludeHedgeServers()
+      throws Exception {
+    ServerInstance slowServerInstance1 = new ServerInstance(new InstanceConfig("Server_localhost_12345"));
+    ServerInstance slowServerInstance2 = new ServerInstance(new InstanceConfig("Server_localhost_12346"));
+    ServerInstance hedgeServerInstance1 = new ServerInstance(new InstanceConfig("Server_localhost_12347"));
+    ServerInstance hedgeServerInstance2 = new ServerInstance(new InstanceConfig("Server_localhost_12348"));
+    Map<ServerInstance, List<String>> routingTable = new HashMap<>();
+    routingTable.put(slowServerInstance1, Collections.singletonList("segment1"));
+    routingTable.put(slowServerInstance2, Collections.singletonList("segment2"));
+
+    // Pick the first server not excluded as the hedge server, and record the excluded servers for each hedged request
+    List<Set<ServerInstance>> excludedServerInstancesList = new ArrayList<>();
+    RoutingManager routingManager = mock(RoutingManager.class);
+    when(routingManager.getHedgeRoutingTable(any(), any(), any())).thenAnswer(invocation -> {
+      List<String> segments = invocation.getArgument(1);
+      Set<ServerInstance> excludedServerInstances = invocation.getArgument(2);
+      excludedServerInstancesList.add(new HashSet<>(excludedServerInstances));
+      ServerInstance hedgeServerInstance =
+          excludedServerInstances.contains(hedgeServerInstance1) ? hedgeServerInstance2 : hedgeServerInstance1;
+      return Collections.singletonMap(hedgeServerInstance, segments);
+    });
+    QueryRouter queryRouter = mock(QueryRouter.class);
+    when(queryRouter.submitHedgedRequest(any(), any(), any(), any(), any())).thenReturn(true);
+    HedgedRequestManager hedgedRequestManager =
+        new HedgedRequestManager(queryRouter, routingManager, mock(BrokerMetrics.class), 90, 10, 100);
+    for (int i = 0; i < 100; i++) {
+      hedgedRequestManager.recordLatency(slowServerInstance1.toServerRoutingInstance(TableType.OFFLINE), 1);
+      hedgedRequestManager.recordLatency(slowServerInstance2.toServerRoutingInstance(TableType.OFFLINE), 1);
+    }
+    AsyncQueryResponse asyncQueryResponse = mock(AsyncQueryResponse.class);
+    when(asyncQueryResponse.getResponse()).thenReturn(Collections.emptyMap());
+    BrokerRequest brokerRequest = new BrokerRequest();
+    brokerRequest.setQuerySource(new QuerySource().setTableName("myTable_OFFLINE"));
+
+    // The server picked for the first hedged request should be excluded from the second one
+    hedgedRequestManager.getResponse(asyncQueryResponse, "myTable", brokerRequest, routingTable, null, null,
+        System.currentTimeMillis() - 1000L);
+    assertEquals(excludedServerInstancesList.size(), 2);
+    assertEquals(excludedServerInstancesList.get(0), routingTable.keySet());
+    Set<ServerInstance> expectedExcludedServerInstances = new HashSet<>(routingTable.keySet());
+    expectedExcludedServerInstances.add(hedgeServerInstance1);
+    assertEquals(excludedServerInstancesList.get(1), expectedExcludedServerInstances);
+    verify(queryRouter, times(2)).submitHedgedRequest(any(), any(), any(), any(), any());
+  }
+
+  @Test
+  public void testGetResponseOnException()
+      throws Exception {
+    RoutingManager routingManager = mock(RoutingManager.class);
+    when(routingManager.getHedgeRoutingTable(any(), any(), any())).thenThrow(new RuntimeException());
+    HedgedRequestManager hedgedRequestManager =
+        new HedgedRequestManager(mock(QueryRouter.class), routingManager, mock(BrokerMetrics.class), 90, 10, 5);
+    for (int i = 0; i < 100; i++) {
+      hedgedRequestManager.recordLatency(SERVER, 1);
+    }
+    AsyncQueryResponse asyncQueryResponse = mock(AsyncQueryResponse.class);
+    BrokerRequest brokerRequest = new BrokerRequest();
+    brokerRequest.setQuerySource(new QuerySource().setTableName("myTable_OFFLINE"));
+    Map<ServerInstance, List<String>> routingTable = Collections
+        .singletonMap(new ServerInstance(new InstanceConfig("Server_localhost_12345")),
+            Collections.singletonList("segment"));
+
+    // The query should still be marked done and cancelled on the servers when failing to hedge the requests
+    try {
+      hedgedRequestManager.getResponse(asyncQueryResponse, "myTable", brokerRequest, routingTable, null, null,
+          System.currentTimeMillis() - 1000L);
+      fail("Expected exception while getting the hedge routing table");
+    } catch (RuntimeException e) {
+      // Expected
+    }
+    verify(asyncQueryResponse).getResponse();
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.pinot.broker.api.RequestStatistics;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.utils.CommonConstants.Broker.Request.QueryOptionKey;
+import org.apache.pinot.common.utils.DataTable;
+import org.apache.pinot.core.common.datatable.DataTableImplV2;
+import org.apache.pinot.core.query.request.ServerQueryRequest;
+import org.apache.pinot.core.query.scheduler.QueryScheduler;
+import org.apache.pinot.core.transport.QueryServer;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.pql.parsers.Pql2Compiler;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class PartialResultsTest {
+  private static final int FAST_SERVER_PORT = 12361;
+  private static final int SLOW_SERVER_PORT = 12362;
+  private static final ServerInstance FAST_SERVER_INSTANCE =
+      new ServerInstance(new InstanceConfig("Server_localhost_" + FAST_SERVER_PORT));
+  private static final ServerInstance SLOW_SERVER_INSTANCE =
+      new ServerInstance(new InstanceConfig("Server_localhost_" + SLOW_SERVER_PORT));
+  private static final long TIMEOUT_MS = 10_000L;
+  private static final long PARTIAL_RESULTS_TIMEOUT_MS = 500L;
+
+  private final SettableFuture<byte[]> _slowQueryFuture = SettableFuture.create();
+  private QueryServer _fastQueryServer;
+  private QueryServer _slowQueryServer;
+  private SingleConnectionBrokerRequestHandler _requestHandler;
+
+  @BeforeClass
+  public void setUp() {
+    // Fast server responds with 2 queried segments, slow server never responds to the query
+    QueryScheduler fastQueryScheduler = mock(QueryScheduler.class);
+    when(fastQueryScheduler.submit(any())).thenAnswer(invocation -> {
+      DataTable dataTable = new DataTableImplV2();
+      dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY,
+          Long.toString(invocation.<ServerQueryRequest>getArgument(0).getRequestId()));
+      dataTable.getMetadata().put(DataTable.NUM_SEGMENTS_QUERIED, "2");
+      return Futures.immediateFuture(dataTable.toBytes());
+    });
+    _fastQueryServer = new QueryServer(FAST_SERVER_PORT, fastQueryScheduler, mock(ServerMetrics.class));
+    _fastQueryServer.start();
+    QueryScheduler slowQueryScheduler = mock(QueryScheduler.class);
+    when(slowQueryScheduler.submit(any())).thenReturn(_slowQueryFuture);
+    _slowQueryServer = new QueryServer(SLOW_SERVER_PORT, slowQueryScheduler, mock(ServerMetrics.class));
+    _slowQueryServer.start();
+
+    _requestHandler = new SingleConnectionBrokerRequestHandler(new PinotConfiguration(), null, null, null, null,
+        new BrokerMetrics("", new MetricsRegistry(), false));
+  }
+
+  @Test
+  public void testPartialResults()
+      throws Exception {
+    Map<ServerInstance, List<String>> routingTable = new HashMap<>();
+    routingTable.put(FAST_SERVER_INSTANCE, Arrays.asList("segment0", "segment1"));
+    routingTable.put(SLOW_SERVER_INSTANCE, Arrays.asList("segment2", "segment3"));
+
+    // The broker should stop waiting for the slow server at the soft timeout instead of the query timeout
+    BrokerRequest brokerRequest = getBrokerRequest();
+    long startTimeMs = System.currentTimeMillis();
+    BrokerResponseNative brokerResponse = processBrokerRequest(1L, brokerRequest, routingTable);
+    long queryTimeMs = System.currentTimeMillis() - startTimeMs;
+    assertTrue(queryTimeMs >= PARTIAL_RESULTS_TIMEOUT_MS && queryTimeMs < TIMEOUT_MS / 2, "Query time: " + queryTimeMs);
+    assertEquals(brokerResponse.getNumServersQueried(), 2);
+    assertEquals(brokerResponse.getNumServersResponded(), 1);
+    assertTrue(brokerResponse.isPartialResult());
+    // All the routed segments should be reported as queried, where only the ones on the fast server are processed
+    assertEquals(brokerResponse.getNumSegmentsQueried(), 4);
+
+    // Partial results should not be flagged when all the servers respond before the soft timeout
+    routingTable.remove(SLOW_SERVER_INSTANCE);
+    brokerResponse = processBrokerRequest(2L, brokerRequest, routingTable);
+    assertEquals(brokerResponse.getNumServersQueried(), 1);
+    assertEquals(brokerResponse.getNumServersResponded(), 1);
+    assertFalse(brokerResponse.isPartialResult());
+    assertEquals(brokerResponse.getNumSegmentsQueried(), 2);
+  }
+
+  private static BrokerRequest getBrokerRequest() {
+    BrokerRequest brokerRequest = new Pql2Compiler().compileToBrokerRequest("SELECT COUNT(*) FROM testTable_OFFLINE");
+    Map<String, String> queryOptions = new HashMap<>();
+    queryOptions.put(QueryOptionKey.PARTIAL_RESULTS, "true");
+    queryOptions.put(QueryOptionKey.PARTIAL_RESULTS_TIMEOUT_MS, Long.toString(PARTIAL_RESULTS_TIMEOUT_MS));
+    brokerRequest.setQueryOptions(queryOptions);
+    return brokerRequest;
+  }
+
+  private BrokerResponseNative processBrokerRequest(long requestId, BrokerRequest brokerRequest,
+      Map<ServerInstance, List<String>> routingTable)
+      throws Exception {
+    return (BrokerResponseNative) _requestHandler
+        .processBrokerRequest(requestId, brokerRequest, brokerRequest, routingTable, null, null, TIMEOUT_MS,
+            new BaseBrokerRequestHandler.ServerStats(), new RequestStatistics());
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _requestHandler.shutDown();
+    _slowQueryFuture.cancel(false);
+    _fastQueryServer.shutDown();
+    _slowQueryServer.shutDown();
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.pinot.broker.api.AccessControl;
+import org.apache.pinot.broker.api.RequestStatistics;
+import org.apache.pinot.broker.broker.AccessControlFactory;
+import org.apache.pinot.broker.queryquota.QueryQuotaManager;
+import org.apache.pinot.broker.routing.RoutingManager;
+import org.apache.pinot.broker.routing.RoutingTable;
+import org.apache.pinot.broker.routing.timeboundary.TimeBoundaryInfo;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.request.FilterOperator;
+import org.apache.pinot.common.request.FilterQuery;
+import org.apache.pinot.common.response.BrokerResponse;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.utils.helix.TableCache;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.JsonUtils;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+
+/**
+ * Tests that the broker only drops the time boundary filter of a hybrid table when all the selected segments are within
+ * the time range of the queried side of the time boundary.
+ */
+public class TimeBoundaryFilterTest {
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String OFFLINE_TABLE_NAME = TableNameBuilder.OFFLINE.tableNameWithType(RAW_TABLE_NAME);
+  private static final String REALTIME_TABLE_NAME = TableNameBuilder.REALTIME.tableNameWithType(RAW_TABLE_NAME);
+  private static final String TIME_COLUMN = "daysSinceEpoch";
+  private static final long TIME_BOUNDARY = 100L;
+  private static final Map<ServerInstance, List<String>> ROUTING_TABLE = Collections
+      .singletonMap(new ServerInstance(new InstanceConfig("Server_localhost_1234")),
+          Collections.singletonList("segment"));
+
+  private RoutingManager _routingManager;
+  private CapturingBrokerRequestHandler _requestHandler;
+
+  @BeforeMethod
+  public void setUp() {
+    _routingManager = mock(RoutingManager.class);
+    when(_routingManager.routingExists(anyString())).thenReturn(true);
+    when(_routingManager.getTimeBoundaryInfo(OFFLINE_TABLE_NAME))
+        .thenReturn(new TimeBoundaryInfo(TIME_COLUMN, Long.toString(TIME_BOUNDARY)));
+    when(_routingManager.getRoutingTable(any())).thenReturn(new RoutingTable(ROUTING_TABLE, Collections.emptyList()));
+    when(_routingManager.getQueryTimeoutMs(anyString())).thenReturn(null);
+    AccessControl accessControl = mock(AccessControl.class);
+    when(accessControl.hasAccess(any(), any())).thenReturn(true);
+    AccessControlFactory accessControlFactory = mock(AccessControlFactory.class);
+    when(accessControlFactory.create()).thenReturn(accessControl);
+    QueryQuotaManager queryQuotaManager = mock(QueryQuotaManager.class);
+    when(queryQuotaManager.acquire(anyString())).thenReturn(true);
+    TableCache tableCache = mock(TableCache.class);
+    _requestHandler =
+        new CapturingBrokerRequestHandler(_routingManager, accessControlFactory, queryQuotaManager, tableCache);
+  }
+
+  @Test
+  public void testDropOfflineTimeBoundaryFilter()
+      throws Exception {
+    when(_routingManager.isWithinTimeRange(eq(OFFLINE_TABLE_NAME), any(), anyLong(), anyLong())).thenReturn(true);
+    _requestHandler.handleRequest(getRequest(), null, new RequestStatistics());
+    verify(_routingManager).isWithinTimeRange(OFFLINE_TABLE_NAME, ROUTING_TABLE, Long.MIN_VALUE, TIME_BOUNDARY);
+    verify(_routingManager).isWithinTimeRange(REALTIME_TABLE_NAME, ROUTING_TABLE, TIME_BOUNDARY + 1, Long.MAX_VALUE);
+
+    assertNull(_requestHandler._offlineBrokerRequest.getFilterQuery());
+    assertTimeBoundaryFilter(_requestHandler._realtimeBrokerRequest, "(" + TIME_BOUNDARY + "\t\t*)");
+  }
+
+  @Test
+  public void testDropRealtimeTimeBoundaryFilter()
+      throws Exception {
+    when(_routingManager.isWithinTimeRange(eq(REALTIME_TABLE_NAME), any(), anyLong(), anyLong())).thenReturn(true);
+    _requestHandler.handleRequest(getRequest(), null, new RequestStatistics());
+
+    assertTimeBoundaryFilter(_requestHandler._offlineBrokerRequest, "(*\t\t" + TIME_BOUNDARY + "]");
+    assertNull(_requestHandler._realtimeBrokerRequest.getFilterQuery());
+  }
+
+  @Test
+  public void testKeepTimeBoundaryFilter()
+      throws Exception {
+    _requestHandler.handleRequest(getRequest(), null, new RequestStatistics());
+
+    assertTimeBoundaryFilter(_requestHandler._offlineBrokerRequest, "(*\t\t" + TIME_BOUNDARY + "]");
+    assertTimeBoundaryFilter(_requestHandler._realtimeBrokerRequest, "(" + TIME_BOUNDARY + "\t\t*)");
+  }
+
+  private static JsonNode getRequest()
+      throws Exception {
+    return JsonUtils.stringToJsonNode("{\"sql\":\"SELECT * FROM " + RAW_TABLE_NAME + "\"}");
+  }
+
+  private static void assertTimeBoundaryFilter(BrokerRequest brokerRequest, String expectedRange) {
+    FilterQuery filterQuery = brokerRequest.getFilterQuery();
+    assertNotNull(filterQuery);
+    assertEquals(filterQuery.getColumn(), TIME_COLUMN);
+    assertEquals(filterQuery.getOperator(), FilterOperator.RANGE);
+    assertEquals(filterQuery.getValue(), Collections.singletonList(expectedRange));
+  }
+
+  /**
+   * Broker request handler that captures the requests sent to the servers instead of executing them.
+   */
+  private static class CapturingBrokerRequestHandler extends BaseBrokerRequestHandler {
+    BrokerRequest _offlineBrokerRequest;
+    BrokerRequest _realtimeBrokerRequest;
+
+    CapturingBrokerRequestHandler(RoutingManager routingManager, AccessControlFactory accessControlFactory,
+        QueryQuotaManager queryQuotaManager, TableCache tableCache) {
+      super(new PinotConfiguration(), routingManager, accessControlFactory, queryQuotaManager, tableCache,
+          new BrokerMetrics("", new MetricsRegistry(), false));
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void shutDown() {
+    }
+
+    @Override
+    protected BrokerResponse processBrokerRequest(long requestId, BrokerRequest originalBrokerRequest,
+        @Nullable BrokerRequest offlineBrokerRequest, @Nullable Map<ServerInstance, List<String>> offlineRoutingTable,
+        @Nullable BrokerRequest realtimeBrokerRequest,
+        @Nullable Map<ServerInstance, List<String>> realtimeRoutingTable, long timeoutMs, ServerStats serverStats,
+        RequestStatistics requestStatistics) {
+      _offlineBrokerRequest = offlineBrokerRequest;
+      _realtimeBrokerRequest = realtimeBrokerRequest;
+      return new BrokerResponseNative();
+    }
+  }
+}
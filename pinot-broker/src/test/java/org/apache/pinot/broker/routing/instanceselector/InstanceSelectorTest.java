@@ -41,6 +41,8 @@ import static org.apache.pinot.common.utils.CommonConstants.Helix.StateModel.Seg
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 
@@ -561,4 +563,58 @@ public class InstanceSelectorTest {
       assertEquals(selectionResult.getUnavailableSegments(), Collections.singletonList(segment));
     }
   }
+
+  @Test
+  public void testSelectAlternativeInstances() {
+    String offlineTableName = "testTable_OFFLINE";
+    BrokerMetrics brokerMetrics = mock(BrokerMetrics.class);
+    BalancedInstanceSelector balancedInstanceSelector = new BalancedInstanceSelector(offlineTableName, brokerMetrics);
+
+    // [segment0, segment1] -> [instance0, instance1, instance2]
+    // [segment2]           -> [instance0, instance1]
+    String instance0 = "instance0";
+    String instance1 = "instance1";
+    String instance2 = "instance2";
+    Set<String> enabledInstances = new HashSet<>(Arrays.asList(instance0, instance1, instance2));
+    ExternalView externalView = new ExternalView(offlineTableName);
+    Map<String, Map<String, String>> segmentAssignment = externalView.getRecord().getMapFields();
+    Map<String, String> instanceStateMap0 = new TreeMap<>();
+    instanceStateMap0.put(instance0, ONLINE);
+    instanceStateMap0.put(instance1, ONLINE);
+    instanceStateMap0.put(instance2, ONLINE);
+    String segment0 = "segment0";
+    String segment1 = "segment1";
+    segmentAssignment.put(segment0, instanceStateMap0);
+    segmentAssignment.put(segment1, instanceStateMap0);
+    Map<String, String> instanceStateMap1 = new TreeMap<>();
+    instanceStateMap1.put(instance0, ONLINE);
+    instanceStateMap1.put(instance1, ONLINE);
+    String segment2 = "segment2";
+    segmentAssignment.put(segment2, instanceStateMap1);
+    balancedInstanceSelector.init(enabledInstances, externalView, Collections.emptySet());
+
+    // Segments with the same replicas should be hedged to the same instance
+    List<String> segments = Arrays.asList(segment0, segment1);
+    for (int i = 0; i < 5; i++) {
+      Map<String, String> segmentToInstanceMap =
+          balancedInstanceSelector.selectAlternativeInstances(segments, Collections.singleton(instance0));
+      assertNotNull(segmentToInstanceMap);
+      assertEquals(segmentToInstanceMap.size(), 2);
+      String selectedInstance = segmentToInstanceMap.get(segment0);
+      assertTrue(selectedInstance.equals(instance1) || selectedInstance.equals(instance2));
+      assertEquals(segmentToInstanceMap.get(segment1), selectedInstance);
+    }
+
+    // Only 'instance2' is not excluded for [segment0, segment1]
+    Set<String> excludedInstances = new HashSet<>(Arrays.asList(instance0, instance1));
+    Map<String, String> expectedSegmentToInstanceMap = new HashMap<>();
+    expectedSegmentToInstanceMap.put(segment0, instance2);
+    expectedSegmentToInstanceMap.put(segment1, instance2);
+    assertEquals(balancedInstanceSelector.selectAlternativeInstances(segments, excludedInstances),
+        expectedSegmentToInstanceMap);
+
+    // No alternative instance for segment2
+    assertNull(balancedInstanceSelector
+        .selectAlternativeInstances(Arrays.asList(segment0, segment2), excludedInstances));
+  }
 }
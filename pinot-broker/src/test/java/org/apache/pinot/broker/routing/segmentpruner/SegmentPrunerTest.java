@@ -25,6 +25,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.manager.zk.ZNRecordSerializer;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor;
@@ -36,6 +37,7 @@ import org.apache.pinot.common.metadata.segment.ColumnPartitionMetadata;
 import org.apache.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
 import org.apache.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.utils.CommonConstants.Helix.StateModel.SegmentStateModel;
 import org.apache.pinot.common.utils.ZkStarter;
 import org.apache.pinot.pql.parsers.Pql2Compiler;
 import org.apache.pinot.spi.config.table.ColumnPartitionConfig;
@@ -44,6 +46,10 @@ import org.apache.pinot.spi.config.table.RoutingConfig;
 import org.apache.pinot.spi.config.table.SegmentPartitionConfig;
 import org.apache.pinot.spi.config.table.TableConfig;
 import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
 import org.mockito.Mockito;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -52,6 +58,7 @@ import org.testng.annotations.Test;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 
@@ -61,6 +68,12 @@ public class SegmentPrunerTest {
   private static final String QUERY_1 = "SELECT * FROM testTable";
   private static final String QUERY_2 = "SELECT * FROM testTable where memberId = 0";
   private static final String QUERY_3 = "SELECT * FROM testTable where memberId IN (1, 2)";
+  private static final String TIME_COLUMN = "daysSinceEpoch";
+  private static final String TIME_QUERY_1 = "SELECT * FROM testTable where daysSinceEpoch > 20";
+  private static final String TIME_QUERY_2 = "SELECT * FROM testTable where daysSinceEpoch BETWEEN 12 AND 15";
+  private static final String TIME_QUERY_3 = "SELECT * FROM testTable where daysSinceEpoch IN (5, 25)";
+  private static final String TIME_QUERY_4 =
+      "SELECT * FROM testTable where memberId = 0 AND (daysSinceEpoch <= 9 OR daysSinceEpoch = 30)";
 
   private ZkStarter.ZookeeperInstance _zkInstance;
   private ZkClient _zkClient;
@@ -211,6 +224,99 @@ public class SegmentPrunerTest {
         Arrays.asList(segment0, segment1));
   }
 
+  @Test
+  public void testTimeSegmentPruner() {
+    Pql2Compiler compiler = new Pql2Compiler();
+    BrokerRequest brokerRequest1 = compiler.compileToBrokerRequest(QUERY_1);
+    BrokerRequest timeBrokerRequest1 = compiler.compileToBrokerRequest(TIME_QUERY_1);
+    BrokerRequest timeBrokerRequest2 = compiler.compileToBrokerRequest(TIME_QUERY_2);
+    BrokerRequest timeBrokerRequest3 = compiler.compileToBrokerRequest(TIME_QUERY_3);
+    BrokerRequest timeBrokerRequest4 = compiler.compileToBrokerRequest(TIME_QUERY_4);
+    ExternalView externalView = Mockito.mock(ExternalView.class);
+
+    String rawTableName = TableNameBuilder.extractRawTableName(OFFLINE_TABLE_NAME);
+    ZKMetadataProvider.setSchema(_propertyStore, new Schema.SchemaBuilder().setSchemaName(rawTableName)
+        .addDateTime(TIME_COLUMN, FieldSpec.DataType.INT, "1:DAYS:EPOCH", "1:DAYS").build());
+    TableConfig tableConfig =
+        new TableConfigBuilder(TableType.OFFLINE).setTableName(rawTableName).setTimeColumnName(TIME_COLUMN).build();
+    TimeSegmentPruner segmentPruner = new TimeSegmentPruner(tableConfig, _propertyStore);
+    Set<String> onlineSegments = new HashSet<>();
+    segmentPruner.init(externalView, onlineSegments);
+    assertEquals(segmentPruner.prune(timeBrokerRequest1, Collections.emptyList()), Collections.emptyList());
+
+    // Segments without metadata (not updated yet) or without time range (e.g. consuming segments) should not be pruned
+    String newSegment = "newSegment";
+    String segmentWithoutTimeRange = "segmentWithoutTimeRange";
+    onlineSegments.add(segmentWithoutTimeRange);
+    OfflineSegmentZKMetadata segmentZKMetadataWithoutTimeRange = new OfflineSegmentZKMetadata();
+    segmentZKMetadataWithoutTimeRange.setSegmentName(segmentWithoutTimeRange);
+    ZKMetadataProvider
+        .setOfflineSegmentZKMetadata(_propertyStore, OFFLINE_TABLE_NAME, segmentZKMetadataWithoutTimeRange);
+    segmentPruner.onExternalViewChange(externalView, onlineSegments);
+    assertEquals(segmentPruner.prune(timeBrokerRequest1, Arrays.asList(newSegment, segmentWithoutTimeRange)),
+        Arrays.asList(newSegment, segmentWithoutTimeRange));
+    assertFalse(segmentPruner.isWithinTimeRange(Collections.singletonList(newSegment), 0, 100));
+    assertFalse(segmentPruner.isWithinTimeRange(Collections.singletonList(segmentWithoutTimeRange), 0, 100));
+
+    // segment0: [0, 10], segment1: [10, 20], segment2: [20, 30] (in DAYS, stored in HOURS in the ZK metadata)
+    String segment0 = "segment0";
+    String segment1 = "segment1";
+    String segment2 = "segment2";
+    onlineSegments.add(segment0);
+    onlineSegments.add(segment1);
+    onlineSegments.add(segment2);
+    setSegmentZKMetadata(segment0, 0, 10);
+    setSegmentZKMetadata(segment1, 10, 20);
+    setSegmentZKMetadata(segment2, 20, 30);
+    segmentPruner.onExternalViewChange(externalView, onlineSegments);
+    List<String> segments = Arrays.asList(segment0, segment1, segment2);
+    assertEquals(segmentPruner.prune(brokerRequest1, segments), segments);
+    assertEquals(segmentPruner.prune(timeBrokerRequest1, segments), Collections.singletonList(segment2));
+    assertEquals(segmentPruner.prune(timeBrokerRequest2, segments), Collections.singletonList(segment1));
+    assertEquals(segmentPruner.prune(timeBrokerRequest3, segments), Arrays.asList(segment0, segment2));
+    assertEquals(segmentPruner.prune(timeBrokerRequest4, segments), Arrays.asList(segment0, segment2));
+
+    // Time boundary filter attached to the hybrid table query should prune the segments on the other side
+    BrokerRequest offlineBrokerRequest = compiler.compileToBrokerRequest(
+        "SELECT * FROM testTable where memberId = 0 AND daysSinceEpoch <= 9");
+    BrokerRequest realtimeBrokerRequest = compiler.compileToBrokerRequest(
+        "SELECT * FROM testTable where memberId = 0 AND daysSinceEpoch > 20");
+    assertEquals(segmentPruner.prune(offlineBrokerRequest, segments), Collections.singletonList(segment0));
+    assertEquals(segmentPruner.prune(realtimeBrokerRequest, segments), Collections.singletonList(segment2));
+
+    // Segments entirely within the time range do not need the time filter
+    assertTrue(segmentPruner.isWithinTimeRange(Arrays.asList(segment0, segment1), Long.MIN_VALUE, 20));
+    assertFalse(segmentPruner.isWithinTimeRange(segments, Long.MIN_VALUE, 20));
+    assertTrue(segmentPruner.isWithinTimeRange(Collections.singletonList(segment2), 20, Long.MAX_VALUE));
+    assertFalse(segmentPruner.isWithinTimeRange(Arrays.asList(segment2, segmentWithoutTimeRange), 20, Long.MAX_VALUE));
+
+    // Refresh the changed segment should update the segment pruner
+    setSegmentZKMetadata(segment0, 21, 22);
+    segmentPruner.onExternalViewChange(externalView, onlineSegments);
+    assertEquals(segmentPruner.prune(timeBrokerRequest1, segments), Collections.singletonList(segment2));
+    segmentPruner.refreshSegment(segment0);
+    assertEquals(segmentPruner.prune(timeBrokerRequest1, segments), Arrays.asList(segment0, segment2));
+
+    // Segment without time range should be updated once it becomes ONLINE (e.g. consuming segment committed), where
+    // no refresh message is sent
+    setSegmentZKMetadata(segmentWithoutTimeRange, 30, 40);
+    segmentPruner.onExternalViewChange(externalView, onlineSegments);
+    assertFalse(segmentPruner.isWithinTimeRange(Collections.singletonList(segmentWithoutTimeRange), 30, 40));
+    Mockito.when(externalView.getStateMap(segmentWithoutTimeRange))
+        .thenReturn(Collections.singletonMap("server", SegmentStateModel.ONLINE));
+    segmentPruner.onExternalViewChange(externalView, onlineSegments);
+    assertTrue(segmentPruner.isWithinTimeRange(Collections.singletonList(segmentWithoutTimeRange), 30, 40));
+  }
+
+  private void setSegmentZKMetadata(String segment, int startTimeInDays, int endTimeInDays) {
+    OfflineSegmentZKMetadata offlineSegmentZKMetadata = new OfflineSegmentZKMetadata();
+    offlineSegmentZKMetadata.setSegmentName(segment);
+    offlineSegmentZKMetadata.setStartTime(TimeUnit.DAYS.toHours(startTimeInDays));
+    offlineSegmentZKMetadata.setEndTime(TimeUnit.DAYS.toHours(endTimeInDays));
+    offlineSegmentZKMetadata.setTimeUnit(TimeUnit.HOURS);
+    ZKMetadataProvider.setOfflineSegmentZKMetadata(_propertyStore, OFFLINE_TABLE_NAME, offlineSegmentZKMetadata);
+  }
+
   private void setSegmentZKMetadata(String segment, String partitionFunction, int numPartitions, int partitionId) {
     OfflineSegmentZKMetadata offlineSegmentZKMetadata = new OfflineSegmentZKMetadata();
     offlineSegmentZKMetadata.setSegmentName(segment);
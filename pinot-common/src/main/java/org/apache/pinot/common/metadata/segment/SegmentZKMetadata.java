@@ -60,6 +60,7 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
   private long _segmentUploadStartTime = -1;
   private Map<String, String> _customMap;
   private String _crypterName;
+  private String _tarCompressionType;
 
   @Deprecated
   private String _tableName;
@@ -71,6 +72,7 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
     _segmentName = znRecord.getSimpleField(CommonConstants.Segment.SEGMENT_NAME);
     _tableName = znRecord.getSimpleField(CommonConstants.Segment.TABLE_NAME);
     _crypterName = znRecord.getSimpleField(CommonConstants.Segment.CRYPTER_NAME);
+    _tarCompressionType = znRecord.getSimpleField(CommonConstants.Segment.TAR_COMPRESSION_TYPE);
     _segmentType = znRecord.getEnumField(CommonConstants.Segment.SEGMENT_TYPE, SegmentType.class, SegmentType.OFFLINE);
     _startTime = znRecord.getLongField(CommonConstants.Segment.START_TIME, -1);
     _endTime = znRecord.getLongField(CommonConstants.Segment.END_TIME, -1);
@@ -179,6 +181,18 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
     _crypterName = crypterName;
   }
 
+  /**
+   * Returns the compression type of the segment tar file (see TarGzCompressionUtils.CompressionType), or null if not
+   * recorded (tar.gz).
+   */
+  public String getTarCompressionType() {
+    return _tarCompressionType;
+  }
+
+  public void setTarCompressionType(String tarCompressionType) {
+    _tarCompressionType = tarCompressionType;
+  }
+
   public long getTotalDocs() {
     return _totalDocs;
   }
@@ -238,7 +252,8 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
     }
 
     SegmentZKMetadata metadata = (SegmentZKMetadata) segmentMetadata;
-    return isEqual(_segmentName, metadata._segmentName) && isEqual(_crypterName, metadata._crypterName) && isEqual(
+    return isEqual(_segmentName, metadata._segmentName) && isEqual(_crypterName, metadata._crypterName)
+        && isEqual(_tarCompressionType, metadata._tarCompressionType) && isEqual(
         _tableName, metadata._tableName) && isEqual(_indexVersion, metadata._indexVersion) && isEqual(_timeUnit,
         metadata._timeUnit) && isEqual(_startTime, metadata._startTime) && isEqual(_endTime, metadata._endTime)
         && isEqual(_segmentType, metadata._segmentType) && isEqual(_totalDocs, metadata._totalDocs) && isEqual(_crc,
@@ -252,6 +267,7 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
     int result = hashCodeOf(_segmentName);
     result = hashCodeOf(result, _tableName);
     result = hashCodeOf(result, _crypterName);
+    result = hashCodeOf(result, _tarCompressionType);
     result = hashCodeOf(result, _segmentType);
     result = hashCodeOf(result, _startTime);
     result = hashCodeOf(result, _endTime);
@@ -279,6 +295,10 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
       znRecord.setSimpleField(CommonConstants.Segment.CRYPTER_NAME, _crypterName);
     }
 
+    if (_tarCompressionType != null) {
+      znRecord.setSimpleField(CommonConstants.Segment.TAR_COMPRESSION_TYPE, _tarCompressionType);
+    }
+
     znRecord.setEnumField(CommonConstants.Segment.SEGMENT_TYPE, _segmentType);
     if (_timeUnit == null) {
       znRecord.setSimpleField(CommonConstants.Segment.TIME_UNIT, NULL);
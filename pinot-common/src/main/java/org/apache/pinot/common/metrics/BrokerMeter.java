@@ -34,6 +34,9 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
   // These metrics track the exceptions caught during query execution in broker side.
   // PQL compile phase.
   REQUEST_COMPILATION_EXCEPTIONS("exceptions", true),
+  // Hits and misses of the compiled request cache (only tracked when the cache is enabled).
+  REQUEST_COMPILATION_CACHE_HITS("queries", true),
+  REQUEST_COMPILATION_CACHE_MISSES("queries", true),
   // Get resource phase.
   RESOURCE_MISSING_EXCEPTIONS("exceptions", true),
   // Query validation phase.
@@ -56,6 +59,8 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
   // This metric track the number of broker responses with not all servers responded.
   // (numServersQueried > numServersResponded)
   BROKER_RESPONSES_WITH_PARTIAL_SERVERS_RESPONDED("badResponses", false),
+  // This metric track the number of partial results queries returned before all servers responded (soft timeout).
+  BROKER_RESPONSES_WITH_PARTIAL_RESULTS("badResponses", false),
   // This metric track the number of broker responses with number of groups limit reached (potential bad responses).
   BROKER_RESPONSES_WITH_NUM_GROUPS_LIMIT_REACHED("badResponses", false),
 
@@ -94,8 +99,19 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
   // Track the case where selected server is missing in RoutingManager
   SERVER_MISSING_FOR_ROUTING("badResponses", false),
 
+  // Hedged request metrics (only tracked when the request hedging is enabled)
+  // Hedged requests sent to the alternative replicas of the slow servers
+  HEDGED_REQUESTS("requests", false),
+  // Hedged requests responded before the slow servers
+  HEDGED_REQUESTS_WON("requests", false),
+  // Hedged requests skipped because of the exhausted hedge budget or no alternative replica
+  HEDGED_REQUESTS_BUDGET_EXCEEDED("requests", false),
+  HEDGED_REQUESTS_NO_ALTERNATIVE_REPLICA("requests", false),
+
   // Netty connection metrics
   NETTY_CONNECTION_REQUESTS_SENT("nettyConnection", true),
+  NETTY_CONNECTION_REQUEST_BATCHES_SENT("nettyConnection", true),
+  NETTY_CONNECTION_QUERY_CANCELS_SENT("nettyConnection", true),
   NETTY_CONNECTION_BYTES_SENT("nettyConnection", true),
   NETTY_CONNECTION_BYTES_RECEIVED("nettyConnection", true),
 
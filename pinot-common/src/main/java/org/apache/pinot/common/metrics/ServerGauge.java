@@ -38,9 +38,18 @@ public enum ServerGauge implements AbstractMetrics.Gauge {
   LAST_REALTIME_SEGMENT_INITIAL_CONSUMPTION_DURATION_SECONDS("seconds", false),
   LAST_REALTIME_SEGMENT_CATCHUP_DURATION_SECONDS("seconds", false),
   LAST_REALTIME_SEGMENT_COMPLETION_DURATION_SECONDS("seconds", false),
+  LLC_PARTITION_CONSUMPTION_LAG("messages", false),
+  LLC_PARTITION_LAG_RECOVERY_RATE("messagesPerSecond", false),
+  LLC_PARTITION_CATCHING_UP("state", false),
   REALTIME_OFFHEAP_MEMORY_USED("bytes", false),
+  REALTIME_OFFHEAP_ARENA_ALLOCATED_BYTES("bytes", true),
+  REALTIME_OFFHEAP_ARENA_FREE_BYTES("bytes", true),
   REALTIME_SEGMENT_NUM_PARTITIONS("realtimeSegmentNumPartitions", false),
-  LLC_SIMULTANEOUS_SEGMENT_BUILDS("llcSimultaneousSegmentBuilds", true);
+  LLC_SIMULTANEOUS_SEGMENT_BUILDS("llcSimultaneousSegmentBuilds", true),
+  // Number of segments of the table still to be reloaded by the ongoing reload
+  SEGMENTS_PENDING_RELOAD("segments", false),
+  // Number of segments currently being loaded on the server (e.g. during server startup)
+  SEGMENTS_LOADING("segments", true);
 
   private final String gaugeName;
   private final String unit;
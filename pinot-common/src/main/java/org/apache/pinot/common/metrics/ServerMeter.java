@@ -26,6 +26,7 @@ import org.apache.pinot.common.Utils;
  */
 public enum ServerMeter implements AbstractMetrics.Meter {
   QUERIES("queries", true),
+  QUERIES_CANCELLED("queries", true),
   UNCAUGHT_EXCEPTIONS("exceptions", true),
   REQUEST_FETCH_EXCEPTIONS("exceptions", true),
   REQUEST_DESERIALIZATION_EXCEPTIONS("exceptions", true),
@@ -63,6 +64,8 @@ public enum ServerMeter implements AbstractMetrics.Meter {
   REFRESH_FAILURES("segments", false),
   UNTAR_FAILURES("segments", false),
   SEGMENT_DOWNLOAD_FAILURES("segments", false),
+  PREDICATE_EVALUATOR_CACHE_HITS("predicateEvaluators", true),
+  PREDICATE_EVALUATOR_CACHE_MISSES("predicateEvaluators", true),
 
   // Netty connection metrics
   NETTY_CONNECTION_BYTES_RECEIVED("nettyConnection", true),
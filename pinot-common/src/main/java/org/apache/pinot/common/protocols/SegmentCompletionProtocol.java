@@ -135,6 +135,7 @@ public class SegmentCompletionProtocol {
 
   public static final String REASON_ROW_LIMIT = "rowLimit";  // Stop reason sent by server as max num rows reached
   public static final String REASON_TIME_LIMIT = "timeLimit";  // Stop reason sent by server as max time reached
+  public static final String REASON_MEMORY_LIMIT = "memoryLimit";  // Stop reason sent by server as memory budget reached
 
   // Canned responses
   public static final Response RESP_NOT_LEADER =
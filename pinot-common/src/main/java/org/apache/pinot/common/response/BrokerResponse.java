@@ -53,6 +53,10 @@ public interface BrokerResponse {
 
   /**
    * Convert the broker response to JSON String.
+   * TODO: Add a columnar response format (e.g. Apache Arrow IPC) to skip the JSON serialization and parsing of large
+   *       result tables. The format should be defined once and shared by the broker and the thin clients (which
+   *       cannot depend on pinot-common), and be covered by a round-trip test from the broker encoder to the client
+   *       result set.
    */
   String toJsonString()
       throws Exception;
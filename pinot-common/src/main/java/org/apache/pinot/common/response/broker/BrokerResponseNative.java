@@ -39,7 +39,7 @@ import org.apache.pinot.spi.utils.JsonUtils;
  *
  * Supports serialization via JSON.
  */
-@JsonPropertyOrder({"selectionResults", "aggregationResults", "resultTable", "exceptions", "numServersQueried", "numServersResponded", "numSegmentsQueried", "numSegmentsProcessed", "numSegmentsMatched", "numConsumingSegmentsQueried", "numDocsScanned", "numEntriesScannedInFilter", "numEntriesScannedPostFilter", "numGroupsLimitReached", "totalDocs", "timeUsedMs", "segmentStatistics", "traceInfo"})
+@JsonPropertyOrder({"selectionResults", "aggregationResults", "resultTable", "exceptions", "numServersQueried", "numServersResponded", "numSegmentsQueried", "numSegmentsProcessed", "numSegmentsMatched", "numConsumingSegmentsQueried", "numDocsScanned", "numEntriesScannedInFilter", "numEntriesScannedPostFilter", "numGroupsLimitReached", "partialResult", "totalDocs", "timeUsedMs", "segmentStatistics", "traceInfo"})
 public class BrokerResponseNative implements BrokerResponse {
   public static final BrokerResponseNative EMPTY_RESULT = BrokerResponseNative.empty();
   public static final BrokerResponseNative NO_TABLE_RESULT =
@@ -60,6 +60,7 @@ public class BrokerResponseNative implements BrokerResponse {
 
   private long _totalDocs = 0L;
   private boolean _numGroupsLimitReached = false;
+  private boolean _partialResult = false;
   private long _timeUsedMs = 0L;
 
   private SelectionResults _selectionResults;
@@ -266,6 +267,22 @@ public class BrokerResponseNative implements BrokerResponse {
     _numGroupsLimitReached = numGroupsLimitReached;
   }
 
+  /**
+   * Returns {@code true} if the response only contains the results from the servers responded within the soft timeout
+   * of the partial results query. The coverage of the results is given by 'numSegmentsProcessed' against
+   * 'numSegmentsQueried' (all the segments routed to the servers).
+   */
+  @JsonProperty("partialResult")
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  public boolean isPartialResult() {
+    return _partialResult;
+  }
+
+  @JsonProperty("partialResult")
+  public void setPartialResult(boolean partialResult) {
+    _partialResult = partialResult;
+  }
+
   @JsonProperty("timeUsedMs")
   public long getTimeUsedMs() {
     return _timeUsedMs;
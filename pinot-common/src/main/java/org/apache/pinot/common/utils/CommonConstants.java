@@ -160,6 +160,57 @@ public class CommonConstants {
         "pinot.broker.startup.minResourcePercent";
     public static final double DEFAULT_BROKER_MIN_RESOURCE_PERCENT_FOR_START = 100.0;
     public static final String CONFIG_OF_ENABLE_QUERY_LIMIT_OVERRIDE = "pinot.broker.enable.query.limit.override";
+    // Max bytes (serialized compiled query plus cache key) of the compiled queries cached by the broker to skip parsing
+    // and compiling the repeated queries. SQL queries only differing in the literals share the same cached template.
+    // The cache is disabled if the value is <= 0.
+    public static final String CONFIG_OF_BROKER_REQUEST_COMPILATION_CACHE_MAX_BYTES =
+        "pinot.broker.request.compilation.cache.max.bytes";
+    public static final long DEFAULT_BROKER_REQUEST_COMPILATION_CACHE_MAX_BYTES = 0L;
+    // Max delay (in microseconds) to hold the instance requests to the same server so that they can be sent in one
+    // batched frame. The request batching is disabled if the value is <= 0.
+    // NOTE: All the servers must be able to handle the batched frames before enabling the request batching.
+    public static final String CONFIG_OF_BROKER_REQUEST_BATCH_DELAY_US = "pinot.broker.request.batch.delay.us";
+    public static final long DEFAULT_BROKER_REQUEST_BATCH_DELAY_US = 0L;
+    // Whether to use the native epoll transport (Linux only, fall back to NIO if not available) for the server channels
+    public static final String CONFIG_OF_BROKER_NETTY_NATIVE_TRANSPORT_ENABLED =
+        "pinot.broker.netty.native.transport.enabled";
+    public static final boolean DEFAULT_BROKER_NETTY_NATIVE_TRANSPORT_ENABLED = false;
+    // Max number of data blocks buffered on the broker for each streaming query before applying back-pressure to the
+    // server streams
+    public static final String CONFIG_OF_BROKER_STREAMING_MAX_BUFFERED_DATA_BLOCKS =
+        "pinot.broker.streaming.max.buffered.data.blocks";
+    public static final int DEFAULT_BROKER_STREAMING_MAX_BUFFERED_DATA_BLOCKS = 16;
+    // Max number of threads draining the server streams for the streaming queries, one thread per server stream
+    // NOTE: Server streams beyond the limit are rejected, and reported as exceptions in the broker response.
+    public static final String CONFIG_OF_BROKER_STREAMING_MAX_THREADS = "pinot.broker.streaming.max.threads";
+    public static final int DEFAULT_BROKER_STREAMING_MAX_THREADS = 64;
+    // Whether to cancel the query on the servers that have not responded when the query is done on the broker side
+    // (e.g. timed out or interrupted)
+    // NOTE: All the servers must be able to handle the cancel frames before enabling the query cancellation.
+    public static final String CONFIG_OF_BROKER_QUERY_CANCELLATION_ENABLED =
+        "pinot.broker.query.cancellation.enabled";
+    public static final boolean DEFAULT_BROKER_QUERY_CANCELLATION_ENABLED = false;
+    // Whether to hedge the request to a slow server (not responded within the configured percentile of its recent
+    // latencies) by sending the same segments to the alternative replicas not queried yet, and taking the response
+    // arrived first. The hedged requests are capped by the budget (percentage of the requests sent to the servers).
+    // NOTE: Enable the query cancellation together to cancel the slow requests once the hedged requests win.
+    public static final String CONFIG_OF_BROKER_HEDGED_REQUEST_ENABLED = "pinot.broker.hedged.request.enabled";
+    public static final boolean DEFAULT_BROKER_HEDGED_REQUEST_ENABLED = false;
+    public static final String CONFIG_OF_BROKER_HEDGED_REQUEST_LATENCY_PERCENTILE =
+        "pinot.broker.hedged.request.latency.percentile";
+    public static final double DEFAULT_BROKER_HEDGED_REQUEST_LATENCY_PERCENTILE = 95.0;
+    public static final String CONFIG_OF_BROKER_HEDGED_REQUEST_MIN_DELAY_MS =
+        "pinot.broker.hedged.request.min.delay.ms";
+    public static final long DEFAULT_BROKER_HEDGED_REQUEST_MIN_DELAY_MS = 10L;
+    public static final String CONFIG_OF_BROKER_HEDGED_REQUEST_BUDGET_PERCENT =
+        "pinot.broker.hedged.request.budget.percent";
+    public static final double DEFAULT_BROKER_HEDGED_REQUEST_BUDGET_PERCENT = 5.0;
+    // Default soft timeout for the partial results queries, as a ratio of the query timeout. The broker reduces the
+    // responses arrived within the soft timeout, and stops waiting for the other servers.
+    // Can be overridden by the query option 'partialResultsTimeoutMs'.
+    public static final String CONFIG_OF_BROKER_PARTIAL_RESULTS_TIMEOUT_RATIO =
+        "pinot.broker.partial.results.timeout.ratio";
+    public static final double DEFAULT_BROKER_PARTIAL_RESULTS_TIMEOUT_RATIO = 0.5;
 
     public static class Request {
       public static final String PQL = "pql";
@@ -173,6 +224,8 @@ public class CommonConstants {
         public static final String PRESERVE_TYPE = "preserveType";
         public static final String RESPONSE_FORMAT = "responseFormat";
         public static final String GROUP_BY_MODE = "groupByMode";
+        public static final String PARTIAL_RESULTS = "partialResults";
+        public static final String PARTIAL_RESULTS_TIMEOUT_MS = "partialResultsTimeoutMs";
       }
     }
   }
@@ -189,8 +242,15 @@ public class CommonConstants {
     public static final String CONFIG_OF_QUERY_EXECUTOR_PRUNER_CLASS = "pinot.server.query.executor.pruner.class";
     public static final String CONFIG_OF_QUERY_EXECUTOR_TIMEOUT = "pinot.server.query.executor.timeout";
     public static final String CONFIG_OF_QUERY_EXECUTOR_CLASS = "pinot.server.query.executor.class";
+    // Max number of predicate evaluators cached for each immutable segment dictionary, 0 to disable the cache
+    public static final String CONFIG_OF_QUERY_EXECUTOR_PREDICATE_EVALUATOR_CACHE_SIZE =
+        "pinot.server.query.executor.predicate.evaluator.cache.size";
+    public static final int DEFAULT_QUERY_EXECUTOR_PREDICATE_EVALUATOR_CACHE_SIZE = 0;
     public static final String CONFIG_OF_REQUEST_HANDLER_FACTORY_CLASS = "pinot.server.requestHandlerFactory.class";
     public static final String CONFIG_OF_NETTY_PORT = "pinot.server.netty.port";
+    // Whether to use the native epoll transport (Linux only, fall back to NIO if not available) for the query server
+    public static final String CONFIG_OF_NETTY_NATIVE_TRANSPORT_ENABLED = "pinot.server.netty.native.transport.enabled";
+    public static final boolean DEFAULT_NETTY_NATIVE_TRANSPORT_ENABLED = false;
     public static final String CONFIG_OF_ENABLE_GRPC_SERVER = "pinot.server.grpc.enable";
     public static final boolean DEFAULT_ENABLE_GRPC_SERVER = false;
     public static final String CONFIG_OF_GRPC_PORT = "pinot.server.grpc.port";
@@ -233,6 +293,17 @@ public class CommonConstants {
     public static final String DEFAULT_REQUEST_HANDLER_FACTORY_CLASS =
         "org.apache.pinot.server.request.SimpleRequestHandlerFactory";
     public static final String PREFIX_OF_CONFIG_OF_SEGMENT_FETCHER_FACTORY = "pinot.server.segment.fetcher";
+    // Whether to untar the segments while downloading them instead of storing the tar.gz files on local disk first
+    public static final String CONFIG_OF_SEGMENT_DOWNLOAD_UNTAR_STREAMED =
+        "pinot.server.instance.segment.download.untar.streamed";
+    public static final boolean DEFAULT_SEGMENT_DOWNLOAD_UNTAR_STREAMED = false;
+    // Max download rate (data size per second, e.g. "100M") shared by all the streamed segment downloads
+    public static final String CONFIG_OF_SEGMENT_DOWNLOAD_MAX_BYTES_PER_SECOND =
+        "pinot.server.instance.segment.download.max.bytes.per.second";
+    // Max number of segments downloaded in parallel, 0 for unlimited (bounded by the Helix state transition threads)
+    public static final String CONFIG_OF_MAX_PARALLEL_SEGMENT_DOWNLOADS =
+        "pinot.server.instance.max.parallel.segment.downloads";
+    public static final int DEFAULT_MAX_PARALLEL_SEGMENT_DOWNLOADS = 0;
 
     // Configs for server starter startup/shutdown checks
     // Startup: timeout for the startup checks
@@ -349,6 +420,7 @@ public class CommonConstants {
     public static final String SEGMENT_NAME = "segment.name";
     public static final String SEGMENT_TYPE = "segment.type";
     public static final String CRYPTER_NAME = "segment.crypter";
+    public static final String TAR_COMPRESSION_TYPE = "segment.tar.compression.type";
     public static final String INDEX_VERSION = "segment.index.version";
     public static final String START_TIME = "segment.start.time";
     public static final String END_TIME = "segment.end.time";
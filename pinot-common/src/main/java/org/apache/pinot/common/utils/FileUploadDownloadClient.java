@@ -19,6 +19,7 @@
 package org.apache.pinot.common.utils;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
 import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.File;
@@ -695,6 +696,51 @@ public class FileUploadDownloadClient implements Closeable {
     return downloadFile(uri, DEFAULT_SOCKET_TIMEOUT_MS, dest);
   }
 
+  /**
+   * Download and untar a tar.gz file in a streamed way, without storing the tar.gz file on local disk.
+   *
+   * @param uri URI
+   * @param socketTimeoutMs Socket timeout in milliseconds
+   * @param dest Directory to untar the file into
+   * @param rateLimiter Rate limiter (one permit per byte) on the download, or null for no limit
+   * @return Untarred file or directory
+   * @throws IOException
+   * @throws HttpErrorStatusException
+   */
+  public File downloadUntarFileStreamed(URI uri, int socketTimeoutMs, File dest, @Nullable RateLimiter rateLimiter)
+      throws IOException, HttpErrorStatusException {
+    HttpUriRequest request = getDownloadFileRequest(uri, socketTimeoutMs);
+    try (CloseableHttpResponse response = _httpClient.execute(request)) {
+      StatusLine statusLine = response.getStatusLine();
+      int statusCode = statusLine.getStatusCode();
+      if (statusCode >= 300) {
+        throw new HttpErrorStatusException(getErrorMessage(request, response), statusCode);
+      }
+
+      List<File> untarredFiles;
+      try (InputStream inputStream = response.getEntity().getContent()) {
+        untarredFiles = TarGzCompressionUtils.untarWithRateLimiter(inputStream, dest, rateLimiter);
+      }
+      Preconditions.checkState(!untarredFiles.isEmpty(), "No file untarred while downloading file with uri: %s", uri);
+      return untarredFiles.get(0);
+    }
+  }
+
+  /**
+   * Download and untar a tar.gz file in a streamed way, without storing the tar.gz file on local disk.
+   *
+   * @param uri URI
+   * @param dest Directory to untar the file into
+   * @param rateLimiter Rate limiter (one permit per byte) on the download, or null for no limit
+   * @return Untarred file or directory
+   * @throws IOException
+   * @throws HttpErrorStatusException
+   */
+  public File downloadUntarFileStreamed(URI uri, File dest, @Nullable RateLimiter rateLimiter)
+      throws IOException, HttpErrorStatusException {
+    return downloadUntarFileStreamed(uri, DEFAULT_SOCKET_TIMEOUT_MS, dest, rateLimiter);
+  }
+
   @Override
   public void close()
       throws IOException {
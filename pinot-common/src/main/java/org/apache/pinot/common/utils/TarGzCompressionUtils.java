@@ -19,36 +19,68 @@
 package org.apache.pinot.common.utils;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang3.StringUtils;
 
 
 /**
  * Utility class to compress/de-compress tar.gz files.
+ * <p>Besides tar.gz, tar files can also be compressed with LZ4 (framed) or not compressed at all. The compression of
+ * the file is detected from its magic bytes when un-tarring, so all the formats can be read interchangeably.
  */
 public class TarGzCompressionUtils {
   private TarGzCompressionUtils() {
   }
 
   public static final String TAR_GZ_FILE_EXTENSION = ".tar.gz";
+  public static final String TAR_LZ4_FILE_EXTENSION = ".tar.lz4";
+  public static final String TAR_FILE_EXTENSION = ".tar";
   private static final char ENTRY_NAME_SEPARATOR = '/';
+  // Long enough to hold the magic of an uncompressed tar file, which follows the name etc. in the first tar header
+  private static final int MAGIC_BYTES_LENGTH = TarConstants.DEFAULT_RCDSIZE;
+
+  /**
+   * Compression of the tar file. Segments are mostly compressed internally already, so LZ4 or no compression is much
+   * cheaper than gzip to create and extract while producing a slightly larger file.
+   */
+  public enum CompressionType {
+    GZIP(TAR_GZ_FILE_EXTENSION), LZ4(TAR_LZ4_FILE_EXTENSION), NONE(TAR_FILE_EXTENSION);
+
+    private final String _fileExtension;
+
+    CompressionType(String fileExtension) {
+      _fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+      return _fileExtension;
+    }
+  }
 
   /**
    * Creates a tar.gz file from the input file/directory to the output file. The output file must have ".tar.gz" as the
@@ -56,17 +88,94 @@ public class TarGzCompressionUtils {
    */
   public static void createTarGzFile(File inputFile, File outputFile)
       throws IOException {
-    Preconditions.checkArgument(outputFile.getName().endsWith(TAR_GZ_FILE_EXTENSION),
-        "Output file: %s does not have '.tar.gz' file extension", outputFile);
+    createTarFile(inputFile, outputFile, CompressionType.GZIP);
+  }
+
+  /**
+   * Creates a tar file with the given compression from the input file/directory to the output file. The output file
+   * must have the file extension of the compression type (".tar.gz", ".tar.lz4" or ".tar").
+   */
+  public static void createTarFile(File inputFile, File outputFile, CompressionType compressionType)
+      throws IOException {
+    Preconditions.checkArgument(outputFile.getName().endsWith(compressionType.getFileExtension()),
+        "Output file: %s does not have '%s' file extension", outputFile, compressionType.getFileExtension());
     try (OutputStream fileOut = Files.newOutputStream(outputFile.toPath());
         BufferedOutputStream bufferedOut = new BufferedOutputStream(fileOut);
-        OutputStream gzipOut = new GzipCompressorOutputStream(bufferedOut);
-        TarArchiveOutputStream tarGzOut = new TarArchiveOutputStream(gzipOut)) {
+        OutputStream compressedOut = getCompressorOutputStream(bufferedOut, compressionType);
+        TarArchiveOutputStream tarGzOut = new TarArchiveOutputStream(compressedOut)) {
       tarGzOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
       addFileToTarGz(tarGzOut, inputFile, "");
     }
   }
 
+  private static OutputStream getCompressorOutputStream(OutputStream outputStream, CompressionType compressionType)
+      throws IOException {
+    switch (compressionType) {
+      case GZIP:
+        return new GzipCompressorOutputStream(outputStream);
+      case LZ4:
+        return new FramedLZ4CompressorOutputStream(outputStream);
+      case NONE:
+        return new CloseShieldOutputStream(outputStream);
+      default:
+        throw new IllegalStateException("Unsupported compression type: " + compressionType);
+    }
+  }
+
+  /**
+   * Detects the compression type of the given tar file from its magic bytes, throws an {@link IOException} if the file
+   * is neither a gzip or LZ4 compressed file nor an uncompressed tar file.
+   */
+  public static CompressionType getCompressionType(File inputFile)
+      throws IOException {
+    try (InputStream fileIn = Files.newInputStream(inputFile.toPath());
+        InputStream bufferedIn = new BufferedInputStream(fileIn)) {
+      return getCompressionType(bufferedIn);
+    }
+  }
+
+  /**
+   * Detects the compression type from the magic bytes of the input stream without consuming the bytes. The input
+   * stream must support mark/reset.
+   * <p>Uncompressed tar files do not have a checksum over the content, so only input streams starting with a valid tar
+   * header are treated as {@link CompressionType#NONE} instead of treating any unknown bytes as an uncompressed tar.
+   */
+  private static CompressionType getCompressionType(InputStream inputStream)
+      throws IOException {
+    byte[] magicBytes = new byte[MAGIC_BYTES_LENGTH];
+    inputStream.mark(MAGIC_BYTES_LENGTH);
+    int length = IOUtils.read(inputStream, magicBytes);
+    inputStream.reset();
+    if (GzipCompressorInputStream.matches(magicBytes, length)) {
+      return CompressionType.GZIP;
+    }
+    if (FramedLZ4CompressorInputStream.matches(magicBytes, length)) {
+      return CompressionType.LZ4;
+    }
+    if (TarArchiveInputStream.matches(magicBytes, length)) {
+      return CompressionType.NONE;
+    }
+    throw new IOException("Unknown magic bytes, input is neither a gzip/LZ4 compressed tar nor an uncompressed tar");
+  }
+
+  /**
+   * Wraps the input stream (which must support mark/reset) with the decompressor for the detected compression type.
+   */
+  private static InputStream getDecompressorInputStream(InputStream inputStream)
+      throws IOException {
+    CompressionType compressionType = getCompressionType(inputStream);
+    switch (compressionType) {
+      case GZIP:
+        return new GzipCompressorInputStream(inputStream);
+      case LZ4:
+        return new FramedLZ4CompressorInputStream(inputStream);
+      case NONE:
+        return new CloseShieldInputStream(inputStream);
+      default:
+        throw new IllegalStateException("Unsupported compression type: " + compressionType);
+    }
+  }
+
   /**
    * Helper method to write a file into the tar.gz file output stream. The base entry name is the relative path of the
    * file to the root directory.
@@ -99,11 +208,35 @@ public class TarGzCompressionUtils {
    */
   public static List<File> untar(File inputFile, File outputDir)
       throws IOException {
+    try (InputStream fileIn = Files.newInputStream(inputFile.toPath())) {
+      return untar(fileIn, outputDir);
+    }
+  }
+
+  /**
+   * Un-tars an inputstream of a tar.gz file into a directory, returns all the untarred files/directories.
+   * <p>For security reason, the untarred files must reside in the output directory.
+   */
+  public static List<File> untar(InputStream inputStream, File outputDir)
+      throws IOException {
+    return untarWithRateLimiter(inputStream, outputDir, null);
+  }
+
+  /**
+   * Un-tars an inputstream of a tar.gz file into a directory while reading the input stream no faster than allowed by
+   * the given rate limiter (one permit per byte), returns all the untarred files/directories. The input stream is
+   * consumed to the end so that the CRC in the gzip trailer is verified against the decompressed data.
+   * <p>This can be used to download and untar a segment without writing the tar.gz file to local disk.
+   * <p>For security reason, the untarred files must reside in the output directory.
+   */
+  public static List<File> untarWithRateLimiter(InputStream inputStream, File outputDir,
+      @Nullable RateLimiter rateLimiter)
+      throws IOException {
     String outputDirCanonicalPath = outputDir.getCanonicalPath();
     List<File> untarredFiles = new ArrayList<>();
-    try (InputStream fileIn = Files.newInputStream(inputFile.toPath());
-        InputStream bufferedIn = new BufferedInputStream(fileIn);
-        InputStream gzipIn = new GzipCompressorInputStream(bufferedIn);
+    InputStream in = rateLimiter != null ? new RateLimitedInputStream(inputStream, rateLimiter) : inputStream;
+    try (InputStream bufferedIn = new BufferedInputStream(in);
+        InputStream gzipIn = getDecompressorInputStream(bufferedIn);
         ArchiveInputStream tarGzIn = new TarArchiveInputStream(gzipIn)) {
       ArchiveEntry entry;
       while ((entry = tarGzIn.getNextEntry()) != null) {
@@ -136,6 +269,9 @@ public class TarGzCompressionUtils {
         }
         untarredFiles.add(outputFile);
       }
+      // Consume the padding after the last tar entry so that the gzip trailer (CRC and size) or the LZ4 content
+      // checksum gets verified
+      IOUtils.skip(gzipIn, Long.MAX_VALUE);
     }
     return untarredFiles;
   }
@@ -147,7 +283,7 @@ public class TarGzCompressionUtils {
       throws IOException {
     try (InputStream fileIn = Files.newInputStream(inputFile.toPath());
         InputStream bufferedIn = new BufferedInputStream(fileIn);
-        InputStream gzipIn = new GzipCompressorInputStream(bufferedIn);
+        InputStream gzipIn = getDecompressorInputStream(bufferedIn);
         ArchiveInputStream tarGzIn = new TarArchiveInputStream(gzipIn)) {
       ArchiveEntry entry;
       while ((entry = tarGzIn.getNextEntry()) != null) {
@@ -165,4 +301,33 @@ public class TarGzCompressionUtils {
       throw new IOException(String.format("Failed to find file: %s in: %s", fileName, inputFile));
     }
   }
+
+  /**
+   * Input stream that acquires one permit from the rate limiter for each byte read.
+   */
+  private static class RateLimitedInputStream extends FilterInputStream {
+    private final RateLimiter _rateLimiter;
+
+    RateLimitedInputStream(InputStream in, RateLimiter rateLimiter) {
+      super(in);
+      _rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public int read()
+        throws IOException {
+      _rateLimiter.acquire();
+      return super.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+        throws IOException {
+      int numBytesRead = super.read(b, off, len);
+      if (numBytesRead > 0) {
+        _rateLimiter.acquire(numBytesRead);
+      }
+      return numBytesRead;
+    }
+  }
 }
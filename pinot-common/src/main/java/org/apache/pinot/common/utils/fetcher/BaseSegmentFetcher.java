@@ -18,12 +18,15 @@
  */
 package org.apache.pinot.common.utils.fetcher;
 
+import com.google.common.util.concurrent.RateLimiter;
 import java.io.File;
 import java.net.URI;
 import java.util.List;
 import java.util.Random;
-
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
 import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.retry.RetriableOperationException;
 import org.apache.pinot.spi.utils.retry.RetryPolicies;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -98,6 +101,48 @@ public abstract class BaseSegmentFetcher implements SegmentFetcher {
     });
   }
 
+  @Override
+  public File fetchUntarSegmentToLocalStreamed(URI uri, File dest, @Nullable RateLimiter rateLimiter)
+      throws Exception {
+    File[] untarredFile = new File[1];
+    try {
+      RetryPolicies.exponentialBackoffRetryPolicy(_retryCount, _retryWaitMs, _retryDelayScaleFactor).attempt(() -> {
+        try {
+          // Clean up the files untarred by the previous failed attempt
+          FileUtils.deleteDirectory(dest);
+          FileUtils.forceMkdir(dest);
+          untarredFile[0] = fetchUntarSegmentToLocalStreamedWithoutRetry(uri, dest, rateLimiter);
+          _logger.info("Fetched and untarred segment from: {} to: {}", uri, untarredFile[0]);
+          return true;
+        } catch (UnsupportedOperationException e) {
+          // Not worth retrying, fall back to fetching the tar.gz file
+          throw e;
+        } catch (Exception e) {
+          _logger.warn("Caught exception while fetching and untarring segment from: {} to: {}", uri, dest, e);
+          return false;
+        }
+      });
+    } catch (RetriableOperationException e) {
+      if (e.getCause() instanceof UnsupportedOperationException) {
+        _logger.info("Streamed untar is not supported, fetching the tar.gz file and untarring segment from: {}", uri);
+        return SegmentFetcher.super.fetchUntarSegmentToLocalStreamed(uri, dest, rateLimiter);
+      }
+      throw e;
+    }
+    return untarredFile[0];
+  }
+
+  /**
+   * Fetches a segment tar.gz file from URI location and untars it into the given directory in a streamed way without
+   * retry, returns the untarred segment directory. Sub-class should override this or
+   * {@link #fetchUntarSegmentToLocalStreamed(URI, File, RateLimiter)}, otherwise the segment is fetched with
+   * {@link #fetchSegmentToLocal(URI, File)} and then untarred.
+   */
+  protected File fetchUntarSegmentToLocalStreamedWithoutRetry(URI uri, File dest, @Nullable RateLimiter rateLimiter)
+      throws Exception {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Fetches a segment from URI location to local without retry. Sub-class should override this or
    * {@link #fetchSegmentToLocal(URI, File)}.
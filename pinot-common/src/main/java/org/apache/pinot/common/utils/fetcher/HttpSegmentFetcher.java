@@ -18,10 +18,11 @@
  */
 package org.apache.pinot.common.utils.fetcher;
 
+import com.google.common.util.concurrent.RateLimiter;
 import java.io.File;
 import java.net.URI;
-
-import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
 import org.apache.pinot.common.exception.HttpErrorStatusException;
 import org.apache.pinot.common.utils.FileUploadDownloadClient;
 import org.apache.pinot.spi.env.PinotConfiguration;
@@ -79,4 +80,37 @@ public class HttpSegmentFetcher extends BaseSegmentFetcher {
       throw e;
     }
   }
+
+  @Override
+  public File fetchUntarSegmentToLocalStreamed(URI uri, File dest, @Nullable RateLimiter rateLimiter)
+      throws Exception {
+    File[] untarredFile = new File[1];
+    RetryPolicies.exponentialBackoffRetryPolicy(_retryCount, _retryWaitMs, _retryDelayScaleFactor).attempt(() -> {
+      try {
+        // Clean up the files untarred by the previous failed attempt
+        FileUtils.deleteDirectory(dest);
+        FileUtils.forceMkdir(dest);
+        untarredFile[0] = _httpClient.downloadUntarFileStreamed(uri, dest, rateLimiter);
+        _logger.info("Downloaded and untarred segment from: {} to: {}", uri, untarredFile[0]);
+        return true;
+      } catch (HttpErrorStatusException e) {
+        int statusCode = e.getStatusCode();
+        if (statusCode >= 500) {
+          // Temporary exception
+          _logger.warn("Got temporary error status code: {} while downloading segment from: {} to: {}", statusCode, uri,
+              dest, e);
+          return false;
+        } else {
+          // Permanent exception
+          _logger.error("Got permanent error status code: {} while downloading segment from: {} to: {}, won't retry",
+              statusCode, uri, dest, e);
+          throw e;
+        }
+      } catch (Exception e) {
+        _logger.warn("Caught exception while downloading and untarring segment from: {} to: {}", uri, dest, e);
+        return false;
+      }
+    });
+    return untarredFile[0];
+  }
 }
@@ -18,8 +18,14 @@
  */
 package org.apache.pinot.common.utils.fetcher;
 
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
 import java.io.File;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.pinot.common.utils.TarGzCompressionUtils;
 import org.apache.pinot.spi.filesystem.PinotFSFactory;
 
 
@@ -30,4 +36,15 @@ public class PinotFSSegmentFetcher extends BaseSegmentFetcher {
       throws Exception {
     PinotFSFactory.create(uri.getScheme()).copyToLocalFile(uri, dest);
   }
+
+  @Override
+  protected File fetchUntarSegmentToLocalStreamedWithoutRetry(URI uri, File dest, @Nullable RateLimiter rateLimiter)
+      throws Exception {
+    List<File> untarredFiles;
+    try (InputStream inputStream = PinotFSFactory.create(uri.getScheme()).open(uri)) {
+      untarredFiles = TarGzCompressionUtils.untarWithRateLimiter(inputStream, dest, rateLimiter);
+    }
+    Preconditions.checkState(!untarredFiles.isEmpty(), "No file untarred while fetching segment from: %s", uri);
+    return untarredFiles.get(0);
+  }
 }
@@ -18,10 +18,15 @@
  */
 package org.apache.pinot.common.utils.fetcher;
 
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
 import java.io.File;
 import java.net.URI;
 import java.util.List;
+import javax.annotation.Nullable;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.utils.TarGzCompressionUtils;
 import org.apache.pinot.spi.env.PinotConfiguration;
 
 
@@ -43,4 +48,28 @@ public interface SegmentFetcher {
    */
   void fetchSegmentToLocal(List<URI> uri, File dest)
       throws Exception;
+
+  /**
+   * Fetches a segment tar.gz file from URI location and untars it into the given directory in a streamed way, without
+   * storing the tar.gz file on local disk. Returns the untarred segment directory.
+   * <p>Segment fetchers that cannot stream the segment fall back to this default implementation, which fetches the
+   * tar.gz file next to the given directory with {@link #fetchSegmentToLocal(URI, File)} and then untars it. The rate
+   * limiter is not applied in this case.
+   *
+   * @param uri Segment URI
+   * @param dest Directory to untar the segment into
+   * @param rateLimiter Rate limiter (one permit per byte) on the download, or null for no limit
+   */
+  default File fetchUntarSegmentToLocalStreamed(URI uri, File dest, @Nullable RateLimiter rateLimiter)
+      throws Exception {
+    File tarGzFile = new File(dest.getPath() + TarGzCompressionUtils.TAR_GZ_FILE_EXTENSION);
+    try {
+      fetchSegmentToLocal(uri, tarGzFile);
+      List<File> untarredFiles = TarGzCompressionUtils.untar(tarGzFile, dest);
+      Preconditions.checkState(!untarredFiles.isEmpty(), "No file untarred while fetching segment from: %s", uri);
+      return untarredFiles.get(0);
+    } finally {
+      FileUtils.deleteQuietly(tarGzFile);
+    }
+  }
 }
@@ -18,13 +18,14 @@
  */
 package org.apache.pinot.common.utils.fetcher;
 
+import com.google.common.util.concurrent.RateLimiter;
 import java.io.File;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import javax.annotation.Nullable;
 import org.apache.pinot.common.utils.CommonConstants;
 import org.apache.pinot.spi.crypt.PinotCrypter;
 import org.apache.pinot.spi.crypt.PinotCrypterFactory;
@@ -118,6 +119,16 @@ public class SegmentFetcherFactory {
     fetchSegmentToLocal(new URI(uri), dest);
   }
 
+  /**
+   * Fetches a segment tar.gz file from URI location and untars it into the given directory in a streamed way, without
+   * storing the tar.gz file on local disk. Returns the untarred segment directory.
+   */
+  public static File fetchUntarSegmentToLocalStreamed(String uri, File dest, @Nullable RateLimiter rateLimiter)
+      throws Exception {
+    URI segmentUri = new URI(uri);
+    return getSegmentFetcher(segmentUri.getScheme()).fetchUntarSegmentToLocalStreamed(segmentUri, dest, rateLimiter);
+  }
+
   /**
    * Fetches a segment from a URI location to a local file and decrypts it if needed
    * @param uri remote segment location
@@ -18,7 +18,7 @@
  */
 package org.apache.pinot.common.utils.grpc;
 
-import io.grpc.Channel;
+import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import java.util.Iterator;
 import org.apache.pinot.common.proto.PinotQueryServerGrpc;
@@ -26,16 +26,21 @@ import org.apache.pinot.common.proto.Server;
 
 
 public class GrpcQueryClient {
+  private final ManagedChannel _managedChannel;
   private final PinotQueryServerGrpc.PinotQueryServerBlockingStub _blockingStub;
 
   public GrpcQueryClient(String host, int port) {
     // Set max message size to 128MB
-    Channel channel =
+    _managedChannel =
         ManagedChannelBuilder.forAddress(host, port).maxInboundMessageSize(128 * 1024 * 1024).usePlaintext().build();
-    _blockingStub = PinotQueryServerGrpc.newBlockingStub(channel);
+    _blockingStub = PinotQueryServerGrpc.newBlockingStub(_managedChannel);
   }
 
   public Iterator<Server.ServerResponse> submit(Server.ServerRequest request) {
     return _blockingStub.submit(request);
   }
+
+  public void close() {
+    _managedChannel.shutdown();
+  }
 }
@@ -190,6 +190,7 @@ public class SegmentZKMetadataTest {
     ZNRecord record = new ZNRecord(segmentName);
     record.setSimpleField(CommonConstants.Segment.SEGMENT_NAME, segmentName);
     record.setSimpleField(CommonConstants.Segment.CRYPTER_NAME, "testCrypter");
+    record.setSimpleField(CommonConstants.Segment.TAR_COMPRESSION_TYPE, "LZ4");
     record.setSimpleField(CommonConstants.Segment.INDEX_VERSION, "v1");
     record.setEnumField(CommonConstants.Segment.SEGMENT_TYPE, CommonConstants.Segment.SegmentType.OFFLINE);
     record.setLongField(CommonConstants.Segment.START_TIME, 1000);
@@ -208,6 +209,7 @@ public class SegmentZKMetadataTest {
     OfflineSegmentZKMetadata offlineSegmentMetadata = new OfflineSegmentZKMetadata();
     offlineSegmentMetadata.setSegmentName("testTable_O_3000_4000");
     offlineSegmentMetadata.setCrypterName("testCrypter");
+    offlineSegmentMetadata.setTarCompressionType("LZ4");
     offlineSegmentMetadata.setSegmentType(SegmentType.OFFLINE);
     offlineSegmentMetadata.setIndexVersion("v1");
     offlineSegmentMetadata.setStartTime(1000);
@@ -18,6 +18,8 @@
  */
 package org.apache.pinot.common.utils;
 
+import com.google.common.util.concurrent.RateLimiter;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -81,6 +83,88 @@ public class TarGzCompressionUtilsTest {
     assertEquals(FileUtils.readFileToString(untarredFile), fileContent);
   }
 
+  @Test
+  public void testCompressionTypes()
+      throws IOException {
+    String dirName = "dir";
+    File dir = new File(DATA_DIR, dirName);
+    String fileName = "data";
+    String fileContent = "fileContent";
+    FileUtils.write(new File(dir, fileName), fileContent);
+
+    for (TarGzCompressionUtils.CompressionType compressionType : TarGzCompressionUtils.CompressionType.values()) {
+      File tarFile = new File(TAR_DIR, dirName + compressionType.getFileExtension());
+      TarGzCompressionUtils.createTarFile(dir, tarFile, compressionType);
+      assertEquals(TarGzCompressionUtils.getCompressionType(tarFile), compressionType);
+
+      File untarDir = new File(UNTAR_DIR, compressionType.name());
+      List<File> untarredFiles = TarGzCompressionUtils.untar(tarFile, untarDir);
+      assertEquals(untarredFiles.size(), 2);
+      assertEquals(untarredFiles.get(0), new File(untarDir, dirName));
+      assertEquals(FileUtils.readFileToString(new File(untarredFiles.get(0), fileName)), fileContent);
+
+      File untarredFile = new File(untarDir, "untarred");
+      TarGzCompressionUtils.untarOneFile(tarFile, fileName, untarredFile);
+      assertEquals(FileUtils.readFileToString(untarredFile), fileContent);
+    }
+
+    try {
+      TarGzCompressionUtils.createTarFile(dir, new File(TAR_DIR, dirName + TarGzCompressionUtils.TAR_GZ_FILE_EXTENSION),
+          TarGzCompressionUtils.CompressionType.LZ4);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    // Unknown magic bytes should not be treated as an uncompressed tar file
+    File unknownFile = new File(TAR_DIR, dirName + TarGzCompressionUtils.TAR_FILE_EXTENSION);
+    FileUtils.write(unknownFile, fileContent);
+    try {
+      TarGzCompressionUtils.getCompressionType(unknownFile);
+      fail();
+    } catch (IOException e) {
+      // Expected
+    }
+    try {
+      TarGzCompressionUtils.untar(unknownFile, UNTAR_DIR);
+      fail();
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testUntarInputStreamWithRateLimiter()
+      throws IOException {
+    String dirName = "dir";
+    File dir = new File(DATA_DIR, dirName);
+    String fileName = "data";
+    String fileContent = "fileContent";
+    FileUtils.write(new File(dir, fileName), fileContent);
+
+    File tarGzFile = new File(TAR_DIR, dirName + TarGzCompressionUtils.TAR_GZ_FILE_EXTENSION);
+    TarGzCompressionUtils.createTarGzFile(dir, tarGzFile);
+
+    try (InputStream inputStream = Files.newInputStream(tarGzFile.toPath())) {
+      List<File> untarredFiles =
+          TarGzCompressionUtils.untarWithRateLimiter(inputStream, UNTAR_DIR, RateLimiter.create(1024 * 1024));
+      assertEquals(untarredFiles.size(), 2);
+      assertEquals(untarredFiles.get(0), new File(UNTAR_DIR, dirName));
+      assertEquals(FileUtils.readFileToString(new File(untarredFiles.get(0), fileName)), fileContent);
+    }
+
+    // Corrupt the CRC in the gzip trailer, which should be detected after all the entries are untarred
+    byte[] tarGzBytes = FileUtils.readFileToByteArray(tarGzFile);
+    tarGzBytes[tarGzBytes.length - 8] ^= 0xFF;
+    FileUtils.deleteDirectory(UNTAR_DIR);
+    try {
+      TarGzCompressionUtils.untar(new ByteArrayInputStream(tarGzBytes), UNTAR_DIR);
+      fail();
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
   @Test
   public void testDirectory()
       throws IOException {
@@ -21,13 +21,17 @@ package org.apache.pinot.common.utils.fetcher;
 import static org.apache.pinot.common.utils.CommonConstants.HTTPS_PROTOCOL;
 import static org.apache.pinot.common.utils.CommonConstants.HTTP_PROTOCOL;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 
+import com.google.common.util.concurrent.RateLimiter;
 import java.io.File;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.utils.TarGzCompressionUtils;
 
 import org.apache.pinot.spi.crypt.PinotCrypter;
 import org.apache.pinot.spi.crypt.PinotCrypterFactory;
@@ -48,6 +52,55 @@ public class SegmentFetcherFactoryTest {
     assertEquals(SegmentFetcherFactory.getSegmentFetcher("foo").getClass(), PinotFSSegmentFetcher.class);
   }
 
+  @Test
+  public void testFetchUntarSegmentToLocalStreamed()
+      throws Exception {
+    File tempDir = new File(FileUtils.getTempDirectory(), "SegmentFetcherFactoryTest");
+    FileUtils.deleteQuietly(tempDir);
+    try {
+      File segmentDir = new File(tempDir, "segment");
+      FileUtils.write(new File(segmentDir, "metadata.properties"), "foo=bar");
+      File tarGzFile = new File(tempDir, "segment" + TarGzCompressionUtils.TAR_GZ_FILE_EXTENSION);
+      TarGzCompressionUtils.createTarGzFile(segmentDir, tarGzFile);
+
+      File untarDir = new File(tempDir, "untarDir");
+      File untarredSegmentDir = SegmentFetcherFactory
+          .fetchUntarSegmentToLocalStreamed(tarGzFile.toURI().toString(), untarDir, RateLimiter.create(1024 * 1024));
+      assertEquals(untarredSegmentDir, new File(untarDir, "segment"));
+      assertEquals(FileUtils.readFileToString(new File(untarredSegmentDir, "metadata.properties")), "foo=bar");
+    } finally {
+      FileUtils.deleteQuietly(tempDir);
+    }
+  }
+
+  @Test
+  public void testFetchUntarSegmentToLocalStreamedFallback()
+      throws Exception {
+    File tempDir = new File(FileUtils.getTempDirectory(), "SegmentFetcherFactoryTest");
+    FileUtils.deleteQuietly(tempDir);
+    try {
+      File segmentDir = new File(tempDir, "segment");
+      FileUtils.write(new File(segmentDir, "metadata.properties"), "foo=bar");
+      File tarGzFile = new File(tempDir, "segment" + TarGzCompressionUtils.TAR_GZ_FILE_EXTENSION);
+      TarGzCompressionUtils.createTarGzFile(segmentDir, tarGzFile);
+
+      // The fetcher does not support the streamed untar, so it should fall back to fetching the tar.gz file without
+      // retrying the streamed untar
+      FakeNonStreamedSegmentFetcher segmentFetcher = new FakeNonStreamedSegmentFetcher();
+      segmentFetcher.init(new PinotConfiguration());
+      File untarDir = new File(tempDir, "untarDir");
+      File untarredSegmentDir =
+          segmentFetcher.fetchUntarSegmentToLocalStreamed(tarGzFile.toURI(), untarDir, RateLimiter.create(1024 * 1024));
+      assertEquals(segmentFetcher._fetchFileToLocalCalled, 1);
+      assertEquals(untarredSegmentDir, new File(untarDir, "segment"));
+      assertEquals(FileUtils.readFileToString(new File(untarredSegmentDir, "metadata.properties")), "foo=bar");
+      // The intermediate tar.gz file should be cleaned up
+      assertFalse(new File(untarDir.getPath() + TarGzCompressionUtils.TAR_GZ_FILE_EXTENSION).exists());
+    } finally {
+      FileUtils.deleteQuietly(tempDir);
+    }
+  }
+
   @Test(dependsOnMethods = "testDefaultSegmentFetcherFactory")
   public void testCustomizedSegmentFetcherFactory()
       throws Exception {
@@ -122,6 +175,20 @@ public class SegmentFetcherFactoryTest {
     }
   }
 
+  /**
+   * Segment fetcher that does not support the streamed untar, and counts the fetch attempts.
+   */
+  public static class FakeNonStreamedSegmentFetcher extends BaseSegmentFetcher {
+    private int _fetchFileToLocalCalled = 0;
+
+    @Override
+    protected void fetchSegmentToLocalWithoutRetry(URI uri, File dest)
+        throws Exception {
+      _fetchFileToLocalCalled++;
+      FileUtils.copyFile(new File(uri), dest);
+    }
+  }
+
   public static class FakePinotCrypter implements PinotCrypter {
 
     private int _initCalled = 0;
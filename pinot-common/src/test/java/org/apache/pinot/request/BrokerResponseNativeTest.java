@@ -70,4 +70,19 @@ public class BrokerResponseNativeTest {
     Assert.assertEquals(newBrokerResponse.getProcessingExceptions().get(1).getErrorCode(), 400);
     Assert.assertEquals(newBrokerResponse.getProcessingExceptions().get(1).getMessage(), errorMsgStr);
   }
+
+  @Test
+  public void testPartialResultResponse()
+      throws IOException {
+    BrokerResponseNative expected = new BrokerResponseNative();
+    Assert.assertFalse(expected.toJsonString().contains("partialResult"));
+
+    expected.setPartialResult(true);
+    expected.setNumSegmentsQueried(10);
+    expected.setNumSegmentsProcessed(6);
+    BrokerResponseNative actual = BrokerResponseNative.fromJsonString(expected.toJsonString());
+    Assert.assertTrue(actual.isPartialResult());
+    Assert.assertEquals(actual.getNumSegmentsQueried(), 10);
+    Assert.assertEquals(actual.getNumSegmentsProcessed(), 6);
+  }
 }
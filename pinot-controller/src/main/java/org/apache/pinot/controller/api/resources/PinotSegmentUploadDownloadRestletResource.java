@@ -65,6 +65,7 @@ import org.apache.pinot.common.restlet.resources.StartReplaceSegmentsRequest;
 import org.apache.pinot.common.utils.CommonConstants;
 import org.apache.pinot.common.utils.FileUploadDownloadClient;
 import org.apache.pinot.common.utils.StringUtil;
+import org.apache.pinot.common.utils.TarGzCompressionUtils;
 import org.apache.pinot.common.utils.URIUtils;
 import org.apache.pinot.common.utils.fetcher.SegmentFetcherFactory;
 import org.apache.pinot.controller.ControllerConf;
@@ -225,6 +226,8 @@ public class PinotSegmentUploadDownloadRestletResource {
         decryptFile(crypterClassNameInHeader, tempEncryptedFile, tempDecryptedFile);
       }
 
+      // Record the compression of the uploaded segment tar file (gzip, LZ4 or none) in the segment ZK metadata
+      String tarCompressionType = TarGzCompressionUtils.getCompressionType(tempDecryptedFile).name();
       String metadataProviderClass = DefaultMetadataExtractor.class.getName();
       SegmentMetadata segmentMetadata = getSegmentMetadata(tempDecryptedFile, tempSegmentDir, metadataProviderClass);
 
@@ -277,7 +280,7 @@ public class PinotSegmentUploadDownloadRestletResource {
 
       // Zk operations
       completeZkOperations(enableParallelPushProtection, headers, finalSegmentFile, rawTableName, segmentMetadata,
-          segmentName, zkDownloadUri, moveSegmentToFinalLocation, crypterClassName);
+          segmentName, zkDownloadUri, moveSegmentToFinalLocation, crypterClassName, tarCompressionType);
 
       return new SuccessResponse("Successfully uploaded segment: " + segmentName + " of table: " + rawTableName);
     } catch (WebApplicationException e) {
@@ -367,14 +370,15 @@ public class PinotSegmentUploadDownloadRestletResource {
 
   private void completeZkOperations(boolean enableParallelPushProtection, HttpHeaders headers, File uploadedSegmentFile,
       String rawTableName, SegmentMetadata segmentMetadata, String segmentName, String zkDownloadURI,
-      boolean moveSegmentToFinalLocation, String crypter)
+      boolean moveSegmentToFinalLocation, String crypter, String tarCompressionType)
       throws Exception {
     URI finalSegmentLocationURI = URIUtils
         .getUri(ControllerFilePathProvider.getInstance().getDataDirURI().toString(), rawTableName,
             URIUtils.encode(segmentName));
     ZKOperator zkOperator = new ZKOperator(_pinotHelixResourceManager, _controllerConf, _controllerMetrics);
     zkOperator.completeSegmentOperations(rawTableName, segmentMetadata, finalSegmentLocationURI, uploadedSegmentFile,
-        enableParallelPushProtection, headers, zkDownloadURI, moveSegmentToFinalLocation, crypter);
+        enableParallelPushProtection, headers, zkDownloadURI, moveSegmentToFinalLocation, crypter,
+        tarCompressionType);
   }
 
   private void decryptFile(String crypterClassName, File tempEncryptedFile, File tempDecryptedFile) {
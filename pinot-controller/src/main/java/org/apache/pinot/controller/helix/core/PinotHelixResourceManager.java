@@ -1600,6 +1600,11 @@ public class PinotHelixResourceManager {
 
   public void addNewSegment(String tableName, SegmentMetadata segmentMetadata, String downloadUrl,
       @Nullable String crypter) {
+    addNewSegment(tableName, segmentMetadata, downloadUrl, crypter, null);
+  }
+
+  public void addNewSegment(String tableName, SegmentMetadata segmentMetadata, String downloadUrl,
+      @Nullable String crypter, @Nullable String tarCompressionType) {
     String segmentName = segmentMetadata.getName();
     String offlineTableName = TableNameBuilder.OFFLINE.tableNameWithType(tableName);
 
@@ -1609,6 +1614,7 @@ public class PinotHelixResourceManager {
     ZKMetadataUtils.updateSegmentMetadata(offlineSegmentZKMetadata, segmentMetadata);
     offlineSegmentZKMetadata.setDownloadUrl(downloadUrl);
     offlineSegmentZKMetadata.setCrypterName(crypter);
+    offlineSegmentZKMetadata.setTarCompressionType(tarCompressionType);
     offlineSegmentZKMetadata.setPushTime(System.currentTimeMillis());
     String segmentZKMetadataPath =
         ZKMetadataProvider.constructPropertyStorePathForSegment(offlineTableName, segmentName);
@@ -1676,6 +1682,12 @@ public class PinotHelixResourceManager {
 
   public void refreshSegment(String offlineTableName, SegmentMetadata segmentMetadata,
       OfflineSegmentZKMetadata offlineSegmentZKMetadata, String downloadUrl, @Nullable String crypter) {
+    refreshSegment(offlineTableName, segmentMetadata, offlineSegmentZKMetadata, downloadUrl, crypter, null);
+  }
+
+  public void refreshSegment(String offlineTableName, SegmentMetadata segmentMetadata,
+      OfflineSegmentZKMetadata offlineSegmentZKMetadata, String downloadUrl, @Nullable String crypter,
+      @Nullable String tarCompressionType) {
     String segmentName = segmentMetadata.getName();
 
     // NOTE: Must first set the segment ZK metadata before trying to refresh because servers and brokers rely on segment
@@ -1686,6 +1698,7 @@ public class PinotHelixResourceManager {
     offlineSegmentZKMetadata.setRefreshTime(System.currentTimeMillis());
     offlineSegmentZKMetadata.setDownloadUrl(downloadUrl);
     offlineSegmentZKMetadata.setCrypterName(crypter);
+    offlineSegmentZKMetadata.setTarCompressionType(tarCompressionType);
     if (!ZKMetadataProvider.setOfflineSegmentZKMetadata(_propertyStore, offlineTableName, offlineSegmentZKMetadata)) {
       throw new RuntimeException(
           "Failed to update ZK metadata for segment: " + segmentName + " of table: " + offlineTableName);
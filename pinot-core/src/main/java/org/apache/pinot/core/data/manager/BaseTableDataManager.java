@@ -22,6 +22,7 @@ import com.google.common.base.Preconditions;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -33,7 +34,9 @@ import org.apache.pinot.common.metrics.ServerMeter;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.core.data.manager.config.TableDataManagerConfig;
 import org.apache.pinot.core.data.manager.offline.ImmutableSegmentDataManager;
+import org.apache.pinot.core.indexsegment.IndexSegment;
 import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegmentImpl;
 import org.apache.pinot.core.segment.index.loader.IndexLoadingConfig;
 import org.apache.pinot.spi.config.table.TableConfig;
 import org.slf4j.Logger;
@@ -210,6 +213,27 @@ public abstract class BaseTableDataManager implements TableDataManager {
     _logger.info("Closed segment: {} of table: {}", segmentName, _tableNameWithType);
   }
 
+  @Override
+  public int releaseIdleColumns(long idleTimeMs) {
+    int numColumnsReleased = 0;
+    for (Map.Entry<String, SegmentDataManager> entry : _segmentDataManagerMap.entrySet()) {
+      SegmentDataManager segmentDataManager = entry.getValue();
+      IndexSegment segment = segmentDataManager.getSegment();
+      if (!(segment instanceof ImmutableSegmentImpl)) {
+        continue;
+      }
+      // Only release the columns when the segment is not acquired by any query, and prevent the segment from being
+      // acquired while releasing. The segment is removed from the map before the reference held by this table data
+      // manager is released, so a segment still in the map is not acquired if it is only referenced once.
+      synchronized (segmentDataManager) {
+        if (segmentDataManager.isNotAcquired() && _segmentDataManagerMap.get(entry.getKey()) == segmentDataManager) {
+          numColumnsReleased += ((ImmutableSegmentImpl) segment).releaseIdleColumns(idleTimeMs);
+        }
+      }
+    }
+    return numColumnsReleased;
+  }
+
   @Override
   public String getTableName() {
     return _tableNameWithType;
@@ -47,6 +47,15 @@ public abstract class SegmentDataManager {
     }
   }
 
+  /**
+   * Returns whether the segment is not acquired by anyone (i.e. only referenced by its table data manager, or acquired
+   * once after being removed from the table). The segment cannot be acquired while the caller holds the lock on this
+   * segment data manager.
+   */
+  synchronized boolean isNotAcquired() {
+    return _referenceCount == 1;
+  }
+
   /**
    * Decreases the reference count. Should be called when releasing or dropping the segment.
    *
@@ -113,6 +113,15 @@ public interface TableDataManager {
    */
   void releaseSegment(SegmentDataManager segmentDataManager);
 
+  /**
+   * Releases the indexes of the lazily loaded columns not accessed within the given idle time, for the segments not
+   * acquired by any query. The released columns are loaded again on the next access.
+   *
+   * @param idleTimeMs Idle time in milliseconds
+   * @return Number of columns released
+   */
+  int releaseIdleColumns(long idleTimeMs);
+
   /**
    * Returns the table name managed by this instance.
    */
@@ -49,5 +49,25 @@ public interface InstanceDataManagerConfig {
 
   boolean isDirectRealtimeOffHeapAllocation();
 
+  boolean isArenaRealtimeOffHeapAllocation();
+
+  long getRealtimeArenaRegionBytes();
+
+  long getRealtimeArenaMaxFreeBytes();
+
+  long getRealtimeMaxConsumingMemoryBytes();
+
+  int getRealtimeCatchUpDecoderThreads();
+
+  long getRealtimeCatchUpLagThreshold();
+
+  int getRealtimeSegmentBuildThreads();
+
+  long getSegmentWarmUpMaxBytesPerSecond();
+
+  long getColdSegmentAgeMs();
+
+  String getColdSegmentRemoteDir();
+
   int getMaxParallelSegmentBuilds();
 }
@@ -18,7 +18,12 @@
  */
 package org.apache.pinot.core.data.manager.offline;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
 import org.apache.helix.HelixManager;
 import org.apache.helix.ZNRecord;
@@ -36,6 +41,7 @@ import org.apache.pinot.spi.config.table.TableType;
  */
 public class TableDataManagerProvider {
   private static Semaphore _segmentBuildSemaphore;
+  private static ExecutorService _segmentBuildExecutor;
 
   private TableDataManagerProvider() {
   }
@@ -45,6 +51,16 @@ public class TableDataManagerProvider {
     if (maxParallelBuilds > 0) {
       _segmentBuildSemaphore = new Semaphore(maxParallelBuilds, true);
     }
+    // One bounded thread pool shared by all the realtime segment builds to create the column indexes in parallel
+    int numSegmentBuildThreads = instanceDataManagerConfig.getRealtimeSegmentBuildThreads();
+    if (numSegmentBuildThreads > 1) {
+      ThreadPoolExecutor segmentBuildExecutor =
+          new ThreadPoolExecutor(numSegmentBuildThreads, numSegmentBuildThreads, 1L, TimeUnit.MINUTES,
+              new LinkedBlockingQueue<>(),
+              new ThreadFactoryBuilder().setDaemon(true).setNameFormat("realtime-segment-build-%d").build());
+      segmentBuildExecutor.allowCoreThreadTimeOut(true);
+      _segmentBuildExecutor = segmentBuildExecutor;
+    }
   }
 
   public static TableDataManager getTableDataManager(@Nonnull TableDataManagerConfig tableDataManagerConfig,
@@ -56,7 +72,7 @@ public class TableDataManagerProvider {
         tableDataManager = new OfflineTableDataManager();
         break;
       case REALTIME:
-        tableDataManager = new RealtimeTableDataManager(_segmentBuildSemaphore);
+        tableDataManager = new RealtimeTableDataManager(_segmentBuildSemaphore, _segmentBuildExecutor);
         break;
       default:
         throw new IllegalStateException();
@@ -192,11 +192,11 @@ public class HLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
             .setVarLengthDictionaryColumns(indexLoadingConfig.getVarLengthDictionaryColumns())
             .setInvertedIndexColumns(invertedIndexColumns).setRealtimeSegmentZKMetadata(realtimeSegmentZKMetadata)
             .setOffHeap(indexLoadingConfig.isRealtimeOffHeapAllocation()).setMemoryManager(
-            getMemoryManager(realtimeTableDataManager.getConsumerDir(), _segmentName,
-                indexLoadingConfig.isRealtimeOffHeapAllocation(),
-                indexLoadingConfig.isDirectRealtimeOffHeapAllocation(), serverMetrics))
+            getMemoryManager(realtimeTableDataManager.getConsumerDir(), _segmentName, indexLoadingConfig,
+                serverMetrics))
             .setStatsHistory(realtimeTableDataManager.getStatsHistory())
-            .setNullHandlingEnabled(indexingConfig.isNullHandlingEnabled()).build();
+            .setNullHandlingEnabled(indexingConfig.isNullHandlingEnabled())
+            .setLinearProbingDictionaryEnabled(indexingConfig.isLinearProbingDictionaryEnabled()).build();
     _realtimeSegment = new MutableSegmentImpl(realtimeSegmentConfig);
 
     _notifier = realtimeTableDataManager;
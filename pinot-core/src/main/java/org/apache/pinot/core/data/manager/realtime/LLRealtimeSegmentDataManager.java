@@ -55,8 +55,10 @@ import org.apache.pinot.core.indexsegment.generator.SegmentVersion;
 import org.apache.pinot.core.indexsegment.mutable.MutableSegment;
 import org.apache.pinot.core.indexsegment.mutable.MutableSegmentImpl;
 import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import org.apache.pinot.core.io.readerwriter.RealtimeIndexOffHeapMemoryManager;
 import org.apache.pinot.core.realtime.converter.RealtimeSegmentConverter;
 import org.apache.pinot.core.realtime.impl.RealtimeSegmentConfig;
+import org.apache.pinot.core.realtime.impl.RealtimeSegmentStatsHistory;
 import org.apache.pinot.core.segment.creator.impl.V1Constants;
 import org.apache.pinot.core.segment.index.loader.IndexLoadingConfig;
 import org.apache.pinot.core.segment.store.SegmentDirectoryPaths;
@@ -69,7 +71,9 @@ import org.apache.pinot.spi.config.table.SegmentPartitionConfig;
 import org.apache.pinot.spi.config.table.TableConfig;
 import org.apache.pinot.spi.data.Schema;
 import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.stream.LongMsgOffset;
 import org.apache.pinot.spi.stream.MessageBatch;
+import org.apache.pinot.spi.stream.OffsetCriteria;
 import org.apache.pinot.spi.stream.PartitionLevelConsumer;
 import org.apache.pinot.spi.stream.PartitionLevelStreamConfig;
 import org.apache.pinot.spi.stream.PermanentConsumerException;
@@ -82,6 +86,7 @@ import org.apache.pinot.spi.stream.StreamMetadataProvider;
 import org.apache.pinot.spi.stream.StreamPartitionMsgOffset;
 import org.apache.pinot.spi.stream.StreamPartitionMsgOffsetFactory;
 import org.apache.pinot.spi.stream.TransientConsumerException;
+import org.apache.pinot.spi.utils.TimeUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
@@ -200,12 +205,28 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
   private static final int MSG_COUNT_THRESHOLD_FOR_LOG = 100000;
   private static final int BUILD_TIME_LEASE_SECONDS = 30;
   private static final int MAX_CONSECUTIVE_ERROR_COUNT = 5;
+  // Min number of rows to index before the segment can be completed because of the memory budget, so that a burst of
+  // allocations does not result in tiny segments.
+  private static final int MIN_ROWS_FOR_MEMORY_LIMIT = 10_000;
+  // Fraction of the server consuming memory budget after which the largest consuming segments are completed early.
+  private static final double SERVER_MEMORY_LIMIT_RATIO = 0.9;
+  // Interval between checks of the consumption lag when the catch-up mode is enabled.
+  private static final long CATCH_UP_LAG_CHECK_INTERVAL_MS = 10_000L;
+  private static final long CATCH_UP_LAG_FETCH_TIMEOUT_MS = 5_000L;
+  // In catch-up mode, keep fetching message batches until we have this many messages to decode in parallel, or
+  // until we have fetched the max number of batches.
+  private static final int CATCH_UP_MIN_MESSAGES_PER_ROUND = 10_000;
+  private static final int CATCH_UP_MAX_FETCHES_PER_ROUND = 10;
 
   private final LLCRealtimeSegmentZKMetadata _segmentZKMetadata;
   private final TableConfig _tableConfig;
   private final RealtimeTableDataManager _realtimeTableDataManager;
   private final StreamMessageDecoder _messageDecoder;
   private final int _segmentMaxRowCount;
+  private final long _segmentMaxMemoryBytes;
+  private final long _serverMaxConsumingMemoryBytes;
+  private final int _catchUpDecoderThreads;
+  private final long _catchUpLagThreshold;
   private final String _resourceDataDir;
   private final IndexLoadingConfig _indexLoadingConfig;
   private final Schema _schema;
@@ -249,6 +270,11 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
   final String _clientId;
   private final LLCSegmentName _llcSegmentName;
   private final RecordTransformer _recordTransformer;
+  private final Set<String> _fieldsToRead;
+  // Only set while the partition is catching up with the stream
+  private ParallelMessageDecoder _parallelMessageDecoder = null;
+  private long _lastLagCheckTimeMs = 0;
+  private long _lastLag = -1;
   private PartitionLevelConsumer _partitionLevelConsumer = null;
   private StreamMetadataProvider _streamMetadataProvider = null;
   private final File _resourceTmpDir;
@@ -301,6 +327,9 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
               _numRowsIndexed, _numRowsConsumed, _segmentMaxRowCount);
           _stopReason = SegmentCompletionProtocol.REASON_ROW_LIMIT;
           return true;
+        } else if (isMemoryLimitReached()) {
+          _stopReason = SegmentCompletionProtocol.REASON_MEMORY_LIMIT;
+          return true;
         }
         return false;
 
@@ -343,6 +372,33 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     }
   }
 
+  private boolean isMemoryLimitReached() {
+    if (_numRowsIndexed < MIN_ROWS_FOR_MEMORY_LIMIT) {
+      return false;
+    }
+    long segmentAllocatedBytes = _memoryManager.getTotalAllocatedBytes();
+    if (_segmentMaxMemoryBytes > 0 && segmentAllocatedBytes >= _segmentMaxMemoryBytes) {
+      segmentLogger.info("Stopping consumption due to segment memory limit allocatedBytes={} maxBytes={} "
+          + "numRowsIndexed={}, numRowsConsumed={}", segmentAllocatedBytes, _segmentMaxMemoryBytes, _numRowsIndexed,
+          _numRowsConsumed);
+      return true;
+    }
+    // Only complete the largest consuming segments when the server memory limit is reached to avoid completing all the
+    // consuming segments at the same time
+    if (_serverMaxConsumingMemoryBytes > 0 && _memoryManager instanceof RealtimeIndexOffHeapMemoryManager) {
+      long serverLimitBytes = (long) (_serverMaxConsumingMemoryBytes * SERVER_MEMORY_LIMIT_RATIO);
+      if (RealtimeIndexOffHeapMemoryManager
+          .shouldReleaseForServerLimit((RealtimeIndexOffHeapMemoryManager) _memoryManager, serverLimitBytes)) {
+        long serverAllocatedBytes = RealtimeIndexOffHeapMemoryManager.getServerAllocatedBytes();
+        segmentLogger.info("Stopping consumption due to server memory limit serverAllocatedBytes={} maxBytes={} "
+                + "segmentAllocatedBytes={} numRowsIndexed={}, numRowsConsumed={}", serverAllocatedBytes,
+            _serverMaxConsumingMemoryBytes, segmentAllocatedBytes, _numRowsIndexed, _numRowsConsumed);
+        return true;
+      }
+    }
+    return false;
+  }
+
   private void handleTransientStreamErrors(Exception e)
       throws Exception {
     consecutiveErrorCount++;
@@ -365,13 +421,35 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     final long maxIdleCountBeforeStatUpdate = (3 * 60 * 1000) / (idlePipeSleepTimeMillis + _partitionLevelStreamConfig
         .getFetchTimeoutMillis());  // 3 minute count
     StreamPartitionMsgOffset lastUpdatedOffset = _streamPartitionMsgOffsetFactory.create(_currentOffset);  // so that we always update the metric when we enter this method.
-    long consecutiveIdleCount = 0;
     // At this point, we know that we can potentially move the offset, so the old saved segment file is not valid
     // anymore. Remove the file if it exists.
     removeSegmentFile();
 
     segmentLogger.info("Starting consumption loop start offset {}, finalOffset {}", _currentOffset, _finalOffset);
+    try {
+      consumeMessages(idlePipeSleepTimeMillis, maxIdleCountBeforeStatUpdate, lastUpdatedOffset);
+    } finally {
+      if (_parallelMessageDecoder != null) {
+        stopCatchingUp();
+      }
+    }
+
+    if (_numRowsErrored > 0) {
+      _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.ROWS_WITH_ERRORS, _numRowsErrored);
+      _serverMetrics.addMeteredTableValue(_tableStreamName, ServerMeter.ROWS_WITH_ERRORS, _numRowsErrored);
+    }
+    return true;
+  }
+
+  private void consumeMessages(long idlePipeSleepTimeMillis, long maxIdleCountBeforeStatUpdate,
+      StreamPartitionMsgOffset lastUpdatedOffset)
+      throws Exception {
+    long consecutiveIdleCount = 0;
     while (!_shouldStop && !endCriteriaReached()) {
+      if (_catchUpDecoderThreads > 0) {
+        checkConsumptionLag();
+      }
+
       // Consume for the next readTime ms, or we get to final offset, whichever happens earlier,
       // Update _currentOffset upon return from this method
       MessageBatch messageBatch;
@@ -395,7 +473,11 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
         continue;
       }
 
-      processStreamEvents(messageBatch, idlePipeSleepTimeMillis);
+      if (_parallelMessageDecoder != null) {
+        processStreamEventsInParallel(fetchMoreMessages(messageBatch), idlePipeSleepTimeMillis);
+      } else {
+        processStreamEvents(messageBatch, idlePipeSleepTimeMillis);
+      }
 
       if (_currentOffset.compareTo(lastUpdatedOffset) != 0) {
         consecutiveIdleCount = 0;
@@ -415,12 +497,98 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
         }
       }
     }
+  }
 
-    if (_numRowsErrored > 0) {
-      _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.ROWS_WITH_ERRORS, _numRowsErrored);
-      _serverMetrics.addMeteredTableValue(_tableStreamName, ServerMeter.ROWS_WITH_ERRORS, _numRowsErrored);
+  /**
+   * Fetches the consumption lag periodically, and switches the partition into (or out of) the catch-up mode where
+   * messages are fetched in larger rounds and decoded in parallel. To avoid flapping, the partition only switches back
+   * to the normal mode once the lag drops below half of the threshold.
+   */
+  private void checkConsumptionLag() {
+    long now = now();
+    if (now - _lastLagCheckTimeMs < CATCH_UP_LAG_CHECK_INTERVAL_MS) {
+      return;
     }
-    return true;
+    long lag = fetchConsumptionLag();
+    if (lag >= 0) {
+      _serverMetrics.setValueOfTableGauge(_metricKeyName, ServerGauge.LLC_PARTITION_CONSUMPTION_LAG, lag);
+      if (_lastLag >= 0) {
+        // Number of messages per second the lag shrinks by (negative if the partition is falling behind)
+        long lagRecoveryRate = (_lastLag - lag) * 1000 / Math.max(now - _lastLagCheckTimeMs, 1);
+        _serverMetrics
+            .setValueOfTableGauge(_metricKeyName, ServerGauge.LLC_PARTITION_LAG_RECOVERY_RATE, lagRecoveryRate);
+      }
+      if (_parallelMessageDecoder == null) {
+        if (lag >= _catchUpLagThreshold) {
+          segmentLogger.info("Starting catch-up mode with {} decoder threads, lag: {} messages", _catchUpDecoderThreads,
+              lag);
+          _parallelMessageDecoder = new ParallelMessageDecoder(_catchUpDecoderThreads,
+              () -> StreamDecoderProvider.create(_partitionLevelStreamConfig, _fieldsToRead),
+              () -> CompositeTransformer.getDefaultTransformer(_tableConfig, _schema),
+              ParallelMessageDecoder.getSharedExecutorService(_catchUpDecoderThreads));
+          _serverMetrics.setValueOfTableGauge(_metricKeyName, ServerGauge.LLC_PARTITION_CATCHING_UP, 1);
+        }
+      } else if (lag < _catchUpLagThreshold / 2) {
+        segmentLogger.info("Stopping catch-up mode, lag: {} messages", lag);
+        stopCatchingUp();
+      }
+    }
+    _lastLag = lag;
+    _lastLagCheckTimeMs = now;
+  }
+
+  private void stopCatchingUp() {
+    _parallelMessageDecoder = null;
+    _serverMetrics.setValueOfTableGauge(_metricKeyName, ServerGauge.LLC_PARTITION_CATCHING_UP, 0);
+  }
+
+  /**
+   * Returns the number of messages between the current offset and the latest offset of the partition, or -1 if it
+   * cannot be determined (e.g. the stream offsets are not numeric).
+   */
+  private long fetchConsumptionLag() {
+    if (!(_currentOffset instanceof LongMsgOffset)) {
+      return -1;
+    }
+    try {
+      StreamPartitionMsgOffset latestOffset = _streamMetadataProvider
+          .fetchStreamPartitionOffset(OffsetCriteria.LARGEST_OFFSET_CRITERIA, CATCH_UP_LAG_FETCH_TIMEOUT_MS);
+      if (latestOffset instanceof LongMsgOffset) {
+        return Math.max(((LongMsgOffset) latestOffset).getOffset() - ((LongMsgOffset) _currentOffset).getOffset(), 0);
+      }
+    } catch (Exception e) {
+      segmentLogger.warn("Caught exception while fetching the latest offset", e);
+      makeStreamMetadataProvider("Failed to fetch the latest offset");
+    }
+    return -1;
+  }
+
+  /**
+   * In catch-up mode, keeps fetching the following message batches so that there are enough messages to decode in
+   * parallel. Errors are not handled here, they will show up again on the next fetch of the consume loop.
+   */
+  private List<MessageBatch> fetchMoreMessages(MessageBatch messageBatch) {
+    List<MessageBatch> messageBatches = new ArrayList<>(CATCH_UP_MAX_FETCHES_PER_ROUND);
+    messageBatches.add(messageBatch);
+    int numMessages = messageBatch.getMessageCount();
+    while (numMessages > 0 && numMessages < CATCH_UP_MIN_MESSAGES_PER_ROUND
+        && messageBatches.size() < CATCH_UP_MAX_FETCHES_PER_ROUND && !_shouldStop) {
+      StreamPartitionMsgOffset nextOffset =
+          messageBatch.getNextStreamParitionMsgOffsetAtIndex(messageBatch.getMessageCount() - 1);
+      try {
+        messageBatch = _partitionLevelConsumer
+            .fetchMessages(nextOffset, null, _partitionLevelStreamConfig.getFetchTimeoutMillis());
+      } catch (Exception e) {
+        segmentLogger.debug("Caught exception while fetching more messages from offset {}", nextOffset, e);
+        break;
+      }
+      if (messageBatch.getMessageCount() == 0) {
+        break;
+      }
+      messageBatches.add(messageBatch);
+      numMessages += messageBatch.getMessageCount();
+    }
+    return messageBatches;
   }
 
   private void processStreamEvents(MessageBatch messagesAndOffsets, long idlePipeSleepTimeMillis) {
@@ -520,6 +688,80 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     }
   }
 
+  /**
+   * Same as {@link #processStreamEvents(MessageBatch, long)}, but the messages are decoded and transformed in parallel
+   * before being indexed in order.
+   */
+  private void processStreamEventsInParallel(List<MessageBatch> messageBatches, long idlePipeSleepTimeMillis)
+      throws InterruptedException {
+    Meter realtimeRowsConsumedMeter = null;
+    Meter realtimeRowsDroppedMeter = null;
+
+    int indexedMessageCount = 0;
+    int streamMessageCount = 0;
+    boolean canTakeMore = true;
+
+    ParallelMessageDecoder.DecodedMessage[] decodedMessages = _parallelMessageDecoder.decode(messageBatches);
+    int messageIndex = 0;
+    for (MessageBatch messageBatch : messageBatches) {
+      if (_shouldStop || endCriteriaReached()) {
+        break;
+      }
+      int messageCount = messageBatch.getMessageCount();
+      for (int index = 0; index < messageCount; index++) {
+        if (_shouldStop || endCriteriaReached()) {
+          break;
+        }
+        if (!canTakeMore) {
+          // See processStreamEvents() for when this can happen
+          segmentLogger
+              .error("Buffer full with {} rows consumed (row limit {}, indexed {})", _numRowsConsumed, _numRowsIndexed,
+                  _segmentMaxRowCount);
+          throw new RuntimeException("Realtime segment full");
+        }
+
+        ParallelMessageDecoder.DecodedMessage decodedMessage = decodedMessages[messageIndex++];
+        RowMetadata msgMetadata = messageBatch.getMetadataAtIndex(index);
+        // Same as processStreamEvents(), an exception stops processing the rest of the message, and counts as one
+        // errored row
+        boolean errored = decodedMessage.isErrored();
+        try {
+          for (GenericRow transformedRow : decodedMessage.getRows()) {
+            realtimeRowsConsumedMeter = _serverMetrics
+                .addMeteredTableValue(_metricKeyName, ServerMeter.REALTIME_ROWS_CONSUMED, 1, realtimeRowsConsumedMeter);
+            indexedMessageCount++;
+            canTakeMore = _realtimeSegment.index(transformedRow, msgMetadata);
+          }
+        } catch (Exception e) {
+          segmentLogger.error("Caught exception while indexing the rows of message at offset: {}",
+              messageBatch.getNextStreamParitionMsgOffsetAtIndex(index), e);
+          errored = true;
+        }
+        if (decodedMessage.getNumRowsDropped() > 0) {
+          realtimeRowsDroppedMeter = _serverMetrics
+              .addMeteredTableValue(_metricKeyName, ServerMeter.INVALID_REALTIME_ROWS_DROPPED,
+                  decodedMessage.getNumRowsDropped(), realtimeRowsDroppedMeter);
+        }
+        if (errored) {
+          _numRowsErrored++;
+        }
+
+        _currentOffset = messageBatch.getNextStreamParitionMsgOffsetAtIndex(index);
+        _numRowsIndexed = _realtimeSegment.getNumDocsIndexed();
+        _numRowsConsumed++;
+        streamMessageCount++;
+      }
+    }
+    updateCurrentDocumentCountMetrics();
+    if (streamMessageCount != 0) {
+      segmentLogger.debug("Indexed {} messages ({} messages read from stream) current offset {}", indexedMessageCount,
+          streamMessageCount, _currentOffset);
+    } else {
+      // If there were no messages to be fetched from stream, wait for a little bit as to avoid hammering the stream
+      Uninterruptibles.sleepUninterruptibly(idlePipeSleepTimeMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
   public class PartitionConsumer implements Runnable {
     public void run() {
       long initialConsumptionEnd = 0L;
@@ -737,6 +979,7 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
               _tableNameWithType, _tableConfig, _segmentZKMetadata.getSegmentName(), _sortedColumn,
               _invertedIndexColumns, _textIndexColumns, _noDictionaryColumns, _varLengthDictionaryColumns,
               _nullHandlingEnabled);
+      converter.setIndexCreationExecutor(_realtimeTableDataManager.getSegmentBuildExecutor());
       segmentLogger.info("Trying to build segment");
       try {
         converter.build(_segmentVersion, _serverMetrics);
@@ -1110,9 +1353,8 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     _metricKeyName = _tableNameWithType + "-" + _streamTopic + "-" + _streamPartitionId;
     segmentLogger = LoggerFactory.getLogger(LLRealtimeSegmentDataManager.class.getName() + "_" + _segmentNameStr);
     _tableStreamName = _tableNameWithType + "_" + _streamTopic;
-    _memoryManager = getMemoryManager(realtimeTableDataManager.getConsumerDir(), _segmentNameStr,
-        indexLoadingConfig.isRealtimeOffHeapAllocation(), indexLoadingConfig.isDirectRealtimeOffHeapAllocation(),
-        serverMetrics);
+    _memoryManager =
+        getMemoryManager(realtimeTableDataManager.getConsumerDir(), _segmentNameStr, indexLoadingConfig, serverMetrics);
 
     List<String> sortedColumns = indexLoadingConfig.getSortedColumns();
     if (sortedColumns.isEmpty()) {
@@ -1153,6 +1395,25 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
     if (0 < segmentZKMetadata.getSizeThresholdToFlushSegment()) {
       segmentMaxRowCount = segmentZKMetadata.getSizeThresholdToFlushSegment();
     }
+
+    // If there is a memory budget for the segment, size the segment using the memory used per row by the past
+    // consuming segments of the table, so that the segment fits within the budget.
+    _segmentMaxMemoryBytes = _partitionLevelStreamConfig.getFlushThresholdMemorySizeBytes();
+    _serverMaxConsumingMemoryBytes = indexLoadingConfig.getRealtimeMaxConsumingMemoryBytes();
+    _catchUpDecoderThreads = indexLoadingConfig.getRealtimeCatchUpDecoderThreads();
+    _catchUpLagThreshold = indexLoadingConfig.getRealtimeCatchUpLagThreshold();
+    RealtimeSegmentStatsHistory statsHistory = realtimeTableDataManager.getStatsHistory();
+    if (_segmentMaxMemoryBytes > 0 && statsHistory != null) {
+      long estimatedBytesPerRow = statsHistory.getEstimatedBytesPerRow();
+      if (estimatedBytesPerRow > 0) {
+        long maxRowCountForMemory = Math.max(_segmentMaxMemoryBytes / estimatedBytesPerRow, MIN_ROWS_FOR_MEMORY_LIMIT);
+        if (maxRowCountForMemory < segmentMaxRowCount) {
+          segmentLogger.info("Reducing max row count from {} to {} to fit memory budget {} with {} bytes per row",
+              segmentMaxRowCount, maxRowCountForMemory, _segmentMaxMemoryBytes, estimatedBytesPerRow);
+          segmentMaxRowCount = (int) maxRowCountForMemory;
+        }
+      }
+    }
     _segmentMaxRowCount = segmentMaxRowCount;
 
     _isOffHeap = indexLoadingConfig.isRealtimeOffHeapAllocation();
@@ -1172,13 +1433,30 @@ public class LLRealtimeSegmentDataManager extends RealtimeSegmentDataManager {
             .setVarLengthDictionaryColumns(indexLoadingConfig.getVarLengthDictionaryColumns())
             .setInvertedIndexColumns(invertedIndexColumns).setTextIndexColumns(textIndexColumns)
             .setRealtimeSegmentZKMetadata(segmentZKMetadata).setOffHeap(_isOffHeap).setMemoryManager(_memoryManager)
-            .setStatsHistory(realtimeTableDataManager.getStatsHistory())
+            .setStatsHistory(statsHistory)
             .setAggregateMetrics(indexingConfig.isAggregateMetrics()).setNullHandlingEnabled(_nullHandlingEnabled)
+            .setLinearProbingDictionaryEnabled(indexingConfig.isLinearProbingDictionaryEnabled())
             .setConsumerDir(consumerDir);
+    if (indexingConfig.isAggregateMetrics()) {
+      Map<String, String> aggregateMetricsFunctions = indexingConfig.getAggregateMetricsFunctions();
+      if (aggregateMetricsFunctions != null) {
+        realtimeSegmentConfigBuilder.setAggregateMetricsFunctions(aggregateMetricsFunctions);
+      }
+      String aggregateMetricsTimeBucket = indexingConfig.getAggregateMetricsTimeBucket();
+      if (aggregateMetricsTimeBucket != null) {
+        try {
+          realtimeSegmentConfigBuilder
+              .setAggregateMetricsTimeBucketMs(TimeUtils.convertPeriodToMillis(aggregateMetricsTimeBucket));
+        } catch (IllegalArgumentException e) {
+          segmentLogger.warn("Invalid aggregate metrics time bucket: {}, time values will not be truncated",
+              aggregateMetricsTimeBucket, e);
+        }
+      }
+    }
 
     // Create message decoder
-    Set<String> fieldsToRead = IngestionUtils.getFieldsForRecordExtractor(_tableConfig.getIngestionConfig(), _schema);
-    _messageDecoder = StreamDecoderProvider.create(_partitionLevelStreamConfig, fieldsToRead);
+    _fieldsToRead = IngestionUtils.getFieldsForRecordExtractor(_tableConfig.getIngestionConfig(), _schema);
+    _messageDecoder = StreamDecoderProvider.create(_partitionLevelStreamConfig, _fieldsToRead);
     _clientId = _streamTopic + "-" + _streamPartitionId;
 
     // Create record transformer
@@ -0,0 +1,219 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import org.apache.pinot.core.data.recordtransformer.RecordTransformer;
+import org.apache.pinot.core.util.IngestionUtils;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.stream.MessageBatch;
+import org.apache.pinot.spi.stream.StreamMessageDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Decodes and transforms stream messages on multiple threads, used by a consuming partition that is catching up with
+ * the stream. Indexing the rows into the mutable segment is left to the consuming thread, which processes the
+ * returned {@link DecodedMessage}s in the same order as the messages.
+ *
+ * The messages are split into contiguous ranges, one per thread. The first range is decoded on the calling thread, and
+ * the other ranges on the given executor, which is shared by all the consuming partitions in the server (see
+ * {@link #getSharedExecutorService(int)}) so that the number of decoder threads is bounded no matter how many
+ * partitions are catching up. Stream message decoders and record transformers are not thread-safe, so each range has
+ * its own.
+ *
+ * It should be noted that this class assumes that {@link #decode(List)} is called by one thread at a time.
+ */
+public class ParallelMessageDecoder {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParallelMessageDecoder.class);
+
+  // Ranges with less messages are not worth handing off to another thread
+  private static final int MIN_MESSAGES_PER_THREAD = 100;
+
+  private static ExecutorService _sharedExecutorService;
+
+  private final int _numThreads;
+  private final StreamMessageDecoder[] _messageDecoders;
+  private final RecordTransformer[] _recordTransformers;
+  private final ExecutorService _executorService;
+
+  /**
+   * Result of decoding and transforming a stream message.
+   */
+  public static class DecodedMessage {
+    private final List<GenericRow> _rows = new ArrayList<>();
+    private int _numRowsDropped;
+    private boolean _errored;
+
+    /**
+     * Returns the transformed rows to be indexed.
+     */
+    public List<GenericRow> getRows() {
+      return _rows;
+    }
+
+    /**
+     * Returns the number of rows dropped because the message could not be decoded, or the rows were filtered out.
+     */
+    public int getNumRowsDropped() {
+      return _numRowsDropped;
+    }
+
+    /**
+     * Returns whether an exception was caught while transforming the rows of the message. Same as decoding the message
+     * on the consuming thread, the rows transformed before the exception are kept, and the remaining rows of the
+     * message are skipped.
+     */
+    public boolean isErrored() {
+      return _errored;
+    }
+  }
+
+  /**
+   * Returns the executor shared by all the consuming partitions in the server to decode messages, creating it with the
+   * given number of threads (server level config) on first use.
+   */
+  public static synchronized ExecutorService getSharedExecutorService(int numThreads) {
+    if (_sharedExecutorService == null) {
+      LOGGER.info("Creating shared executor with {} threads to decode stream messages", numThreads);
+      _sharedExecutorService = Executors.newFixedThreadPool(numThreads,
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("catchup-decoder-%d").build());
+    }
+    return _sharedExecutorService;
+  }
+
+  /**
+   * @param numThreads Max number of ranges the messages are split into, each decoded on a separate thread
+   * @param messageDecoderSupplier Supplier of the stream message decoder for each range
+   * @param recordTransformerSupplier Supplier of the record transformer for each range
+   * @param executorService Executor to decode the ranges other than the first one
+   */
+  public ParallelMessageDecoder(int numThreads, Supplier<StreamMessageDecoder> messageDecoderSupplier,
+      Supplier<RecordTransformer> recordTransformerSupplier, ExecutorService executorService) {
+    _numThreads = numThreads;
+    _messageDecoders = new StreamMessageDecoder[numThreads];
+    _recordTransformers = new RecordTransformer[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      _messageDecoders[i] = messageDecoderSupplier.get();
+      _recordTransformers[i] = recordTransformerSupplier.get();
+    }
+    _executorService = executorService;
+  }
+
+  /**
+   * Decodes and transforms all the messages in the given batches, and returns the results in the order of the
+   * messages.
+   */
+  public DecodedMessage[] decode(List<MessageBatch> messageBatches)
+      throws InterruptedException {
+    int numMessages = 0;
+    for (MessageBatch messageBatch : messageBatches) {
+      numMessages += messageBatch.getMessageCount();
+    }
+    DecodedMessage[] decodedMessages = new DecodedMessage[numMessages];
+    int numRanges = Math.max(Math.min(_numThreads, numMessages / MIN_MESSAGES_PER_THREAD), 1);
+    if (numRanges == 1) {
+      decodeRange(messageBatches, 0, numMessages, 0, decodedMessages);
+      return decodedMessages;
+    }
+
+    List<Future<?>> futures = new ArrayList<>(numRanges - 1);
+    for (int i = 1; i < numRanges; i++) {
+      int threadIndex = i;
+      int startIndex = (int) ((long) numMessages * i / numRanges);
+      int endIndex = (int) ((long) numMessages * (i + 1) / numRanges);
+      futures.add(
+          _executorService.submit(() -> decodeRange(messageBatches, startIndex, endIndex, threadIndex, decodedMessages)));
+    }
+    try {
+      decodeRange(messageBatches, 0, (int) ((long) numMessages / numRanges), 0, decodedMessages);
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Caught exception while decoding stream messages", e.getCause());
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return decodedMessages;
+  }
+
+  /**
+   * Decodes the messages within the given range of indexes across all the batches.
+   */
+  @SuppressWarnings("unchecked")
+  private void decodeRange(List<MessageBatch> messageBatches, int startIndex, int endIndex, int threadIndex,
+      DecodedMessage[] decodedMessages) {
+    StreamMessageDecoder messageDecoder = _messageDecoders[threadIndex];
+    RecordTransformer recordTransformer = _recordTransformers[threadIndex];
+    int batchStartIndex = 0;
+    for (MessageBatch messageBatch : messageBatches) {
+      int messageCount = messageBatch.getMessageCount();
+      int batchEndIndex = batchStartIndex + messageCount;
+      for (int index = Math.max(startIndex, batchStartIndex); index < Math.min(endIndex, batchEndIndex); index++) {
+        int indexInBatch = index - batchStartIndex;
+        DecodedMessage decodedMessage = new DecodedMessage();
+        GenericRow decodedRow = messageDecoder
+            .decode(messageBatch.getMessageAtIndex(indexInBatch), messageBatch.getMessageOffsetAtIndex(indexInBatch),
+                messageBatch.getMessageLengthAtIndex(indexInBatch), new GenericRow());
+        if (decodedRow != null) {
+          try {
+            if (decodedRow.getValue(GenericRow.MULTIPLE_RECORDS_KEY) != null) {
+              for (Object singleRow : (Collection) decodedRow.getValue(GenericRow.MULTIPLE_RECORDS_KEY)) {
+                transform(recordTransformer, (GenericRow) singleRow, decodedMessage);
+              }
+            } else {
+              transform(recordTransformer, decodedRow, decodedMessage);
+            }
+          } catch (Exception e) {
+            LOGGER.error("Caught exception while transforming the record: {}", decodedRow, e);
+            decodedMessage._errored = true;
+          }
+        } else {
+          decodedMessage._numRowsDropped++;
+        }
+        decodedMessages[index] = decodedMessage;
+      }
+      if (batchEndIndex >= endIndex) {
+        break;
+      }
+      batchStartIndex = batchEndIndex;
+    }
+  }
+
+  private static void transform(RecordTransformer recordTransformer, GenericRow row, DecodedMessage decodedMessage) {
+    GenericRow transformedRow = recordTransformer.transform(row);
+    if (transformedRow != null && IngestionUtils.shouldIngestRow(transformedRow)) {
+      decodedMessage._rows.add(transformedRow);
+    } else {
+      decodedMessage._numRowsDropped++;
+    }
+  }
+}
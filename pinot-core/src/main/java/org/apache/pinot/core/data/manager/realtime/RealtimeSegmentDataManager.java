@@ -22,8 +22,11 @@ import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.core.data.manager.SegmentDataManager;
 import org.apache.pinot.core.indexsegment.mutable.MutableSegment;
 import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import org.apache.pinot.core.io.writer.impl.ArenaMemoryManager;
 import org.apache.pinot.core.io.writer.impl.DirectMemoryManager;
 import org.apache.pinot.core.io.writer.impl.MmapMemoryManager;
+import org.apache.pinot.core.io.writer.impl.OffHeapMemoryArena;
+import org.apache.pinot.core.segment.index.loader.IndexLoadingConfig;
 
 
 public abstract class RealtimeSegmentDataManager extends SegmentDataManager {
@@ -32,8 +35,15 @@ public abstract class RealtimeSegmentDataManager extends SegmentDataManager {
   public abstract MutableSegment getSegment();
 
   protected static PinotDataBufferMemoryManager getMemoryManager(String consumerDir, String segmentName,
-      boolean offHeap, boolean directOffHeap, ServerMetrics serverMetrics) {
-    if (offHeap && !directOffHeap) {
+      IndexLoadingConfig indexLoadingConfig, ServerMetrics serverMetrics) {
+    boolean offHeap = indexLoadingConfig.isRealtimeOffHeapAllocation();
+    boolean directOffHeap = indexLoadingConfig.isDirectRealtimeOffHeapAllocation();
+    if (offHeap && indexLoadingConfig.isArenaRealtimeOffHeapAllocation()) {
+      OffHeapMemoryArena arena = OffHeapMemoryArena
+          .getSharedArena(indexLoadingConfig.getRealtimeArenaRegionBytes(),
+              indexLoadingConfig.getRealtimeArenaMaxFreeBytes(), serverMetrics);
+      return new ArenaMemoryManager(arena, segmentName, serverMetrics);
+    } else if (offHeap && !directOffHeap) {
       return new MmapMemoryManager(consumerDir, segmentName, serverMetrics);
     } else {
       // For on-heap allocation, we still need a memory manager for forward index.
@@ -28,6 +28,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -98,6 +99,14 @@ public class SegmentGeneratorConfig {
   private boolean _onHeap = false;
   private boolean _skipTimeValueCheck = false;
   private boolean _nullHandlingEnabled = false;
+  // Number of threads to create the indexes of the segment, where each column is processed by one thread at a time.
+  // Single-threaded if <= 1.
+  private int _numIndexCreationThreads = 1;
+  // Shared executor (owned by the caller) to create the indexes with instead of creating a thread pool for the segment
+  private ExecutorService _indexCreationExecutor = null;
+  // Whether to read the input only once, spilling the transformed rows to disk while collecting the stats, instead of
+  // reading and decoding the input again to create the indexes.
+  private boolean _singlePassCreation = false;
 
   // constructed from FieldConfig
   private Map<String, Map<String, String>> _columnProperties = new HashMap<>();
@@ -609,4 +618,34 @@ public class SegmentGeneratorConfig {
   public void setNullHandlingEnabled(boolean nullHandlingEnabled) {
     _nullHandlingEnabled = nullHandlingEnabled;
   }
+
+  public int getNumIndexCreationThreads() {
+    return _numIndexCreationThreads;
+  }
+
+  public void setNumIndexCreationThreads(int numIndexCreationThreads) {
+    _numIndexCreationThreads = numIndexCreationThreads;
+  }
+
+  @Nullable
+  public ExecutorService getIndexCreationExecutor() {
+    return _indexCreationExecutor;
+  }
+
+  /**
+   * Sets the executor to create the indexes with. The executor is owned by the caller (e.g. shared by all the segment
+   * builds of the server), so it is not shut down after the segment is built. Takes precedence over the number of
+   * index creation threads.
+   */
+  public void setIndexCreationExecutor(@Nullable ExecutorService indexCreationExecutor) {
+    _indexCreationExecutor = indexCreationExecutor;
+  }
+
+  public boolean isSinglePassCreation() {
+    return _singlePassCreation;
+  }
+
+  public void setSinglePassCreation(boolean singlePassCreation) {
+    _singlePassCreation = singlePassCreation;
+  }
 }
@@ -27,7 +27,9 @@ import javax.annotation.Nullable;
 import com.google.common.base.Preconditions;
 import org.apache.pinot.core.common.DataSource;
 import org.apache.pinot.core.segment.index.column.ColumnIndexContainer;
+import org.apache.pinot.core.segment.index.column.LazyColumnIndexContainer;
 import org.apache.pinot.core.segment.index.datasource.ImmutableDataSource;
+import org.apache.pinot.core.segment.index.loader.SegmentWarmUpTask;
 import org.apache.pinot.core.segment.index.metadata.ColumnMetadata;
 import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
 import org.apache.pinot.core.segment.index.readers.Dictionary;
@@ -49,6 +51,9 @@ public class ImmutableSegmentImpl implements ImmutableSegment {
   private final Map<String, ColumnIndexContainer> _indexContainerMap;
   private final StarTreeIndexContainer _starTreeIndexContainer;
 
+  // Background task warming up the index buffers, which must be cancelled before the buffers are released
+  private volatile SegmentWarmUpTask _warmUpTask;
+
   public ImmutableSegmentImpl(SegmentDirectory segmentDirectory, SegmentMetadataImpl segmentMetadata,
       Map<String, ColumnIndexContainer> columnIndexContainerMap,
       @Nullable StarTreeIndexContainer starTreeIndexContainer) {
@@ -58,6 +63,10 @@ public class ImmutableSegmentImpl implements ImmutableSegment {
     _starTreeIndexContainer = starTreeIndexContainer;
   }
 
+  public void setWarmUpTask(SegmentWarmUpTask warmUpTask) {
+    _warmUpTask = warmUpTask;
+  }
+
   @Override
   public Dictionary getDictionary(String column) {
     ColumnIndexContainer container = _indexContainerMap.get(column);
@@ -113,6 +122,9 @@ public class ImmutableSegmentImpl implements ImmutableSegment {
   @Override
   public void destroy() {
     LOGGER.info("Trying to destroy segment : {}", getSegmentName());
+    if (_warmUpTask != null) {
+      _warmUpTask.cancel();
+    }
     for (Map.Entry<String, ColumnIndexContainer> entry : _indexContainerMap.entrySet()) {
       try {
         entry.getValue().close();
@@ -134,6 +146,26 @@ public class ImmutableSegmentImpl implements ImmutableSegment {
     }
   }
 
+  /**
+   * Releases the indexes of the lazily loaded columns that have not been accessed within the given idle time, and
+   * returns the number of columns released. The released columns are loaded again on the next access.
+   * <p>NOTE: must only be called while the segment is not in use by any query, see
+   * {@link org.apache.pinot.core.data.manager.TableDataManager#releaseIdleColumns(long)}.
+   */
+  public int releaseIdleColumns(long idleTimeMs) {
+    int numColumnsReleased = 0;
+    for (ColumnIndexContainer indexContainer : _indexContainerMap.values()) {
+      if (indexContainer instanceof LazyColumnIndexContainer && ((LazyColumnIndexContainer) indexContainer)
+          .releaseIfIdle(idleTimeMs)) {
+        numColumnsReleased++;
+      }
+    }
+    if (numColumnsReleased > 0) {
+      LOGGER.debug("Released indexes for {} idle columns of segment: {}", numColumnsReleased, getSegmentName());
+    }
+    return numColumnsReleased;
+  }
+
   @Override
   public List<StarTreeV2> getStarTrees() {
     return _starTreeIndexContainer != null ? _starTreeIndexContainer.getStarTrees() : null;
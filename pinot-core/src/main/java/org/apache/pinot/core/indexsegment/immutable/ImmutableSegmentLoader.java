@@ -20,19 +20,28 @@ package org.apache.pinot.core.indexsegment.immutable;
 
 import com.google.common.base.Preconditions;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 import org.apache.pinot.common.segment.ReadMode;
+import org.apache.pinot.common.utils.URIUtils;
 import org.apache.pinot.core.indexsegment.generator.SegmentVersion;
 import org.apache.pinot.core.segment.index.column.ColumnIndexContainer;
+import org.apache.pinot.core.segment.index.column.LazyColumnIndexContainer;
 import org.apache.pinot.core.segment.index.column.PhysicalColumnIndexContainer;
 import org.apache.pinot.core.segment.index.converter.SegmentFormatConverter;
 import org.apache.pinot.core.segment.index.converter.SegmentFormatConverterFactory;
 import org.apache.pinot.core.segment.index.loader.IndexLoadingConfig;
 import org.apache.pinot.core.segment.index.loader.SegmentPreProcessor;
+import org.apache.pinot.core.segment.index.loader.SegmentWarmUpTask;
 import org.apache.pinot.core.segment.index.metadata.ColumnMetadata;
 import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.core.segment.memory.PinotDataBuffer;
+import org.apache.pinot.core.segment.store.ColumnIndexType;
 import org.apache.pinot.core.segment.store.SegmentDirectory;
 import org.apache.pinot.core.segment.store.SegmentDirectoryPaths;
 import org.apache.pinot.core.segment.virtualcolumn.VirtualColumnContext;
@@ -41,6 +50,7 @@ import org.apache.pinot.core.segment.virtualcolumn.VirtualColumnProviderFactory;
 import org.apache.pinot.core.startree.v2.store.StarTreeIndexContainer;
 import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.Schema;
+import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +59,9 @@ public class ImmutableSegmentLoader {
   private ImmutableSegmentLoader() {
   }
 
+  private static final ColumnIndexType[] WARM_UP_INDEX_TYPES =
+      {ColumnIndexType.DICTIONARY, ColumnIndexType.INVERTED_INDEX, ColumnIndexType.RANGE_INDEX,
+          ColumnIndexType.BLOOM_FILTER};
   private static final Logger LOGGER = LoggerFactory.getLogger(ImmutableSegmentLoader.class);
 
   /**
@@ -102,18 +115,52 @@ public class ImmutableSegmentLoader {
     // Load the metadata again since converter and pre-processor may have changed it
     SegmentMetadataImpl segmentMetadata = new SegmentMetadataImpl(indexDir);
 
+    // Move the large indexes of the cold segment to the remote directory
+    if (isColdSegment(segmentMetadata, indexLoadingConfig) && !SegmentDirectory.isTiered(indexDir)) {
+      if (segmentMetadata.getSegmentVersion() == SegmentVersion.v3) {
+        LOGGER.info("Moving indexes of cold segment: {} to remote directory: {}", segmentName,
+            indexLoadingConfig.getColdSegmentRemoteDir());
+        SegmentDirectory.moveIndexesToRemote(indexDir,
+            URIUtils.getUri(indexLoadingConfig.getColdSegmentRemoteDir(), segmentMetadata.getTableName(), segmentName));
+      } else {
+        LOGGER.warn("Cannot move indexes of cold segment: {} with version: {} to remote directory", segmentName,
+            segmentMetadata.getSegmentVersion());
+      }
+    }
+
     // Load the segment
     ReadMode readMode = indexLoadingConfig.getReadMode();
-    SegmentDirectory segmentDirectory = SegmentDirectory.createFromLocalFS(indexDir, segmentMetadata, readMode);
+    Set<String> warmUpColumns = indexLoadingConfig.getWarmUpColumns();
+    // The column indexes of tiered segments are always loaded lazily and never warmed up, so that the remote indexes
+    // are only fetched for the columns queried instead of for the whole segment
+    boolean tiered = SegmentDirectory.isTiered(indexDir);
+    boolean warmUp = readMode == ReadMode.mmap && !tiered && (!warmUpColumns.isEmpty() || indexLoadingConfig
+        .isWarmUpStarTree());
+    boolean lazyColumnLoading = indexLoadingConfig.isLazyColumnLoading() || tiered;
+    // Skip the synchronous prefetch of the index buffers when the segment is warmed up in the background, or when the
+    // column indexes are loaded lazily (prefetch would happen on the query path)
+    SegmentDirectory segmentDirectory =
+        SegmentDirectory.createFromLocalFS(indexDir, segmentMetadata, readMode, !warmUp && !lazyColumnLoading);
     SegmentDirectory.Reader segmentReader = segmentDirectory.createReader();
     Map<String, ColumnIndexContainer> indexContainerMap = new HashMap<>();
     for (Map.Entry<String, ColumnMetadata> entry : segmentMetadata.getColumnMetadataMap().entrySet()) {
-      indexContainerMap.put(entry.getKey(),
-          new PhysicalColumnIndexContainer(segmentReader, entry.getValue(), indexLoadingConfig, indexDir));
+      if (lazyColumnLoading) {
+        indexContainerMap.put(entry.getKey(),
+            new LazyColumnIndexContainer(segmentReader, entry.getValue(), indexLoadingConfig, indexDir));
+      } else {
+        indexContainerMap.put(entry.getKey(),
+            new PhysicalColumnIndexContainer(segmentReader, entry.getValue(), indexLoadingConfig, indexDir));
+      }
     }
 
     if (schema == null) {
-      schema = segmentMetadata.getSchema();
+      // NOTE: the schema from the segment metadata is shared across segments, copy it before adding the virtual columns
+      Schema segmentSchema = segmentMetadata.getSchema();
+      schema = new Schema();
+      schema.setSchemaName(segmentSchema.getSchemaName());
+      for (FieldSpec fieldSpec : segmentSchema.getAllFieldSpecs()) {
+        schema.addField(fieldSpec);
+      }
     }
 
     // Ensure that the schema has the virtual columns added
@@ -140,7 +187,54 @@ public class ImmutableSegmentLoader {
 
     ImmutableSegmentImpl segment =
         new ImmutableSegmentImpl(segmentDirectory, segmentMetadata, indexContainerMap, starTreeIndexContainer);
+    if (warmUp) {
+      List<PinotDataBuffer> warmUpBuffers = getWarmUpBuffers(segmentReader, segmentMetadata, warmUpColumns);
+      if (indexLoadingConfig.isWarmUpStarTree() && starTreeIndexContainer != null) {
+        warmUpBuffers.add(starTreeIndexContainer.getDataBuffer());
+      }
+      if (!warmUpBuffers.isEmpty()) {
+        segment.setWarmUpTask(SegmentWarmUpTask
+            .submit(segmentName, warmUpBuffers, indexLoadingConfig.getSegmentWarmUpMaxBytesPerSecond()));
+      }
+    }
     LOGGER.info("Successfully loaded segment {} with readMode: {}", segmentName, readMode);
     return segment;
   }
+
+  /**
+   * Returns whether the segment end time is older than the cold segment age configured for tiered storage.
+   */
+  private static boolean isColdSegment(SegmentMetadataImpl segmentMetadata, IndexLoadingConfig indexLoadingConfig) {
+    long coldSegmentAgeMs = indexLoadingConfig.getColdSegmentAgeMs();
+    if (coldSegmentAgeMs <= 0 || indexLoadingConfig.getColdSegmentRemoteDir() == null) {
+      return false;
+    }
+    Interval timeInterval = segmentMetadata.getTimeInterval();
+    return timeInterval != null && timeInterval.getEndMillis() < System.currentTimeMillis() - coldSegmentAgeMs;
+  }
+
+  /**
+   * Returns the index buffers to be warmed up for the given columns: the dictionary, inverted index, range index and
+   * bloom filter, and the forward index for sorted columns (which is used to filter and locate the documents).
+   */
+  private static List<PinotDataBuffer> getWarmUpBuffers(SegmentDirectory.Reader segmentReader,
+      SegmentMetadataImpl segmentMetadata, Set<String> warmUpColumns)
+      throws IOException {
+    List<PinotDataBuffer> warmUpBuffers = new ArrayList<>();
+    for (String column : warmUpColumns) {
+      ColumnMetadata columnMetadata = segmentMetadata.getColumnMetadataFor(column);
+      if (columnMetadata == null) {
+        continue;
+      }
+      for (ColumnIndexType indexType : WARM_UP_INDEX_TYPES) {
+        if (segmentReader.hasIndexFor(column, indexType)) {
+          warmUpBuffers.add(segmentReader.getIndexFor(column, indexType));
+        }
+      }
+      if (columnMetadata.isSorted() && segmentReader.hasIndexFor(column, ColumnIndexType.FORWARD_INDEX)) {
+        warmUpBuffers.add(segmentReader.getIndexFor(column, ColumnIndexType.FORWARD_INDEX));
+      }
+    }
+    return warmUpBuffers;
+  }
 }
@@ -24,7 +24,9 @@ import it.unimi.dsi.fastutil.ints.IntArrays;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -35,12 +37,15 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.pinot.common.function.AggregationFunctionType;
+import org.apache.pinot.common.utils.StringUtil;
 import org.apache.pinot.core.common.DataSource;
 import org.apache.pinot.core.data.partition.PartitionFunction;
 import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
 import org.apache.pinot.core.realtime.impl.RealtimeSegmentConfig;
 import org.apache.pinot.core.realtime.impl.RealtimeSegmentStatsHistory;
 import org.apache.pinot.core.realtime.impl.dictionary.BaseMutableDictionary;
+import org.apache.pinot.core.realtime.impl.dictionary.BaseOffHeapLinearProbingMutableDictionary;
 import org.apache.pinot.core.realtime.impl.dictionary.BaseOffHeapMutableDictionary;
 import org.apache.pinot.core.realtime.impl.dictionary.MutableDictionaryFactory;
 import org.apache.pinot.core.realtime.impl.forward.FixedByteMVMutableForwardIndex;
@@ -63,11 +68,14 @@ import org.apache.pinot.core.segment.virtualcolumn.VirtualColumnContext;
 import org.apache.pinot.core.segment.virtualcolumn.VirtualColumnProvider;
 import org.apache.pinot.core.segment.virtualcolumn.VirtualColumnProviderFactory;
 import org.apache.pinot.core.startree.v2.StarTreeV2;
+import org.apache.pinot.core.util.ByteArrayOffHeapIdMap;
 import org.apache.pinot.core.util.FixedIntArray;
 import org.apache.pinot.core.util.FixedIntArrayOffHeapIdMap;
 import org.apache.pinot.core.util.IdMap;
 import org.apache.pinot.spi.config.table.ColumnPartitionConfig;
 import org.apache.pinot.spi.config.table.SegmentPartitionConfig;
+import org.apache.pinot.spi.data.DateTimeFieldSpec;
+import org.apache.pinot.spi.data.DateTimeFormatSpec;
 import org.apache.pinot.spi.data.DimensionFieldSpec;
 import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.FieldSpec.DataType;
@@ -90,6 +98,7 @@ public class MutableSegmentImpl implements MutableSegment {
   private static final int EXPECTED_COMPRESSION = 1000;
   private static final int MIN_ROWS_TO_INDEX = 1000_000; // Min size of recordIdMap for updatable metrics.
   private static final int MIN_RECORD_ID_MAP_CACHE_SIZE = 10000; // Min overflow map size for updatable metrics.
+  private static final int INITIAL_RECORD_KEY_BUFFER_SIZE = 256;
 
   private static final int NODICT_VARIABLE_WIDTH_ESTIMATED_AVERAGE_VALUE_LENGTH_DEFAULT = 100;
   private static final int NODICT_VARIABLE_WIDTH_ESTIMATED_NUMBER_OF_VALUES_DEFAULT = 100_000;
@@ -109,14 +118,23 @@ public class MutableSegmentImpl implements MutableSegment {
   private final PartitionFunction _partitionFunction;
   private final int _partitionId;
   private final boolean _nullHandlingEnabled;
+  private final boolean _linearProbingDictionaryEnabled;
 
   private final Map<String, IndexContainer> _indexContainerMap = new HashMap<>();
 
-  private final IdMap<FixedIntArray> _recordIdMap;
+  // Keyed on the dictionary ids of the dimension and time columns (FixedIntArray), or on their serialized values
+  // (ByteArray) when the linear-probing dictionary is enabled
+  private final IdMap _recordIdMap;
+  private final boolean _serializeRecordKey;
   private boolean _aggregateMetrics;
+  // Index containers for the dimension and time columns that form the key of the record id map
+  private final IndexContainer[] _recordKeyIndexContainers;
+  private final Map<String, AggregationFunctionType> _metricAggregationFunctionTypes;
+  // Size of the bucket (in the unit of the time column) to truncate the time values to, 0 if not truncating
+  private final long _timeBucketSize;
+  private ByteBuffer _recordKeyBuffer;
 
   private volatile int _numDocsIndexed = 0;
-  private final int _numKeyColumns;
 
   // Cache the physical (non-virtual) field specs
   private final Collection<FieldSpec> _physicalFieldSpecs;
@@ -162,6 +180,7 @@ public class MutableSegmentImpl implements MutableSegment {
     _partitionFunction = config.getPartitionFunction();
     _partitionId = config.getPartitionId();
     _nullHandlingEnabled = config.isNullHandlingEnabled();
+    _linearProbingDictionaryEnabled = config.isLinearProbingDictionaryEnabled();
     _aggregateMetrics = config.aggregateMetrics();
 
     Collection<FieldSpec> allFieldSpecs = _schema.getAllFieldSpecs();
@@ -188,8 +207,6 @@ public class MutableSegmentImpl implements MutableSegment {
     _physicalMetricFieldSpecs = Collections.unmodifiableCollection(physicalMetricFieldSpecs);
     _physicalTimeColumnNames = Collections.unmodifiableCollection(physicalTimeColumnNames);
 
-    _numKeyColumns = _physicalDimensionFieldSpecs.size() + _physicalTimeColumnNames.size();
-
     _logger =
         LoggerFactory.getLogger(MutableSegmentImpl.class.getName() + "_" + _segmentName + "_" + config.getStreamName());
 
@@ -253,8 +270,8 @@ public class MutableSegmentImpl implements MutableSegment {
         String dictionaryAllocationContext =
             buildAllocationContext(_segmentName, column, V1Constants.Dict.FILE_EXTENSION);
         dictionary = MutableDictionaryFactory
-            .getMutableDictionary(dataType, _offHeap, _memoryManager, dictionaryColumnSize,
-                Math.min(estimatedCardinality, _capacity), dictionaryAllocationContext);
+            .getMutableDictionary(dataType, _offHeap, _linearProbingDictionaryEnabled, _memoryManager,
+                dictionaryColumnSize, Math.min(estimatedCardinality, _capacity), dictionaryAllocationContext);
 
         if (fieldSpec.isSingleValueField()) {
           // Single-value dictionary-encoded forward index
@@ -307,9 +324,38 @@ public class MutableSegmentImpl implements MutableSegment {
       realtimeLuceneIndexRefreshState.addRealtimeReadersToQueue(_realtimeLuceneReaders);
     }
 
-    // Metric aggregation can be enabled only if config is specified, and all dimensions have dictionary,
-    // and no metrics have dictionary. If not enabled, the map returned is null.
+    // Metric aggregation can be enabled only if config is specified, all dimensions are single-valued, and no metrics
+    // have dictionary. If not enabled, the map returned is null.
     _recordIdMap = enableMetricsAggregationIfPossible(config, noDictionaryColumns);
+    _serializeRecordKey = _recordIdMap instanceof ByteArrayOffHeapIdMap;
+    if (_aggregateMetrics) {
+      List<IndexContainer> recordKeyIndexContainers =
+          new ArrayList<>(_physicalDimensionFieldSpecs.size() + _physicalTimeColumnNames.size());
+      for (FieldSpec fieldSpec : _physicalDimensionFieldSpecs) {
+        recordKeyIndexContainers.add(_indexContainerMap.get(fieldSpec.getName()));
+      }
+      for (String timeColumnName : _physicalTimeColumnNames) {
+        recordKeyIndexContainers.add(_indexContainerMap.get(timeColumnName));
+      }
+      _recordKeyIndexContainers = recordKeyIndexContainers.toArray(new IndexContainer[0]);
+      _metricAggregationFunctionTypes = new HashMap<>();
+      Map<String, String> aggregateMetricsFunctions = config.getAggregateMetricsFunctions();
+      for (FieldSpec fieldSpec : _physicalMetricFieldSpecs) {
+        String metric = fieldSpec.getName();
+        String functionName = aggregateMetricsFunctions.get(metric);
+        _metricAggregationFunctionTypes.put(metric,
+            functionName != null ? AggregationFunctionType.getAggregationFunctionType(functionName)
+                : AggregationFunctionType.SUM);
+      }
+      _timeBucketSize = getTimeBucketSize(config.getAggregateMetricsTimeBucketMs());
+      if (_serializeRecordKey) {
+        _recordKeyBuffer = ByteBuffer.allocate(INITIAL_RECORD_KEY_BUFFER_SIZE);
+      }
+    } else {
+      _recordKeyIndexContainers = null;
+      _metricAggregationFunctionTypes = null;
+      _timeBucketSize = 0;
+    }
   }
 
   /**
@@ -413,12 +459,18 @@ public class MutableSegmentImpl implements MutableSegment {
   @SuppressWarnings("NonAtomicOperationOnVolatileField")
   @Override
   public boolean index(GenericRow row, @Nullable RowMetadata rowMetadata) {
+    // Truncate the time value to the time bucket before it is indexed, so that rows within the same bucket are
+    // aggregated together
+    if (_timeBucketSize > 0) {
+      truncateTimeValue(row);
+    }
+
     // Update dictionary first
     updateDictionary(row);
 
     // If metrics aggregation is enabled and if the dimension values were already seen, this will return existing docId,
     // else this will return a new docId.
-    int docId = getOrCreateDocId();
+    int docId = getOrCreateDocId(row);
 
     boolean canTakeMore;
     if (docId == _numDocsIndexed) {
@@ -578,19 +630,20 @@ public class MutableSegmentImpl implements MutableSegment {
       String column = metricFieldSpec.getName();
       Object value = row.getValue(column);
       MutableForwardIndex forwardIndex = _indexContainerMap.get(column)._forwardIndex;
+      AggregationFunctionType functionType = _metricAggregationFunctionTypes.get(column);
       DataType dataType = metricFieldSpec.getDataType();
       switch (dataType) {
         case INT:
-          forwardIndex.setInt(docId, (Integer) value + forwardIndex.getInt(docId));
+          forwardIndex.setInt(docId, (int) aggregate(functionType, forwardIndex.getInt(docId), (Integer) value));
           break;
         case LONG:
-          forwardIndex.setLong(docId, (Long) value + forwardIndex.getLong(docId));
+          forwardIndex.setLong(docId, aggregate(functionType, forwardIndex.getLong(docId), (Long) value));
           break;
         case FLOAT:
-          forwardIndex.setFloat(docId, (Float) value + forwardIndex.getFloat(docId));
+          forwardIndex.setFloat(docId, (float) aggregate(functionType, forwardIndex.getFloat(docId), (Float) value));
           break;
         case DOUBLE:
-          forwardIndex.setDouble(docId, (Double) value + forwardIndex.getDouble(docId));
+          forwardIndex.setDouble(docId, aggregate(functionType, forwardIndex.getDouble(docId), (Double) value));
           break;
         default:
           throw new UnsupportedOperationException(
@@ -599,6 +652,43 @@ public class MutableSegmentImpl implements MutableSegment {
     }
   }
 
+  private static long aggregate(AggregationFunctionType functionType, long currentValue, long newValue) {
+    switch (functionType) {
+      case SUM:
+        return currentValue + newValue;
+      case MIN:
+        return Math.min(currentValue, newValue);
+      case MAX:
+        return Math.max(currentValue, newValue);
+      default:
+        throw new IllegalStateException("Unsupported aggregation function: " + functionType);
+    }
+  }
+
+  private static double aggregate(AggregationFunctionType functionType, double currentValue, double newValue) {
+    switch (functionType) {
+      case SUM:
+        return currentValue + newValue;
+      case MIN:
+        return Math.min(currentValue, newValue);
+      case MAX:
+        return Math.max(currentValue, newValue);
+      default:
+        throw new IllegalStateException("Unsupported aggregation function: " + functionType);
+    }
+  }
+
+  private void truncateTimeValue(GenericRow row) {
+    Object value = row.getValue(_timeColumnName);
+    if (value instanceof Integer) {
+      int timeValue = (Integer) value;
+      row.putValue(_timeColumnName, (int) (timeValue - Math.floorMod(timeValue, _timeBucketSize)));
+    } else if (value instanceof Long) {
+      long timeValue = (Long) value;
+      row.putValue(_timeColumnName, timeValue - Math.floorMod(timeValue, _timeBucketSize));
+    }
+  }
+
   @Override
   public int getNumDocsIndexed() {
     return _numDocsIndexed;
@@ -733,11 +823,15 @@ public class MutableSegmentImpl implements MutableSegment {
         RealtimeSegmentStatsHistory.SegmentStats segmentStats = new RealtimeSegmentStatsHistory.SegmentStats();
         for (Map.Entry<String, IndexContainer> entry : _indexContainerMap.entrySet()) {
           String column = entry.getKey();
-          BaseOffHeapMutableDictionary dictionary = (BaseOffHeapMutableDictionary) entry.getValue()._dictionary;
+          BaseMutableDictionary dictionary = entry.getValue()._dictionary;
           if (dictionary != null) {
             RealtimeSegmentStatsHistory.ColumnStats columnStats = new RealtimeSegmentStatsHistory.ColumnStats();
             columnStats.setCardinality(dictionary.length());
-            columnStats.setAvgColumnSize(dictionary.getAvgValueSize());
+            if (dictionary instanceof BaseOffHeapLinearProbingMutableDictionary) {
+              columnStats.setAvgColumnSize(((BaseOffHeapLinearProbingMutableDictionary) dictionary).getAvgValueSize());
+            } else {
+              columnStats.setAvgColumnSize(((BaseOffHeapMutableDictionary) dictionary).getAvgValueSize());
+            }
             segmentStats.setColumnStats(column, columnStats);
           }
         }
@@ -835,42 +929,104 @@ public class MutableSegmentImpl implements MutableSegment {
     return segmentName + ":" + columnName + indexType;
   }
 
-  private int getOrCreateDocId() {
+  private int getOrCreateDocId(GenericRow row) {
     if (!_aggregateMetrics) {
       return _numDocsIndexed;
     }
+    if (_serializeRecordKey) {
+      return _recordIdMap.put(new ByteArray(serializeRecordKey(row)));
+    }
 
-    int i = 0;
-    int[] dictIds = new int[_numKeyColumns]; // dimensions + date time columns + time column.
+    int numKeyColumns = _recordKeyIndexContainers.length;
+    int[] dictIds = new int[numKeyColumns]; // dimensions + date time columns + time column.
+    // FIXME: this for loop breaks for multi value dimensions. https://github.com/apache/incubator-pinot/issues/3867
+    for (int i = 0; i < numKeyColumns; i++) {
+      dictIds[i] = _recordKeyIndexContainers[i]._dictId;
+    }
+    return _recordIdMap.put(new FixedIntArray(dictIds));
+  }
 
+  /**
+   * Serializes the values of the dimension and time columns (in the order of {@link #_recordKeyIndexContainers}) into
+   * the key of the record id map:
+   * <ul>
+   *   <li>Dictionary-encoded columns: the dictionary id of the value</li>
+   *   <li>Raw fixed-width columns: the value itself</li>
+   *   <li>Raw variable-width columns: the length of the serialized value followed by the serialized value</li>
+   * </ul>
+   */
+  private byte[] serializeRecordKey(GenericRow row) {
+    _recordKeyBuffer.clear();
     // FIXME: this for loop breaks for multi value dimensions. https://github.com/apache/incubator-pinot/issues/3867
-    for (FieldSpec fieldSpec : _physicalDimensionFieldSpecs) {
-      dictIds[i++] = _indexContainerMap.get(fieldSpec.getName())._dictId;
+    for (IndexContainer indexContainer : _recordKeyIndexContainers) {
+      if (indexContainer._dictionary != null) {
+        ensureRecordKeyBufferCapacity(Integer.BYTES).putInt(indexContainer._dictId);
+        continue;
+      }
+      FieldSpec fieldSpec = indexContainer._fieldSpec;
+      Object value = row.getValue(fieldSpec.getName());
+      DataType dataType = fieldSpec.getDataType();
+      switch (dataType) {
+        case INT:
+          ensureRecordKeyBufferCapacity(Integer.BYTES).putInt((Integer) value);
+          break;
+        case LONG:
+          ensureRecordKeyBufferCapacity(Long.BYTES).putLong((Long) value);
+          break;
+        case FLOAT:
+          ensureRecordKeyBufferCapacity(Float.BYTES).putFloat((Float) value);
+          break;
+        case DOUBLE:
+          ensureRecordKeyBufferCapacity(Double.BYTES).putDouble((Double) value);
+          break;
+        case STRING:
+          byte[] stringBytes = StringUtil.encodeUtf8((String) value);
+          ensureRecordKeyBufferCapacity(Integer.BYTES + stringBytes.length).putInt(stringBytes.length)
+              .put(stringBytes);
+          break;
+        case BYTES:
+          byte[] bytes = (byte[]) value;
+          ensureRecordKeyBufferCapacity(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+          break;
+        default:
+          throw new UnsupportedOperationException(
+              "Unsupported data type: " + dataType + " for aggregate metrics key column: " + fieldSpec.getName());
+      }
     }
-    for (String timeColumnName : _physicalTimeColumnNames) {
-      dictIds[i++] = _indexContainerMap.get(timeColumnName)._dictId;
+    return Arrays.copyOf(_recordKeyBuffer.array(), _recordKeyBuffer.position());
+  }
+
+  private ByteBuffer ensureRecordKeyBufferCapacity(int numBytes) {
+    if (_recordKeyBuffer.remaining() < numBytes) {
+      int position = _recordKeyBuffer.position();
+      int capacity = Math.max(_recordKeyBuffer.capacity() * 2, position + numBytes);
+      _recordKeyBuffer = ByteBuffer.wrap(Arrays.copyOf(_recordKeyBuffer.array(), capacity));
+      _recordKeyBuffer.position(position);
     }
-    return _recordIdMap.put(new FixedIntArray(dictIds));
+    return _recordKeyBuffer;
   }
 
   /**
    * Helper method to enable/initialize aggregation of metrics, based on following conditions:
    * <ul>
    *   <li> Config to enable aggregation of metrics is specified. </li>
-   *   <li> All dimensions and time are dictionary encoded. This is because an integer array containing dictionary id's
-   *        is used as key for dimensions to record Id map. </li>
    *   <li> None of the metrics are dictionary encoded. </li>
+   *   <li> All metrics are aggregated with one of the supported aggregation functions (SUM, MIN or MAX). </li>
    *   <li> All columns should be single-valued (see https://github.com/apache/incubator-pinot/issues/3867)</li>
+   *   <li> All dimensions and time are dictionary encoded, unless the linear-probing dictionary is enabled. </li>
    * </ul>
    *
-   * TODO: Eliminate the requirement on dictionary encoding for dimension and metric columns.
+   * By default, an integer array containing the dictionary ids of the dimension and time columns is used as key for
+   * the record id map. When the linear-probing dictionary is enabled, dimension and time columns can also be raw: the
+   * values of these columns (dictionary id for dictionary encoded columns) are serialized into a byte array, which is
+   * used as key for the off-heap open-addressing record id map.
    *
    * @param config Segment config.
    * @param noDictionaryColumns Set of no dictionary columns.
    *
-   * @return Map from dictionary id array to doc id, null if metrics aggregation cannot be enabled.
+   * @return Map from dimension values to doc id, null if metrics aggregation cannot be enabled.
    */
-  private IdMap<FixedIntArray> enableMetricsAggregationIfPossible(RealtimeSegmentConfig config,
+  private IdMap enableMetricsAggregationIfPossible(RealtimeSegmentConfig config,
       Set<String> noDictionaryColumns) {
     if (!_aggregateMetrics) {
       _logger.info("Metrics aggregation is disabled.");
@@ -879,6 +1035,8 @@ public class MutableSegmentImpl implements MutableSegment {
 
     // All metric columns should have no-dictionary index.
     // All metric columns must be single value
+    // All metric columns must be aggregated with SUM, MIN or MAX
+    Map<String, String> aggregateMetricsFunctions = config.getAggregateMetricsFunctions();
     for (FieldSpec fieldSpec : _physicalMetricFieldSpecs) {
       String metric = fieldSpec.getName();
       if (!noDictionaryColumns.contains(metric)) {
@@ -894,35 +1052,45 @@ public class MutableSegmentImpl implements MutableSegment {
         _aggregateMetrics = false;
         break;
       }
-    }
 
-    // All dimension columns should be dictionary encoded.
-    // All dimension columns must be single value
-    for (FieldSpec fieldSpec : _physicalDimensionFieldSpecs) {
-      String dimension = fieldSpec.getName();
-      if (noDictionaryColumns.contains(dimension)) {
-        _logger
-            .warn("Metrics aggregation cannot be turned ON in presence of no-dictionary dimensions, eg: {}", dimension);
+      String functionName = aggregateMetricsFunctions.get(metric);
+      if (functionName != null && !isSupportedAggregationFunction(functionName)) {
+        _logger.warn("Metrics aggregation cannot be turned ON with unsupported aggregation function: {} for metric: {}",
+            functionName, metric);
         _aggregateMetrics = false;
         break;
       }
+    }
 
+    // All dimension columns must be single value
+    for (FieldSpec fieldSpec : _physicalDimensionFieldSpecs) {
       if (!fieldSpec.isSingleValueField()) {
         _logger.warn("Metrics aggregation cannot be turned ON in presence of multi-value dimension columns, eg: {}",
-            dimension);
+            fieldSpec.getName());
         _aggregateMetrics = false;
         break;
       }
     }
 
-    // Time columns should be dictionary encoded.
-    for (String timeColumnName : _physicalTimeColumnNames) {
-      if (noDictionaryColumns.contains(timeColumnName)) {
-        _logger
-            .warn("Metrics aggregation cannot be turned ON in presence of no-dictionary datetime/time columns, eg: {}",
-                timeColumnName);
-        _aggregateMetrics = false;
-        break;
+    // Without the linear-probing dictionary, all dimension and time columns should be dictionary encoded
+    if (_aggregateMetrics && !_linearProbingDictionaryEnabled) {
+      for (FieldSpec fieldSpec : _physicalDimensionFieldSpecs) {
+        String dimension = fieldSpec.getName();
+        if (noDictionaryColumns.contains(dimension)) {
+          _logger.warn("Metrics aggregation cannot be turned ON in presence of no-dictionary dimensions, eg: {}",
+              dimension);
+          _aggregateMetrics = false;
+          break;
+        }
+      }
+      for (String timeColumnName : _physicalTimeColumnNames) {
+        if (noDictionaryColumns.contains(timeColumnName)) {
+          _logger.warn(
+              "Metrics aggregation cannot be turned ON in presence of no-dictionary datetime/time columns, eg: {}",
+              timeColumnName);
+          _aggregateMetrics = false;
+          break;
+        }
       }
     }
 
@@ -938,14 +1106,84 @@ public class MutableSegmentImpl implements MutableSegment {
     } else {
       estimatedRowsToIndex = Math.max(_statsHistory.getEstimatedRowsToIndex(), MIN_ROWS_TO_INDEX);
     }
+    // Never need more entries than the capacity of the segment
+    estimatedRowsToIndex = Math.min(estimatedRowsToIndex, config.getCapacity());
+
+    if (!_linearProbingDictionaryEnabled) {
+      // Compute size of overflow map.
+      int maxOverFlowHashSize = Math.max(estimatedRowsToIndex / 1000, MIN_RECORD_ID_MAP_CACHE_SIZE);
+      int numKeyColumns = _physicalDimensionFieldSpecs.size() + _physicalTimeColumnNames.size();
+      _logger.info("Initializing metrics update: estimatedRowsToIndex:{}, cacheSize:{}", estimatedRowsToIndex,
+          maxOverFlowHashSize);
+      return new FixedIntArrayOffHeapIdMap(estimatedRowsToIndex, maxOverFlowHashSize, numKeyColumns, _memoryManager,
+          RECORD_ID_MAP);
+    }
 
-    // Compute size of overflow map.
-    int maxOverFlowHashSize = Math.max(estimatedRowsToIndex / 1000, MIN_RECORD_ID_MAP_CACHE_SIZE);
+    // Estimate the average key length from the dimension and time columns.
+    int avgKeyLength = 0;
+    List<String> keyColumns = new ArrayList<>(_physicalDimensionFieldSpecs.size() + _physicalTimeColumnNames.size());
+    for (FieldSpec fieldSpec : _physicalDimensionFieldSpecs) {
+      keyColumns.add(fieldSpec.getName());
+    }
+    keyColumns.addAll(_physicalTimeColumnNames);
+    for (String column : keyColumns) {
+      IndexContainer indexContainer = _indexContainerMap.get(column);
+      DataType dataType = indexContainer._fieldSpec.getDataType();
+      if (indexContainer._dictionary != null) {
+        avgKeyLength += Integer.BYTES;
+      } else if (dataType.isFixedWidth()) {
+        avgKeyLength += dataType.size();
+      } else {
+        avgKeyLength += Integer.BYTES + NODICT_VARIABLE_WIDTH_ESTIMATED_AVERAGE_VALUE_LENGTH_DEFAULT;
+      }
+    }
+
+    _logger.info("Initializing metrics update: estimatedRowsToIndex:{}, avgKeyLength:{}", estimatedRowsToIndex,
+        avgKeyLength);
+    return new ByteArrayOffHeapIdMap(estimatedRowsToIndex, avgKeyLength, _memoryManager, RECORD_ID_MAP);
+  }
 
-    _logger.info("Initializing metrics update: estimatedRowsToIndex:{}, cacheSize:{}", estimatedRowsToIndex,
-        maxOverFlowHashSize);
-    return new FixedIntArrayOffHeapIdMap(estimatedRowsToIndex, maxOverFlowHashSize, _numKeyColumns, _memoryManager,
-        RECORD_ID_MAP);
+  private static boolean isSupportedAggregationFunction(String functionName) {
+    AggregationFunctionType functionType;
+    try {
+      functionType = AggregationFunctionType.getAggregationFunctionType(functionName);
+    } catch (Exception e) {
+      return false;
+    }
+    return functionType == AggregationFunctionType.SUM || functionType == AggregationFunctionType.MIN
+        || functionType == AggregationFunctionType.MAX;
+  }
+
+  /**
+   * Returns the size of the bucket (in the unit of the time column) to truncate the time values to when aggregating
+   * metrics, or 0 if the time values should not be truncated. Truncation is only supported for INT/LONG time columns in
+   * EPOCH format, and the time bucket must be a multiple of the time column unit.
+   */
+  private long getTimeBucketSize(long timeBucketMs) {
+    if (timeBucketMs <= 0 || _timeColumnName == null) {
+      return 0;
+    }
+    DateTimeFieldSpec timeFieldSpec = _schema.getSpecForTimeColumn(_timeColumnName);
+    if (timeFieldSpec == null) {
+      return 0;
+    }
+    DataType dataType = timeFieldSpec.getDataType();
+    DateTimeFormatSpec formatSpec = new DateTimeFormatSpec(timeFieldSpec.getFormat());
+    if ((dataType != DataType.INT && dataType != DataType.LONG)
+        || formatSpec.getTimeFormat() != DateTimeFieldSpec.TimeFormat.EPOCH) {
+      _logger.warn("Cannot truncate values for time column: {} of type: {} and format: {}", _timeColumnName, dataType,
+          timeFieldSpec.getFormat());
+      return 0;
+    }
+    long timeUnitMs = formatSpec.getColumnUnit().toMillis(formatSpec.getColumnSize());
+    if (timeBucketMs % timeUnitMs != 0) {
+      _logger.warn("Time bucket: {}ms is not a multiple of the unit: {}ms of time column: {}, not truncating",
+          timeBucketMs, timeUnitMs, _timeColumnName);
+      return 0;
+    }
+    long timeBucketSize = timeBucketMs / timeUnitMs;
+    _logger.info("Truncating values for time column: {} to time bucket of size: {}", _timeColumnName, timeBucketSize);
+    return timeBucketSize > 1 ? timeBucketSize : 0;
   }
 
   // NOTE: Okay for single-writer
@@ -19,6 +19,7 @@
 package org.apache.pinot.core.io.readerwriter;
 
 import java.io.Closeable;
+import java.io.IOException;
 import org.apache.pinot.core.segment.memory.PinotDataBuffer;
 
 
@@ -37,6 +38,18 @@ public interface PinotDataBufferMemoryManager extends Closeable {
    */
   PinotDataBuffer allocate(long size, String allocationContext);
 
+  /**
+   * Releases a PinotDataBuffer allocated by this memory manager before the memory manager is closed. The buffer must
+   * not be accessed after it is released.
+   * <p>Memory managers that carve the buffers out of larger chunks of memory cannot reclaim the memory of a single
+   * buffer, in which case the memory is reclaimed only when the memory manager is closed.
+   *
+   * @param buffer Data buffer to be released.
+   */
+  default void release(PinotDataBuffer buffer)
+      throws IOException {
+  }
+
   /**
    * Returns total size of memory allocated in bytes.
    *
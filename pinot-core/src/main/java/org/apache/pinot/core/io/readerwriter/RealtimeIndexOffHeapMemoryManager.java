@@ -20,8 +20,14 @@ package org.apache.pinot.core.io.readerwriter;
 
 import com.google.common.base.Preconditions;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.pinot.common.metrics.ServerGauge;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.utils.HLCSegmentName;
@@ -40,10 +46,22 @@ import org.apache.pinot.core.segment.memory.PinotDataBuffer;
  * Closing the RealtimeOffHeapMemoryManager also releases all the resources allocated by the OffHeapMemoryManager.
  */
 public abstract class RealtimeIndexOffHeapMemoryManager implements PinotDataBufferMemoryManager {
+  // Total memory allocated by all the realtime memory managers in the server
+  private static final AtomicLong SERVER_ALLOCATED_BYTES = new AtomicLong();
+  // All the realtime memory managers in the server that are not closed yet
+  private static final Set<RealtimeIndexOffHeapMemoryManager> MEMORY_MANAGERS = ConcurrentHashMap.newKeySet();
+  // Version of the allocations in the server, incremented whenever a realtime memory manager allocates or releases
+  // memory to invalidate the cached release decision
+  private static final AtomicLong ALLOCATION_VERSION = new AtomicLong();
+  // Cached release decision for the server memory limit, recomputed only when the allocations or the limit change so
+  // that the consuming threads do not sort all the memory managers for every indexed row
+  private static volatile ReleaseDecision _releaseDecision = new ReleaseDecision(-1, 0, Collections.emptySet());
+
   private final List<PinotDataBuffer> _buffers = new LinkedList<>();
   private final String _segmentName;
   private final ServerMetrics _serverMetrics;
-  private long _totalAllocatedBytes = 0;
+  // NOTE: Only updated by the consuming thread, but read by other consuming threads to pick the largest consumers
+  private volatile long _totalAllocatedBytes = 0;
   private final String _tableName;
 
   protected RealtimeIndexOffHeapMemoryManager(ServerMetrics serverMetrics, String segmentName) {
@@ -59,6 +77,7 @@ public abstract class RealtimeIndexOffHeapMemoryManager implements PinotDataBuff
       // For testing only
       _tableName = "NoSuchTable";
     }
+    MEMORY_MANAGERS.add(this);
   }
 
   /**
@@ -78,11 +97,39 @@ public abstract class RealtimeIndexOffHeapMemoryManager implements PinotDataBuff
         "Illegal memory allocation " + size + " for segment " + _segmentName + " column " + allocationContext);
     PinotDataBuffer buffer = allocateInternal(size, allocationContext);
     _totalAllocatedBytes += size;
+    SERVER_ALLOCATED_BYTES.addAndGet(size);
+    ALLOCATION_VERSION.incrementAndGet();
     _buffers.add(buffer);
     _serverMetrics.addValueToTableGauge(_tableName, ServerGauge.REALTIME_OFFHEAP_MEMORY_USED, size);
     return buffer;
   }
 
+  /**
+   * Releases the buffer and its memory if the memory manager supports releasing a single buffer.
+   *
+   * @see PinotDataBufferMemoryManager#release(PinotDataBuffer)
+   */
+  @Override
+  public void release(PinotDataBuffer buffer)
+      throws IOException {
+    if (canReleaseBuffer() && _buffers.remove(buffer)) {
+      long size = buffer.size();
+      buffer.close();
+      _totalAllocatedBytes -= size;
+      SERVER_ALLOCATED_BYTES.addAndGet(-size);
+      ALLOCATION_VERSION.incrementAndGet();
+      _serverMetrics.addValueToTableGauge(_tableName, ServerGauge.REALTIME_OFFHEAP_MEMORY_USED, -size);
+    }
+  }
+
+  /**
+   * Returns {@code true} if closing a single buffer allocated by this memory manager releases its memory, {@code false}
+   * if the buffers are carved out of larger chunks of memory that are released only when the memory manager is closed.
+   */
+  protected boolean canReleaseBuffer() {
+    return false;
+  }
+
   /**
    * Method to be implemented by inheriting concrete classes
    */
@@ -105,13 +152,88 @@ public abstract class RealtimeIndexOffHeapMemoryManager implements PinotDataBuff
       buffer.close();
     }
     _serverMetrics.addValueToTableGauge(_tableName, ServerGauge.REALTIME_OFFHEAP_MEMORY_USED, -_totalAllocatedBytes);
+    SERVER_ALLOCATED_BYTES.addAndGet(-_totalAllocatedBytes);
     doClose();
     _buffers.clear();
     _totalAllocatedBytes = 0;
+    MEMORY_MANAGERS.remove(this);
+    ALLOCATION_VERSION.incrementAndGet();
   }
 
   @Override
   public long getTotalAllocatedBytes() {
     return _totalAllocatedBytes;
   }
+
+  /**
+   * Returns the total memory in bytes allocated (and not yet released) by all the realtime memory managers in the
+   * server.
+   */
+  public static long getServerAllocatedBytes() {
+    return SERVER_ALLOCATED_BYTES.get();
+  }
+
+  /**
+   * Returns {@code true} if the server allocated bytes exceed the given limit, and the given memory manager is among
+   * the largest consumers that need to release their memory to bring the server allocated bytes back under the limit.
+   * <p>This way only the largest consuming segments get completed when the server runs out of the memory budget,
+   * instead of all the consuming segments completing at the same time.
+   * <p>The largest consumers are only re-computed when the allocations change, and the decision is cached in between
+   * so that this method is cheap enough to be called for every indexed row.
+   */
+  public static boolean shouldReleaseForServerLimit(RealtimeIndexOffHeapMemoryManager memoryManager, long limitBytes) {
+    if (SERVER_ALLOCATED_BYTES.get() <= limitBytes) {
+      return false;
+    }
+    ReleaseDecision releaseDecision = _releaseDecision;
+    long allocationVersion = ALLOCATION_VERSION.get();
+    if (releaseDecision._allocationVersion != allocationVersion || releaseDecision._limitBytes != limitBytes) {
+      releaseDecision = computeReleaseDecision(allocationVersion, limitBytes);
+    }
+    return releaseDecision._memoryManagersToRelease.contains(memoryManager);
+  }
+
+  private static synchronized ReleaseDecision computeReleaseDecision(long allocationVersion, long limitBytes) {
+    ReleaseDecision releaseDecision = _releaseDecision;
+    if (releaseDecision._allocationVersion == allocationVersion && releaseDecision._limitBytes == limitBytes) {
+      // Computed by another consuming thread
+      return releaseDecision;
+    }
+    Set<RealtimeIndexOffHeapMemoryManager> memoryManagersToRelease = new HashSet<>();
+    long excessBytes = SERVER_ALLOCATED_BYTES.get() - limitBytes;
+    if (excessBytes > 0) {
+      List<RealtimeIndexOffHeapMemoryManager> memoryManagers = new ArrayList<>(MEMORY_MANAGERS);
+      // Sort by the allocated bytes in descending order, and break the ties with the segment name
+      memoryManagers.sort((o1, o2) -> {
+        int result = Long.compare(o2._totalAllocatedBytes, o1._totalAllocatedBytes);
+        return result != 0 ? result : o1._segmentName.compareTo(o2._segmentName);
+      });
+      long releasedBytes = 0;
+      for (RealtimeIndexOffHeapMemoryManager largestMemoryManager : memoryManagers) {
+        memoryManagersToRelease.add(largestMemoryManager);
+        releasedBytes += largestMemoryManager._totalAllocatedBytes;
+        if (releasedBytes >= excessBytes) {
+          break;
+        }
+      }
+    }
+    // NOTE: If the allocations change while computing the decision, the decision is tagged with the old version and
+    //       will be re-computed on the next call
+    releaseDecision = new ReleaseDecision(allocationVersion, limitBytes, memoryManagersToRelease);
+    _releaseDecision = releaseDecision;
+    return releaseDecision;
+  }
+
+  private static class ReleaseDecision {
+    final long _allocationVersion;
+    final long _limitBytes;
+    final Set<RealtimeIndexOffHeapMemoryManager> _memoryManagersToRelease;
+
+    ReleaseDecision(long allocationVersion, long limitBytes,
+        Set<RealtimeIndexOffHeapMemoryManager> memoryManagersToRelease) {
+      _allocationVersion = allocationVersion;
+      _limitBytes = limitBytes;
+      _memoryManagersToRelease = memoryManagersToRelease;
+    }
+  }
 }
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.io.writer.impl;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.core.io.readerwriter.RealtimeIndexOffHeapMemoryManager;
+import org.apache.pinot.core.segment.memory.PinotDataBuffer;
+
+
+/**
+ * @class ArenaMemoryManager is an OffHeapMemoryManager that hands out sub-buffers of large regions acquired from a
+ * shared {@link OffHeapMemoryArena}.
+ *
+ * Instead of allocating a separate buffer for every forward index, dictionary and byte store chunk, allocation requests
+ * within a segment are carved out of the current region until it cannot hold the new buffer anymore, and then a new
+ * region is acquired. Closing the memory manager returns all the regions to the arena so that they can be reused by
+ * the next consuming segment.
+ *
+ * @note Thread-unsafe. We expect to use this class only in a single writer case.
+ */
+public class ArenaMemoryManager extends RealtimeIndexOffHeapMemoryManager {
+  // Keep all the sub-buffers aligned so that the values stored in them are aligned too
+  private static final long ALIGNMENT = Long.BYTES;
+
+  private final OffHeapMemoryArena _arena;
+  private final String _segmentName;
+  private final List<PinotDataBuffer> _regions = new ArrayList<>();
+  private PinotDataBuffer _currentRegion;
+  private long _availableOffset;
+
+  /**
+   * @param arena Arena to acquire regions from
+   * @param segmentName Name of the segment for which this memory manager allocates memory
+   * @param serverMetrics Server metrics
+   * @see RealtimeIndexOffHeapMemoryManager
+   */
+  public ArenaMemoryManager(OffHeapMemoryArena arena, String segmentName, ServerMetrics serverMetrics) {
+    super(serverMetrics, segmentName);
+    _arena = arena;
+    _segmentName = segmentName;
+  }
+
+  @VisibleForTesting
+  public ArenaMemoryManager(OffHeapMemoryArena arena, String segmentName) {
+    this(arena, segmentName, new ServerMetrics(new MetricsRegistry()));
+  }
+
+  /**
+   * @param size size of memory
+   * @param allocationContext String describing context of allocation (typically segment:column name).
+   * @return PinotDataBuffer carved out of a region of the arena
+   *
+   * @see RealtimeIndexOffHeapMemoryManager#allocate(long, String)
+   */
+  @Override
+  protected PinotDataBuffer allocateInternal(long size, String allocationContext) {
+    if (_currentRegion == null || _availableOffset + size > _currentRegion.size()) {
+      _currentRegion = _arena.acquireRegion(size, _segmentName);
+      _regions.add(_currentRegion);
+      _availableOffset = 0;
+    }
+    PinotDataBuffer buffer = _currentRegion.view(_availableOffset, _availableOffset + size);
+    _availableOffset = Math.min((_availableOffset + size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT,
+        _currentRegion.size());
+    return buffer;
+  }
+
+  @Override
+  protected void doClose()
+      throws IOException {
+    for (PinotDataBuffer region : _regions) {
+      _arena.releaseRegion(region);
+    }
+    _regions.clear();
+    _currentRegion = null;
+  }
+}
@@ -53,6 +53,11 @@ public class DirectMemoryManager extends RealtimeIndexOffHeapMemoryManager {
     return PinotDataBuffer.allocateDirect(size, PinotDataBuffer.NATIVE_ORDER, allocationContext);
   }
 
+  @Override
+  protected boolean canReleaseBuffer() {
+    return true;
+  }
+
   @Override
   protected void doClose() {
     // Nothing to do.
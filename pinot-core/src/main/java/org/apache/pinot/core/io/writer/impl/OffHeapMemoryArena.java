@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.io.writer.impl;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.pinot.common.metrics.ServerGauge;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.core.segment.memory.PinotDataBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * @class OffHeapMemoryArena is a server-wide pool of large direct memory regions, shared by all the
+ * {@link ArenaMemoryManager}s of the consuming segments in the server.
+ *
+ * Regions are allocated with a fixed size, and are recycled when the consuming segment that acquired them is
+ * destroyed, so that the next consuming segment can reuse the memory without allocating it again. Recycled regions are
+ * zeroed out when they are acquired again, so that destroying a consuming segment does not pay for it.
+ * Requests larger than the region size get a dedicated region that is released when it is returned to the arena.
+ * At most {@link #getMaxFreeBytes()} bytes of free regions are retained, the rest are released.
+ *
+ * @note Thread-safe. Regions can be acquired and released concurrently by multiple consuming threads.
+ */
+public class OffHeapMemoryArena {
+  private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapMemoryArena.class);
+
+  public static final long DEFAULT_REGION_SIZE = 32 * 1024 * 1024L; // 32M per region
+  public static final long DEFAULT_MAX_FREE_BYTES = 2 * 1024 * 1024 * 1024L; // Retain up to 2G of free regions
+
+  private static OffHeapMemoryArena _sharedArena;
+
+  private final long _regionSize;
+  private final long _maxFreeBytes;
+  private final ServerMetrics _serverMetrics;
+  private final ConcurrentLinkedQueue<PinotDataBuffer> _freeRegions = new ConcurrentLinkedQueue<>();
+  private final AtomicLong _allocatedBytes = new AtomicLong();
+  private final AtomicLong _freeBytes = new AtomicLong();
+
+  /**
+   * Returns the arena shared by all the consuming segments in the server, creating it on first use with the given
+   * region size and max free bytes (server level configs).
+   */
+  public static synchronized OffHeapMemoryArena getSharedArena(long regionSize, long maxFreeBytes,
+      ServerMetrics serverMetrics) {
+    if (_sharedArena == null) {
+      LOGGER.info("Creating shared off-heap memory arena with region size: {}, max free bytes: {}", regionSize,
+          maxFreeBytes);
+      _sharedArena = new OffHeapMemoryArena(regionSize, maxFreeBytes, serverMetrics);
+    }
+    return _sharedArena;
+  }
+
+  @VisibleForTesting
+  public OffHeapMemoryArena(long regionSize, long maxFreeBytes, ServerMetrics serverMetrics) {
+    _regionSize = regionSize;
+    _maxFreeBytes = maxFreeBytes;
+    _serverMetrics = serverMetrics;
+  }
+
+  public long getRegionSize() {
+    return _regionSize;
+  }
+
+  public long getMaxFreeBytes() {
+    return _maxFreeBytes;
+  }
+
+  /**
+   * Returns the total size of the regions held by the arena, including the free ones.
+   */
+  public long getAllocatedBytes() {
+    return _allocatedBytes.get();
+  }
+
+  /**
+   * Returns the total size of the free regions that can be reused without allocating memory.
+   */
+  public long getFreeBytes() {
+    return _freeBytes.get();
+  }
+
+  /**
+   * Acquires a region of at least the given size. The content of the region is all zeros.
+   *
+   * @param minSize Minimum size of the region
+   * @param allocationContext Context for allocation
+   * @return Region acquired
+   */
+  public PinotDataBuffer acquireRegion(long minSize, String allocationContext) {
+    if (minSize <= _regionSize) {
+      PinotDataBuffer region = _freeRegions.poll();
+      if (region != null) {
+        _freeBytes.addAndGet(-_regionSize);
+        updateGauges();
+        // Lazily clear the recycled region on the consuming thread that acquires it
+        clear(region);
+        return region;
+      }
+    }
+    long regionSize = Math.max(minSize, _regionSize);
+    PinotDataBuffer region = PinotDataBuffer.allocateDirect(regionSize, PinotDataBuffer.NATIVE_ORDER, allocationContext);
+    // The content of direct buffers is not defined, clear it so that recycled and new regions behave the same
+    clear(region);
+    _allocatedBytes.addAndGet(regionSize);
+    updateGauges();
+    return region;
+  }
+
+  /**
+   * Returns a region acquired through {@link #acquireRegion(long, String)} to the arena. Regular-sized regions are
+   * retained for reuse if the arena has not reached its max free bytes, otherwise they are released.
+   *
+   * @param region Region to return
+   */
+  public void releaseRegion(PinotDataBuffer region)
+      throws IOException {
+    long regionSize = region.size();
+    if (regionSize == _regionSize && reserveFreeBytes(regionSize)) {
+      _freeRegions.offer(region);
+    } else {
+      LOGGER.debug("Releasing region of size {}", regionSize);
+      _allocatedBytes.addAndGet(-regionSize);
+      region.close();
+    }
+    updateGauges();
+  }
+
+  /**
+   * Atomically adds the given size to the free bytes if it does not exceed the max free bytes, returns {@code true} if
+   * the free bytes are added.
+   */
+  private boolean reserveFreeBytes(long size) {
+    while (true) {
+      long freeBytes = _freeBytes.get();
+      if (freeBytes + size > _maxFreeBytes) {
+        return false;
+      }
+      if (_freeBytes.compareAndSet(freeBytes, freeBytes + size)) {
+        return true;
+      }
+    }
+  }
+
+  private void updateGauges() {
+    _serverMetrics.setValueOfGlobalGauge(ServerGauge.REALTIME_OFFHEAP_ARENA_ALLOCATED_BYTES, _allocatedBytes.get());
+    _serverMetrics.setValueOfGlobalGauge(ServerGauge.REALTIME_OFFHEAP_ARENA_FREE_BYTES, _freeBytes.get());
+  }
+
+  private static void clear(PinotDataBuffer region) {
+    long size = region.size();
+    long offset = 0;
+    for (; offset + Long.BYTES <= size; offset += Long.BYTES) {
+      region.putLong(offset, 0L);
+    }
+    for (; offset < size; offset++) {
+      region.putByte(offset, (byte) 0);
+    }
+  }
+}
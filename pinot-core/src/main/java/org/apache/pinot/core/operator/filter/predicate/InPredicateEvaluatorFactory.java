@@ -87,7 +87,7 @@ public class InPredicateEvaluatorFactory {
   private static final class DictionaryBasedInPredicateEvaluator extends BaseDictionaryBasedPredicateEvaluator {
     final IntSet _matchingDictIdSet;
     final int _numMatchingDictIds;
-    int[] _matchingDictIds;
+    volatile int[] _matchingDictIds;
 
     DictionaryBasedInPredicateEvaluator(InPredicate inPredicate, Dictionary dictionary) {
       List<String> values = inPredicate.getValues();
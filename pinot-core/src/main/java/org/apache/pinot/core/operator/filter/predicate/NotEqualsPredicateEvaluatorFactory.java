@@ -76,7 +76,7 @@ public class NotEqualsPredicateEvaluatorFactory {
     final int _nonMatchingDictId;
     final int[] _nonMatchingDictIds;
     final Dictionary _dictionary;
-    int[] _matchingDictIds;
+    volatile int[] _matchingDictIds;
 
     DictionaryBasedNeqPredicateEvaluator(NotEqPredicate nEqPredicate, Dictionary dictionary) {
       _nonMatchingDictId = dictionary.indexOf(nEqPredicate.getValue());
@@ -104,24 +104,26 @@ public class NotEqualsPredicateEvaluatorFactory {
 
     @Override
     public int[] getMatchingDictIds() {
-      if (_matchingDictIds == null) {
+      int[] matchingDictIds = _matchingDictIds;
+      if (matchingDictIds == null) {
         int dictionarySize = _dictionary.length();
         if (_nonMatchingDictId >= 0) {
-          _matchingDictIds = new int[dictionarySize - 1];
+          matchingDictIds = new int[dictionarySize - 1];
           int index = 0;
           for (int dictId = 0; dictId < dictionarySize; dictId++) {
             if (dictId != _nonMatchingDictId) {
-              _matchingDictIds[index++] = dictId;
+              matchingDictIds[index++] = dictId;
             }
           }
         } else {
-          _matchingDictIds = new int[dictionarySize];
+          matchingDictIds = new int[dictionarySize];
           for (int dictId = 0; dictId < dictionarySize; dictId++) {
-            _matchingDictIds[dictId] = dictId;
+            matchingDictIds[dictId] = dictId;
           }
         }
+        _matchingDictIds = matchingDictIds;
       }
-      return _matchingDictIds;
+      return matchingDictIds;
     }
 
     @Override
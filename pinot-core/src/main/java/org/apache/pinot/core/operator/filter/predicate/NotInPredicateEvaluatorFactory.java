@@ -88,8 +88,8 @@ public class NotInPredicateEvaluatorFactory {
     final IntSet _nonMatchingDictIdSet;
     final int _numNonMatchingDictIds;
     final Dictionary _dictionary;
-    int[] _matchingDictIds;
-    int[] _nonMatchingDictIds;
+    volatile int[] _matchingDictIds;
+    volatile int[] _nonMatchingDictIds;
 
     DictionaryBasedNotInPredicateEvaluator(NotInPredicate notInPredicate, Dictionary dictionary) {
       List<String> values = notInPredicate.getValues();
@@ -121,17 +121,19 @@ public class NotInPredicateEvaluatorFactory {
 
     @Override
     public int[] getMatchingDictIds() {
-      if (_matchingDictIds == null) {
+      int[] matchingDictIds = _matchingDictIds;
+      if (matchingDictIds == null) {
         int dictionarySize = _dictionary.length();
-        _matchingDictIds = new int[dictionarySize - _numNonMatchingDictIds];
+        matchingDictIds = new int[dictionarySize - _numNonMatchingDictIds];
         int index = 0;
         for (int dictId = 0; dictId < dictionarySize; dictId++) {
           if (!_nonMatchingDictIdSet.contains(dictId)) {
-            _matchingDictIds[index++] = dictId;
+            matchingDictIds[index++] = dictId;
           }
         }
+        _matchingDictIds = matchingDictIds;
       }
-      return _matchingDictIds;
+      return matchingDictIds;
     }
 
     @Override
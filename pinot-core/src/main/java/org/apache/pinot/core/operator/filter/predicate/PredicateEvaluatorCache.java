@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.filter.predicate;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import java.util.function.Supplier;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.core.query.request.context.predicate.Predicate;
+import org.apache.pinot.core.segment.index.readers.BaseImmutableDictionary;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
+
+
+/**
+ * Cache of the dictionary based predicate evaluators, used to reuse the predicate evaluators across the queries with
+ * the same predicate on the same segment (e.g. dashboard queries). Creating a dictionary based predicate evaluator
+ * looks up the predicate values in the dictionary, and might scan the whole dictionary (e.g. REGEXP_LIKE, NOT_IN).
+ * <p>The predicate evaluators are cached per dictionary, and only for the immutable dictionaries because the dictionary
+ * ids matching a predicate can change when values are added to a mutable dictionary. The dictionaries are weakly
+ * referenced, so that the cached predicate evaluators are released with the segment. For each dictionary, at most the
+ * configured number of predicate evaluators are cached, and the least recently used ones are evicted.
+ */
+@ThreadSafe
+public class PredicateEvaluatorCache {
+  private final LoadingCache<Dictionary, Cache<Predicate, PredicateEvaluator>> _cache;
+  private final ServerMetrics _serverMetrics;
+
+  /**
+   * @param maxPredicateEvaluatorsPerDictionary Max number of predicate evaluators cached for each dictionary
+   * @param serverMetrics Server metrics
+   */
+  public PredicateEvaluatorCache(int maxPredicateEvaluatorsPerDictionary, ServerMetrics serverMetrics) {
+    _cache = CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(
+        () -> CacheBuilder.newBuilder().maximumSize(maxPredicateEvaluatorsPerDictionary).build()));
+    _serverMetrics = serverMetrics;
+  }
+
+  /**
+   * Returns the cached predicate evaluator for the given predicate and dictionary, or creates one with the given
+   * supplier and caches it if the dictionary is immutable.
+   */
+  public PredicateEvaluator getPredicateEvaluator(Predicate predicate, Dictionary dictionary,
+      Supplier<PredicateEvaluator> predicateEvaluatorSupplier) {
+    if (!(dictionary instanceof BaseImmutableDictionary)) {
+      return predicateEvaluatorSupplier.get();
+    }
+    Cache<Predicate, PredicateEvaluator> predicateEvaluators = _cache.getUnchecked(dictionary);
+    PredicateEvaluator predicateEvaluator = predicateEvaluators.getIfPresent(predicate);
+    if (predicateEvaluator != null) {
+      _serverMetrics.addMeteredGlobalValue(ServerMeter.PREDICATE_EVALUATOR_CACHE_HITS, 1);
+      return predicateEvaluator;
+    }
+    _serverMetrics.addMeteredGlobalValue(ServerMeter.PREDICATE_EVALUATOR_CACHE_MISSES, 1);
+    // NOTE: Concurrent misses might create the same predicate evaluator multiple times, which is fine because the
+    //       predicate evaluators are equivalent.
+    predicateEvaluator = predicateEvaluatorSupplier.get();
+    predicateEvaluators.put(predicate, predicateEvaluator);
+    return predicateEvaluator;
+  }
+
+  /**
+   * Returns the number of dictionaries with cached predicate evaluators.
+   */
+  public long getNumDictionaries() {
+    return _cache.size();
+  }
+}
@@ -35,8 +35,29 @@ public class PredicateEvaluatorProvider {
   private PredicateEvaluatorProvider() {
   }
 
+  // Cache of the dictionary based predicate evaluators, null if the cache is disabled
+  private static volatile PredicateEvaluatorCache _predicateEvaluatorCache;
+
+  /**
+   * Sets the cache of the dictionary based predicate evaluators, or {@code null} to disable the cache.
+   */
+  public static void setPredicateEvaluatorCache(@Nullable PredicateEvaluatorCache predicateEvaluatorCache) {
+    _predicateEvaluatorCache = predicateEvaluatorCache;
+  }
+
   public static PredicateEvaluator getPredicateEvaluator(Predicate predicate, @Nullable Dictionary dictionary,
       DataType dataType) {
+    PredicateEvaluatorCache predicateEvaluatorCache = _predicateEvaluatorCache;
+    if (predicateEvaluatorCache != null && dictionary != null && dictionary.getValueType() == dataType) {
+      return predicateEvaluatorCache.getPredicateEvaluator(predicate, dictionary,
+          () -> createPredicateEvaluator(predicate, dictionary, dataType));
+    } else {
+      return createPredicateEvaluator(predicate, dictionary, dataType);
+    }
+  }
+
+  private static PredicateEvaluator createPredicateEvaluator(Predicate predicate, @Nullable Dictionary dictionary,
+      DataType dataType) {
     try {
       if (dictionary != null) {
         // dictionary based predicate evaluators
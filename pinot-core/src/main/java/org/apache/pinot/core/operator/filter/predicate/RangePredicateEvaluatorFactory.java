@@ -86,7 +86,7 @@ public class RangePredicateEvaluatorFactory {
     // Exclusive
     final int _endDictId;
     final int _numMatchingDictIds;
-    int[] _matchingDictIds;
+    volatile int[] _matchingDictIds;
 
     OfflineDictionaryBasedRangePredicateEvaluator(RangePredicate rangePredicate, BaseImmutableDictionary dictionary) {
       String lowerBound = rangePredicate.getLowerBound();
@@ -156,17 +156,19 @@ public class RangePredicateEvaluatorFactory {
 
     @Override
     public int[] getMatchingDictIds() {
-      if (_matchingDictIds == null) {
+      int[] matchingDictIds = _matchingDictIds;
+      if (matchingDictIds == null) {
         if (_numMatchingDictIds <= 0) {
-          _matchingDictIds = new int[0];
+          matchingDictIds = new int[0];
         } else {
-          _matchingDictIds = new int[_numMatchingDictIds];
+          matchingDictIds = new int[_numMatchingDictIds];
           for (int i = 0; i < _numMatchingDictIds; i++) {
-            _matchingDictIds[i] = _startDictId + i;
+            matchingDictIds[i] = _startDictId + i;
           }
         }
+        _matchingDictIds = matchingDictIds;
       }
-      return _matchingDictIds;
+      return matchingDictIds;
     }
   }
 
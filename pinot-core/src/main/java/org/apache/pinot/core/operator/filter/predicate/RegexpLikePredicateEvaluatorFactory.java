@@ -65,7 +65,7 @@ public class RegexpLikePredicateEvaluatorFactory {
   private static final class DictionaryBasedRegexpLikePredicateEvaluator extends BaseDictionaryBasedPredicateEvaluator {
     final Pattern _pattern;
     final Dictionary _dictionary;
-    int[] _matchingDictIds;
+    volatile int[] _matchingDictIds;
 
     public DictionaryBasedRegexpLikePredicateEvaluator(RegexpLikePredicate regexpLikePredicate, Dictionary dictionary) {
       _pattern = Pattern.compile(regexpLikePredicate.getValue(), PATTERN_FLAG);
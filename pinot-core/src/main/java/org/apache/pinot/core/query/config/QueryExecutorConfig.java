@@ -19,6 +19,7 @@
 package org.apache.pinot.core.query.config;
 
 import org.apache.commons.configuration.ConfigurationException;
+import org.apache.pinot.common.utils.CommonConstants;
 import org.apache.pinot.spi.env.PinotConfiguration;
 
 
@@ -35,6 +36,8 @@ public class QueryExecutorConfig {
   public static final String QUERY_PLANNER = "queryPlanner";
   // Prefix key of TimeOut
   public static final String TIME_OUT = "timeout";
+  // Key of the max number of predicate evaluators cached for each immutable segment dictionary
+  public static final String PREDICATE_EVALUATOR_CACHE_SIZE = "predicate.evaluator.cache.size";
 
   private static final String[] REQUIRED_KEYS = {};
 
@@ -42,6 +45,7 @@ public class QueryExecutorConfig {
   private SegmentPrunerConfig _segmentPrunerConfig;
   private QueryPlannerConfig _queryPlannerConfig;
   private final long _timeOutMs;
+  private final int _predicateEvaluatorCacheSize;
 
   public QueryExecutorConfig(PinotConfiguration config) throws ConfigurationException {
     _queryExecutorConfig = config;
@@ -49,6 +53,8 @@ public class QueryExecutorConfig {
     _segmentPrunerConfig = new SegmentPrunerConfig(_queryExecutorConfig.subset(QUERY_PRUNER));
     _queryPlannerConfig = new QueryPlannerConfig(_queryExecutorConfig.subset(QUERY_PLANNER));
     _timeOutMs = _queryExecutorConfig.getProperty(TIME_OUT, -1);
+    _predicateEvaluatorCacheSize = _queryExecutorConfig.getProperty(PREDICATE_EVALUATOR_CACHE_SIZE,
+        CommonConstants.Server.DEFAULT_QUERY_EXECUTOR_PREDICATE_EVALUATOR_CACHE_SIZE);
   }
 
   private void checkRequiredKeys()
@@ -75,4 +81,8 @@ public class QueryExecutorConfig {
   public long getTimeOut() {
     return _timeOutMs;
   }
+
+  public int getPredicateEvaluatorCacheSize() {
+    return _predicateEvaluatorCacheSize;
+  }
 }
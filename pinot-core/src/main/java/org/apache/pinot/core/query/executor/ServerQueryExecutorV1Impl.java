@@ -38,6 +38,8 @@ import org.apache.pinot.core.data.manager.SegmentDataManager;
 import org.apache.pinot.core.data.manager.TableDataManager;
 import org.apache.pinot.core.indexsegment.IndexSegment;
 import org.apache.pinot.core.indexsegment.mutable.MutableSegment;
+import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluatorCache;
+import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
 import org.apache.pinot.core.plan.Plan;
 import org.apache.pinot.core.plan.maker.InstancePlanMakerImplV2;
 import org.apache.pinot.core.plan.maker.PlanMaker;
@@ -76,6 +78,11 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       _defaultTimeOutMs = queryExecutorConfig.getTimeOut();
     }
     LOGGER.info("Default timeout for query executor : {}", _defaultTimeOutMs);
+    int predicateEvaluatorCacheSize = queryExecutorConfig.getPredicateEvaluatorCacheSize();
+    LOGGER.info("Max predicate evaluators cached per dictionary: {}", predicateEvaluatorCacheSize);
+    PredicateEvaluatorProvider.setPredicateEvaluatorCache(
+        predicateEvaluatorCacheSize > 0 ? new PredicateEvaluatorCache(predicateEvaluatorCacheSize, serverMetrics)
+            : null);
     LOGGER.info("Trying to build SegmentPrunerService");
     _segmentPrunerService = new SegmentPrunerService(queryExecutorConfig.getPrunerConfig());
     LOGGER.info("Trying to build QueryPlanMaker");
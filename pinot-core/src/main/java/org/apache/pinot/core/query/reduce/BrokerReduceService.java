@@ -191,21 +191,23 @@ public class BrokerReduceService {
     DataTableReducer dataTableReducer = ResultReducerFactory.getResultReducer(queryContext);
     dataTableReducer
         .reduceAndSetResults(tableName, cachedDataSchema, dataTableMap, brokerResponseNative, brokerMetrics);
-    updateAlias(queryContext, brokerResponseNative);
+    ResultTable resultTable = brokerResponseNative.getResultTable();
+    if (resultTable != null) {
+      updateAlias(queryContext, resultTable.getDataSchema());
+    }
     return brokerResponseNative;
   }
 
-  private static void updateAlias(QueryContext queryContext, BrokerResponseNative brokerResponseNative) {
-    ResultTable resultTable = brokerResponseNative.getResultTable();
-    if (resultTable == null) {
-      return;
-    }
+  /**
+   * Updates the column names in the given result data schema with the aliases in the query.
+   */
+  public static void updateAlias(QueryContext queryContext, DataSchema dataSchema) {
     Map<ExpressionContext, String> aliasMap = queryContext.getAliasMap();
     if (aliasMap.isEmpty()) {
       return;
     }
 
-    String[] columnNames = resultTable.getDataSchema().getColumnNames();
+    String[] columnNames = dataSchema.getColumnNames();
     List<ExpressionContext> selectExpressions = queryContext.getSelectExpressions();
     int numSelectExpressions = selectExpressions.size();
     // For query like `SELECT *`, we skip alias update.
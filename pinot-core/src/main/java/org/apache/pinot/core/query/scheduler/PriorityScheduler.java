@@ -108,6 +108,11 @@ public abstract class PriorityScheduler extends QueryScheduler {
               continue;
             }
             ServerQueryRequest queryRequest = request.getQueryRequest();
+            if (request.getResultFuture().isCancelled()) {
+              // Query cancelled while waiting in the queue, drop it without executing
+              runningQueriesSemaphore.release();
+              continue;
+            }
             final QueryExecutorService executor =
                 resourceManager.getExecutorService(queryRequest, request.getSchedulerGroup());
             final ListenableFutureTask<byte[]> queryFutureTask = createQueryFutureTask(queryRequest, executor);
@@ -123,9 +128,11 @@ public abstract class PriorityScheduler extends QueryScheduler {
                 }
               }
             }, MoreExecutors.directExecutor());
-            request.setResultFuture(queryFutureTask);
             request.getSchedulerGroup().startQuery();
             queryRequest.getTimerContext().getPhaseTimer(ServerQueryPhase.SCHEDULER_WAIT).stopAndRecord();
+            // NOTE: Set the result future after starting the query because the listener is invoked immediately if the
+            //       query is already cancelled
+            request.setResultFuture(queryFutureTask);
             resourceManager.getQueryRunners().submit(queryFutureTask);
           } catch (Throwable t) {
             LOGGER.error(
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Nullable;
 import org.apache.pinot.common.metrics.ServerGauge;
 import org.apache.pinot.common.metrics.ServerMetrics;
@@ -56,6 +57,7 @@ public class RealtimeSegmentConverter {
   private final List<String> _noDictionaryColumns;
   private final List<String> _varLengthDictionaryColumns;
   private final boolean _nullHandlingEnabled;
+  private ExecutorService _indexCreationExecutor;
 
   public RealtimeSegmentConverter(MutableSegmentImpl realtimeSegment, String outputPath, Schema schema,
       String tableName, TableConfig tableConfig, String segmentName, String sortedColumn,
@@ -78,6 +80,14 @@ public class RealtimeSegmentConverter {
     _textIndexColumns = textIndexColumns;
   }
 
+  /**
+   * Sets the shared executor used to create the column indexes of the segment in parallel, or null to create the
+   * indexes in the building thread.
+   */
+  public void setIndexCreationExecutor(@Nullable ExecutorService indexCreationExecutor) {
+    _indexCreationExecutor = indexCreationExecutor;
+  }
+
   public void build(@Nullable SegmentVersion segmentVersion, ServerMetrics serverMetrics)
       throws Exception {
     // lets create a record reader
@@ -120,6 +130,7 @@ public class RealtimeSegmentConverter {
     SegmentPartitionConfig segmentPartitionConfig = _realtimeSegmentImpl.getSegmentPartitionConfig();
     genConfig.setSegmentPartitionConfig(segmentPartitionConfig);
     genConfig.setNullHandlingEnabled(_nullHandlingEnabled);
+    genConfig.setIndexCreationExecutor(_indexCreationExecutor);
     final SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
     RealtimeSegmentSegmentCreationDataSource dataSource =
         new RealtimeSegmentSegmentCreationDataSource(_realtimeSegmentImpl, reader, _dataSchema);
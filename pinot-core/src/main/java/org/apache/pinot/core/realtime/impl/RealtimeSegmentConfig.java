@@ -18,7 +18,9 @@
  */
 package org.apache.pinot.core.realtime.impl;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import org.apache.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
 import org.apache.pinot.core.data.partition.PartitionFunction;
@@ -45,7 +47,10 @@ public class RealtimeSegmentConfig {
   private final PartitionFunction _partitionFunction;
   private final int _partitionId;
   private final boolean _aggregateMetrics;
+  private final Map<String, String> _aggregateMetricsFunctions;
+  private final long _aggregateMetricsTimeBucketMs;
   private final boolean _nullHandlingEnabled;
+  private final boolean _linearProbingDictionaryEnabled;
   private final String _consumerDir;
 
   // TODO: Clean up this constructor. Most of these things can be extracted from tableConfig.
@@ -54,7 +59,9 @@ public class RealtimeSegmentConfig {
       Set<String> invertedIndexColumns, Set<String> textIndexColumns,
       RealtimeSegmentZKMetadata realtimeSegmentZKMetadata, boolean offHeap, PinotDataBufferMemoryManager memoryManager,
       RealtimeSegmentStatsHistory statsHistory, String partitionColumn, PartitionFunction partitionFunction,
-      int partitionId, boolean aggregateMetrics, boolean nullHandlingEnabled, String consumerDir) {
+      int partitionId, boolean aggregateMetrics, Map<String, String> aggregateMetricsFunctions,
+      long aggregateMetricsTimeBucketMs, boolean nullHandlingEnabled, boolean linearProbingDictionaryEnabled,
+      String consumerDir) {
     _segmentName = segmentName;
     _streamName = streamName;
     _schema = schema;
@@ -73,7 +80,10 @@ public class RealtimeSegmentConfig {
     _partitionFunction = partitionFunction;
     _partitionId = partitionId;
     _aggregateMetrics = aggregateMetrics;
+    _aggregateMetricsFunctions = aggregateMetricsFunctions;
+    _aggregateMetricsTimeBucketMs = aggregateMetricsTimeBucketMs;
     _nullHandlingEnabled = nullHandlingEnabled;
+    _linearProbingDictionaryEnabled = linearProbingDictionaryEnabled;
     _consumerDir = consumerDir;
   }
 
@@ -154,10 +164,30 @@ public class RealtimeSegmentConfig {
     return _aggregateMetrics;
   }
 
+  /**
+   * Returns the map from metric column to the aggregation function (SUM, MIN or MAX) to use when aggregating metrics.
+   * Metrics not in the map are aggregated with SUM.
+   */
+  public Map<String, String> getAggregateMetricsFunctions() {
+    return _aggregateMetricsFunctions;
+  }
+
+  /**
+   * Returns the size of the bucket (in milliseconds) to truncate the time column values to when aggregating metrics,
+   * or 0 if the time values should not be truncated.
+   */
+  public long getAggregateMetricsTimeBucketMs() {
+    return _aggregateMetricsTimeBucketMs;
+  }
+
   public boolean isNullHandlingEnabled() {
     return _nullHandlingEnabled;
   }
 
+  public boolean isLinearProbingDictionaryEnabled() {
+    return _linearProbingDictionaryEnabled;
+  }
+
   public String getConsumerDir() {
     return _consumerDir;
   }
@@ -181,7 +211,10 @@ public class RealtimeSegmentConfig {
     private PartitionFunction _partitionFunction;
     private int _partitionId;
     private boolean _aggregateMetrics = false;
+    private Map<String, String> _aggregateMetricsFunctions = Collections.emptyMap();
+    private long _aggregateMetricsTimeBucketMs = 0L;
     private boolean _nullHandlingEnabled = false;
+    private boolean _linearProbingDictionaryEnabled = false;
     private String _consumerDir;
 
     public Builder() {
@@ -285,11 +318,26 @@ public class RealtimeSegmentConfig {
       return this;
     }
 
+    public Builder setAggregateMetricsFunctions(Map<String, String> aggregateMetricsFunctions) {
+      _aggregateMetricsFunctions = aggregateMetricsFunctions;
+      return this;
+    }
+
+    public Builder setAggregateMetricsTimeBucketMs(long aggregateMetricsTimeBucketMs) {
+      _aggregateMetricsTimeBucketMs = aggregateMetricsTimeBucketMs;
+      return this;
+    }
+
     public Builder setNullHandlingEnabled(boolean nullHandlingEnabled) {
       _nullHandlingEnabled = nullHandlingEnabled;
       return this;
     }
 
+    public Builder setLinearProbingDictionaryEnabled(boolean linearProbingDictionaryEnabled) {
+      _linearProbingDictionaryEnabled = linearProbingDictionaryEnabled;
+      return this;
+    }
+
     public Builder setConsumerDir(String consumerDir) {
       _consumerDir = consumerDir;
       return this;
@@ -299,7 +347,8 @@ public class RealtimeSegmentConfig {
       return new RealtimeSegmentConfig(_segmentName, _streamName, _schema, _timeColumnName, _capacity,
           _avgNumMultiValues, _noDictionaryColumns, _varLengthDictionaryColumns, _invertedIndexColumns,
           _textIndexColumns, _realtimeSegmentZKMetadata, _offHeap, _memoryManager, _statsHistory, _partitionColumn,
-          _partitionFunction, _partitionId, _aggregateMetrics, _nullHandlingEnabled, _consumerDir);
+          _partitionFunction, _partitionId, _aggregateMetrics, _aggregateMetricsFunctions, _aggregateMetricsTimeBucketMs,
+          _nullHandlingEnabled, _linearProbingDictionaryEnabled, _consumerDir);
     }
   }
 }
@@ -341,6 +341,29 @@ public class RealtimeSegmentStatsHistory implements Serializable {
     return (numRowsIndexed > 0) ? (int) (numRowsIndexed / numEntriesToScan) : DEFAULT_ROWS_TO_INDEX;
   }
 
+  /**
+   * Estimate the off-heap memory used per indexed row, based on the past consuming segments of the table.
+   * The memory used includes dictionaries and indexes, so the value reflects the dictionary growth of the table.
+   *
+   * @return estimated bytes per row, or -1 if no past segment recorded its memory usage
+   */
+  public synchronized long getEstimatedBytesPerRow() {
+    int numEntriesToScan = getNumntriesToScan();
+    long totalMemUsedBytes = 0;
+    long totalRowsIndexed = 0;
+    for (int i = 0; i < numEntriesToScan; i++) {
+      SegmentStats segmentStats = getSegmentStatsAt(i);
+      if (segmentStats.getMemUsedBytes() > 0 && segmentStats.getNumRowsIndexed() > 0) {
+        totalMemUsedBytes += segmentStats.getMemUsedBytes();
+        totalRowsIndexed += segmentStats.getNumRowsIndexed();
+      }
+    }
+    if (totalRowsIndexed > 0) {
+      return Math.max(totalMemUsedBytes / totalRowsIndexed, 1L);
+    }
+    return -1;
+  }
+
   public SegmentStats getSegmentStatsAt(int index) {
     return _entries[index];
   }
@@ -0,0 +1,385 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.realtime.impl.dictionary;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import org.apache.pinot.core.io.writer.impl.MutableOffHeapByteArrayStore;
+import org.apache.pinot.core.segment.memory.PinotDataBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Off-heap mutable dictionary for variable length values (STRING and BYTES) backed by a single open-addressing hash
+ * table with linear probing. The values themselves are stored in a {@link MutableOffHeapByteArrayStore}, where the
+ * index of the value in the store is the dictionary ID.
+ *
+ * Each slot of the hash table takes 16 bytes:
+ *
+ *   | 32-bit hash of value | dictId + 1 | key |
+ *
+ * A dictId + 1 of 0 indicates an empty slot. For values up to 7 bytes, the key is the value inlined with its length in
+ * the highest byte, so that the value is compared inline without touching the value store at all. For longer values,
+ * the key only holds the length of the value (with the highest byte set to 0xFF), and caching the hash in the slot
+ * means that a probe only touches the value store when both the hash and the length match.
+ *
+ * The table is kept at most 3/4 full. When it needs to grow, a table of twice the capacity is allocated, and the
+ * entries of the previous table are migrated a few slots at a time on each subsequent insert instead of all at once,
+ * so that there is no stop-the-world rehash on the consuming thread. While the migration is in progress, lookups check
+ * the new table first and then the previous one. Once the migration is done and no reader is looking up the previous
+ * table, it is released back to the memory manager.
+ *
+ * It should be noted that this class assumes that there is one writer and multiple readers of the dictionary. It is
+ * NOT safe for a multiple writer scenario.
+ */
+public abstract class BaseOffHeapLinearProbingMutableDictionary extends BaseMutableDictionary {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BaseOffHeapLinearProbingMutableDictionary.class);
+
+  private static final int HASH_OFFSET = 0;
+  private static final int DICT_ID_OFFSET = 4;
+  private static final int KEY_OFFSET = 8;
+  private static final int SLOT_SIZE = 16;
+  private static final int MAX_INLINE_VALUE_LENGTH = Long.BYTES - 1;
+  private static final long NON_INLINE_KEY_MASK = 0xFFL << 56;
+
+  private static final int MIN_CAPACITY = 64;
+  private static final int MAX_CAPACITY = 1 << 28;
+
+  // Number of slots of the previous table migrated on each insert. The new table has twice the capacity of the
+  // previous one and needs at least (previous capacity * 3 / 4) inserts before growing again, so this must be larger
+  // than 2 for the migration to finish before the next growth.
+  private static final int NUM_SLOTS_TO_MIGRATE_PER_INSERT = 8;
+
+  private static final long HASH_SEED = 0x9E3779B97F4A7C15L;
+  private static final long C1 = 0x87C37B91114253D5L;
+  private static final long C2 = 0x4CF5AD432745937FL;
+
+  private final PinotDataBufferMemoryManager _memoryManager;
+  private final String _allocationContext;
+  private final MutableOffHeapByteArrayStore _byteStore;
+  // Number of readers looking up the hash tables, used to decide when the previous table can be released
+  private final AtomicInteger _numActiveReaders = new AtomicInteger();
+
+  // Number of entries in the dictionary. Max dictId is _numEntries-1.
+  private volatile int _numEntries;
+  private volatile HashTables _hashTables;
+
+  // Only accessed by the writer thread
+  private int _migrationCursor;
+  private long _hashTableMemUsed;
+  // Previous table that is fully migrated, but might still be looked up by the readers
+  private HashTable _retiredHashTable;
+
+  private static class HashTable {
+    final PinotDataBuffer _buffer;
+    final int _capacity;
+    final int _mask;
+
+    HashTable(PinotDataBuffer buffer, int capacity) {
+      _buffer = buffer;
+      _capacity = capacity;
+      _mask = capacity - 1;
+    }
+  }
+
+  /**
+   * Holds the current table and the previous table being migrated (or {@code null} if there is no migration in
+   * progress), so that readers always get a consistent pair of tables.
+   */
+  private static class HashTables {
+    final HashTable _current;
+    final HashTable _previous;
+
+    HashTables(HashTable current, HashTable previous) {
+      _current = current;
+      _previous = previous;
+    }
+  }
+
+  /**
+   * @param estimatedCardinality Estimated cardinality of the dictionary
+   * @param maxOverflowSize Extra entries on top of the estimated cardinality the initial hash table should hold before
+   *                        growing
+   * @param memoryManager Memory manager to allocate the hash tables and the value store from
+   * @param allocationContext Context for allocation
+   * @param avgLength Average length of the values
+   */
+  protected BaseOffHeapLinearProbingMutableDictionary(int estimatedCardinality, int maxOverflowSize,
+      PinotDataBufferMemoryManager memoryManager, String allocationContext, int avgLength) {
+    _memoryManager = memoryManager;
+    _allocationContext = allocationContext;
+    _byteStore = new MutableOffHeapByteArrayStore(memoryManager, allocationContext, estimatedCardinality, avgLength);
+    long numEntries = (long) estimatedCardinality + Math.max(maxOverflowSize, 0);
+    int capacity = MIN_CAPACITY;
+    while (capacity < MAX_CAPACITY && !hasRoom(capacity, numEntries)) {
+      capacity <<= 1;
+    }
+    _hashTables = new HashTables(allocateHashTable(capacity), null);
+  }
+
+  /**
+   * Indexes the serialized value into the dictionary, and returns the dictId of the value.
+   */
+  protected int indexValue(byte[] value) {
+    long hash = hash(value);
+    long key = getKey(value);
+    HashTables hashTables = _hashTables;
+    int dictId = getDictId(hashTables, value, (int) hash, key);
+    if (dictId != NULL_VALUE_INDEX) {
+      return dictId;
+    }
+
+    dictId = _byteStore.add(value);
+    putSlot(hashTables._current, (int) hash, dictId + 1, key);
+    _numEntries = dictId + 1;
+
+    if (hashTables._previous != null) {
+      migrate(hashTables, NUM_SLOTS_TO_MIGRATE_PER_INSERT);
+    }
+    if (_retiredHashTable != null) {
+      releaseRetiredHashTable();
+    }
+    if (!hasRoom(_hashTables._current._capacity, _numEntries)) {
+      grow();
+    }
+    return dictId;
+  }
+
+  /**
+   * Returns the dictId of the serialized value, or {@link #NULL_VALUE_INDEX} if the value does not exist.
+   */
+  protected int getDictId(byte[] value) {
+    long hash = hash(value);
+    long key = getKey(value);
+    // NOTE: Register the reader before reading the hash tables so that the writer does not release the tables in use
+    _numActiveReaders.incrementAndGet();
+    try {
+      return getDictId(_hashTables, value, (int) hash, key);
+    } finally {
+      _numActiveReaders.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the serialized value for the given dictId.
+   */
+  protected byte[] getValue(int dictId) {
+    return _byteStore.get(dictId);
+  }
+
+  @Override
+  public int length() {
+    return _numEntries;
+  }
+
+  public int getAvgValueSize() {
+    return (int) _byteStore.getAvgValueSize();
+  }
+
+  public long getTotalOffHeapMemUsed() {
+    return _hashTableMemUsed + _byteStore.getTotalOffHeapMemUsed();
+  }
+
+  @VisibleForTesting
+  long getHashTableMemUsed() {
+    return _hashTableMemUsed;
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    // NOTE: PinotDataBuffers for the hash tables are tracked and released by the PinotDataBufferMemoryManager.
+    _byteStore.close();
+  }
+
+  private int getDictId(HashTables hashTables, byte[] value, int hash, long key) {
+    int dictId = getDictId(hashTables._current, value, hash, key);
+    if (dictId == NULL_VALUE_INDEX && hashTables._previous != null) {
+      dictId = getDictId(hashTables._previous, value, hash, key);
+    }
+    return dictId;
+  }
+
+  private int getDictId(HashTable hashTable, byte[] value, int hash, long key) {
+    PinotDataBuffer buffer = hashTable._buffer;
+    int mask = hashTable._mask;
+    boolean inline = value.length <= MAX_INLINE_VALUE_LENGTH;
+    int slot = hash & mask;
+    while (true) {
+      long offset = (long) slot * SLOT_SIZE;
+      int dictIdPlusOne = buffer.getInt(offset + DICT_ID_OFFSET);
+      if (dictIdPlusOne == 0) {
+        return NULL_VALUE_INDEX;
+      }
+      if (buffer.getLong(offset + KEY_OFFSET) == key && (inline || (buffer.getInt(offset + HASH_OFFSET) == hash
+          && _byteStore.equalsValueAt(value, dictIdPlusOne - 1)))) {
+        return dictIdPlusOne - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * Puts the entry into the first empty slot starting from the hashed slot. The dictId is written last so that readers
+   * never see a partially written slot as occupied.
+   */
+  private static void putSlot(HashTable hashTable, int hash, int dictIdPlusOne, long key) {
+    PinotDataBuffer buffer = hashTable._buffer;
+    int mask = hashTable._mask;
+    int slot = hash & mask;
+    while (buffer.getInt((long) slot * SLOT_SIZE + DICT_ID_OFFSET) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    long offset = (long) slot * SLOT_SIZE;
+    buffer.putInt(offset + HASH_OFFSET, hash);
+    buffer.putLong(offset + KEY_OFFSET, key);
+    buffer.putInt(offset + DICT_ID_OFFSET, dictIdPlusOne);
+  }
+
+  /**
+   * Migrates the next slots of the previous table into the current table, and retires the previous table once all its
+   * slots are migrated.
+   */
+  private void migrate(HashTables hashTables, int numSlots) {
+    HashTable previous = hashTables._previous;
+    PinotDataBuffer buffer = previous._buffer;
+    int endSlot = (int) Math.min((long) _migrationCursor + numSlots, previous._capacity);
+    for (int slot = _migrationCursor; slot < endSlot; slot++) {
+      long offset = (long) slot * SLOT_SIZE;
+      int dictIdPlusOne = buffer.getInt(offset + DICT_ID_OFFSET);
+      if (dictIdPlusOne != 0) {
+        putSlot(hashTables._current, buffer.getInt(offset + HASH_OFFSET), dictIdPlusOne,
+            buffer.getLong(offset + KEY_OFFSET));
+      }
+    }
+    _migrationCursor = endSlot;
+    if (endSlot == previous._capacity) {
+      _hashTables = new HashTables(hashTables._current, null);
+      _retiredHashTable = previous;
+    }
+  }
+
+  /**
+   * Releases the retired table if no reader is looking up the hash tables. Readers that start after the retired table
+   * is dropped from {@link #_hashTables} can never access it, so it is safe to release it once the active readers
+   * drain.
+   */
+  private void releaseRetiredHashTable() {
+    if (_numActiveReaders.get() != 0) {
+      return;
+    }
+    HashTable retiredHashTable = _retiredHashTable;
+    _retiredHashTable = null;
+    long size = (long) retiredHashTable._capacity * SLOT_SIZE;
+    _hashTableMemUsed -= size;
+    try {
+      _memoryManager.release(retiredHashTable._buffer);
+    } catch (IOException e) {
+      LOGGER.warn("Caught exception while releasing {} bytes of hash table for: {}", size, _allocationContext, e);
+    }
+  }
+
+  private void grow() {
+    HashTables hashTables = _hashTables;
+    if (hashTables._previous != null) {
+      // Should not happen as the migration always finishes before the next growth, but finish it just in case
+      migrate(hashTables, hashTables._previous._capacity);
+      hashTables = _hashTables;
+    }
+    HashTable current = hashTables._current;
+    Preconditions.checkState(current._capacity < MAX_CAPACITY, "Cannot grow hash table beyond capacity: %s for: %s",
+        MAX_CAPACITY, _allocationContext);
+    _migrationCursor = 0;
+    _hashTables = new HashTables(allocateHashTable(current._capacity << 1), current);
+  }
+
+  private HashTable allocateHashTable(int capacity) {
+    long size = (long) capacity * SLOT_SIZE;
+    LOGGER.info("Allocating {} bytes for hash table with capacity {} for: {}", size, capacity, _allocationContext);
+    // NOTE: PinotDataBuffer is tracked in the PinotDataBufferMemoryManager. No need to track it inside the class.
+    PinotDataBuffer buffer = _memoryManager.allocate(size, _allocationContext);
+    for (long offset = 0; offset < size; offset += Long.BYTES) {
+      buffer.putLong(offset, 0L);
+    }
+    _hashTableMemUsed += size;
+    return new HashTable(buffer, capacity);
+  }
+
+  /**
+   * Returns whether a hash table of the given capacity can hold the given number of entries within the max load factor
+   * of 3/4.
+   */
+  private static boolean hasRoom(int capacity, long numEntries) {
+    return 4 * numEntries <= 3L * capacity;
+  }
+
+  /**
+   * Returns the key stored in the slot for the value: the value inlined with its length in the highest byte if it is
+   * short enough, or the length of the value with the highest byte set otherwise.
+   */
+  private static long getKey(byte[] value) {
+    int length = value.length;
+    if (length <= MAX_INLINE_VALUE_LENGTH) {
+      return ((long) length << 56) | pack(value, 0, length);
+    } else {
+      return NON_INLINE_KEY_MASK | length;
+    }
+  }
+
+  private static long pack(byte[] value, int startIndex, int endIndex) {
+    long packed = 0L;
+    for (int i = endIndex - 1; i >= startIndex; i--) {
+      packed = (packed << 8) | (value[i] & 0xFFL);
+    }
+    return packed;
+  }
+
+  /**
+   * Computes the 64-bit hash of the value, processing 8 bytes at a time with the MurmurHash3 mixing functions.
+   */
+  static long hash(byte[] value) {
+    int length = value.length;
+    long hash = HASH_SEED ^ (length * C1);
+    int i = 0;
+    for (; i + Long.BYTES <= length; i += Long.BYTES) {
+      hash = Long.rotateLeft(hash ^ mixK(pack(value, i, i + Long.BYTES)), 27) * 5 + 0x52DCE729;
+    }
+    if (i < length) {
+      hash ^= mixK(pack(value, i, length));
+    }
+    return fmix64(hash);
+  }
+
+  private static long mixK(long k) {
+    return Long.rotateLeft(k * C1, 31) * C2;
+  }
+
+  private static long fmix64(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -28,6 +28,17 @@ public class MutableDictionaryFactory {
 
   public static BaseMutableDictionary getMutableDictionary(FieldSpec.DataType dataType, boolean isOffHeapAllocation,
       PinotDataBufferMemoryManager memoryManager, int avgLength, int cardinality, String allocationContext) {
+    return getMutableDictionary(dataType, isOffHeapAllocation, false, memoryManager, avgLength, cardinality,
+        allocationContext);
+  }
+
+  /**
+   * Returns a mutable dictionary for the given data type. When {@code isLinearProbing} is set, off-heap STRING and
+   * BYTES dictionaries use the open-addressing hash table in {@link BaseOffHeapLinearProbingMutableDictionary}.
+   */
+  public static BaseMutableDictionary getMutableDictionary(FieldSpec.DataType dataType, boolean isOffHeapAllocation,
+      boolean isLinearProbing, PinotDataBufferMemoryManager memoryManager, int avgLength, int cardinality,
+      String allocationContext) {
     if (isOffHeapAllocation) {
       // OnHeap allocation
       int maxOverflowSize = cardinality / 10;
@@ -41,9 +52,17 @@ public class MutableDictionaryFactory {
         case DOUBLE:
           return new DoubleOffHeapMutableDictionary(cardinality, maxOverflowSize, memoryManager, allocationContext);
         case STRING:
+          if (isLinearProbing) {
+            return new StringOffHeapLinearProbingMutableDictionary(cardinality, maxOverflowSize, memoryManager,
+                allocationContext, avgLength);
+          }
           return new StringOffHeapMutableDictionary(cardinality, maxOverflowSize, memoryManager, allocationContext,
               avgLength);
         case BYTES:
+          if (isLinearProbing) {
+            return new BytesOffHeapLinearProbingMutableDictionary(cardinality, maxOverflowSize, memoryManager,
+                allocationContext, avgLength);
+          }
           return new BytesOffHeapMutableDictionary(cardinality, maxOverflowSize, memoryManager, allocationContext,
               avgLength);
         default:
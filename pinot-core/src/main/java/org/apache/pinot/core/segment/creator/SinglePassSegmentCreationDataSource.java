@@ -0,0 +1,330 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.segment.creator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.Utils;
+import org.apache.pinot.core.data.recordtransformer.CompositeTransformer;
+import org.apache.pinot.core.data.recordtransformer.RecordTransformer;
+import org.apache.pinot.core.segment.creator.impl.stats.SegmentPreIndexStatsCollectorImpl;
+import org.apache.pinot.core.util.IngestionUtils;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.data.readers.RecordReader;
+import org.apache.pinot.spi.data.readers.RecordReaderConfig;
+import org.apache.pinot.spi.utils.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * {@link SegmentCreationDataSource} that reads the underlying {@link RecordReader} only once.
+ * <p>While gathering the stats, the transformed rows are also spilled into a compact binary file (only the schema
+ * columns are kept, encoded with their stored data type). After the stats are gathered, {@link #getRecordReader()}
+ * returns a record reader over the spill file, so that the index creation pass does not need to read and decode the
+ * input (e.g. Parquet, ORC) again, nor to re-apply the record transformers.
+ * <p>The spill file is deleted, and the underlying record reader is closed, when the returned record reader is closed.
+ */
+public class SinglePassSegmentCreationDataSource implements SegmentCreationDataSource {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SinglePassSegmentCreationDataSource.class);
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  // Flags stored in front of each value in the spill file
+  private static final byte VALUE_ABSENT = 0;
+  private static final byte VALUE_PRESENT = 1;
+  private static final byte VALUE_DEFAULT_NULL = 2;
+
+  private final RecordReader _recordReader;
+  private final File _spillFile;
+
+  private SpillFileRecordReader _spillFileRecordReader;
+
+  /**
+   * @param recordReader Record reader of the input data
+   * @param spillFile File to spill the transformed rows into, must not exist
+   */
+  public SinglePassSegmentCreationDataSource(RecordReader recordReader, File spillFile) {
+    _recordReader = recordReader;
+    _spillFile = spillFile;
+  }
+
+  @Override
+  public SegmentPreIndexStatsCollector gatherStats(StatsCollectorConfig statsCollectorConfig) {
+    List<FieldSpec> fieldSpecs = new ArrayList<>();
+    for (FieldSpec fieldSpec : statsCollectorConfig.getSchema().getAllFieldSpecs()) {
+      if (!fieldSpec.isVirtualColumn()) {
+        fieldSpecs.add(fieldSpec);
+      }
+    }
+
+    try (DataOutputStream spillOutput = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(_spillFile), BUFFER_SIZE))) {
+      RecordTransformer recordTransformer = CompositeTransformer
+          .getDefaultTransformer(statsCollectorConfig.getTableConfig(), statsCollectorConfig.getSchema());
+
+      SegmentPreIndexStatsCollector collector = new SegmentPreIndexStatsCollectorImpl(statsCollectorConfig);
+      collector.init();
+
+      // Gather the stats and spill the rows
+      int numRows = 0;
+      GenericRow reuse = new GenericRow();
+      while (_recordReader.hasNext()) {
+        reuse.clear();
+
+        reuse = _recordReader.next(reuse);
+        if (reuse.getValue(GenericRow.MULTIPLE_RECORDS_KEY) != null) {
+          for (Object singleRow : (Collection) reuse.getValue(GenericRow.MULTIPLE_RECORDS_KEY)) {
+            GenericRow transformedRow = recordTransformer.transform((GenericRow) singleRow);
+            if (transformedRow != null && IngestionUtils.shouldIngestRow(transformedRow)) {
+              collector.collectRow(transformedRow);
+              writeRow(spillOutput, transformedRow, fieldSpecs);
+              numRows++;
+            }
+          }
+        } else {
+          GenericRow transformedRow = recordTransformer.transform(reuse);
+          if (transformedRow != null && IngestionUtils.shouldIngestRow(transformedRow)) {
+            collector.collectRow(transformedRow);
+            writeRow(spillOutput, transformedRow, fieldSpecs);
+            numRows++;
+          }
+        }
+      }
+
+      collector.build();
+      spillOutput.close();
+      LOGGER.info("Spilled {} rows into file: {} of size: {} bytes", numRows, _spillFile, _spillFile.length());
+      _spillFileRecordReader = new SpillFileRecordReader(_spillFile, fieldSpecs, numRows, _recordReader);
+      return collector;
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while gathering stats", e);
+      FileUtils.deleteQuietly(_spillFile);
+      Utils.rethrowException(e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the underlying record reader before the stats are gathered, or the record reader over the spill file
+   * after the stats are gathered.
+   */
+  @Override
+  public RecordReader getRecordReader() {
+    try {
+      if (_spillFileRecordReader != null) {
+        _spillFileRecordReader.rewind();
+        return _spillFileRecordReader;
+      } else {
+        _recordReader.rewind();
+        return _recordReader;
+      }
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while rewinding record reader", e);
+      Utils.rethrowException(e);
+      return null;
+    }
+  }
+
+  private static void writeRow(DataOutputStream output, GenericRow row, List<FieldSpec> fieldSpecs)
+      throws IOException {
+    for (FieldSpec fieldSpec : fieldSpecs) {
+      String column = fieldSpec.getName();
+      Object value = row.getValue(column);
+      if (value == null) {
+        output.writeByte(VALUE_ABSENT);
+        continue;
+      }
+      output.writeByte(row.isNullValue(column) ? VALUE_DEFAULT_NULL : VALUE_PRESENT);
+      DataType dataType = fieldSpec.getDataType();
+      if (fieldSpec.isSingleValueField()) {
+        writeValue(output, dataType, value);
+      } else {
+        Object[] values = (Object[]) value;
+        output.writeInt(values.length);
+        for (Object singleValue : values) {
+          writeValue(output, dataType, singleValue);
+        }
+      }
+    }
+  }
+
+  private static void writeValue(DataOutputStream output, DataType dataType, Object value)
+      throws IOException {
+    switch (dataType) {
+      case INT:
+        output.writeInt((int) value);
+        break;
+      case LONG:
+        output.writeLong((long) value);
+        break;
+      case FLOAT:
+        output.writeFloat((float) value);
+        break;
+      case DOUBLE:
+        output.writeDouble((double) value);
+        break;
+      case STRING:
+        writeBytes(output, StringUtils.encodeUtf8((String) value));
+        break;
+      case BYTES:
+        writeBytes(output, (byte[]) value);
+        break;
+      default:
+        throw new IllegalStateException("Unsupported data type: " + dataType);
+    }
+  }
+
+  private static void writeBytes(DataOutputStream output, byte[] bytes)
+      throws IOException {
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  /**
+   * Record reader over the rows spilled by {@link #gatherStats(StatsCollectorConfig)}.
+   */
+  private static class SpillFileRecordReader implements RecordReader {
+    private final File _spillFile;
+    private final List<FieldSpec> _fieldSpecs;
+    private final int _numRows;
+    private final RecordReader _inputRecordReader;
+
+    private DataInputStream _spillInput;
+    private int _nextRowId;
+
+    SpillFileRecordReader(File spillFile, List<FieldSpec> fieldSpecs, int numRows, RecordReader inputRecordReader)
+        throws IOException {
+      _spillFile = spillFile;
+      _fieldSpecs = fieldSpecs;
+      _numRows = numRows;
+      _inputRecordReader = inputRecordReader;
+      open();
+    }
+
+    private void open()
+        throws IOException {
+      _spillInput = new DataInputStream(new BufferedInputStream(new FileInputStream(_spillFile), BUFFER_SIZE));
+      _nextRowId = 0;
+    }
+
+    @Override
+    public void init(File dataFile, Set<String> fieldsToRead, @Nullable RecordReaderConfig recordReaderConfig) {
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _nextRowId < _numRows;
+    }
+
+    @Override
+    public GenericRow next()
+        throws IOException {
+      return next(new GenericRow());
+    }
+
+    @Override
+    public GenericRow next(GenericRow reuse)
+        throws IOException {
+      for (FieldSpec fieldSpec : _fieldSpecs) {
+        byte flag = _spillInput.readByte();
+        if (flag == VALUE_ABSENT) {
+          continue;
+        }
+        DataType dataType = fieldSpec.getDataType();
+        Object value;
+        if (fieldSpec.isSingleValueField()) {
+          value = readValue(dataType);
+        } else {
+          int numValues = _spillInput.readInt();
+          Object[] values = new Object[numValues];
+          for (int i = 0; i < numValues; i++) {
+            values[i] = readValue(dataType);
+          }
+          value = values;
+        }
+        if (flag == VALUE_DEFAULT_NULL) {
+          reuse.putDefaultNullValue(fieldSpec.getName(), value);
+        } else {
+          reuse.putValue(fieldSpec.getName(), value);
+        }
+      }
+      _nextRowId++;
+      return reuse;
+    }
+
+    private Object readValue(DataType dataType)
+        throws IOException {
+      switch (dataType) {
+        case INT:
+          return _spillInput.readInt();
+        case LONG:
+          return _spillInput.readLong();
+        case FLOAT:
+          return _spillInput.readFloat();
+        case DOUBLE:
+          return _spillInput.readDouble();
+        case STRING:
+          return StringUtils.decodeUtf8(readBytes());
+        case BYTES:
+          return readBytes();
+        default:
+          throw new IllegalStateException("Unsupported data type: " + dataType);
+      }
+    }
+
+    private byte[] readBytes()
+        throws IOException {
+      byte[] bytes = new byte[_spillInput.readInt()];
+      _spillInput.readFully(bytes);
+      return bytes;
+    }
+
+    @Override
+    public void rewind()
+        throws IOException {
+      _spillInput.close();
+      open();
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      try {
+        _spillInput.close();
+      } finally {
+        FileUtils.deleteQuietly(_spillFile);
+        _inputRecordReader.close();
+      }
+    }
+  }
+}
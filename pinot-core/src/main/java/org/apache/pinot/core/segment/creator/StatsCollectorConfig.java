@@ -19,6 +19,7 @@
 package org.apache.pinot.core.segment.creator;
 
 import com.google.common.base.Preconditions;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.apache.pinot.core.data.partition.PartitionFunction;
@@ -38,6 +39,7 @@ public class StatsCollectorConfig {
   private final TableConfig _tableConfig;
   private final Schema _schema;
   private final SegmentPartitionConfig _segmentPartitionConfig;
+  private final ExecutorService _executorService;
 
   /**
    * Constructor for the class.
@@ -45,11 +47,23 @@ public class StatsCollectorConfig {
    * @param segmentPartitionConfig Segment partitioning config
    */
   public StatsCollectorConfig(TableConfig tableConfig, Schema schema, @Nullable SegmentPartitionConfig segmentPartitionConfig) {
+    this(tableConfig, schema, segmentPartitionConfig, null);
+  }
+
+  /**
+   * Constructor for the class.
+   * @param schema Data schema
+   * @param segmentPartitionConfig Segment partitioning config
+   * @param executorService Executor service to seal the per-column stats in parallel, or null to seal them serially
+   */
+  public StatsCollectorConfig(TableConfig tableConfig, Schema schema,
+      @Nullable SegmentPartitionConfig segmentPartitionConfig, @Nullable ExecutorService executorService) {
     Preconditions.checkNotNull(tableConfig);
     Preconditions.checkNotNull(schema);
     _tableConfig = tableConfig;
     _schema = schema;
     _segmentPartitionConfig = segmentPartitionConfig;
+    _executorService = executorService;
   }
 
   @Nullable
@@ -87,4 +101,9 @@ public class StatsCollectorConfig {
   public TableConfig getTableConfig() {
     return _tableConfig;
   }
+
+  @Nullable
+  public ExecutorService getExecutorService() {
+    return _executorService;
+  }
 }
@@ -23,12 +23,19 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.pinot.common.utils.FileUtils;
@@ -73,11 +80,21 @@ import static org.apache.pinot.core.segment.creator.impl.V1Constants.MetadataKey
 
 /**
  * Segment creator which writes data in a columnar form.
+ * <p>When an executor service is provided, the indexes of different columns are created in parallel: dictionaries are
+ * built concurrently, rows are buffered in batches and each batch is indexed with one task per column (while the next
+ * batch is being read), and the inverted/text/null value indexes are sealed concurrently. The indexes of a column are
+ * only accessed by one thread at a time.
  */
 // TODO: check resource leaks
 public class SegmentColumnarIndexCreator implements SegmentCreator {
   // TODO Refactor class name to match interface name
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentColumnarIndexCreator.class);
+  // Number of rows to buffer before indexing them in parallel
+  private static final int PARALLEL_INDEXING_BATCH_SIZE = 1024;
+
+  private final ExecutorService _executorService;
+  private final List<Future<?>> _pendingIndexingFutures = new ArrayList<>();
+  private List<GenericRow> _rowBatch = new ArrayList<>(PARALLEL_INDEXING_BATCH_SIZE);
   private SegmentGeneratorConfig config;
   private Map<String, ColumnIndexCreationInfo> indexCreationInfoMap;
   private Map<String, SegmentDictionaryCreator> _dictionaryCreatorMap = new HashMap<>();
@@ -94,6 +111,18 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
 
   private final Set<String> _textIndexColumns = new HashSet<>();
 
+  public SegmentColumnarIndexCreator() {
+    this(null);
+  }
+
+  /**
+   * @param executorService Executor service to create the indexes of different columns in parallel, or null to create
+   *                        them serially
+   */
+  public SegmentColumnarIndexCreator(@Nullable ExecutorService executorService) {
+    _executorService = executorService;
+  }
+
   @Override
   public void init(SegmentGeneratorConfig segmentCreationSpec, SegmentIndexCreationInfo segmentIndexCreationInfo,
       Map<String, ColumnIndexCreationInfo> indexCreationInfoMap, Schema schema, File outDir)
@@ -126,6 +155,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     }
 
     // Initialize creators for dictionary, forward index and inverted index
+    List<Callable<Void>> dictionaryBuildTasks = new ArrayList<>();
     for (FieldSpec fieldSpec : fieldSpecs) {
       // Ignore virtual columns
       if (fieldSpec.isVirtualColumn()) {
@@ -146,13 +176,17 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
         _dictionaryCreatorMap.put(columnName, dictionaryCreator);
 
         // Create dictionary
-        try {
-          dictionaryCreator.build();
-        } catch (Exception e) {
-          LOGGER.error("Error building dictionary for field: {}, cardinality: {}, number of bytes per entry: {}",
-              fieldSpec.getName(), indexCreationInfo.getDistinctValueCount(), dictionaryCreator.getNumBytesPerEntry());
-          throw e;
-        }
+        dictionaryBuildTasks.add(() -> {
+          try {
+            dictionaryCreator.build();
+          } catch (Exception e) {
+            LOGGER.error("Error building dictionary for field: {}, cardinality: {}, number of bytes per entry: {}",
+                fieldSpec.getName(), indexCreationInfo.getDistinctValueCount(),
+                dictionaryCreator.getNumBytesPerEntry());
+            throw e;
+          }
+          return null;
+        });
 
         // Initialize forward index creator
         int cardinality = indexCreationInfo.getDistinctValueCount();
@@ -218,6 +252,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
         _nullValueVectorCreatorMap.put(columnName, new NullValueVectorCreator(_indexDir, columnName));
       }
     }
+    runTasks(dictionaryBuildTasks);
   }
 
   public static boolean shouldDeriveNumDocsPerChunk(String columnName,
@@ -304,82 +339,125 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
 
   @Override
   public void indexRow(GenericRow row) {
+    if (_executorService == null) {
+      for (Map.Entry<String, ForwardIndexCreator> entry : _forwardIndexCreatorMap.entrySet()) {
+        indexColumn(entry.getKey(), entry.getValue(), row, docIdCounter);
+      }
+      docIdCounter++;
+    } else {
+      // NOTE: Make a copy of the row because the caller might reuse it
+      GenericRow rowCopy = new GenericRow();
+      rowCopy.init(row);
+      _rowBatch.add(rowCopy);
+      if (_rowBatch.size() == PARALLEL_INDEXING_BATCH_SIZE) {
+        submitRowBatch();
+      }
+    }
+  }
+
+  /**
+   * Submits one task per column to index the buffered rows. Waits for the previous batch to be indexed before
+   * submitting the tasks so that each column is only indexed by one thread at a time and the rows are indexed in order.
+   */
+  private void submitRowBatch() {
+    waitForPendingIndexing();
+    List<GenericRow> rows = _rowBatch;
+    int startDocId = docIdCounter;
     for (Map.Entry<String, ForwardIndexCreator> entry : _forwardIndexCreatorMap.entrySet()) {
       String columnName = entry.getKey();
       ForwardIndexCreator forwardIndexCreator = entry.getValue();
+      _pendingIndexingFutures.add(_executorService.submit(() -> {
+        int docId = startDocId;
+        for (GenericRow row : rows) {
+          indexColumn(columnName, forwardIndexCreator, row, docId++);
+        }
+      }));
+    }
+    docIdCounter += rows.size();
+    _rowBatch = new ArrayList<>(PARALLEL_INDEXING_BATCH_SIZE);
+  }
 
-      Object columnValueToIndex = row.getValue(columnName);
-      if (columnValueToIndex == null) {
-        throw new RuntimeException("Null value for column:" + columnName);
-      }
+  private void waitForPendingIndexing() {
+    try {
+      waitForAll(_pendingIndexingFutures);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Caught exception while indexing rows", e);
+    }
+  }
 
-      boolean isSingleValue = schema.getFieldSpecFor(columnName).isSingleValueField();
-      SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
-
-      if (isSingleValue) {
-        // SV column
-        if (dictionaryCreator != null) {
-          // dictionary encoded SV column
-          // get dictID from dictionary
-          int dictId = dictionaryCreator.indexOfSV(columnValueToIndex);
-          // store the docID -> dictID mapping in forward index
-          forwardIndexCreator.putDictId(dictId);
-          DictionaryBasedInvertedIndexCreator invertedIndexCreator = _invertedIndexCreatorMap.get(columnName);
-          if (invertedIndexCreator != null) {
-            // if inverted index enabled during segment creation,
-            // then store dictID -> docID mapping in inverted index
-            invertedIndexCreator.add(dictId);
-          }
-        } else {
-          // non-dictionary encoded SV column
-          // store the docId -> raw value mapping in forward index
-          switch (forwardIndexCreator.getValueType()) {
-            case INT:
-              forwardIndexCreator.putInt((int) columnValueToIndex);
-              break;
-            case LONG:
-              forwardIndexCreator.putLong((long) columnValueToIndex);
-              break;
-            case FLOAT:
-              forwardIndexCreator.putFloat((float) columnValueToIndex);
-              break;
-            case DOUBLE:
-              forwardIndexCreator.putDouble((double) columnValueToIndex);
-              break;
-            case STRING:
-              forwardIndexCreator.putString((String) columnValueToIndex);
-              break;
-            case BYTES:
-              forwardIndexCreator.putBytes((byte[]) columnValueToIndex);
-              break;
-            default:
-              throw new IllegalStateException();
-          }
-        }
-        // text-index enabled SV column
-        if (_textIndexColumns.contains(columnName)) {
-          DictionaryBasedInvertedIndexCreator textIndexCreator = _textIndexCreatorMap.get(columnName);
-          // add the column value to lucene index
-          textIndexCreator.addDoc(columnValueToIndex, docIdCounter);
-        }
-      } else {
-        // MV column (always dictionary encoded)
-        int[] dictIds = dictionaryCreator.indexOfMV(columnValueToIndex);
-        forwardIndexCreator.putDictIdMV(dictIds);
+  private void indexColumn(String columnName, ForwardIndexCreator forwardIndexCreator, GenericRow row, int docId) {
+    Object columnValueToIndex = row.getValue(columnName);
+    if (columnValueToIndex == null) {
+      throw new RuntimeException("Null value for column:" + columnName);
+    }
+
+    boolean isSingleValue = schema.getFieldSpecFor(columnName).isSingleValueField();
+    SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
+
+    if (isSingleValue) {
+      // SV column
+      if (dictionaryCreator != null) {
+        // dictionary encoded SV column
+        // get dictID from dictionary
+        int dictId = dictionaryCreator.indexOfSV(columnValueToIndex);
+        // store the docID -> dictID mapping in forward index
+        forwardIndexCreator.putDictId(dictId);
         DictionaryBasedInvertedIndexCreator invertedIndexCreator = _invertedIndexCreatorMap.get(columnName);
         if (invertedIndexCreator != null) {
-          invertedIndexCreator.add(dictIds, dictIds.length);
+          // if inverted index enabled during segment creation,
+          // then store dictID -> docID mapping in inverted index
+          invertedIndexCreator.add(dictId);
+        }
+      } else {
+        // non-dictionary encoded SV column
+        // store the docId -> raw value mapping in forward index
+        switch (forwardIndexCreator.getValueType()) {
+          case INT:
+            forwardIndexCreator.putInt((int) columnValueToIndex);
+            break;
+          case LONG:
+            forwardIndexCreator.putLong((long) columnValueToIndex);
+            break;
+          case FLOAT:
+            forwardIndexCreator.putFloat((float) columnValueToIndex);
+            break;
+          case DOUBLE:
+            forwardIndexCreator.putDouble((double) columnValueToIndex);
+            break;
+          case STRING:
+            forwardIndexCreator.putString((String) columnValueToIndex);
+            break;
+          case BYTES:
+            forwardIndexCreator.putBytes((byte[]) columnValueToIndex);
+            break;
+          default:
+            throw new IllegalStateException();
         }
       }
+      // text-index enabled SV column
+      if (_textIndexColumns.contains(columnName)) {
+        DictionaryBasedInvertedIndexCreator textIndexCreator = _textIndexCreatorMap.get(columnName);
+        // add the column value to lucene index
+        textIndexCreator.addDoc(columnValueToIndex, docId);
+      }
+    } else {
+      // MV column (always dictionary encoded)
+      int[] dictIds = dictionaryCreator.indexOfMV(columnValueToIndex);
+      forwardIndexCreator.putDictIdMV(dictIds);
+      DictionaryBasedInvertedIndexCreator invertedIndexCreator = _invertedIndexCreatorMap.get(columnName);
+      if (invertedIndexCreator != null) {
+        invertedIndexCreator.add(dictIds, dictIds.length);
+      }
+    }
 
-      if (_nullHandlingEnabled) {
-        // If row has null value for given column name, add to null value vector
-        if (row.isNullValue(columnName)) {
-          _nullValueVectorCreatorMap.get(columnName).setNull(docIdCounter);
-        }
+    if (_nullHandlingEnabled) {
+      // If row has null value for given column name, add to null value vector
+      if (row.isNullValue(columnName)) {
+        _nullValueVectorCreatorMap.get(columnName).setNull(docId);
       }
     }
-    docIdCounter++;
   }
 
   @Override
@@ -390,18 +468,93 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   @Override
   public void seal()
       throws ConfigurationException, IOException {
+    if (_executorService != null) {
+      // Index the remaining buffered rows
+      if (!_rowBatch.isEmpty()) {
+        submitRowBatch();
+      }
+      waitForPendingIndexing();
+    }
+    List<Callable<Void>> sealTasks = new ArrayList<>();
     for (DictionaryBasedInvertedIndexCreator invertedIndexCreator : _invertedIndexCreatorMap.values()) {
-      invertedIndexCreator.seal();
+      sealTasks.add(() -> {
+        invertedIndexCreator.seal();
+        return null;
+      });
     }
     for (DictionaryBasedInvertedIndexCreator textIndexCreator : _textIndexCreatorMap.values()) {
-      textIndexCreator.seal();
+      sealTasks.add(() -> {
+        textIndexCreator.seal();
+        return null;
+      });
     }
     for (NullValueVectorCreator nullValueVectorCreator : _nullValueVectorCreatorMap.values()) {
-      nullValueVectorCreator.seal();
+      sealTasks.add(() -> {
+        nullValueVectorCreator.seal();
+        return null;
+      });
+    }
+    try {
+      runTasks(sealTasks);
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("Caught exception while sealing the indexes", e);
     }
     writeMetadata();
   }
 
+  /**
+   * Runs the given tasks in parallel if the executor service is provided, or serially otherwise. Waits for all the
+   * tasks to finish, and throws the first exception encountered (if any).
+   */
+  private void runTasks(List<Callable<Void>> tasks)
+      throws Exception {
+    if (_executorService == null) {
+      for (Callable<Void> task : tasks) {
+        task.call();
+      }
+    } else {
+      List<Future<?>> futures = new ArrayList<>(tasks.size());
+      for (Callable<Void> task : tasks) {
+        futures.add(_executorService.submit(task));
+      }
+      waitForAll(futures);
+    }
+  }
+
+  /**
+   * Waits for all the given futures to finish and clears the list, then throws the first exception encountered (if
+   * any). The futures not finished yet are cancelled if the current thread is interrupted.
+   */
+  private static void waitForAll(List<Future<?>> futures)
+      throws Exception {
+    Exception exception = null;
+    try {
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (exception == null) {
+            Throwable cause = e.getCause();
+            exception = cause instanceof Exception ? (Exception) cause : e;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+      Thread.currentThread().interrupt();
+      exception = e;
+    } finally {
+      futures.clear();
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
   private void writeMetadata()
       throws ConfigurationException {
     PropertiesConfiguration properties =
@@ -618,6 +771,12 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   @Override
   public void close()
       throws IOException {
+    // Wait for the pending indexing tasks before closing the index creators
+    try {
+      waitForAll(_pendingIndexingFutures);
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while waiting for the pending indexing tasks", e);
+    }
     FileUtils.close(Iterables
         .concat(_dictionaryCreatorMap.values(), _forwardIndexCreatorMap.values(), _invertedIndexCreatorMap.values(),
             _textIndexCreatorMap.values(), _nullValueVectorCreatorMap.values()));
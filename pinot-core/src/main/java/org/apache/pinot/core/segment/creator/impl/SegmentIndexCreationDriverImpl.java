@@ -19,6 +19,8 @@
 package org.apache.pinot.core.segment.creator.impl;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.Closeable;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -30,6 +32,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.pinot.core.data.readers.PinotSegmentRecordReader;
@@ -45,9 +51,11 @@ import org.apache.pinot.core.segment.creator.SegmentCreator;
 import org.apache.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import org.apache.pinot.core.segment.creator.SegmentIndexCreationInfo;
 import org.apache.pinot.core.segment.creator.SegmentPreIndexStatsContainer;
+import org.apache.pinot.core.segment.creator.SinglePassSegmentCreationDataSource;
 import org.apache.pinot.core.segment.creator.StatsCollectorConfig;
 import org.apache.pinot.core.segment.index.converter.SegmentFormatConverter;
 import org.apache.pinot.core.segment.index.converter.SegmentFormatConverterFactory;
+import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
 import org.apache.pinot.core.segment.store.SegmentDirectoryPaths;
 import org.apache.pinot.core.startree.v2.builder.MultipleTreesBuilder;
 import org.apache.pinot.core.util.CrcUtils;
@@ -69,9 +77,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Implementation of an index segment creator.
+ * <p>The resources acquired in init() are released by build(). When build() might not be invoked after a successful
+ * init(), {@link #close()} should be invoked to release them.
  */
 // TODO: Check resource leaks
-public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDriver {
+public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDriver, Closeable {
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentIndexCreationDriverImpl.class);
 
   private SegmentGeneratorConfig config;
@@ -89,6 +99,11 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   private long totalRecordReadTime = 0;
   private long totalIndexTime = 0;
   private long totalStatsCollectorTime = 0;
+  // Bounded thread pool to create the indexes of different columns in parallel, null if single-threaded
+  private ExecutorService _executorService;
+  // Whether the thread pool is created for this segment (instead of shared from the config) and should be shut down
+  private boolean _shutDownExecutorService;
+  private boolean _recordReaderClosed;
 
   @Override
   public void init(SegmentGeneratorConfig config)
@@ -136,8 +151,19 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
 
   public void init(SegmentGeneratorConfig config, RecordReader recordReader)
       throws Exception {
-    init(config, new RecordReaderSegmentCreationDataSource(recordReader),
-        CompositeTransformer.getDefaultTransformer(config.getTableConfig(), config.getSchema()));
+    if (config.isSinglePassCreation()) {
+      // The rows are transformed once while gathering the stats, then read back from the spill file
+      File outDir = new File(config.getOutDir());
+      if (!outDir.exists()) {
+        outDir.mkdirs();
+      }
+      File spillFile = new File(outDir, "tmp-spill-" + UUID.randomUUID());
+      init(config, new SinglePassSegmentCreationDataSource(recordReader, spillFile),
+          CompositeTransformer.getPassThroughTransformer());
+    } else {
+      init(config, new RecordReaderSegmentCreationDataSource(recordReader),
+          CompositeTransformer.getDefaultTransformer(config.getTableConfig(), config.getSchema()));
+    }
   }
 
   public void init(SegmentGeneratorConfig config, SegmentCreationDataSource dataSource,
@@ -145,22 +171,56 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       throws Exception {
     this.config = config;
     recordReader = dataSource.getRecordReader();
+    try {
+      initIndexCreation(dataSource, recordTransformer);
+    } catch (Exception e) {
+      // Release the resources (e.g. the spill file of the single-pass creation) as build() will not be invoked
+      close();
+      throw e;
+    }
+  }
+
+  private void initIndexCreation(SegmentCreationDataSource dataSource, RecordTransformer recordTransformer)
+      throws Exception {
     Preconditions.checkState(recordReader.hasNext(), "No record in data source");
     dataSchema = config.getSchema();
 
     _recordTransformer = recordTransformer;
 
+    int numIndexCreationThreads = config.getNumIndexCreationThreads();
+    ExecutorService indexCreationExecutor = config.getIndexCreationExecutor();
+    if (indexCreationExecutor != null) {
+      _executorService = indexCreationExecutor;
+      LOGGER.info("Creating indexes with the shared index creation executor");
+    } else if (numIndexCreationThreads > 1) {
+      ThreadPoolExecutor executor =
+          new ThreadPoolExecutor(numIndexCreationThreads, numIndexCreationThreads, 1L, TimeUnit.MINUTES,
+              new LinkedBlockingQueue<>(),
+              new ThreadFactoryBuilder().setDaemon(true).setNameFormat("segment-index-creation-%d").build());
+      executor.allowCoreThreadTimeOut(true);
+      _executorService = executor;
+      _shutDownExecutorService = true;
+      LOGGER.info("Creating indexes with {} threads", numIndexCreationThreads);
+    }
+
     // Initialize stats collection
-    segmentStats = dataSource
-        .gatherStats(new StatsCollectorConfig(config.getTableConfig(), dataSchema, config.getSegmentPartitionConfig()));
+    segmentStats = dataSource.gatherStats(
+        new StatsCollectorConfig(config.getTableConfig(), dataSchema, config.getSegmentPartitionConfig(),
+            _executorService));
     totalDocs = segmentStats.getTotalDocCount();
 
+    _ingestionSchemaValidator = SchemaValidatorFactory.getSchemaValidator(dataSchema, recordReader.getClass().getName(),
+        config.getInputFilePath());
+
+    // The data source might provide a different record reader to create the indexes once the stats are gathered
+    recordReader = dataSource.getRecordReader();
+
     // Initialize index creation
     segmentIndexCreationInfo = new SegmentIndexCreationInfo();
     indexCreationInfoMap = new HashMap<>();
 
     // Check if has star tree
-    indexCreator = new SegmentColumnarIndexCreator();
+    indexCreator = new SegmentColumnarIndexCreator(_executorService);
 
     // Ensure that the output directory exists
     final File indexDir = new File(config.getOutDir());
@@ -168,9 +228,6 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       indexDir.mkdirs();
     }
 
-    _ingestionSchemaValidator = SchemaValidatorFactory.getSchemaValidator(dataSchema, recordReader.getClass().getName(),
-        config.getInputFilePath());
-
     // Create a temporary directory used in segment creation
     tempIndexDir = new File(indexDir, "tmp-" + UUID.randomUUID());
     LOGGER.debug("tempIndexDir:{}", tempIndexDir);
@@ -179,6 +236,15 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   @Override
   public void build()
       throws Exception {
+    try {
+      buildSegment();
+    } finally {
+      shutDownExecutorService();
+    }
+  }
+
+  private void buildSegment()
+      throws Exception {
     // Count the number of documents and gather per-column statistics
     LOGGER.debug("Start building StatsCollector!");
     buildIndexCreationInfo();
@@ -228,13 +294,42 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       indexCreator.close();
       throw e;
     } finally {
-      recordReader.close();
+      closeRecordReader();
     }
     LOGGER.info("Finished records indexing in IndexCreator!");
 
     handlePostCreation();
   }
 
+  /**
+   * Shuts down the index creation threads if they are created for this segment, but not the shared executor from the
+   * config.
+   */
+  private void shutDownExecutorService() {
+    if (_shutDownExecutorService) {
+      _executorService.shutdownNow();
+    }
+  }
+
+  private void closeRecordReader()
+      throws IOException {
+    _recordReaderClosed = true;
+    recordReader.close();
+  }
+
+  /**
+   * Releases the resources acquired in init() if they are not released by build() yet: shuts down the index creation
+   * threads, and closes the record reader (which deletes the spill file of the single-pass creation).
+   */
+  @Override
+  public void close()
+      throws IOException {
+    shutDownExecutorService();
+    if (recordReader != null && !_recordReaderClosed) {
+      closeRecordReader();
+    }
+  }
+
   private void handlePostCreation()
       throws Exception {
     ColumnStatistics timeColumnStatistics = segmentStats.getColumnProfileFor(config.getTimeColumnName());
@@ -274,6 +369,9 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     // Build star-tree V2 if necessary
     buildStarTreeV2IfNecessary(segmentOutputDir);
 
+    // Create the binary metadata file from the final metadata properties file
+    SegmentMetadataImpl.createBinaryMetadataFile(segmentOutputDir);
+
     // Compute CRC and creation time
     long crc = CrcUtils.forAllFilesInFolder(segmentOutputDir).computeCrc();
     long creationTime;
@@ -43,6 +43,8 @@ public class V1Constants {
 
   public static class MetadataKeys {
     public static final String METADATA_FILE_NAME = "metadata.properties";
+    // Compact binary representation of the metadata properties file, derived from it when loading the segment metadata
+    public static final String BINARY_METADATA_FILE_NAME = "metadata.bin";
 
     public static class Segment {
       public static final String SEGMENT_CREATOR_VERSION = "creator.version";
@@ -18,8 +18,13 @@
  */
 package org.apache.pinot.core.segment.creator.impl.stats;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.apache.pinot.core.segment.creator.ColumnStatistics;
 import org.apache.pinot.core.segment.creator.SegmentPreIndexStatsCollector;
 import org.apache.pinot.core.segment.creator.StatsCollectorConfig;
@@ -83,8 +88,27 @@ public class SegmentPreIndexStatsCollectorImpl implements SegmentPreIndexStatsCo
 
   @Override
   public void build() {
-    for (final String column : columnStatsCollectorMap.keySet()) {
-      columnStatsCollectorMap.get(column).seal();
+    ExecutorService executorService = _statsCollectorConfig.getExecutorService();
+    if (executorService == null) {
+      for (final String column : columnStatsCollectorMap.keySet()) {
+        columnStatsCollectorMap.get(column).seal();
+      }
+    } else {
+      // Seal the columns in parallel (sorting the unique values of each column is independent from the other columns)
+      List<Future<?>> futures = new ArrayList<>(columnStatsCollectorMap.size());
+      for (AbstractColumnStatisticsCollector statsCollector : columnStatsCollectorMap.values()) {
+        futures.add(executorService.submit(statsCollector::seal));
+      }
+      try {
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } catch (ExecutionException e) {
+        throw new RuntimeException("Caught exception while sealing the column stats", e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while sealing the column stats", e);
+      }
     }
   }
 
@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.segment.index.column;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.pinot.core.segment.index.loader.IndexLoadingConfig;
+import org.apache.pinot.core.segment.index.metadata.ColumnMetadata;
+import org.apache.pinot.core.segment.index.readers.BloomFilterReader;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
+import org.apache.pinot.core.segment.index.readers.ForwardIndexReader;
+import org.apache.pinot.core.segment.index.readers.InvertedIndexReader;
+import org.apache.pinot.core.segment.index.readers.NullValueVectorReaderImpl;
+import org.apache.pinot.core.segment.store.ColumnIndexType;
+import org.apache.pinot.core.segment.store.SegmentDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Column index container that defers loading the indexes of the column until they are first accessed, so that the
+ * columns never queried do not pay for the index readers (on-heap dictionaries, text index readers, remote index
+ * fetches for tiered segments etc.).
+ * <p>The loaded indexes can be released with {@link #releaseIfIdle(long)} once the column has not been accessed for a
+ * while, and will be loaded again on the next access. Releasing must only happen while no query is using the segment
+ * (see {@link org.apache.pinot.core.data.manager.TableDataManager#releaseIdleColumns(long)}, which releases the columns
+ * of a segment only when it is not acquired, and blocks it from being acquired meanwhile), so that the indexes returned
+ * to a query are never closed under it.
+ */
+public final class LazyColumnIndexContainer implements ColumnIndexContainer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LazyColumnIndexContainer.class);
+
+  private final SegmentDirectory.Reader _segmentReader;
+  private final ColumnMetadata _metadata;
+  private final IndexLoadingConfig _indexLoadingConfig;
+  private final File _segmentIndexDir;
+
+  private volatile PhysicalColumnIndexContainer _indexContainer;
+  private volatile long _lastAccessTimeMs;
+  private boolean _closed;
+
+  public LazyColumnIndexContainer(SegmentDirectory.Reader segmentReader, ColumnMetadata metadata,
+      IndexLoadingConfig indexLoadingConfig, File segmentIndexDir) {
+    _segmentReader = segmentReader;
+    _metadata = metadata;
+    _indexLoadingConfig = indexLoadingConfig;
+    _segmentIndexDir = segmentIndexDir;
+  }
+
+  @Override
+  public ForwardIndexReader<?> getForwardIndex() {
+    return getIndexContainer().getForwardIndex();
+  }
+
+  @Override
+  public InvertedIndexReader<?> getInvertedIndex() {
+    return getIndexContainer().getInvertedIndex();
+  }
+
+  @Override
+  public InvertedIndexReader<?> getRangeIndex() {
+    return getIndexContainer().getRangeIndex();
+  }
+
+  @Override
+  public InvertedIndexReader<?> getTextIndex() {
+    return getIndexContainer().getTextIndex();
+  }
+
+  @Override
+  public Dictionary getDictionary() {
+    return getIndexContainer().getDictionary();
+  }
+
+  @Override
+  public BloomFilterReader getBloomFilter() {
+    return getIndexContainer().getBloomFilter();
+  }
+
+  @Override
+  public NullValueVectorReaderImpl getNullValueVector() {
+    return getIndexContainer().getNullValueVector();
+  }
+
+  /**
+   * Returns whether the indexes of the column are currently loaded.
+   */
+  public boolean isLoaded() {
+    return _indexContainer != null;
+  }
+
+  /**
+   * Returns the last time (in milliseconds since epoch) the indexes of the column were accessed, or 0 if never
+   * accessed.
+   */
+  public long getLastAccessTimeMs() {
+    return _lastAccessTimeMs;
+  }
+
+  /**
+   * Releases the loaded indexes of the column if they have not been accessed within the given idle time. Returns
+   * {@code true} if the indexes are released, {@code false} otherwise.
+   * <p>NOTE: must only be called while no query is using the segment, see the class javadoc.
+   */
+  public synchronized boolean releaseIfIdle(long idleTimeMs) {
+    PhysicalColumnIndexContainer indexContainer = _indexContainer;
+    if (indexContainer == null || System.currentTimeMillis() - _lastAccessTimeMs < idleTimeMs) {
+      return false;
+    }
+    _indexContainer = null;
+    String column = _metadata.getColumnName();
+    try {
+      indexContainer.close();
+    } catch (IOException e) {
+      LOGGER.error("Failed to close indexes for column: {}. Continuing with error.", column, e);
+    }
+    // Release the index buffers (e.g. unpin the remote indexes of a tiered segment from the local cache)
+    for (ColumnIndexType indexType : ColumnIndexType.values()) {
+      _segmentReader.releaseIndexFor(column, indexType);
+    }
+    return true;
+  }
+
+  @Override
+  public synchronized void close()
+      throws IOException {
+    _closed = true;
+    if (_indexContainer != null) {
+      _indexContainer.close();
+      _indexContainer = null;
+    }
+  }
+
+  private PhysicalColumnIndexContainer getIndexContainer() {
+    _lastAccessTimeMs = System.currentTimeMillis();
+    PhysicalColumnIndexContainer indexContainer = _indexContainer;
+    if (indexContainer == null) {
+      synchronized (this) {
+        indexContainer = _indexContainer;
+        if (indexContainer == null) {
+          if (_closed) {
+            throw new IllegalStateException("Indexes for column: " + _metadata.getColumnName() + " are closed");
+          }
+          try {
+            indexContainer =
+                new PhysicalColumnIndexContainer(_segmentReader, _metadata, _indexLoadingConfig, _segmentIndexDir);
+          } catch (IOException e) {
+            throw new RuntimeException(
+                "Caught exception while loading indexes for column: " + _metadata.getColumnName(), e);
+          }
+          _indexContainer = indexContainer;
+        }
+      }
+    }
+    return indexContainer;
+  }
+}
@@ -88,6 +88,9 @@ public class SegmentV1V2ToV3FormatConverter implements SegmentFormatConverter {
     LOGGER.info("v3 segment location for segment: {} is {}", v2Metadata.getName(), newLocation);
     v3TempDirectory.renameTo(newLocation);
     deleteV2Files(v2SegmentDirectory);
+
+    // Create the binary metadata file for the v3 metadata properties file
+    SegmentMetadataImpl.createBinaryMetadataFile(v2SegmentDirectory);
   }
 
   private void deleteV2Files(File v2SegmentDirectory)
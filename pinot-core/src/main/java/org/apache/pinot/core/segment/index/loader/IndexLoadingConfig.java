@@ -27,8 +27,10 @@ import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.apache.pinot.common.segment.ReadMode;
+import org.apache.pinot.common.utils.URIUtils;
 import org.apache.pinot.core.data.manager.config.InstanceDataManagerConfig;
 import org.apache.pinot.core.indexsegment.generator.SegmentVersion;
+import org.apache.pinot.core.io.writer.impl.OffHeapMemoryArena;
 import org.apache.pinot.core.segment.index.loader.columnminmaxvalue.ColumnMinMaxValueGeneratorMode;
 import org.apache.pinot.spi.config.table.FieldConfig;
 import org.apache.pinot.spi.config.table.IndexingConfig;
@@ -53,6 +55,12 @@ public class IndexLoadingConfig {
   private Set<String> _varLengthDictionaryColumns = new HashSet<>();
   private Set<String> _onHeapDictionaryColumns = new HashSet<>();
   private Set<String> _bloomFilterColumns = new HashSet<>();
+  private Set<String> _warmUpColumns = new HashSet<>();
+  private boolean _warmUpStarTree;
+  private boolean _lazyColumnLoading;
+  private long _segmentWarmUpMaxBytesPerSecond = -1;
+  private long _coldSegmentAgeMs = -1;
+  private String _coldSegmentRemoteDir;
   private List<StarTreeIndexConfig> _starTreeIndexConfigs;
   private boolean _enableDefaultStarTree;
 
@@ -62,6 +70,12 @@ public class IndexLoadingConfig {
   private boolean _enableSplitCommit;
   private boolean _isRealtimeOffHeapAllocation;
   private boolean _isDirectRealtimeOffHeapAllocation;
+  private boolean _isArenaRealtimeOffHeapAllocation;
+  private long _realtimeArenaRegionBytes = OffHeapMemoryArena.DEFAULT_REGION_SIZE;
+  private long _realtimeArenaMaxFreeBytes = OffHeapMemoryArena.DEFAULT_MAX_FREE_BYTES;
+  private long _realtimeMaxConsumingMemoryBytes = -1;
+  private int _realtimeCatchUpDecoderThreads;
+  private long _realtimeCatchUpLagThreshold;
   private boolean _enableSplitCommitEndWithMetadata;
   private String _segmentStoreURI;
 
@@ -100,6 +114,13 @@ public class IndexLoadingConfig {
       _bloomFilterColumns.addAll(bloomFilterColumns);
     }
 
+    List<String> warmUpColumns = indexingConfig.getWarmUpColumns();
+    if (warmUpColumns != null) {
+      _warmUpColumns.addAll(warmUpColumns);
+    }
+    _warmUpStarTree = indexingConfig.isWarmUpStarTree();
+    _lazyColumnLoading = indexingConfig.isLazyColumnLoading();
+
     List<String> noDictionaryColumns = indexingConfig.getNoDictionaryColumns();
     if (noDictionaryColumns != null) {
       _noDictionaryColumns.addAll(noDictionaryColumns);
@@ -181,6 +202,21 @@ public class IndexLoadingConfig {
 
     _isRealtimeOffHeapAllocation = instanceDataManagerConfig.isRealtimeOffHeapAllocation();
     _isDirectRealtimeOffHeapAllocation = instanceDataManagerConfig.isDirectRealtimeOffHeapAllocation();
+    _isArenaRealtimeOffHeapAllocation = instanceDataManagerConfig.isArenaRealtimeOffHeapAllocation();
+    _realtimeArenaRegionBytes = instanceDataManagerConfig.getRealtimeArenaRegionBytes();
+    _realtimeArenaMaxFreeBytes = instanceDataManagerConfig.getRealtimeArenaMaxFreeBytes();
+    _realtimeMaxConsumingMemoryBytes = instanceDataManagerConfig.getRealtimeMaxConsumingMemoryBytes();
+    _realtimeCatchUpDecoderThreads = instanceDataManagerConfig.getRealtimeCatchUpDecoderThreads();
+    _realtimeCatchUpLagThreshold = instanceDataManagerConfig.getRealtimeCatchUpLagThreshold();
+    _segmentWarmUpMaxBytesPerSecond = instanceDataManagerConfig.getSegmentWarmUpMaxBytesPerSecond();
+    _coldSegmentAgeMs = instanceDataManagerConfig.getColdSegmentAgeMs();
+    String coldSegmentRemoteDir = instanceDataManagerConfig.getColdSegmentRemoteDir();
+    if (coldSegmentRemoteDir != null) {
+      // Each server keeps its own copy of the remote indexes, so that it can delete them when the segment is dropped or
+      // refreshed without affecting the other replicas
+      _coldSegmentRemoteDir =
+          URIUtils.getUri(coldSegmentRemoteDir, instanceDataManagerConfig.getInstanceId()).toString();
+    }
 
     String avgMultiValueCount = instanceDataManagerConfig.getAvgMultiValueCount();
     if (avgMultiValueCount != null) {
@@ -294,6 +330,77 @@ public class IndexLoadingConfig {
     return _bloomFilterColumns;
   }
 
+  /**
+   * Returns the columns whose indexes should be warmed up in the background after the segment is loaded with mmap.
+   */
+  public Set<String> getWarmUpColumns() {
+    return _warmUpColumns;
+  }
+
+  @VisibleForTesting
+  public void setWarmUpColumns(Set<String> warmUpColumns) {
+    _warmUpColumns = warmUpColumns;
+  }
+
+  /**
+   * Returns whether the star-tree index should be warmed up in the background after the segment is loaded with mmap.
+   */
+  public boolean isWarmUpStarTree() {
+    return _warmUpStarTree;
+  }
+
+  @VisibleForTesting
+  public void setWarmUpStarTree(boolean warmUpStarTree) {
+    _warmUpStarTree = warmUpStarTree;
+  }
+
+  /**
+   * Returns whether the column indexes should be loaded lazily when the column is first accessed instead of when the
+   * segment is loaded.
+   */
+  public boolean isLazyColumnLoading() {
+    return _lazyColumnLoading;
+  }
+
+  @VisibleForTesting
+  public void setLazyColumnLoading(boolean lazyColumnLoading) {
+    _lazyColumnLoading = lazyColumnLoading;
+  }
+
+  /**
+   * Returns the max number of bytes read per second by the segment warm-up on the server, or a non-positive value if
+   * unlimited.
+   */
+  public long getSegmentWarmUpMaxBytesPerSecond() {
+    return _segmentWarmUpMaxBytesPerSecond;
+  }
+
+  /**
+   * Returns the age (based on the segment end time) above which the large indexes of a segment are moved to the remote
+   * directory when the segment is loaded, or a non-positive value if tiered storage is disabled.
+   */
+  public long getColdSegmentAgeMs() {
+    return _coldSegmentAgeMs;
+  }
+
+  @VisibleForTesting
+  public void setColdSegmentAgeMs(long coldSegmentAgeMs) {
+    _coldSegmentAgeMs = coldSegmentAgeMs;
+  }
+
+  /**
+   * Returns the remote directory (PinotFS URI) of this server to store the large indexes of the cold segments.
+   */
+  @Nullable
+  public String getColdSegmentRemoteDir() {
+    return _coldSegmentRemoteDir;
+  }
+
+  @VisibleForTesting
+  public void setColdSegmentRemoteDir(String coldSegmentRemoteDir) {
+    _coldSegmentRemoteDir = coldSegmentRemoteDir;
+  }
+
   @Nullable
   public List<StarTreeIndexConfig> getStarTreeIndexConfigs() {
     return _starTreeIndexConfigs;
@@ -331,6 +438,47 @@ public class IndexLoadingConfig {
     return _isDirectRealtimeOffHeapAllocation;
   }
 
+  public boolean isArenaRealtimeOffHeapAllocation() {
+    return _isArenaRealtimeOffHeapAllocation;
+  }
+
+  /**
+   * Returns the size in bytes of the regions in the server-wide off-heap memory arena.
+   */
+  public long getRealtimeArenaRegionBytes() {
+    return _realtimeArenaRegionBytes;
+  }
+
+  /**
+   * Returns the max bytes of free regions retained by the server-wide off-heap memory arena.
+   */
+  public long getRealtimeArenaMaxFreeBytes() {
+    return _realtimeArenaMaxFreeBytes;
+  }
+
+  /**
+   * Returns the memory budget in bytes for all the consuming segments on the server, or a non-positive value if
+   * unlimited.
+   */
+  public long getRealtimeMaxConsumingMemoryBytes() {
+    return _realtimeMaxConsumingMemoryBytes;
+  }
+
+  /**
+   * Returns the number of threads used to decode stream messages in parallel when a consuming partition is catching up
+   * with the stream, or a non-positive value if the catch-up mode is disabled.
+   */
+  public int getRealtimeCatchUpDecoderThreads() {
+    return _realtimeCatchUpDecoderThreads;
+  }
+
+  /**
+   * Returns the lag (number of messages) above which a consuming partition switches to the catch-up mode.
+   */
+  public long getRealtimeCatchUpLagThreshold() {
+    return _realtimeCatchUpLagThreshold;
+  }
+
   public ColumnMinMaxValueGeneratorMode getColumnMinMaxValueGeneratorMode() {
     return _columnMinMaxValueGeneratorMode;
   }
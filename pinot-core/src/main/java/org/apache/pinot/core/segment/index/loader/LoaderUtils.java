@@ -21,15 +21,18 @@ package org.apache.pinot.core.segment.index.loader;
 import com.google.common.base.Preconditions;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nonnull;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.io.FileUtils;
 import org.apache.pinot.common.utils.CommonConstants;
+import org.apache.pinot.core.indexsegment.generator.SegmentVersion;
 import org.apache.pinot.core.segment.memory.PinotDataBuffer;
 import org.apache.pinot.core.segment.store.ColumnIndexType;
 import org.apache.pinot.core.segment.store.SegmentDirectory;
+import org.apache.pinot.core.segment.store.SegmentDirectoryPaths;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +45,8 @@ public class LoaderUtils {
 
   /**
    * Write an index file to v3 format single index file and remove the old one.
+   * <p>If the index already exists in the single index file (e.g. the last run got interrupted after writing the index
+   * but before removing the marker file), the existing index is replaced.
    *
    * @param segmentWriter v3 format segment writer.
    * @param column column name.
@@ -52,6 +57,9 @@ public class LoaderUtils {
   public static void writeIndexToV3Format(SegmentDirectory.Writer segmentWriter, String column, File indexFile,
       ColumnIndexType indexType)
       throws IOException {
+    if (segmentWriter.hasIndexFor(column, indexType) && segmentWriter.isIndexRemovalSupported()) {
+      segmentWriter.removeIndex(column, indexType);
+    }
     long fileLength = indexFile.length();
     // NOTE: DO NOT close buffer here as it is managed in the SegmentDirectory.
     PinotDataBuffer buffer = segmentWriter.newIndexFor(column, indexType, fileLength);
@@ -59,6 +67,37 @@ public class LoaderUtils {
     FileUtils.forceDelete(indexFile);
   }
 
+  /**
+   * Copy a segment index directory (e.g. to the segment backup directory before reloading the segment).
+   * <p>The v3 format single index file is append-only (indexes are never modified in place), so it is hard-linked
+   * instead of copied when possible. This makes the cost of reloading a segment proportional to the indexes added
+   * instead of the segment size.
+   *
+   * @param srcDir source index directory.
+   * @param destDir destination index directory.
+   * @throws IOException
+   */
+  public static void copySegmentDirectory(File srcDir, File destDir)
+      throws IOException {
+    File srcV3IndexFile =
+        new File(SegmentDirectoryPaths.segmentDirectoryFor(srcDir, SegmentVersion.v3),
+            SegmentDirectoryPaths.V3_INDEX_FILE_NAME);
+    if (!srcV3IndexFile.isFile()) {
+      FileUtils.copyDirectory(srcDir, destDir);
+      return;
+    }
+    FileUtils.copyDirectory(srcDir, destDir, file -> !file.equals(srcV3IndexFile));
+    File destV3IndexFile =
+        new File(SegmentDirectoryPaths.segmentDirectoryFor(destDir, SegmentVersion.v3),
+            SegmentDirectoryPaths.V3_INDEX_FILE_NAME);
+    try {
+      Files.createLink(destV3IndexFile.toPath(), srcV3IndexFile.toPath());
+    } catch (IOException | UnsupportedOperationException e) {
+      LOGGER.warn("Failed to hard link index file: {} to: {}, copying it instead", srcV3IndexFile, destV3IndexFile, e);
+      FileUtils.copyFile(srcV3IndexFile, destV3IndexFile);
+    }
+  }
+
   /**
    * Get string list from segment properties.
    * <p>
@@ -148,6 +148,10 @@ public class SegmentPreProcessor implements AutoCloseable {
 
       segmentWriter.save();
     }
+
+    // Create the binary metadata file after all the modifications to the segment metadata, so that the following
+    // segment loads can skip parsing the metadata properties file
+    SegmentMetadataImpl.createBinaryMetadataFile(_indexDir);
   }
 
   @Override
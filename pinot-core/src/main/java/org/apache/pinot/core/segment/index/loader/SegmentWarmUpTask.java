@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.segment.index.loader;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
+import org.apache.pinot.core.segment.memory.PinotDataBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Background task to warm up the memory mapped index buffers of a newly loaded segment by touching every page of the
+ * buffers, so that the first queries on the segment do not take page faults on the indexes.
+ * <p>All the warm-up tasks on the server run sequentially on a single daemon thread, and are rate limited by the
+ * number of bytes read per second.
+ * <p>The task must be cancelled before the buffers are released (i.e. when the segment is destroyed). Each chunk of
+ * pages is read while holding the task lock, which is also acquired by {@link #cancel()}, so that no buffer is accessed
+ * after the task is cancelled.
+ */
+public class SegmentWarmUpTask implements Runnable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentWarmUpTask.class);
+
+  private static final int PAGE_SIZE_BYTES = 4096;
+  private static final int CHUNK_SIZE_BYTES = 1024 * 1024;
+
+  private static ExecutorService _executorService;
+  private static RateLimiter _rateLimiter;
+
+  private final String _segmentName;
+  private final List<PinotDataBuffer> _buffers;
+  private final RateLimiter _taskRateLimiter;
+
+  // Guarded by this
+  private boolean _cancelled;
+  // Sum of the bytes read so that the reads are not optimized away
+  private long _checksum;
+  private volatile long _numBytesWarmedUp;
+
+  @VisibleForTesting
+  SegmentWarmUpTask(String segmentName, List<PinotDataBuffer> buffers, @Nullable RateLimiter rateLimiter) {
+    _segmentName = segmentName;
+    _buffers = buffers;
+    _taskRateLimiter = rateLimiter;
+  }
+
+  /**
+   * Submits a task to warm up the given buffers of a segment in the background.
+   *
+   * @param segmentName Name of the segment
+   * @param buffers Memory mapped index buffers to warm up
+   * @param maxBytesPerSecond Max number of bytes read per second by all the warm-up tasks, <= 0 for unlimited
+   * @return The submitted task, which must be cancelled before the buffers are released
+   */
+  public static synchronized SegmentWarmUpTask submit(String segmentName, List<PinotDataBuffer> buffers,
+      long maxBytesPerSecond) {
+    if (_executorService == null) {
+      _executorService = Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("segment-warmup-%d").build());
+    }
+    RateLimiter rateLimiter = null;
+    if (maxBytesPerSecond > 0) {
+      if (_rateLimiter == null) {
+        _rateLimiter = RateLimiter.create(maxBytesPerSecond);
+      } else if (_rateLimiter.getRate() != maxBytesPerSecond) {
+        _rateLimiter.setRate(maxBytesPerSecond);
+      }
+      rateLimiter = _rateLimiter;
+    }
+    SegmentWarmUpTask task = new SegmentWarmUpTask(segmentName, buffers, rateLimiter);
+    _executorService.submit(task);
+    return task;
+  }
+
+  @Override
+  public void run() {
+    long startTimeMs = System.currentTimeMillis();
+    for (PinotDataBuffer buffer : _buffers) {
+      long size = buffer.size();
+      for (long offset = 0; offset < size; offset += CHUNK_SIZE_BYTES) {
+        long end = Math.min(offset + CHUNK_SIZE_BYTES, size);
+        if (_taskRateLimiter != null) {
+          _taskRateLimiter.acquire((int) (end - offset));
+        }
+        synchronized (this) {
+          if (_cancelled) {
+            LOGGER.info("Warm-up of segment: {} is cancelled after warming up {} bytes", _segmentName,
+                _numBytesWarmedUp);
+            return;
+          }
+          for (long position = offset; position < end; position += PAGE_SIZE_BYTES) {
+            _checksum += buffer.getByte(position);
+          }
+        }
+        _numBytesWarmedUp += end - offset;
+      }
+    }
+    LOGGER.info("Warmed up {} bytes of {} buffers for segment: {} in {}ms", _numBytesWarmedUp, _buffers.size(),
+        _segmentName, System.currentTimeMillis() - startTimeMs);
+  }
+
+  @VisibleForTesting
+  long getNumBytesWarmedUp() {
+    return _numBytesWarmedUp;
+  }
+
+  /**
+   * Cancels the task. Once this method returns, the task does not access the buffers anymore.
+   */
+  public synchronized void cancel() {
+    _cancelled = true;
+  }
+}
@@ -91,7 +91,7 @@ public abstract class BaseDefaultColumnHandler implements DefaultColumnHandler {
   protected final SegmentMetadataImpl _segmentMetadata;
   protected final SegmentDirectory.Writer _segmentWriter;
 
-  private final PropertiesConfiguration _segmentProperties;
+  protected final PropertiesConfiguration _segmentProperties;
 
   protected BaseDefaultColumnHandler(File indexDir, Schema schema, SegmentMetadataImpl segmentMetadata,
       SegmentDirectory.Writer segmentWriter) {
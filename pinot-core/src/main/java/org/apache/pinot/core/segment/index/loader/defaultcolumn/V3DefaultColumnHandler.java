@@ -21,6 +21,7 @@ package org.apache.pinot.core.segment.index.loader.defaultcolumn;
 import com.google.common.base.Preconditions;
 import java.io.File;
 import java.util.Set;
+import org.apache.pinot.core.segment.creator.impl.SegmentColumnarIndexCreator;
 import org.apache.pinot.core.segment.creator.impl.V1Constants;
 import org.apache.pinot.core.segment.index.loader.IndexLoadingConfig;
 import org.apache.pinot.core.segment.index.loader.LoaderUtils;
@@ -48,16 +49,23 @@ public class V3DefaultColumnHandler extends BaseDefaultColumnHandler {
       throws Exception {
     LOGGER.info("Starting default column action: {} on column: {}", action, column);
 
-    // For V3 segment format, only support ADD action
-    // For UPDATE and REMOVE action, throw exception to drop and re-download the segment
-    if (action.isUpdateAction()) {
-      throw new V3UpdateIndexException(
-          "Default value indices for column: " + column + " cannot be updated for V3 format segment.");
+    // For UPDATE and REMOVE action, remove the existing indices from the single index file in place if supported,
+    // otherwise throw exception to drop and re-download the segment
+    if (action.isUpdateAction() || action.isRemoveAction()) {
+      if (!_segmentWriter.isIndexRemovalSupported()) {
+        if (action.isUpdateAction()) {
+          throw new V3UpdateIndexException(
+              "Default value indices for column: " + column + " cannot be updated for V3 format segment.");
+        } else {
+          throw new V3RemoveIndexException(
+              "Default value indices for column: " + column + " cannot be removed for V3 format segment.");
+        }
+      }
+      removeColumnV3Indices(column);
     }
 
     if (action.isRemoveAction()) {
-      throw new V3RemoveIndexException(
-          "Default value indices for column: " + column + " cannot be removed for V3 format segment.");
+      return;
     }
 
     FieldSpec fieldSpec = _schema.getFieldSpecFor(column);
@@ -76,4 +84,18 @@ public class V3DefaultColumnHandler extends BaseDefaultColumnHandler {
     LoaderUtils.writeIndexToV3Format(_segmentWriter, column, dictionaryFile, ColumnIndexType.DICTIONARY);
     LoaderUtils.writeIndexToV3Format(_segmentWriter, column, forwardIndexFile, ColumnIndexType.FORWARD_INDEX);
   }
+
+  /**
+   * Helper method to remove all the indices for a column from the single index file, and remove the column metadata.
+   *
+   * @param column column name.
+   */
+  private void removeColumnV3Indices(String column) {
+    for (ColumnIndexType indexType : ColumnIndexType.values()) {
+      if (_segmentWriter.hasIndexFor(column, indexType)) {
+        _segmentWriter.removeIndex(column, indexType);
+      }
+    }
+    SegmentColumnarIndexCreator.removeColumnMetadataInfo(_segmentProperties, column);
+  }
 }
@@ -19,6 +19,12 @@
 package org.apache.pinot.core.segment.index.metadata;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +43,7 @@ import org.apache.pinot.spi.data.FieldSpec.FieldType;
 import org.apache.pinot.spi.data.MetricFieldSpec;
 import org.apache.pinot.spi.data.TimeFieldSpec;
 import org.apache.pinot.spi.data.TimeGranularitySpec;
+import org.apache.pinot.spi.utils.ByteArray;
 import org.apache.pinot.spi.utils.BytesUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,10 +51,13 @@ import org.slf4j.LoggerFactory;
 import static org.apache.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Column.*;
 import static org.apache.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Segment.SEGMENT_PADDING_CHARACTER;
 import static org.apache.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Segment.TIME_UNIT;
+import static org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl.readString;
+import static org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl.writeString;
 
 
 public class ColumnMetadata {
   private static final Logger LOGGER = LoggerFactory.getLogger(ColumnMetadata.class);
+  private static final Interner<FieldSpec> FIELD_SPEC_INTERNER = Interners.newWeakInterner();
 
   private final FieldSpec fieldSpec;
   private final String columnName;
@@ -167,13 +177,176 @@ public class ColumnMetadata {
           PartitionFunctionFactory.getPartitionFunction(partitionFunctionName, numPartitions);
       builder.setPartitionFunction(partitionFunction);
       builder.setNumPartitions(numPartitions);
-      builder.setPartitions(ColumnPartitionMetadata
-          .extractPartitions(config.getList(getKeyFor(column, V1Constants.MetadataKeys.Column.PARTITION_VALUES))));
+      builder.setPartitions(ImmutableSet.copyOf(ColumnPartitionMetadata
+          .extractPartitions(config.getList(getKeyFor(column, V1Constants.MetadataKeys.Column.PARTITION_VALUES)))));
     }
 
     return builder.build();
   }
 
+  /**
+   * Reads the column metadata from the binary segment metadata file (see {@link #writeTo(DataOutput)}).
+   */
+  static ColumnMetadata readFrom(DataInput in)
+      throws IOException {
+    Builder builder = new Builder();
+
+    String column = readString(in);
+    builder.setColumnName(column);
+    builder.setCardinality(in.readInt());
+    builder.setTotalDocs(in.readInt());
+    DataType dataType = DataType.valueOf(in.readUTF());
+    builder.setDataType(dataType);
+    builder.setBitsPerElement(in.readInt());
+    builder.setColumnMaxLength(in.readInt());
+    builder.setFieldType(FieldType.valueOf(in.readUTF()));
+    builder.setIsSorted(in.readBoolean());
+    builder.setContainsNulls(in.readBoolean());
+    builder.setHasDictionary(in.readBoolean());
+    builder.setHasInvertedIndex(in.readBoolean());
+    builder.setSingleValue(in.readBoolean());
+    builder.setMaxNumberOfMultiValues(in.readInt());
+    builder.setTotalNumberOfEntries(in.readInt());
+    builder.setAutoGenerated(in.readBoolean());
+    builder.setDefaultNullValueString(readString(in));
+    builder.setTimeUnit(TimeUnit.valueOf(in.readUTF()));
+    builder.setTextIndexType(in.readUTF());
+    builder.setPaddingCharacter(in.readChar());
+    builder.setDateTimeFormat(readString(in));
+    builder.setDateTimeGranularity(readString(in));
+
+    if (in.readBoolean()) {
+      switch (dataType) {
+        case INT:
+          builder.setMinValue(in.readInt());
+          builder.setMaxValue(in.readInt());
+          break;
+        case LONG:
+          builder.setMinValue(in.readLong());
+          builder.setMaxValue(in.readLong());
+          break;
+        case FLOAT:
+          builder.setMinValue(in.readFloat());
+          builder.setMaxValue(in.readFloat());
+          break;
+        case DOUBLE:
+          builder.setMinValue(in.readDouble());
+          builder.setMaxValue(in.readDouble());
+          break;
+        case STRING:
+          builder.setMinValue(readString(in));
+          builder.setMaxValue(readString(in));
+          break;
+        case BYTES:
+          builder.setMinValue(new ByteArray(readBytes(in)));
+          builder.setMaxValue(new ByteArray(readBytes(in)));
+          break;
+        default:
+          throw new IllegalStateException("Unsupported data type: " + dataType + " for column: " + column);
+      }
+    }
+
+    String partitionFunctionName = readString(in);
+    if (partitionFunctionName != null) {
+      int numPartitions = in.readInt();
+      builder.setPartitionFunction(PartitionFunctionFactory.getPartitionFunction(partitionFunctionName, numPartitions));
+      builder.setNumPartitions(numPartitions);
+      int numPartitionValues = in.readInt();
+      ImmutableSet.Builder<Integer> partitions = ImmutableSet.builder();
+      for (int i = 0; i < numPartitionValues; i++) {
+        partitions.add(in.readInt());
+      }
+      builder.setPartitions(partitions.build());
+    }
+
+    return builder.build();
+  }
+
+  /**
+   * Writes the column metadata into the binary segment metadata file. Only supports the physical columns.
+   */
+  void writeTo(DataOutput out)
+      throws IOException {
+    writeString(out, columnName);
+    out.writeInt(cardinality);
+    out.writeInt(totalDocs);
+    out.writeUTF(dataType.name());
+    out.writeInt(bitsPerElement);
+    out.writeInt(columnMaxLength);
+    out.writeUTF(fieldType.name());
+    out.writeBoolean(isSorted);
+    out.writeBoolean(containsNulls);
+    out.writeBoolean(hasDictionary);
+    out.writeBoolean(hasInvertedIndex);
+    out.writeBoolean(isSingleValue);
+    out.writeInt(maxNumberOfMultiValues);
+    out.writeInt(totalNumberOfEntries);
+    out.writeBoolean(isAutoGenerated);
+    writeString(out, defaultNullValueString);
+    out.writeUTF(timeUnit.name());
+    out.writeUTF(textIndexType.name());
+    out.writeChar(paddingCharacter);
+    writeString(out, dateTimeFormat);
+    writeString(out, dateTimeGranularity);
+
+    boolean hasMinMaxValue = minValue != null && maxValue != null;
+    out.writeBoolean(hasMinMaxValue);
+    if (hasMinMaxValue) {
+      switch (dataType) {
+        case INT:
+          out.writeInt((Integer) minValue);
+          out.writeInt((Integer) maxValue);
+          break;
+        case LONG:
+          out.writeLong((Long) minValue);
+          out.writeLong((Long) maxValue);
+          break;
+        case FLOAT:
+          out.writeFloat((Float) minValue);
+          out.writeFloat((Float) maxValue);
+          break;
+        case DOUBLE:
+          out.writeDouble((Double) minValue);
+          out.writeDouble((Double) maxValue);
+          break;
+        case STRING:
+          writeString(out, (String) minValue);
+          writeString(out, (String) maxValue);
+          break;
+        case BYTES:
+          writeBytes(out, ((ByteArray) minValue).getBytes());
+          writeBytes(out, ((ByteArray) maxValue).getBytes());
+          break;
+        default:
+          throw new IllegalStateException("Unsupported data type: " + dataType + " for column: " + columnName);
+      }
+    }
+
+    if (partitionFunction != null) {
+      writeString(out, partitionFunction.toString());
+      out.writeInt(numPartitions);
+      out.writeInt(_partitions.size());
+      for (int partition : _partitions) {
+        out.writeInt(partition);
+      }
+    } else {
+      writeString(out, null);
+    }
+  }
+
+  private static byte[] readBytes(DataInput in)
+      throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private static void writeBytes(DataOutput out, byte[] bytes)
+      throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
   public PartitionFunction getPartitionFunction() {
     return partitionFunction;
   }
@@ -350,6 +523,12 @@ public class ColumnMetadata {
     }
 
     public ColumnMetadata build() {
+      // Intern the strings shared by the same column across segments to reduce the heap usage on servers hosting a
+      // large number of segments
+      columnName = SegmentMetadataImpl.intern(columnName);
+      defaultNullValueString = SegmentMetadataImpl.intern(defaultNullValueString);
+      dateTimeFormat = SegmentMetadataImpl.intern(dateTimeFormat);
+      dateTimeGranularity = SegmentMetadataImpl.intern(dateTimeGranularity);
       return new ColumnMetadata(columnName, cardinality, totalDocs, dataType, bitsPerElement, columnMaxLength,
           fieldType, isSorted, containsNulls, hasDictionary, hasInvertedIndex, isSingleValue, maxNumberOfMultiValues,
           totalNumberOfEntries, isAutoGenerated, isVirtual, defaultNullValueString, timeUnit, paddingCharacter,
@@ -393,22 +572,25 @@ public class ColumnMetadata {
     this.dateTimeGranularity = dateTimeGranularity;
     this.textIndexType = textIndexType;
 
+    FieldSpec fieldSpec;
     switch (fieldType) {
       case DIMENSION:
-        this.fieldSpec = new DimensionFieldSpec(columnName, dataType, isSingleValue);
+        fieldSpec = new DimensionFieldSpec(columnName, dataType, isSingleValue);
         break;
       case METRIC:
-        this.fieldSpec = new MetricFieldSpec(columnName, dataType);
+        fieldSpec = new MetricFieldSpec(columnName, dataType);
         break;
       case TIME:
-        this.fieldSpec = new TimeFieldSpec(new TimeGranularitySpec(dataType, timeUnit, columnName));
+        fieldSpec = new TimeFieldSpec(new TimeGranularitySpec(dataType, timeUnit, columnName));
         break;
       case DATE_TIME:
-        this.fieldSpec = new DateTimeFieldSpec(columnName, dataType, dateTimeFormat, dateTimeGranularity);
+        fieldSpec = new DateTimeFieldSpec(columnName, dataType, dateTimeFormat, dateTimeGranularity);
         break;
       default:
         throw new RuntimeException("Unsupported field type: " + fieldType);
     }
+    // Segments of the same table usually have identical field specs, share them across segments
+    this.fieldSpec = FIELD_SPEC_INTERNER.intern(fieldSpec);
   }
 
   public String getColumnName() {
@@ -493,6 +675,10 @@ public class ColumnMetadata {
     return paddingCharacter;
   }
 
+  /**
+   * Returns the field spec of the column, which is shared with the other segments having the same column and must not
+   * be modified.
+   */
   public FieldSpec getFieldSpec() {
     return fieldSpec;
   }
@@ -31,12 +31,21 @@ import static org.apache.pinot.core.segment.creator.impl.V1Constants.MetadataKey
 import static org.apache.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Segment.TABLE_NAME;
 import static org.apache.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Segment.TIME_COLUMN_NAME;
 import static org.apache.pinot.core.segment.creator.impl.V1Constants.MetadataKeys.Segment.TIME_UNIT;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
 import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -53,11 +62,13 @@ import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
 import org.apache.pinot.core.indexsegment.generator.SegmentVersion;
 import org.apache.pinot.core.segment.creator.impl.V1Constants;
 import org.apache.pinot.core.segment.store.SegmentDirectoryPaths;
+import org.apache.pinot.core.startree.v2.AggregationFunctionColumnPair;
 import org.apache.pinot.core.startree.v2.StarTreeV2Constants;
 import org.apache.pinot.core.startree.v2.StarTreeV2Metadata;
 import org.apache.pinot.spi.data.Schema;
@@ -74,10 +85,16 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 
 public class SegmentMetadataImpl implements SegmentMetadata {
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentMetadataImpl.class);
+  private static final int BINARY_METADATA_MAGIC_MARKER = 0x504D4554;
+  private static final int BINARY_METADATA_VERSION = 2;
+  private static final Interner<String> STRING_INTERNER = Interners.newWeakInterner();
+  private static final Interner<Schema> SCHEMA_INTERNER = Interners.newWeakInterner();
 
   private final File _indexDir;
   private final Map<String, ColumnMetadata> _columnMetadataMap;
@@ -113,19 +130,27 @@ public class SegmentMetadataImpl implements SegmentMetadata {
   public SegmentMetadataImpl(File indexDir)
       throws IOException {
     _indexDir = indexDir;
-    PropertiesConfiguration segmentMetadataPropertiesConfiguration = getPropertiesConfiguration(indexDir);
     _columnMetadataMap = new HashMap<>();
     _allColumns = new HashSet<>();
-    _schema = new Schema();
+    Schema schema = new Schema();
+
+    // Load from the binary metadata file if it is up-to-date with the metadata properties file, otherwise parse the
+    // metadata properties file. The binary metadata file is never written here, see createBinaryMetadataFile().
+    File metadataFile = SegmentDirectoryPaths.findMetadataFile(indexDir);
+    Preconditions.checkNotNull(metadataFile, "Cannot find segment metadata file under directory: %s", indexDir);
+    if (!loadBinaryMetadata(getBinaryMetadataFile(metadataFile), metadataFile, schema)) {
+      PropertiesConfiguration segmentMetadataPropertiesConfiguration = CommonsConfigurationUtils.fromFile(metadataFile);
+      init(segmentMetadataPropertiesConfiguration, schema);
+      setTimeInfo(segmentMetadataPropertiesConfiguration);
+      _totalDocs = segmentMetadataPropertiesConfiguration.getInt(SEGMENT_TOTAL_DOCS);
+    }
+    // Segments of the same table usually have identical physical schema, share it across segments
+    _schema = SCHEMA_INTERNER.intern(schema);
 
-    init(segmentMetadataPropertiesConfiguration);
     File creationMetaFile = SegmentDirectoryPaths.findCreationMetaFile(indexDir);
     if (creationMetaFile != null) {
       loadCreationMeta(creationMetaFile);
     }
-
-    setTimeInfo(segmentMetadataPropertiesConfiguration);
-    _totalDocs = segmentMetadataPropertiesConfiguration.getInt(SEGMENT_TOTAL_DOCS);
   }
 
   /**
@@ -179,7 +204,7 @@ public class SegmentMetadataImpl implements SegmentMetadata {
    * </ul>
    */
   private void setTimeInfo(PropertiesConfiguration segmentMetadataPropertiesConfiguration) {
-    _timeColumn = segmentMetadataPropertiesConfiguration.getString(TIME_COLUMN_NAME);
+    _timeColumn = intern(segmentMetadataPropertiesConfiguration.getString(TIME_COLUMN_NAME));
     if (segmentMetadataPropertiesConfiguration.containsKey(SEGMENT_START_TIME) && segmentMetadataPropertiesConfiguration
         .containsKey(SEGMENT_END_TIME) && segmentMetadataPropertiesConfiguration.containsKey(TIME_UNIT)) {
       try {
@@ -202,6 +227,247 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     }
   }
 
+  /**
+   * Writes the binary metadata file for the segment under the given index directory if it does not exist or is not
+   * up-to-date with the metadata properties file. The binary metadata file is a compact representation of the parsed
+   * metadata properties file, which allows loading the segment metadata without parsing the properties.
+   * <p>Should be invoked whenever the metadata properties file is created or modified (segment creation, format
+   * conversion and pre-processing).
+   */
+  public static void createBinaryMetadataFile(File indexDir)
+      throws IOException {
+    File metadataFile = SegmentDirectoryPaths.findMetadataFile(indexDir);
+    Preconditions.checkNotNull(metadataFile, "Cannot find segment metadata file under directory: %s", indexDir);
+    File binaryMetadataFile = getBinaryMetadataFile(metadataFile);
+    if (!isBinaryMetadataUpToDate(binaryMetadataFile, metadataFile)) {
+      new SegmentMetadataImpl(indexDir).writeBinaryMetadata(binaryMetadataFile, metadataFile);
+    }
+  }
+
+  private static File getBinaryMetadataFile(File metadataFile) {
+    return new File(metadataFile.getParentFile(), V1Constants.MetadataKeys.BINARY_METADATA_FILE_NAME);
+  }
+
+  private static boolean isBinaryMetadataUpToDate(File binaryMetadataFile, File metadataFile) {
+    if (!binaryMetadataFile.exists()) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(new FileInputStream(binaryMetadataFile))) {
+      return isHeaderValid(in, metadataFile);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Reads the header of the binary metadata file, and returns whether the file is written from the current metadata
+   * properties file. The metadata properties file is identified by its length and last modified time so that it does
+   * not need to be read.
+   */
+  private static boolean isHeaderValid(DataInput in, File metadataFile)
+      throws IOException {
+    return in.readInt() == BINARY_METADATA_MAGIC_MARKER && in.readInt() == BINARY_METADATA_VERSION
+        && in.readLong() == metadataFile.length() && in.readLong() == metadataFile.lastModified();
+  }
+
+  /**
+   * Loads the segment metadata from the binary metadata file. Returns {@code false} if the file does not exist, is not
+   * written from the current metadata properties file, or cannot be read.
+   */
+  private boolean loadBinaryMetadata(File binaryMetadataFile, File metadataFile, Schema schema) {
+    if (!binaryMetadataFile.exists()) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(
+        new ByteArrayInputStream(Files.readAllBytes(binaryMetadataFile.toPath())))) {
+      if (!isHeaderValid(in, metadataFile)) {
+        LOGGER.info("Binary metadata file: {} is stale, loading from the metadata properties file", binaryMetadataFile);
+        return false;
+      }
+
+      // Read everything before setting the fields so that nothing is modified if the file cannot be read
+      String creatorName = readString(in);
+      char paddingCharacter = in.readChar();
+      SegmentVersion segmentVersion = SegmentVersion.valueOf(in.readUTF());
+      String tableName = readString(in);
+      String segmentName = readString(in);
+      int totalDocs = in.readInt();
+      String timeColumn = readString(in);
+      String timeUnit = readString(in);
+      boolean hasTimeInterval = in.readBoolean();
+      long segmentStartTime = in.readLong();
+      long segmentEndTime = in.readLong();
+      int numColumns = in.readInt();
+      List<ColumnMetadata> columnMetadataList = new ArrayList<>(numColumns);
+      for (int i = 0; i < numColumns; i++) {
+        columnMetadataList.add(ColumnMetadata.readFrom(in));
+      }
+      int numStarTrees = in.readInt();
+      List<StarTreeV2Metadata> starTreeV2MetadataList = null;
+      if (numStarTrees > 0) {
+        starTreeV2MetadataList = new ArrayList<>(numStarTrees);
+        for (int i = 0; i < numStarTrees; i++) {
+          starTreeV2MetadataList.add(readStarTreeV2Metadata(in));
+        }
+      }
+
+      _creatorName = creatorName;
+      _paddingCharacter = paddingCharacter;
+      _segmentVersion = segmentVersion;
+      _tableName = tableName;
+      _segmentName = segmentName;
+      _totalDocs = totalDocs;
+      _timeColumn = timeColumn;
+      if (timeUnit != null) {
+        _timeUnit = TimeUnit.valueOf(timeUnit);
+      }
+      _segmentStartTime = segmentStartTime;
+      _segmentEndTime = segmentEndTime;
+      if (hasTimeInterval) {
+        _timeGranularity = new Duration(_timeUnit.toMillis(1));
+        _timeInterval =
+            new Interval(_timeUnit.toMillis(_segmentStartTime), _timeUnit.toMillis(_segmentEndTime), DateTimeZone.UTC);
+      }
+      for (ColumnMetadata columnMetadata : columnMetadataList) {
+        String column = columnMetadata.getColumnName();
+        _allColumns.add(column);
+        _columnMetadataMap.put(column, columnMetadata);
+        schema.addField(columnMetadata.getFieldSpec());
+      }
+      _starTreeV2MetadataList = starTreeV2MetadataList;
+      return true;
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while reading binary metadata file: {}, loading from the metadata properties file",
+          binaryMetadataFile, e);
+      return false;
+    }
+  }
+
+  /**
+   * Writes the loaded segment metadata into the binary metadata file. Failure to write the file is not fatal because
+   * the segment metadata can always be loaded from the metadata properties file.
+   */
+  private void writeBinaryMetadata(File binaryMetadataFile, File metadataFile) {
+    File tempFile = new File(binaryMetadataFile.getPath() + ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(BINARY_METADATA_MAGIC_MARKER);
+        out.writeInt(BINARY_METADATA_VERSION);
+        out.writeLong(metadataFile.length());
+        out.writeLong(metadataFile.lastModified());
+        writeString(out, _creatorName);
+        out.writeChar(_paddingCharacter);
+        out.writeUTF(_segmentVersion.name());
+        writeString(out, _tableName);
+        writeString(out, _segmentName);
+        out.writeInt(_totalDocs);
+        writeString(out, _timeColumn);
+        writeString(out, _timeUnit != null ? _timeUnit.name() : null);
+        out.writeBoolean(_timeInterval != null);
+        out.writeLong(_segmentStartTime);
+        out.writeLong(_segmentEndTime);
+        out.writeInt(_allColumns.size());
+        for (String column : _allColumns) {
+          _columnMetadataMap.get(column).writeTo(out);
+        }
+        if (_starTreeV2MetadataList != null) {
+          out.writeInt(_starTreeV2MetadataList.size());
+          for (StarTreeV2Metadata starTreeV2Metadata : _starTreeV2MetadataList) {
+            writeStarTreeV2Metadata(out, starTreeV2Metadata);
+          }
+        } else {
+          out.writeInt(0);
+        }
+      }
+      Files.move(tempFile.toPath(), binaryMetadataFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while writing binary metadata file: {}", binaryMetadataFile, e);
+      FileUtils.deleteQuietly(tempFile);
+    }
+  }
+
+  private static StarTreeV2Metadata readStarTreeV2Metadata(DataInput in)
+      throws IOException {
+    int numDocs = in.readInt();
+    int numDimensions = in.readInt();
+    List<String> dimensionsSplitOrder = new ArrayList<>(numDimensions);
+    for (int i = 0; i < numDimensions; i++) {
+      dimensionsSplitOrder.add(readString(in));
+    }
+    int numFunctionColumnPairs = in.readInt();
+    Set<AggregationFunctionColumnPair> functionColumnPairs = new HashSet<>();
+    for (int i = 0; i < numFunctionColumnPairs; i++) {
+      functionColumnPairs.add(AggregationFunctionColumnPair.fromColumnName(readString(in)));
+    }
+    int maxLeafRecords = in.readInt();
+    int numSkipStarNodeCreationDimensions = in.readInt();
+    Set<String> skipStarNodeCreationForDimensions = new HashSet<>();
+    for (int i = 0; i < numSkipStarNodeCreationDimensions; i++) {
+      skipStarNodeCreationForDimensions.add(readString(in));
+    }
+    return new StarTreeV2Metadata(numDocs, dimensionsSplitOrder, functionColumnPairs, maxLeafRecords,
+        skipStarNodeCreationForDimensions);
+  }
+
+  private static void writeStarTreeV2Metadata(DataOutput out, StarTreeV2Metadata starTreeV2Metadata)
+      throws IOException {
+    out.writeInt(starTreeV2Metadata.getNumDocs());
+    List<String> dimensionsSplitOrder = starTreeV2Metadata.getDimensionsSplitOrder();
+    out.writeInt(dimensionsSplitOrder.size());
+    for (String dimension : dimensionsSplitOrder) {
+      writeString(out, dimension);
+    }
+    Set<AggregationFunctionColumnPair> functionColumnPairs = starTreeV2Metadata.getFunctionColumnPairs();
+    out.writeInt(functionColumnPairs.size());
+    for (AggregationFunctionColumnPair functionColumnPair : functionColumnPairs) {
+      writeString(out, functionColumnPair.toColumnName());
+    }
+    out.writeInt(starTreeV2Metadata.getMaxLeafRecords());
+    Set<String> skipStarNodeCreationForDimensions = starTreeV2Metadata.getSkipStarNodeCreationForDimensions();
+    out.writeInt(skipStarNodeCreationForDimensions.size());
+    for (String dimension : skipStarNodeCreationForDimensions) {
+      writeString(out, dimension);
+    }
+  }
+
+  /**
+   * Reads a nullable string written by {@link #writeString(DataOutput, String)}, and interns it.
+   */
+  @Nullable
+  static String readString(DataInput in)
+      throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return intern(new String(bytes, UTF_8));
+  }
+
+  /**
+   * Writes a nullable string of any length (unlike {@link DataOutput#writeUTF(String)} which is limited to 64KB).
+   */
+  static void writeString(DataOutput out, @Nullable String value)
+      throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Returns the canonical representation of the given string, shared by all the segments loaded in the JVM.
+   */
+  @Nullable
+  static String intern(@Nullable String value) {
+    return value != null ? STRING_INTERNER.intern(value) : null;
+  }
+
   private void loadCreationMeta(File crcFile)
       throws IOException {
     if (crcFile.exists()) {
@@ -216,9 +482,9 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     return _allColumns;
   }
 
-  private void init(PropertiesConfiguration segmentMetadataPropertiesConfiguration) {
+  private void init(PropertiesConfiguration segmentMetadataPropertiesConfiguration, Schema schema) {
     if (segmentMetadataPropertiesConfiguration.containsKey(SEGMENT_CREATOR_VERSION)) {
-      _creatorName = segmentMetadataPropertiesConfiguration.getString(SEGMENT_CREATOR_VERSION);
+      _creatorName = intern(segmentMetadataPropertiesConfiguration.getString(SEGMENT_CREATOR_VERSION));
     }
 
     if (segmentMetadataPropertiesConfiguration.containsKey(SEGMENT_PADDING_CHARACTER)) {
@@ -240,7 +506,7 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     addPhysicalColumns(segmentMetadataPropertiesConfiguration.getList(DATETIME_COLUMNS), _allColumns);
 
     //set the table name
-    _tableName = segmentMetadataPropertiesConfiguration.getString(TABLE_NAME);
+    _tableName = intern(segmentMetadataPropertiesConfiguration.getString(TABLE_NAME));
 
     // Set segment name.
     _segmentName = segmentMetadataPropertiesConfiguration.getString(SEGMENT_NAME);
@@ -250,7 +516,7 @@ public class SegmentMetadataImpl implements SegmentMetadata {
       ColumnMetadata columnMetadata =
           ColumnMetadata.fromPropertiesConfiguration(column, segmentMetadataPropertiesConfiguration);
       _columnMetadataMap.put(column, columnMetadata);
-      _schema.addField(columnMetadata.getFieldSpec());
+      schema.addField(columnMetadata.getFieldSpec());
     }
 
     // Build star-tree v2 metadata
@@ -272,7 +538,7 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     for (Object o : src) {
       String column = o.toString();
       if (!column.isEmpty() && column.charAt(0) != '$' && !dest.contains(column)) {
-        dest.add(column);
+        dest.add(intern(column));
       }
     }
   }
@@ -334,6 +600,10 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     return _segmentVersion;
   }
 
+  /**
+   * For segments on disk, the schema only contains the physical columns, and is shared with the other segments
+   * having the same physical schema, so it must not be modified.
+   */
   @Override
   public Schema getSchema() {
     return _schema;
@@ -80,6 +80,16 @@ abstract class ColumnIndexDirectory implements Closeable {
   public abstract PinotDataBuffer getBuffer(String column, ColumnIndexType type)
       throws IOException;
 
+  /**
+   * Release the data buffer of a specified indexType for a column, which must no longer be used. The buffer is loaded
+   * again on the next {@link #getBuffer(String, ColumnIndexType)}. By default the buffers are kept until the directory
+   * is closed.
+   * @param column column name
+   * @param type index type
+   */
+  public void releaseBuffer(String column, ColumnIndexType type) {
+  }
+
   /**
    * Allocate a new data buffer of specified sizeBytes in the columnar index directory
    * @param column column name
@@ -43,14 +43,14 @@ class FilePerIndexDirectory extends ColumnIndexDirectory {
   }
 
   @Override
-  public PinotDataBuffer getBuffer(String column, ColumnIndexType type)
+  public synchronized PinotDataBuffer getBuffer(String column, ColumnIndexType type)
       throws IOException {
     IndexKey key = new IndexKey(column, type);
     return getReadBufferFor(key);
   }
 
   @Override
-  public PinotDataBuffer newBuffer(String column, ColumnIndexType type, long sizeBytes)
+  public synchronized PinotDataBuffer newBuffer(String column, ColumnIndexType type, long sizeBytes)
       throws IOException {
     IndexKey key = new IndexKey(column, type);
     return getWriteBufferFor(key, sizeBytes);
@@ -63,7 +63,7 @@ class FilePerIndexDirectory extends ColumnIndexDirectory {
   }
 
   @Override
-  public void close()
+  public synchronized void close()
       throws IOException {
     for (PinotDataBuffer dataBuffer : indexBuffers.values()) {
       dataBuffer.close();
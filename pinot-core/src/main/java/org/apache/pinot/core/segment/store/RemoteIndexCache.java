@@ -0,0 +1,243 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.segment.store;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.spi.filesystem.PinotFS;
+import org.apache.pinot.spi.filesystem.PinotFSFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>RemoteIndexCache</code> class is a bounded local disk cache for the index buffers of the segments whose
+ * index file is stored remotely (in {@link PinotFS}), see {@link TieredIndexDirectory}.
+ * <p>Each cached entry is a byte range of a remote index file, fetched on demand into a local file. Entries are
+ * reference counted: an entry in use by a loaded column index is never evicted, and the least recently used entries
+ * not in use are evicted once the total size of the cached entries exceeds the max size.
+ * <p>The cache is not persisted: the cache directory is cleaned up when the cache is created.
+ */
+public class RemoteIndexCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemoteIndexCache.class);
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final String KEY_SEPARATOR = "#";
+
+  private static volatile RemoteIndexCache _instance;
+
+  private final File _cacheDir;
+  private final long _maxSizeBytes;
+  // Access-ordered so that the iteration order is from the least recently used entry
+  private final LinkedHashMap<String, CacheEntry> _entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long _sizeBytes;
+
+  /**
+   * Initializes the server-wide remote index cache. Should be called once when the server starts, the following calls
+   * are ignored.
+   */
+  public static synchronized void init(File cacheDir, long maxSizeBytes)
+      throws IOException {
+    if (_instance != null) {
+      LOGGER.warn("Remote index cache has already been initialized in directory: {}", _instance._cacheDir);
+      return;
+    }
+    _instance = new RemoteIndexCache(cacheDir, maxSizeBytes);
+    LOGGER.info("Initialized remote index cache in directory: {} with max size: {} bytes", cacheDir, maxSizeBytes);
+  }
+
+  /**
+   * Returns the server-wide remote index cache, or <code>null</code> if it is not initialized.
+   */
+  @Nullable
+  public static RemoteIndexCache getInstance() {
+    return _instance;
+  }
+
+  @VisibleForTesting
+  static synchronized void reset() {
+    _instance = null;
+  }
+
+  @VisibleForTesting
+  RemoteIndexCache(File cacheDir, long maxSizeBytes)
+      throws IOException {
+    Preconditions.checkArgument(maxSizeBytes > 0, "Max size of the remote index cache must be positive");
+    _cacheDir = cacheDir;
+    _maxSizeBytes = maxSizeBytes;
+    if (cacheDir.exists()) {
+      FileUtils.cleanDirectory(cacheDir);
+    } else {
+      FileUtils.forceMkdir(cacheDir);
+    }
+  }
+
+  /**
+   * Returns the local file holding the given byte range of the remote index file, fetching it from the remote index
+   * file if it is not cached. The entry is pinned in the cache until {@link #release(URI, long)} is called.
+   *
+   * @param remoteIndexFileUri URI of the remote index file
+   * @param offset start offset of the byte range
+   * @param size size of the byte range
+   * @return local file with the content of the byte range
+   */
+  public File acquire(URI remoteIndexFileUri, long offset, long size)
+      throws IOException {
+    String key = getKey(remoteIndexFileUri, offset);
+    CacheEntry entry;
+    synchronized (this) {
+      entry = _entries.get(key);
+      if (entry == null) {
+        entry = new CacheEntry(new File(_cacheDir, Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString()),
+            size);
+        _entries.put(key, entry);
+      }
+      entry._refCount++;
+    }
+
+    // Fetch outside of the cache lock so that fetching one entry does not block the other entries
+    synchronized (entry) {
+      if (!entry._fetched) {
+        try {
+          fetch(remoteIndexFileUri, offset, size, entry._file);
+        } catch (Exception e) {
+          synchronized (this) {
+            if (--entry._refCount == 0) {
+              _entries.remove(key);
+            }
+          }
+          throw new IOException(
+              "Failed to fetch range: [" + offset + "," + (offset + size) + ") of remote index file: "
+                  + remoteIndexFileUri, e);
+        }
+        entry._fetched = true;
+        synchronized (this) {
+          _sizeBytes += size;
+          evict();
+        }
+      }
+    }
+    return entry._file;
+  }
+
+  /**
+   * Releases an entry acquired with {@link #acquire(URI, long, long)}, after which it can be evicted.
+   */
+  public synchronized void release(URI remoteIndexFileUri, long offset) {
+    CacheEntry entry = _entries.get(getKey(remoteIndexFileUri, offset));
+    if (entry != null && entry._refCount > 0) {
+      entry._refCount--;
+      evict();
+    }
+  }
+
+  /**
+   * Removes the entries of the given remote index file not in use from the cache, e.g. after the remote index file is
+   * deleted.
+   */
+  public synchronized void invalidate(URI remoteIndexFileUri) {
+    String keyPrefix = remoteIndexFileUri + KEY_SEPARATOR;
+    Iterator<Map.Entry<String, CacheEntry>> iterator = _entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, CacheEntry> mapEntry = iterator.next();
+      CacheEntry entry = mapEntry.getValue();
+      if (mapEntry.getKey().startsWith(keyPrefix) && entry._refCount == 0 && entry._fetched) {
+        remove(iterator, entry);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  synchronized long getSizeBytes() {
+    return _sizeBytes;
+  }
+
+  @VisibleForTesting
+  synchronized int getNumEntries() {
+    return _entries.size();
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<String, CacheEntry>> iterator = _entries.entrySet().iterator();
+    while (_sizeBytes > _maxSizeBytes && iterator.hasNext()) {
+      CacheEntry entry = iterator.next().getValue();
+      if (entry._refCount == 0 && entry._fetched) {
+        remove(iterator, entry);
+      }
+    }
+    if (_sizeBytes > _maxSizeBytes) {
+      LOGGER.warn("Remote index cache size: {} exceeds max size: {} with all the remaining entries in use", _sizeBytes,
+          _maxSizeBytes);
+    }
+  }
+
+  private void remove(Iterator<Map.Entry<String, CacheEntry>> iterator, CacheEntry entry) {
+    FileUtils.deleteQuietly(entry._file);
+    _sizeBytes -= entry._size;
+    iterator.remove();
+  }
+
+  private static void fetch(URI remoteIndexFileUri, long offset, long size, File destFile)
+      throws IOException {
+    long startTimeMs = System.currentTimeMillis();
+    File tempFile = new File(destFile.getPath() + TEMP_FILE_SUFFIX);
+    PinotFS pinotFS = PinotFSFactory.create(remoteIndexFileUri.getScheme());
+    // Ranged read so that only the bytes of the index are read from the remote index file
+    try (InputStream inputStream = pinotFS.open(remoteIndexFileUri, offset, size)) {
+      long numBytesCopied = Files.copy(inputStream, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      if (numBytesCopied != size) {
+        throw new IOException("Expected " + size + " bytes but got " + numBytesCopied + " bytes");
+      }
+      Files.move(tempFile.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      FileUtils.deleteQuietly(tempFile);
+    }
+    LOGGER.debug("Fetched range: [{},{}) of remote index file: {} in {}ms", offset, offset + size, remoteIndexFileUri,
+        System.currentTimeMillis() - startTimeMs);
+  }
+
+  private static String getKey(URI remoteIndexFileUri, long offset) {
+    return remoteIndexFileUri + KEY_SEPARATOR + offset;
+  }
+
+  private static class CacheEntry {
+    final File _file;
+    final long _size;
+    int _refCount;
+    volatile boolean _fetched;
+
+    CacheEntry(File file, long size) {
+      _file = file;
+      _size = size;
+    }
+  }
+}
@@ -18,12 +18,15 @@
  */
 package org.apache.pinot.core.segment.store;
 
+import com.google.common.base.Preconditions;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Path;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.pinot.common.segment.ReadMode;
+import org.apache.pinot.core.indexsegment.generator.SegmentVersion;
 import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
 import org.apache.pinot.core.segment.memory.PinotDataBuffer;
 
@@ -108,11 +111,51 @@ public abstract class SegmentDirectory implements Closeable {
     return new SegmentLocalFSDirectory(directory, metadata, readMode);
   }
 
+  /**
+   * Create segment directory from local file system, optionally skipping the synchronous prefetch of the memory mapped
+   * index buffers (e.g. when the buffers are warmed up in the background instead).
+   */
+  public static SegmentDirectory createFromLocalFS(File directory, SegmentMetadataImpl metadata, ReadMode readMode,
+      boolean prefetchOnLoad) {
+    return new SegmentLocalFSDirectory(directory, metadata, readMode, prefetchOnLoad);
+  }
+
   public static SegmentDirectory createFromLocalFS(File directory, ReadMode readMode)
       throws IOException, ConfigurationException {
     return new SegmentLocalFSDirectory(directory, readMode);
   }
 
+  /**
+   * Moves the large indexes of a v3 segment to the remote tier (a copy of the single index file in PinotFS), so that
+   * only the metadata and the small indexes (dictionary, bloom filter) are kept on local disk. The remote indexes are
+   * fetched on demand through the {@link RemoteIndexCache} when the segment directory is read. No-op if the segment is
+   * already tiered.
+   * @param indexDir segment index directory
+   * @param remoteSegmentDirUri URI of the remote directory for the segment
+   */
+  public static void moveIndexesToRemote(File indexDir, URI remoteSegmentDirUri)
+      throws Exception {
+    File v3SegmentDirectory = SegmentDirectoryPaths.segmentDirectoryFor(indexDir, SegmentVersion.v3);
+    Preconditions.checkState(new File(v3SegmentDirectory, SegmentDirectoryPaths.V3_INDEX_FILE_NAME).exists(),
+        "Only v3 segments can be tiered, segment directory: %s", indexDir);
+    TieredIndexDirectory.moveToRemote(v3SegmentDirectory, remoteSegmentDirUri);
+  }
+
+  /**
+   * Returns whether the large indexes of the segment have been moved to the remote tier.
+   */
+  public static boolean isTiered(File indexDir) {
+    return TieredIndexDirectory.isTiered(SegmentDirectoryPaths.segmentDirectoryFor(indexDir, SegmentVersion.v3));
+  }
+
+  /**
+   * Deletes the remote indexes of a tiered segment. Should be called before deleting the index directory when the
+   * segment is dropped. No-op if the segment is not tiered.
+   */
+  public static void deleteRemoteIndexes(File indexDir) {
+    TieredIndexDirectory.deleteRemoteIndexFile(SegmentDirectoryPaths.segmentDirectoryFor(indexDir, SegmentVersion.v3));
+  }
+
   public static SegmentMetadataImpl loadSegmentMetadata(File directory)
       throws IOException, ConfigurationException {
     return SegmentLocalFSDirectory.loadSegmentMetadata(directory);
@@ -145,6 +188,16 @@ public abstract class SegmentDirectory implements Closeable {
 
     public abstract boolean hasIndexFor(String column, ColumnIndexType type);
 
+    /**
+     * Releases the columnar index data buffer returned by {@link #getIndexFor(String, ColumnIndexType)}, which must no
+     * longer be used (e.g. the buffers of the remote indexes of a tiered segment can then be evicted from the local
+     * cache). No-op by default.
+     * @param column column name
+     * @param type index type
+     */
+    public void releaseIndexFor(String column, ColumnIndexType type) {
+    }
+
     public abstract String toString();
   }
 
@@ -33,6 +33,7 @@ public class SegmentDirectoryPaths {
   }
 
   public static final String V3_SUBDIRECTORY_NAME = "v3";
+  public static final String V3_INDEX_FILE_NAME = "columns.psf";
 
   public static File segmentDirectoryFor(File indexDir, SegmentVersion segmentVersion) {
     switch (segmentVersion) {
@@ -47,6 +47,7 @@ class SegmentLocalFSDirectory extends SegmentDirectory {
   SegmentLock segmentLock;
   private SegmentMetadataImpl segmentMetadata;
   private ReadMode readMode;
+  private final boolean prefetchOnLoad;
 
   private ColumnIndexDirectory columnIndexDirectory;
 
@@ -60,6 +61,11 @@ class SegmentLocalFSDirectory extends SegmentDirectory {
   }
 
   SegmentLocalFSDirectory(File directoryFile, SegmentMetadataImpl metadata, ReadMode readMode) {
+    this(directoryFile, metadata, readMode, true);
+  }
+
+  SegmentLocalFSDirectory(File directoryFile, SegmentMetadataImpl metadata, ReadMode readMode,
+      boolean prefetchOnLoad) {
 
     Preconditions.checkNotNull(directoryFile);
     Preconditions.checkNotNull(metadata);
@@ -70,6 +76,7 @@ class SegmentLocalFSDirectory extends SegmentDirectory {
     segmentLock = new SegmentLock();
     this.segmentMetadata = metadata;
     this.readMode = readMode;
+    this.prefetchOnLoad = prefetchOnLoad;
     try {
       load();
     } catch (IOException | ConfigurationException e) {
@@ -201,7 +208,11 @@ class SegmentLocalFSDirectory extends SegmentDirectory {
         break;
       case v3:
         try {
-          columnIndexDirectory = new SingleFileIndexDirectory(segmentDirectory, segmentMetadata, readMode);
+          if (TieredIndexDirectory.isTiered(segmentDirectory)) {
+            columnIndexDirectory = new TieredIndexDirectory(segmentDirectory, segmentMetadata, readMode);
+          } else {
+            columnIndexDirectory = new SingleFileIndexDirectory(segmentDirectory, segmentMetadata, readMode);
+          }
         } catch (ConfigurationException e) {
           LOGGER.error("Failed to create columnar index directory", e);
           throw new RuntimeException(e);
@@ -228,7 +239,7 @@ class SegmentLocalFSDirectory extends SegmentDirectory {
 
     buffer = columnIndexDirectory.getBuffer(column, type);
 
-    if (readMode == ReadMode.mmap) {
+    if (readMode == ReadMode.mmap && prefetchOnLoad) {
       prefetchMmapData(buffer);
     }
     return buffer;
@@ -293,6 +304,11 @@ class SegmentLocalFSDirectory extends SegmentDirectory {
       return columnIndexDirectory.hasIndexFor(column, type);
     }
 
+    @Override
+    public void releaseIndexFor(String column, ColumnIndexType type) {
+      columnIndexDirectory.releaseBuffer(column, type);
+    }
+
     @Override
     public void close() {
       // do nothing here
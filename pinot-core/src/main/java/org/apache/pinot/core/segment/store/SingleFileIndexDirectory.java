@@ -20,12 +20,22 @@ package org.apache.pinot.core.segment.store;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +44,7 @@ import java.util.TreeMap;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
 import org.apache.pinot.common.segment.ReadMode;
 import org.apache.pinot.core.segment.creator.impl.inv.text.LuceneTextIndexCreator;
 import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
@@ -42,6 +53,7 @@ import org.apache.pinot.spi.env.CommonsConfigurationUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 
 
@@ -54,22 +66,35 @@ import com.google.common.base.Preconditions;
 // in case of failures. Some parts of this will improve in future but there will be
 // no complete ACID guarantee
 //
+// Index file is append-only: new indexes are always appended at the end of the file, and removing
+// (or replacing) an index only drops its entry from the index map, leaving dead space behind. Once
+// the dead space grows over COMPACTION_DEAD_SPACE_THRESHOLD of the index file, the live indexes are
+// copied into a new index file when the directory that modified them is closed. Existing index ranges are
+// never written in place, so buffers mapped by a segment that is still serving stay valid.
+//
 // TODO/Missing features:
 // newBuffer : opening new buffer maps a new buffer separately. User can avoid
 // it by making all the write calls followed by reads.
-// Remove index: Ability to remove an index (particularly inverted index)
 // Abort writes: There is no way to abort discard changes
 //
 class SingleFileIndexDirectory extends ColumnIndexDirectory {
   private static Logger LOGGER = LoggerFactory.getLogger(SingleFileIndexDirectory.class);
 
-  private static final String DEFAULT_INDEX_FILE_NAME = "columns.psf";
-  private static final String INDEX_MAP_FILE = "index_map";
-  private static final long MAGIC_MARKER = 0xdeadbeefdeafbeadL;
-  private static final int MAGIC_MARKER_SIZE_BYTES = 8;
+  private static final String DEFAULT_INDEX_FILE_NAME = SegmentDirectoryPaths.V3_INDEX_FILE_NAME;
+  static final String INDEX_MAP_FILE = "index_map";
+  static final long MAGIC_MARKER = 0xdeadbeefdeafbeadL;
+  static final int MAGIC_MARKER_SIZE_BYTES = 8;
   private static final String MAP_KEY_SEPARATOR = ".";
   private static final String MAP_KEY_NAME_START_OFFSET = "startOffset";
   private static final String MAP_KEY_NAME_SIZE = "size";
+  // Temporary files of the compaction and of the index map rewrite use different suffixes, so that recovering an
+  // interrupted compaction never promotes an index map written by a rewrite
+  static final String COMPACTION_TEMP_FILE_SUFFIX = ".compaction.tmp";
+  static final String REWRITE_TEMP_FILE_SUFFIX = ".rewrite.tmp";
+
+  // Fraction of dead space in the index file above which the index file is compacted
+  @VisibleForTesting
+  static final double COMPACTION_DEAD_SPACE_THRESHOLD = 0.5;
 
   // Max size of buffer we want to allocate
   // ByteBuffer limits the size to 2GB - (some platform dependent size)
@@ -80,12 +105,15 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
   private File indexFile;
   private Map<IndexKey, IndexEntry> columnEntries;
   private List<PinotDataBuffer> allocBuffers;
+  // Whether indexes have been added or removed since the directory is loaded
+  private boolean modified;
 
   public SingleFileIndexDirectory(File segmentDirectory, SegmentMetadataImpl metadata, ReadMode readMode)
       throws IOException, ConfigurationException {
     super(segmentDirectory, metadata, readMode);
 
     indexFile = new File(segmentDirectory, DEFAULT_INDEX_FILE_NAME);
+    recoverCompaction();
     if (!indexFile.exists()) {
       indexFile.createNewFile();
     }
@@ -167,6 +195,7 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
     columnEntries.put(key, entry);
 
     persistIndexMap(entry);
+    modified = true;
 
     return entry.buffer;
   }
@@ -196,8 +225,14 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
 
   private void loadMap()
       throws ConfigurationException {
-    File mapFile = new File(segmentDirectory, INDEX_MAP_FILE);
+    loadIndexMap(new File(segmentDirectory, INDEX_MAP_FILE), columnEntries);
+  }
 
+  /**
+   * Loads the index entries (without buffers) from the given index map file into the given map.
+   */
+  static void loadIndexMap(File mapFile, Map<IndexKey, IndexEntry> columnEntries)
+      throws ConfigurationException {
     PropertiesConfiguration mapConfig = CommonsConfigurationUtils.fromFile(mapFile);
 
     for (String key: CommonsConfigurationUtils.getKeys(mapConfig)) {
@@ -205,13 +240,12 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
       // parsing names like "column.name.dictionary.startOffset"
       // or, "column.name.dictionary.endOffset" where column.name is the key
       int lastSeparatorPos = key.lastIndexOf(MAP_KEY_SEPARATOR);
-      Preconditions
-          .checkState(lastSeparatorPos != -1, "Key separator not found: " + key + ", segment: " + segmentDirectory);
+      Preconditions.checkState(lastSeparatorPos != -1, "Key separator not found: " + key + ", map file: " + mapFile);
       String propertyName = key.substring(lastSeparatorPos + 1);
 
       int indexSeparatorPos = key.lastIndexOf(MAP_KEY_SEPARATOR, lastSeparatorPos - 1);
       Preconditions
-          .checkState(indexSeparatorPos != -1, "Index separator not found: " + key + " , segment: " + segmentDirectory);
+          .checkState(indexSeparatorPos != -1, "Index separator not found: " + key + " , map file: " + mapFile);
       String indexName = key.substring(indexSeparatorPos + 1, lastSeparatorPos);
       String columnName = key.substring(0, indexSeparatorPos);
       IndexKey indexKey = new IndexKey(columnName, ColumnIndexType.getValue(indexName));
@@ -226,8 +260,7 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
       } else if (propertyName.equals(MAP_KEY_NAME_SIZE)) {
         entry.size = mapConfig.getLong(key);
       } else {
-        throw new ConfigurationException(
-            "Invalid map file key: " + key + ", segmentDirectory: " + segmentDirectory.toString());
+        throw new ConfigurationException("Invalid map file key: " + key + ", map file: " + mapFile);
       }
     }
 
@@ -236,8 +269,7 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
       IndexEntry entry = colIndexEntry.getValue();
       if (entry.size < 0 || entry.startOffset < 0) {
         throw new ConfigurationException(
-            "Invalid map entry for key: " + colIndexEntry.getKey().toString() + ", segment: " + segmentDirectory
-                .toString());
+            "Invalid map entry for key: " + colIndexEntry.getKey().toString() + ", map file: " + mapFile);
       }
     }
   }
@@ -251,22 +283,24 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
       indexStartMap.put(startOffset, columnEntry.getValue());
     }
 
-    long runningSize = 0;
+    // NOTE: There might be dead space (from removed indexes) between the entries, so the size of the mapped range is
+    // computed from the offsets instead of accumulating the entry sizes.
     List<Long> offsetAccum = new ArrayList<>();
+    long endOffset = 0;
     for (Map.Entry<Long, IndexEntry> offsetEntry : indexStartMap.entrySet()) {
       IndexEntry entry = offsetEntry.getValue();
-      runningSize += entry.size;
+      long entryEndOffset = entry.startOffset + entry.size;
 
-      if (runningSize >= MAX_ALLOCATION_SIZE) {
-        mapAndSliceFile(indexStartMap, offsetAccum, offsetEntry.getKey());
-        runningSize = entry.size;
+      if (offsetAccum.size() > 0 && entryEndOffset - offsetAccum.get(0) >= MAX_ALLOCATION_SIZE) {
+        mapAndSliceFile(indexStartMap, offsetAccum, endOffset);
         offsetAccum.clear();
       }
       offsetAccum.add(offsetEntry.getKey());
+      endOffset = entryEndOffset;
     }
 
     if (offsetAccum.size() > 0) {
-      mapAndSliceFile(indexStartMap, offsetAccum, offsetAccum.get(0) + runningSize);
+      mapAndSliceFile(indexStartMap, offsetAccum, endOffset);
     }
   }
 
@@ -291,14 +325,13 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
     }
     allocBuffers.add(buffer);
 
-    int prevSlicePoint = 0;
     for (Long fileOffset : offsetAccum) {
       IndexEntry entry = startOffsets.get(fileOffset);
-      int endSlicePoint = prevSlicePoint + (int) entry.size;
-      validateMagicMarker(buffer, prevSlicePoint);
-      PinotDataBuffer viewBuffer = buffer.view(prevSlicePoint + MAGIC_MARKER_SIZE_BYTES, endSlicePoint);
+      int startSlicePoint = (int) (fileOffset - fromFilePos);
+      int endSlicePoint = startSlicePoint + (int) entry.size;
+      validateMagicMarker(buffer, startSlicePoint);
+      PinotDataBuffer viewBuffer = buffer.view(startSlicePoint + MAGIC_MARKER_SIZE_BYTES, endSlicePoint);
       entry.buffer = viewBuffer;
-      prevSlicePoint = endSlicePoint;
     }
   }
 
@@ -319,7 +352,164 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
     }
   }
 
-  private String getKey(String column, String indexName, boolean isStartOffset) {
+  /**
+   * Rewrites the index map file with the current index entries.
+   */
+  private void rewriteIndexMap()
+      throws IOException {
+    replaceIndexMap(segmentDirectory, INDEX_MAP_FILE, columnEntries.values());
+  }
+
+  /**
+   * Replaces the given index map file in the segment directory with the given index entries. The new map is written
+   * into a temporary file, synced to disk and then renamed, so that the index map is never left partially written.
+   */
+  static void replaceIndexMap(File segmentDirectory, String mapFileName, Collection<IndexEntry> entries)
+      throws IOException {
+    File tempMapFile = new File(segmentDirectory, mapFileName + REWRITE_TEMP_FILE_SUFFIX);
+    writeIndexMap(tempMapFile, entries);
+    Files.move(tempMapFile.toPath(), new File(segmentDirectory, mapFileName).toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory(segmentDirectory);
+  }
+
+  /**
+   * Writes the given index entries into the given index map file, overwriting the existing content, and syncs the file
+   * to disk.
+   */
+  private static void writeIndexMap(File mapFile, Collection<IndexEntry> entries)
+      throws IOException {
+    try (FileOutputStream outputStream = new FileOutputStream(mapFile, false);
+        PrintWriter writer = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)))) {
+      for (IndexEntry entry : getEntriesSortedByOffset(entries)) {
+        writer.println(getKey(entry.key.name, entry.key.type.getIndexName(), true) + " = " + entry.startOffset);
+        writer.println(getKey(entry.key.name, entry.key.type.getIndexName(), false) + " = " + entry.size);
+      }
+      writer.flush();
+      if (writer.checkError()) {
+        throw new IOException("Failed to write index map file: " + mapFile);
+      }
+      outputStream.getFD().sync();
+    }
+  }
+
+  /**
+   * Syncs the directory to disk so that the files created or renamed in it survive a crash.
+   */
+  private static void syncDirectory(File directory)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Some platforms (e.g. Windows) do not support syncing a directory
+      LOGGER.debug("Failed to sync directory: {}", directory, e);
+    }
+  }
+
+  private static List<IndexEntry> getEntriesSortedByOffset(Collection<IndexEntry> entries) {
+    List<IndexEntry> sortedEntries = new ArrayList<>(entries);
+    sortedEntries.sort(Comparator.comparingLong(entry -> entry.startOffset));
+    return sortedEntries;
+  }
+
+  /**
+   * Copies the given index entries (including the magic markers) from the source index file into the destination
+   * index file back to back, and updates the start offsets of the entries to their offsets in the destination file.
+   */
+  private static void copyIndexEntries(File srcIndexFile, File destIndexFile, Collection<IndexEntry> entries)
+      throws IOException {
+    try (FileChannel srcChannel = new RandomAccessFile(srcIndexFile, "r").getChannel();
+        FileChannel destChannel = new RandomAccessFile(destIndexFile, "rw").getChannel()) {
+      long destOffset = 0;
+      for (IndexEntry entry : getEntriesSortedByOffset(entries)) {
+        long position = entry.startOffset;
+        long remaining = entry.size;
+        while (remaining > 0) {
+          long numBytesTransferred = srcChannel.transferTo(position, remaining, destChannel);
+          position += numBytesTransferred;
+          remaining -= numBytesTransferred;
+        }
+        entry.startOffset = destOffset;
+        destOffset += entry.size;
+      }
+      destChannel.force(true);
+    }
+  }
+
+  /**
+   * Returns the number of bytes in the index file not referenced by any index (left behind by removed indexes).
+   */
+  @VisibleForTesting
+  long getDeadSpaceBytes() {
+    long liveBytes = 0;
+    for (IndexEntry entry : columnEntries.values()) {
+      liveBytes += entry.size;
+    }
+    return indexFile.length() - liveBytes;
+  }
+
+  /**
+   * Copies all the live indexes into a new index file without the dead space, then replaces the index file and the
+   * index map. The old index file is replaced by renaming, so buffers already mapped from it stay valid.
+   * <p>NOTE: All the buffers of this directory must be closed before compacting.
+   */
+  private void compact()
+      throws IOException {
+    long deadSpaceBytes = getDeadSpaceBytes();
+    replaceIndexFile(segmentDirectory, indexFile, columnEntries.values());
+    LOGGER.info("Compacted index file: {}, reclaimed {} bytes", indexFile, deadSpaceBytes);
+  }
+
+  /**
+   * Replaces the index file and the index map in the segment directory with only the given index entries copied from
+   * the current index file. The start offsets of the entries are updated to their offsets in the new index file.
+   * <p>Both the temporary index file and the temporary index map are synced to disk before renaming the index file,
+   * so that an interrupted replacement can be completed (or discarded) when loading the directory. See
+   * {@link #recoverCompaction()}.
+   */
+  static void replaceIndexFile(File segmentDirectory, File indexFile, Collection<IndexEntry> entries)
+      throws IOException {
+    File tempIndexFile = new File(segmentDirectory, indexFile.getName() + COMPACTION_TEMP_FILE_SUFFIX);
+    File tempMapFile = new File(segmentDirectory, INDEX_MAP_FILE + COMPACTION_TEMP_FILE_SUFFIX);
+    copyIndexEntries(indexFile, tempIndexFile, entries);
+    writeIndexMap(tempMapFile, entries);
+    syncDirectory(segmentDirectory);
+
+    Files.move(tempIndexFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory(segmentDirectory);
+    Files.move(tempMapFile.toPath(), new File(segmentDirectory, INDEX_MAP_FILE).toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory(segmentDirectory);
+  }
+
+  /**
+   * Cleans up after an interrupted compaction:
+   * <ul>
+   *   <li>If the temporary index file exists, the compaction did not replace the index file yet, discard it</li>
+   *   <li>If only the temporary index map exists, the index file has been replaced, complete it with the new map</li>
+   * </ul>
+   * A leftover temporary index map of an interrupted rewrite is never promoted, as the index map is only replaced once
+   * the temporary map is fully written.
+   */
+  private void recoverCompaction()
+      throws IOException {
+    FileUtils.deleteQuietly(new File(segmentDirectory, INDEX_MAP_FILE + REWRITE_TEMP_FILE_SUFFIX));
+    File tempIndexFile = new File(segmentDirectory, DEFAULT_INDEX_FILE_NAME + COMPACTION_TEMP_FILE_SUFFIX);
+    File tempMapFile = new File(segmentDirectory, INDEX_MAP_FILE + COMPACTION_TEMP_FILE_SUFFIX);
+    if (tempIndexFile.exists()) {
+      LOGGER.warn("Discarding interrupted compaction of index file: {}", indexFile);
+      FileUtils.deleteQuietly(tempIndexFile);
+      FileUtils.deleteQuietly(tempMapFile);
+    } else if (tempMapFile.exists()) {
+      LOGGER.warn("Completing interrupted compaction of index file: {}", indexFile);
+      Files.move(tempMapFile.toPath(), new File(segmentDirectory, INDEX_MAP_FILE).toPath(),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  private static String getKey(String column, String indexName, boolean isStartOffset) {
     return column + MAP_KEY_SEPARATOR + indexName + MAP_KEY_SEPARATOR + (isStartOffset ? "startOffset" : "size");
   }
 
@@ -333,20 +523,46 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
     for (PinotDataBuffer buf : allocBuffers) {
       buf.close();
     }
+    // Only compact when the indexes are modified so that loading a segment for serving never rewrites the index file
+    if (modified && getDeadSpaceBytes() > COMPACTION_DEAD_SPACE_THRESHOLD * indexFile.length()) {
+      compact();
+    }
+    modified = false;
     columnEntries.clear();
     allocBuffers.clear();
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>The index is dropped from the index map, and the space taken by the index is reclaimed by the next compaction.
+   * The index can be re-created (replaced) with {@link #newBuffer(String, ColumnIndexType, long)} afterwards.
+   */
   @Override
   public void removeIndex(String columnName, ColumnIndexType indexType) {
-    throw new UnsupportedOperationException(
-        "Index removal is not supported for single file index format. Requested colum: " + columnName + " indexType: "
-            + indexType);
+    if (indexType == ColumnIndexType.TEXT_INDEX) {
+      // Text index is stored in a separate directory
+      FileUtils.deleteQuietly(
+          new File(segmentDirectory, columnName + LuceneTextIndexCreator.LUCENE_TEXT_INDEX_FILE_EXTENSION));
+      return;
+    }
+    IndexKey key = new IndexKey(columnName, indexType);
+    if (columnEntries.remove(key) == null) {
+      return;
+    }
+    try {
+      rewriteIndexMap();
+    } catch (IOException e) {
+      throw new RuntimeException(
+          "Failed to remove index for key: " + key + ", for segmentDirectory: " + segmentDirectory.getAbsolutePath(),
+          e);
+    }
+    modified = true;
+    LOGGER.debug("Removed index for key: {} from segment directory: {}", key, segmentDirectory);
   }
 
   @Override
   public boolean isIndexRemovalSupported() {
-    return false;
+    return true;
   }
 
   @Override
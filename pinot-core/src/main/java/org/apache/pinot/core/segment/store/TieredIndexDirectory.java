@@ -0,0 +1,327 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.segment.store;
+
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.segment.ReadMode;
+import org.apache.pinot.common.utils.URIUtils;
+import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.core.segment.memory.PinotDataBuffer;
+import org.apache.pinot.spi.filesystem.PinotFS;
+import org.apache.pinot.spi.filesystem.PinotFSFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Column index directory for a v3 segment whose large indexes are stored remotely.
+ * <p>The small indexes (see {@link #LOCAL_INDEX_TYPES}) and the indexes added after the segment is tiered are kept in
+ * the local single index file, and are served by a {@link SingleFileIndexDirectory}. The other indexes are kept in a
+ * copy of the original single index file in {@link PinotFS}, whose index map is stored locally in the remote index map
+ * file. The buffer of each remote index is fetched (only the byte range of the index) on access through the
+ * {@link RemoteIndexCache}, and pinned in the cache until it is released with {@link #releaseBuffer(String,
+ * ColumnIndexType)} (e.g. when the lazily loaded column is released) or the directory is closed.
+ * <p>The remote index file is owned by the server: it is deleted when the segment is dropped (see
+ * {@link #deleteRemoteIndexFile(File)}), or when the directory is closed after the local segment directory stopped
+ * referencing it (e.g. the segment is refreshed).
+ */
+class TieredIndexDirectory extends ColumnIndexDirectory {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TieredIndexDirectory.class);
+
+  static final String REMOTE_INDEX_MAP_FILE = "remote_index_map";
+  static final String REMOTE_INDEX_URI_FILE = "remote_index_uri";
+
+  // Index types always kept locally. They are small and needed for pruning and filtering.
+  static final Set<ColumnIndexType> LOCAL_INDEX_TYPES =
+      EnumSet.of(ColumnIndexType.DICTIONARY, ColumnIndexType.BLOOM_FILTER);
+
+  private final SingleFileIndexDirectory localIndexDirectory;
+  private final URI remoteIndexFileUri;
+  private final Map<IndexKey, IndexEntry> remoteEntries = new HashMap<>();
+  private final Map<IndexKey, FetchedBuffer> fetchedBuffers = new HashMap<>();
+
+  TieredIndexDirectory(File segmentDirectory, SegmentMetadataImpl metadata, ReadMode readMode)
+      throws IOException, ConfigurationException {
+    super(segmentDirectory, metadata, readMode);
+    localIndexDirectory = new SingleFileIndexDirectory(segmentDirectory, metadata, readMode);
+    remoteIndexFileUri = readRemoteIndexFileUri(segmentDirectory);
+    SingleFileIndexDirectory.loadIndexMap(new File(segmentDirectory, REMOTE_INDEX_MAP_FILE), remoteEntries);
+  }
+
+  static boolean isTiered(File segmentDirectory) {
+    return new File(segmentDirectory, REMOTE_INDEX_MAP_FILE).exists();
+  }
+
+  private static URI readRemoteIndexFileUri(File segmentDirectory)
+      throws IOException {
+    return URI.create(
+        FileUtils.readFileToString(new File(segmentDirectory, REMOTE_INDEX_URI_FILE), StandardCharsets.UTF_8).trim());
+  }
+
+  @Override
+  public synchronized PinotDataBuffer getBuffer(String column, ColumnIndexType type)
+      throws IOException {
+    if (localIndexDirectory.hasIndexFor(column, type)) {
+      return localIndexDirectory.getBuffer(column, type);
+    }
+    IndexKey key = new IndexKey(column, type);
+    IndexEntry entry = remoteEntries.get(key);
+    if (entry == null) {
+      throw new RuntimeException(
+          "Could not find index for column: " + column + ", type: " + type + ", segment: " + segmentDirectory);
+    }
+    FetchedBuffer fetchedBuffer = fetchedBuffers.get(key);
+    if (fetchedBuffer == null) {
+      fetchedBuffer = fetchRemoteBuffer(entry);
+      fetchedBuffers.put(key, fetchedBuffer);
+    }
+    return fetchedBuffer.view;
+  }
+
+  private FetchedBuffer fetchRemoteBuffer(IndexEntry entry)
+      throws IOException {
+    RemoteIndexCache cache = RemoteIndexCache.getInstance();
+    Preconditions.checkState(cache != null,
+        "Remote index cache is not initialized, cannot read index: %s of segment: %s",
+        entry.key, segmentDirectory);
+    File cachedFile = cache.acquire(remoteIndexFileUri, entry.startOffset, entry.size);
+
+    PinotDataBuffer buffer = null;
+    try {
+      String context = allocationContext(cachedFile, "remote_index." + entry.key);
+      // Backward-compatible: index file is always big-endian
+      if (readMode == ReadMode.heap) {
+        buffer = PinotDataBuffer.loadFile(cachedFile, 0, entry.size, ByteOrder.BIG_ENDIAN, context);
+      } else {
+        buffer = PinotDataBuffer.mapFile(cachedFile, true, 0, entry.size, ByteOrder.BIG_ENDIAN, context);
+      }
+      if (buffer.getLong(0) != SingleFileIndexDirectory.MAGIC_MARKER) {
+        throw new RuntimeException(
+            "Inconsistent data read for index: " + entry.key + " from remote index file: " + remoteIndexFileUri);
+      }
+      return new FetchedBuffer(entry, buffer,
+          buffer.view(SingleFileIndexDirectory.MAGIC_MARKER_SIZE_BYTES, entry.size));
+    } catch (IOException | RuntimeException e) {
+      if (buffer != null) {
+        buffer.close();
+      }
+      cache.release(remoteIndexFileUri, entry.startOffset);
+      throw e;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>Unpins the fetched remote index from the {@link RemoteIndexCache} so that it can be evicted.
+   */
+  @Override
+  public synchronized void releaseBuffer(String column, ColumnIndexType type) {
+    FetchedBuffer fetchedBuffer = fetchedBuffers.remove(new IndexKey(column, type));
+    if (fetchedBuffer != null) {
+      release(fetchedBuffer);
+    }
+  }
+
+  private void release(FetchedBuffer fetchedBuffer) {
+    try {
+      fetchedBuffer.buffer.close();
+    } catch (IOException e) {
+      LOGGER.error("Failed to close buffer for remote index: {} of segment: {}. Continuing with error.",
+          fetchedBuffer.entry.key, segmentDirectory, e);
+    }
+    RemoteIndexCache cache = RemoteIndexCache.getInstance();
+    if (cache != null) {
+      cache.release(remoteIndexFileUri, fetchedBuffer.entry.startOffset);
+    }
+  }
+
+  @Override
+  public synchronized PinotDataBuffer newBuffer(String column, ColumnIndexType type, long sizeBytes)
+      throws IOException {
+    if (remoteEntries.containsKey(new IndexKey(column, type))) {
+      throw new RuntimeException(
+          "Attempt to re-create an existing remote index for column: " + column + ", type: " + type + ", segment: "
+              + segmentDirectory);
+    }
+    return localIndexDirectory.newBuffer(column, type, sizeBytes);
+  }
+
+  @Override
+  public boolean hasIndexFor(String column, ColumnIndexType type) {
+    return localIndexDirectory.hasIndexFor(column, type) || remoteEntries.containsKey(new IndexKey(column, type));
+  }
+
+  @Override
+  public synchronized void removeIndex(String columnName, ColumnIndexType indexType) {
+    if (localIndexDirectory.hasIndexFor(columnName, indexType)) {
+      localIndexDirectory.removeIndex(columnName, indexType);
+      return;
+    }
+    // The remote index file holds the other remote indexes as well, so only drop the entry from the remote index map.
+    // The bytes of the removed index are deleted with the remote index file.
+    if (remoteEntries.remove(new IndexKey(columnName, indexType)) != null) {
+      try {
+        SingleFileIndexDirectory.replaceIndexMap(segmentDirectory, REMOTE_INDEX_MAP_FILE, remoteEntries.values());
+      } catch (IOException e) {
+        throw new RuntimeException(
+            "Failed to remove remote index for column: " + columnName + ", type: " + indexType + ", segment: "
+                + segmentDirectory, e);
+      }
+    }
+  }
+
+  @Override
+  public boolean isIndexRemovalSupported() {
+    return true;
+  }
+
+  @Override
+  public synchronized void close()
+      throws IOException {
+    localIndexDirectory.close();
+    for (FetchedBuffer fetchedBuffer : fetchedBuffers.values()) {
+      release(fetchedBuffer);
+    }
+    fetchedBuffers.clear();
+
+    // Delete the remote index file once the local segment directory no longer references it (e.g. the segment has been
+    // refreshed, or dropped while being queried)
+    URI currentRemoteIndexFileUri = null;
+    if (isTiered(segmentDirectory)) {
+      try {
+        currentRemoteIndexFileUri = readRemoteIndexFileUri(segmentDirectory);
+      } catch (IOException e) {
+        LOGGER.warn("Failed to read remote index file URI of segment: {}", segmentDirectory, e);
+        return;
+      }
+    }
+    if (!remoteIndexFileUri.equals(currentRemoteIndexFileUri)) {
+      deleteRemoteIndexFile(remoteIndexFileUri);
+    }
+  }
+
+  /**
+   * Deletes the remote index file of the given tiered segment directory, and invalidates its entries in the
+   * {@link RemoteIndexCache}. Should be called before deleting the segment directory when the segment is dropped. No-op
+   * if the segment is not tiered.
+   */
+  static void deleteRemoteIndexFile(File segmentDirectory) {
+    if (!isTiered(segmentDirectory)) {
+      return;
+    }
+    try {
+      deleteRemoteIndexFile(readRemoteIndexFileUri(segmentDirectory));
+    } catch (IOException e) {
+      LOGGER.warn("Failed to read remote index file URI of segment: {}", segmentDirectory, e);
+    }
+  }
+
+  private static void deleteRemoteIndexFile(URI remoteIndexFileUri) {
+    try {
+      PinotFS pinotFS = PinotFSFactory.create(remoteIndexFileUri.getScheme());
+      if (pinotFS.exists(remoteIndexFileUri)) {
+        pinotFS.delete(remoteIndexFileUri, true);
+        LOGGER.info("Deleted remote index file: {}", remoteIndexFileUri);
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Failed to delete remote index file: {}", remoteIndexFileUri, e);
+    }
+    RemoteIndexCache cache = RemoteIndexCache.getInstance();
+    if (cache != null) {
+      cache.invalidate(remoteIndexFileUri);
+    }
+  }
+
+  /**
+   * Moves the indexes not in {@link #LOCAL_INDEX_TYPES} of a local v3 segment directory to the remote tier: uploads the
+   * single index file into the given remote directory (unless it already exists, e.g. uploaded before a restart), then
+   * shrinks the local single index file to only keep the local indexes. No-op if the segment is already tiered.
+   * <p>The remote index file is named after the checksum of its content, so that a refreshed segment never reuses the
+   * remote index file of its previous version.
+   *
+   * @param segmentDirectory v3 segment directory
+   * @param remoteSegmentDirUri URI of the remote directory for the segment
+   */
+  static void moveToRemote(File segmentDirectory, URI remoteSegmentDirUri)
+      throws Exception {
+    if (isTiered(segmentDirectory)) {
+      return;
+    }
+    File indexFile = new File(segmentDirectory, SegmentDirectoryPaths.V3_INDEX_FILE_NAME);
+    Map<IndexKey, IndexEntry> entries = new HashMap<>();
+    SingleFileIndexDirectory
+        .loadIndexMap(new File(segmentDirectory, SingleFileIndexDirectory.INDEX_MAP_FILE), entries);
+    Map<IndexKey, IndexEntry> localEntries = new HashMap<>();
+    Map<IndexKey, IndexEntry> remoteEntries = new HashMap<>();
+    for (Map.Entry<IndexKey, IndexEntry> entry : entries.entrySet()) {
+      if (LOCAL_INDEX_TYPES.contains(entry.getKey().type)) {
+        localEntries.put(entry.getKey(), entry.getValue());
+      } else {
+        remoteEntries.put(entry.getKey(), entry.getValue());
+      }
+    }
+    if (remoteEntries.isEmpty()) {
+      return;
+    }
+
+    URI remoteIndexFileUri = URIUtils.getUri(remoteSegmentDirUri.toString(),
+        indexFile.getName() + "." + Long.toHexString(FileUtils.checksumCRC32(indexFile)));
+    PinotFS pinotFS = PinotFSFactory.create(remoteIndexFileUri.getScheme());
+    if (!pinotFS.exists(remoteIndexFileUri) || pinotFS.length(remoteIndexFileUri) != indexFile.length()) {
+      pinotFS.copyFromLocalFile(indexFile, remoteIndexFileUri);
+    }
+
+    // Write the remote index map before shrinking the local index file, so that all the indexes are still accessible
+    // if the tiering is interrupted. The local index file and index map are replaced the same way as compaction.
+    FileUtils.writeStringToFile(new File(segmentDirectory, REMOTE_INDEX_URI_FILE), remoteIndexFileUri.toString(),
+        StandardCharsets.UTF_8);
+    SingleFileIndexDirectory.replaceIndexMap(segmentDirectory, REMOTE_INDEX_MAP_FILE, remoteEntries.values());
+    SingleFileIndexDirectory.replaceIndexFile(segmentDirectory, indexFile, localEntries.values());
+    LOGGER.info("Moved {} indexes of segment directory: {} to remote index file: {}", remoteEntries.size(),
+        segmentDirectory, remoteIndexFileUri);
+  }
+
+  @Override
+  public String toString() {
+    return segmentDirectory + "/" + remoteIndexFileUri;
+  }
+
+  private static class FetchedBuffer {
+    final IndexEntry entry;
+    final PinotDataBuffer buffer;
+    final PinotDataBuffer view;
+
+    FetchedBuffer(IndexEntry entry, PinotDataBuffer buffer, PinotDataBuffer view) {
+      this.entry = entry;
+      this.buffer = buffer;
+      this.view = view;
+    }
+  }
+}
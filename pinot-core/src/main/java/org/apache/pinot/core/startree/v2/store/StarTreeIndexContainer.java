@@ -64,6 +64,13 @@ public class StarTreeIndexContainer implements Closeable {
     return _starTrees;
   }
 
+  /**
+   * Returns the buffer of the star-tree index file, which holds all the star-trees of the segment.
+   */
+  public PinotDataBuffer getDataBuffer() {
+    return _dataBuffer;
+  }
+
   @Override
   public void close()
       throws IOException {
@@ -18,11 +18,16 @@
  */
 package org.apache.pinot.core.transport;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.pinot.common.utils.DataTable;
 
@@ -30,12 +35,20 @@ import org.apache.pinot.common.utils.DataTable;
 /**
  * The {@code AsyncQueryResponse} class represents an asynchronous query response.
  * <p>Call {@link #getResponse()} to get the query response asynchronously.
+ * <p>The request to a slow server can be hedged by sending the same segments to other servers with a separate request
+ * id (see {@link QueryRouter#submitHedgedRequest}). The slow server is counted as responded once either itself or all
+ * the hedge servers respond, and the first one wins. The hedged request only wins when none of the hedge servers
+ * responds with exceptions, otherwise the broker keeps waiting for the slow server.
  */
 @ThreadSafe
 public class AsyncQueryResponse {
   private final QueryRouter _queryRouter;
   private final long _requestId;
   private final ConcurrentHashMap<ServerRoutingInstance, ServerResponse> _responseMap;
+  // Servers counted down in the latch, either responded or covered by the hedged request
+  private final Set<ServerRoutingInstance> _respondedServers = ConcurrentHashMap.newKeySet();
+  // Map from hedge request id to the hedged request
+  private final ConcurrentHashMap<Long, HedgedRequest> _hedgedRequestMap = new ConcurrentHashMap<>();
   private final CountDownLatch _countDownLatch;
   private final long _maxEndTimeMs;
 
@@ -56,17 +69,74 @@ public class AsyncQueryResponse {
 
   /**
    * Waits until the query is done and returns a map from the server to the response.
+   * <p>For the servers covered by the hedged requests, the responses from the hedge servers are returned instead.
+   * <p>The query is cancelled on the servers that have not responded when the query is done (e.g. timed out or
+   * interrupted), so that they do not keep executing the query until their own timeout.
    */
   public Map<ServerRoutingInstance, ServerResponse> getResponse()
       throws InterruptedException {
     try {
       _countDownLatch.await(_maxEndTimeMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-      return _responseMap;
+      if (_hedgedRequestMap.isEmpty()) {
+        return _responseMap;
+      }
+      Map<ServerRoutingInstance, ServerResponse> responseMap = new HashMap<>(_responseMap);
+      for (HedgedRequest hedgedRequest : _hedgedRequestMap.values()) {
+        if (hedgedRequest._won) {
+          responseMap.remove(hedgedRequest._slowServer);
+          responseMap.putAll(hedgedRequest._responseMap);
+        }
+      }
+      return responseMap;
     } finally {
       _queryRouter.markQueryDone(_requestId);
+      List<ServerRoutingInstance> serversNotResponded = getServersNotResponded();
+      if (!serversNotResponded.isEmpty()) {
+        _queryRouter.cancelQuery(_requestId, serversNotResponded);
+      }
+      for (Map.Entry<Long, HedgedRequest> entry : _hedgedRequestMap.entrySet()) {
+        long hedgeRequestId = entry.getKey();
+        _queryRouter.markQueryDone(hedgeRequestId);
+        List<ServerRoutingInstance> hedgeServersNotResponded = entry.getValue().getServersNotResponded();
+        if (!hedgeServersNotResponded.isEmpty()) {
+          _queryRouter.cancelQuery(hedgeRequestId, hedgeServersNotResponded);
+        }
+      }
     }
   }
 
+  /**
+   * Waits until all the servers respond or the given wait time (bounded by the query timeout) elapses, returns
+   * {@code true} if all the servers have responded.
+   * <p>Should be called before calling {@link #getResponse()}.
+   */
+  public boolean awaitResponses(long waitMs)
+      throws InterruptedException {
+    long maxWaitMs = _maxEndTimeMs - System.currentTimeMillis();
+    return _countDownLatch.await(Math.min(waitMs, maxWaitMs), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns {@code true} if the given server has responded, or is covered by the hedged request.
+   */
+  public boolean hasResponded(ServerRoutingInstance serverRoutingInstance) {
+    return _respondedServers.contains(serverRoutingInstance);
+  }
+
+  /**
+   * Returns the number of hedged requests that responded before the slow servers.
+   * <p>Should be called after calling {@link #getResponse()}.
+   */
+  public int getNumHedgedRequestsWon() {
+    int numHedgedRequestsWon = 0;
+    for (HedgedRequest hedgedRequest : _hedgedRequestMap.values()) {
+      if (hedgedRequest._won) {
+        numHedgedRequestsWon++;
+      }
+    }
+    return numHedgedRequestsWon;
+  }
+
   /**
    * Returns the statistics for the servers the query sent to.
    * <p>Should be called after calling {@link #getResponse()}.
@@ -77,17 +147,73 @@ public class AsyncQueryResponse {
     for (Map.Entry<ServerRoutingInstance, ServerResponse> entry : _responseMap.entrySet()) {
       stringBuilder.append(';').append(entry.getKey().getShortName()).append('=').append(entry.getValue().toString());
     }
+    for (HedgedRequest hedgedRequest : _hedgedRequestMap.values()) {
+      for (Map.Entry<ServerRoutingInstance, ServerResponse> entry : hedgedRequest._responseMap.entrySet()) {
+        stringBuilder.append(";hedge:").append(entry.getKey().getShortName()).append('=')
+            .append(entry.getValue().toString());
+      }
+    }
     return stringBuilder.toString();
   }
 
+  private List<ServerRoutingInstance> getServersNotResponded() {
+    List<ServerRoutingInstance> serversNotResponded = new ArrayList<>();
+    for (Map.Entry<ServerRoutingInstance, ServerResponse> entry : _responseMap.entrySet()) {
+      ServerRoutingInstance serverRoutingInstance = entry.getKey();
+      ServerResponse serverResponse = entry.getValue();
+      // NOTE: The servers covered by the hedged requests are already cancelled
+      if (serverResponse.getSubmitDelayMs() >= 0 && serverResponse.getDataTable() == null && !_respondedServers
+          .contains(serverRoutingInstance)) {
+        serversNotResponded.add(serverRoutingInstance);
+      }
+    }
+    return serversNotResponded;
+  }
+
   void markRequestSubmitted(ServerRoutingInstance serverRoutingInstance) {
     _responseMap.get(serverRoutingInstance).markRequestSubmitted();
   }
 
-  void receiveDataTable(ServerRoutingInstance serverRoutingInstance, DataTable dataTable, int responseSize,
-      int deserializationTimeMs) {
-    _responseMap.get(serverRoutingInstance).receiveDataTable(dataTable, responseSize, deserializationTimeMs);
-    _countDownLatch.countDown();
+  void addHedgedRequest(long hedgeRequestId, ServerRoutingInstance slowServer, Set<ServerRoutingInstance> hedgeServers,
+      long startTimeMs) {
+    _hedgedRequestMap.put(hedgeRequestId, new HedgedRequest(slowServer, hedgeServers, startTimeMs));
+  }
+
+  void markHedgedRequestSubmitted(long hedgeRequestId, ServerRoutingInstance hedgeServer) {
+    _hedgedRequestMap.get(hedgeRequestId)._responseMap.get(hedgeServer).markRequestSubmitted();
+  }
+
+  void receiveDataTable(long requestId, ServerRoutingInstance serverRoutingInstance, DataTable dataTable,
+      int responseSize, int deserializationTimeMs) {
+    if (requestId == _requestId) {
+      _responseMap.get(serverRoutingInstance).receiveDataTable(dataTable, responseSize, deserializationTimeMs);
+      if (_respondedServers.add(serverRoutingInstance)) {
+        _countDownLatch.countDown();
+      }
+      return;
+    }
+
+    // Response for the hedged request
+    HedgedRequest hedgedRequest = _hedgedRequestMap.get(requestId);
+    if (hedgedRequest == null) {
+      return;
+    }
+    ServerResponse serverResponse = hedgedRequest._responseMap.get(serverRoutingInstance);
+    if (serverResponse == null) {
+      return;
+    }
+    serverResponse.receiveDataTable(dataTable, responseSize, deserializationTimeMs);
+    if (hedgedRequest._numPendingResponses.decrementAndGet() == 0 && !hedgedRequest.hasExceptions()) {
+      ServerRoutingInstance slowServer = hedgedRequest._slowServer;
+      if (_respondedServers.add(slowServer)) {
+        // Hedged request wins, cancel the request on the slow server
+        // NOTE: This is called on the I/O thread, and the cancel is handed off to the event loop of the slow server
+        //       channel without blocking (see ServerChannels.sendCancel())
+        hedgedRequest._won = true;
+        _countDownLatch.countDown();
+        _queryRouter.cancelQuery(_requestId, Collections.singletonList(slowServer));
+      }
+    }
   }
 
   void markQueryFailed() {
@@ -99,11 +225,12 @@ public class AsyncQueryResponse {
 
   /**
    * NOTE: the server might not be hit by the query. Only fail the query if the query was sent to the server and the
-   * server hasn't responded yet.
+   * server hasn't responded yet (or covered by the hedged request).
    */
   void markServerDown(ServerRoutingInstance serverRoutingInstance) {
     ServerResponse serverResponse = _responseMap.get(serverRoutingInstance);
-    if (serverResponse != null && serverResponse.getDataTable() == null) {
+    if (serverResponse != null && serverResponse.getDataTable() == null && !_respondedServers
+        .contains(serverRoutingInstance)) {
       markQueryFailed();
     }
   }
@@ -115,4 +242,49 @@ public class AsyncQueryResponse {
   void setBrokerRequestSendException(Exception brokerRequestSendException) {
     _brokerRequestSendException = brokerRequestSendException;
   }
+
+  /**
+   * The request hedging the slow server with the hedge servers that together host the same segments.
+   */
+  private static class HedgedRequest {
+    final ServerRoutingInstance _slowServer;
+    final Map<ServerRoutingInstance, ServerResponse> _responseMap;
+    final AtomicInteger _numPendingResponses;
+    volatile boolean _won;
+
+    HedgedRequest(ServerRoutingInstance slowServer, Set<ServerRoutingInstance> hedgeServers, long startTimeMs) {
+      _slowServer = slowServer;
+      _responseMap = new HashMap<>();
+      for (ServerRoutingInstance hedgeServer : hedgeServers) {
+        _responseMap.put(hedgeServer, new ServerResponse(startTimeMs));
+      }
+      _numPendingResponses = new AtomicInteger(hedgeServers.size());
+    }
+
+    /**
+     * Returns {@code true} if any of the hedge servers responded with exceptions.
+     * <p>Should be called after all the hedge servers have responded.
+     */
+    boolean hasExceptions() {
+      for (ServerResponse serverResponse : _responseMap.values()) {
+        for (String key : serverResponse.getDataTable().getMetadata().keySet()) {
+          if (key.startsWith(DataTable.EXCEPTION_METADATA_KEY)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    List<ServerRoutingInstance> getServersNotResponded() {
+      List<ServerRoutingInstance> serversNotResponded = new ArrayList<>();
+      for (Map.Entry<ServerRoutingInstance, ServerResponse> entry : _responseMap.entrySet()) {
+        ServerResponse serverResponse = entry.getValue();
+        if (serverResponse.getSubmitDelayMs() >= 0 && serverResponse.getDataTable() == null) {
+          serversNotResponded.add(entry.getKey());
+        }
+      }
+      return serversNotResponded;
+    }
+  }
 }
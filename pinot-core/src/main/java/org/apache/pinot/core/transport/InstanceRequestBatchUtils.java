@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.transport;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Utility class to serialize/de-serialize the batched frame of multiple serialized instance requests.
+ * <p>Batched frame format:
+ * <ul>
+ *   <li>Magic number (int)</li>
+ *   <li>Number of requests (int)</li>
+ *   <li>For each request: length of the serialized request (int), serialized request bytes</li>
+ * </ul>
+ * <p>The first byte of the magic number is 0, which can never be the first byte of a serialized instance request (the
+ * field header of the required request id), so the batched frames can be distinguished from the single requests.
+ */
+class InstanceRequestBatchUtils {
+  private InstanceRequestBatchUtils() {
+  }
+
+  static final int BATCH_MAGIC_NUMBER = 0x00424154;
+
+  static byte[] serialize(List<byte[]> requests) {
+    int batchSize = 2 * Integer.BYTES;
+    for (byte[] request : requests) {
+      batchSize += Integer.BYTES + request.length;
+    }
+    ByteBuffer byteBuffer = ByteBuffer.allocate(batchSize);
+    byteBuffer.putInt(BATCH_MAGIC_NUMBER);
+    byteBuffer.putInt(requests.size());
+    for (byte[] request : requests) {
+      byteBuffer.putInt(request.length);
+      byteBuffer.put(request);
+    }
+    return byteBuffer.array();
+  }
+
+  static boolean isBatch(byte[] frameBytes) {
+    return frameBytes.length >= 2 * Integer.BYTES && ByteBuffer.wrap(frameBytes).getInt() == BATCH_MAGIC_NUMBER;
+  }
+
+  static List<byte[]> deserialize(byte[] batchBytes) {
+    ByteBuffer byteBuffer = ByteBuffer.wrap(batchBytes);
+    int magicNumber = byteBuffer.getInt();
+    if (magicNumber != BATCH_MAGIC_NUMBER) {
+      throw new IllegalStateException("Invalid magic number for batched requests: " + magicNumber);
+    }
+    int numRequests = byteBuffer.getInt();
+    List<byte[]> requests = new ArrayList<>(numRequests);
+    for (int i = 0; i < numRequests; i++) {
+      byte[] request = new byte[byteBuffer.getInt()];
+      byteBuffer.get(request);
+      requests.add(request);
+    }
+    return requests;
+  }
+}
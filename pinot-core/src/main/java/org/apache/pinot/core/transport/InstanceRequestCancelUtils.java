@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.transport;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Utility class to serialize/de-serialize the cancel frame sent from the broker to the server to cancel a query that
+ * is no longer needed (e.g. timed out on the broker side).
+ * <p>Cancel frame format:
+ * <ul>
+ *   <li>Magic number (int)</li>
+ *   <li>Request id of the query to cancel (long)</li>
+ * </ul>
+ * <p>Same as the batched frame (see {@link InstanceRequestBatchUtils}), the first byte of the magic number is 0, so
+ * the cancel frames can be distinguished from the single requests.
+ */
+class InstanceRequestCancelUtils {
+  private InstanceRequestCancelUtils() {
+  }
+
+  static final int CANCEL_MAGIC_NUMBER = 0x0043414E;
+  static final int CANCEL_FRAME_SIZE = Integer.BYTES + Long.BYTES;
+
+  static byte[] serialize(long requestId) {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(CANCEL_FRAME_SIZE);
+    byteBuffer.putInt(CANCEL_MAGIC_NUMBER);
+    byteBuffer.putLong(requestId);
+    return byteBuffer.array();
+  }
+
+  static boolean isCancel(byte[] frameBytes) {
+    return frameBytes.length == CANCEL_FRAME_SIZE && ByteBuffer.wrap(frameBytes).getInt() == CANCEL_MAGIC_NUMBER;
+  }
+
+  static long deserialize(byte[] cancelBytes) {
+    ByteBuffer byteBuffer = ByteBuffer.wrap(cancelBytes);
+    int magicNumber = byteBuffer.getInt();
+    if (magicNumber != CANCEL_MAGIC_NUMBER) {
+      throw new IllegalStateException("Invalid magic number for cancel request: " + magicNumber);
+    }
+    return byteBuffer.getLong();
+  }
+}
@@ -20,11 +20,15 @@ package org.apache.pinot.core.transport;
 
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.pinot.common.metrics.ServerMeter;
@@ -44,6 +48,10 @@ import org.slf4j.LoggerFactory;
 /**
  * The {@code InstanceRequestHandler} is the Netty inbound handler on Pinot Server side to handle the serialized
  * instance requests sent from Pinot Broker.
+ * <p>There is one handler for each channel (connection from a broker). The handler tracks the queries submitted to the
+ * scheduler by the request id, so that the broker can cancel a query with a cancel frame (see
+ * {@link InstanceRequestCancelUtils}). A cancelled query is dropped if still waiting in the scheduler, or interrupted
+ * if already running, where the operators check the interruption at the block boundaries.
  */
 public class InstanceRequestHandler extends SimpleChannelInboundHandler<ByteBuf> {
   private static final Logger LOGGER = LoggerFactory.getLogger(InstanceRequestHandler.class);
@@ -54,6 +62,7 @@ public class InstanceRequestHandler extends SimpleChannelInboundHandler<ByteBuf>
   private final TDeserializer _deserializer = new TDeserializer(new TCompactProtocol.Factory());
   private final QueryScheduler _queryScheduler;
   private final ServerMetrics _serverMetrics;
+  private final ConcurrentHashMap<Long, ListenableFuture<byte[]>> _queryFutureMap = new ConcurrentHashMap<>();
 
   public InstanceRequestHandler(QueryScheduler queryScheduler, ServerMetrics serverMetrics) {
     _queryScheduler = queryScheduler;
@@ -63,12 +72,38 @@ public class InstanceRequestHandler extends SimpleChannelInboundHandler<ByteBuf>
   @Override
   protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
     long queryArrivalTimeMs = System.currentTimeMillis();
-    _serverMetrics.addMeteredGlobalValue(ServerMeter.QUERIES, 1);
     int requestSize = msg.readableBytes();
     _serverMetrics.addMeteredGlobalValue(ServerMeter.NETTY_CONNECTION_BYTES_RECEIVED, requestSize);
     byte[] requestBytes = new byte[requestSize];
     msg.readBytes(requestBytes);
 
+    // Cancel the query if the broker sends a cancel frame
+    if (InstanceRequestCancelUtils.isCancel(requestBytes)) {
+      cancelQuery(InstanceRequestCancelUtils.deserialize(requestBytes));
+      return;
+    }
+
+    // Unbatch the requests if the broker sends multiple requests in one batched frame
+    if (InstanceRequestBatchUtils.isBatch(requestBytes)) {
+      List<byte[]> batchedRequestBytes;
+      try {
+        batchedRequestBytes = InstanceRequestBatchUtils.deserialize(requestBytes);
+      } catch (Exception e) {
+        LOGGER.error("Caught exception while deserializing the batched instance requests of size: {}", requestSize,
+            e);
+        _serverMetrics.addMeteredGlobalValue(ServerMeter.REQUEST_DESERIALIZATION_EXCEPTIONS, 1);
+        return;
+      }
+      for (byte[] singleRequestBytes : batchedRequestBytes) {
+        handleRequest(ctx, singleRequestBytes, queryArrivalTimeMs);
+      }
+    } else {
+      handleRequest(ctx, requestBytes, queryArrivalTimeMs);
+    }
+  }
+
+  private void handleRequest(ChannelHandlerContext ctx, byte[] requestBytes, long queryArrivalTimeMs) {
+    _serverMetrics.addMeteredGlobalValue(ServerMeter.QUERIES, 1);
     InstanceRequest instanceRequest = new InstanceRequest();
     try {
       _deserializer.deserialize(instanceRequest, requestBytes);
@@ -84,8 +119,13 @@ public class InstanceRequestHandler extends SimpleChannelInboundHandler<ByteBuf>
     queryRequest.getTimerContext().startNewPhaseTimer(ServerQueryPhase.REQUEST_DESERIALIZATION, queryArrivalTimeMs)
         .stopAndRecord();
 
+    long requestId = queryRequest.getRequestId();
+    ListenableFuture<byte[]> queryFuture = _queryScheduler.submit(queryRequest);
+    _queryFutureMap.put(requestId, queryFuture);
+    queryFuture.addListener(() -> _queryFutureMap.remove(requestId, queryFuture), MoreExecutors.directExecutor());
+
     // NOTE: executor must be provided as addCallback(future, callback) is removed from newer guava version
-    Futures.addCallback(_queryScheduler.submit(queryRequest), new FutureCallback<byte[]>() {
+    Futures.addCallback(queryFuture, new FutureCallback<byte[]>() {
       @Override
       public void onSuccess(@Nullable byte[] responseBytes) {
         // NOTE: response bytes can be null if data table serialization throws exception
@@ -112,12 +152,35 @@ public class InstanceRequestHandler extends SimpleChannelInboundHandler<ByteBuf>
 
       @Override
       public void onFailure(Throwable t) {
+        if (t instanceof CancellationException) {
+          // Query cancelled by the broker, no response needs to be sent
+          return;
+        }
         LOGGER.error("Caught exception while processing instance request", t);
         _serverMetrics.addMeteredGlobalValue(ServerMeter.UNCAUGHT_EXCEPTIONS, 1);
       }
     }, MoreExecutors.directExecutor());
   }
 
+  private void cancelQuery(long requestId) {
+    ListenableFuture<byte[]> queryFuture = _queryFutureMap.remove(requestId);
+    // Query future might be null if the query is already done
+    if (queryFuture != null && queryFuture.cancel(true)) {
+      LOGGER.debug("Cancelled requestId: {}", requestId);
+      _serverMetrics.addMeteredGlobalValue(ServerMeter.QUERIES_CANCELLED, 1);
+    }
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx)
+      throws Exception {
+    // The responses cannot be sent back after the channel is closed, cancel all the ongoing queries
+    for (Long requestId : _queryFutureMap.keySet()) {
+      cancelQuery(requestId);
+    }
+    super.channelInactive(ctx);
+  }
+
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
     LOGGER.error("Caught exception while fetching instance request", cause);
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.pinot.common.metrics.BrokerMeter;
@@ -38,6 +39,8 @@ import org.slf4j.LoggerFactory;
  * The {@code QueryRouter} class provides methods to route the query based on the routing table, and returns a
  * {@link AsyncQueryResponse} so that caller can handle the query response asynchronously.
  * <p>It works on {@link ServerChannels} which maintains only a single connection between the broker and each server.
+ * <p>When query cancellation is enabled, the servers that have not responded when the query is done on the broker side
+ * (e.g. timed out or interrupted) are asked to cancel the query so that they can release the resources early.
  */
 @ThreadSafe
 public class QueryRouter {
@@ -46,12 +49,35 @@ public class QueryRouter {
   private final String _brokerId;
   private final BrokerMetrics _brokerMetrics;
   private final ServerChannels _serverChannels;
+  private final boolean _queryCancellationEnabled;
   private final ConcurrentHashMap<Long, AsyncQueryResponse> _asyncQueryResponseMap = new ConcurrentHashMap<>();
+  // Use negative request ids for the hedged requests so that they never collide with the regular request ids
+  private final AtomicLong _hedgeRequestId = new AtomicLong();
 
   public QueryRouter(String brokerId, BrokerMetrics brokerMetrics) {
+    this(brokerId, brokerMetrics, 0L, false);
+  }
+
+  /**
+   * Constructor with request batching enabled if the given request batch delay (in microseconds) is positive. The
+   * concurrent requests to the same server within the delay are sent in one batched frame. The native epoll transport
+   * is used for the server channels if enabled and available.
+   */
+  public QueryRouter(String brokerId, BrokerMetrics brokerMetrics, long requestBatchDelayUs,
+      boolean nativeTransportEnabled) {
+    this(brokerId, brokerMetrics, requestBatchDelayUs, nativeTransportEnabled, false);
+  }
+
+  /**
+   * Constructor with query cancellation enabled if configured. The servers that have not responded when the query is
+   * done on the broker side are sent a cancel frame for the query.
+   */
+  public QueryRouter(String brokerId, BrokerMetrics brokerMetrics, long requestBatchDelayUs,
+      boolean nativeTransportEnabled, boolean queryCancellationEnabled) {
     _brokerId = brokerId;
     _brokerMetrics = brokerMetrics;
-    _serverChannels = new ServerChannels(this, brokerMetrics);
+    _serverChannels = new ServerChannels(this, brokerMetrics, requestBatchDelayUs, nativeTransportEnabled);
+    _queryCancellationEnabled = queryCancellationEnabled;
   }
 
   public AsyncQueryResponse submitQuery(long requestId, String rawTableName,
@@ -101,6 +127,42 @@ public class QueryRouter {
     return asyncQueryResponse;
   }
 
+  /**
+   * Submits the hedged request for the slow server of the given query, which sends the same segments (possibly split
+   * into multiple servers) to the hedge servers with a separate request id. The slow server is counted as responded
+   * once either itself or all the hedge servers respond, and the request on the other side is cancelled.
+   * <p>NOTE: The hedge servers must not be queried by the original query for the same table type. Should be called
+   * before calling {@link AsyncQueryResponse#getResponse()}.
+   *
+   * @return Whether the hedged request is successfully submitted to all the hedge servers
+   */
+  public boolean submitHedgedRequest(AsyncQueryResponse asyncQueryResponse, String rawTableName,
+      ServerRoutingInstance slowServer, BrokerRequest brokerRequest, Map<ServerInstance, List<String>> routingTable) {
+    long hedgeRequestId = _hedgeRequestId.decrementAndGet();
+    TableType tableType = slowServer.getTableType();
+    Map<ServerRoutingInstance, InstanceRequest> requestMap = new HashMap<>();
+    for (Map.Entry<ServerInstance, List<String>> entry : routingTable.entrySet()) {
+      requestMap.put(entry.getKey().toServerRoutingInstance(tableType),
+          getInstanceRequest(hedgeRequestId, brokerRequest, entry.getValue()));
+    }
+    asyncQueryResponse.addHedgedRequest(hedgeRequestId, slowServer, requestMap.keySet(), System.currentTimeMillis());
+    _asyncQueryResponseMap.put(hedgeRequestId, asyncQueryResponse);
+    for (Map.Entry<ServerRoutingInstance, InstanceRequest> entry : requestMap.entrySet()) {
+      ServerRoutingInstance serverRoutingInstance = entry.getKey();
+      try {
+        _serverChannels.sendRequest(serverRoutingInstance, entry.getValue());
+        asyncQueryResponse.markHedgedRequestSubmitted(hedgeRequestId, serverRoutingInstance);
+      } catch (Exception e) {
+        // The hedged request cannot win without all the responses, keep waiting for the slow server
+        LOGGER.warn("Caught exception while sending hedged request {} to server: {}", hedgeRequestId,
+            serverRoutingInstance, e);
+        _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.REQUEST_SEND_EXCEPTIONS, 1);
+        return false;
+      }
+    }
+    return true;
+  }
+
   public void shutDown() {
     _serverChannels.shutDown();
   }
@@ -112,7 +174,8 @@ public class QueryRouter {
 
     // Query future might be null if the query is already done (maybe due to failure)
     if (asyncQueryResponse != null) {
-      asyncQueryResponse.receiveDataTable(serverRoutingInstance, dataTable, responseSize, deserializationTimeMs);
+      asyncQueryResponse
+          .receiveDataTable(requestId, serverRoutingInstance, dataTable, responseSize, deserializationTimeMs);
     }
   }
 
@@ -126,6 +189,19 @@ public class QueryRouter {
     _asyncQueryResponseMap.remove(requestId);
   }
 
+  void cancelQuery(long requestId, List<ServerRoutingInstance> serversNotResponded) {
+    if (!_queryCancellationEnabled) {
+      return;
+    }
+    for (ServerRoutingInstance serverRoutingInstance : serversNotResponded) {
+      try {
+        _serverChannels.sendCancel(serverRoutingInstance, requestId);
+      } catch (Exception e) {
+        LOGGER.warn("Caught exception while cancelling request {} on server: {}", requestId, serverRoutingInstance, e);
+      }
+    }
+  }
+
   private InstanceRequest getInstanceRequest(long requestId, BrokerRequest brokerRequest, List<String> segments) {
     InstanceRequest instanceRequest = new InstanceRequest();
     instanceRequest.setRequestId(requestId);
@@ -19,13 +19,12 @@
 package org.apache.pinot.core.transport;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
 import java.util.concurrent.TimeUnit;
@@ -36,29 +35,43 @@ import org.apache.pinot.core.query.scheduler.QueryScheduler;
 /**
  * The {@code QueryServer} is the Netty server that runs on Pinot Server to handle the instance requests sent from Pinot
  * Brokers.
+ * <p>The server uses the native epoll transport if enabled and available (see {@link NettyTransportUtils}), and the
+ * pooled direct buffers for the socket I/O.
  */
 public class QueryServer {
   private final int _port;
   private final QueryScheduler _queryScheduler;
   private final ServerMetrics _serverMetrics;
+  private final boolean _nativeTransport;
 
   private EventLoopGroup _bossGroup;
   private EventLoopGroup _workerGroup;
   private Channel _channel;
 
   public QueryServer(int port, QueryScheduler queryScheduler, ServerMetrics serverMetrics) {
+    this(port, queryScheduler, serverMetrics, false);
+  }
+
+  /**
+   * Constructor with native epoll transport used if enabled and available.
+   */
+  public QueryServer(int port, QueryScheduler queryScheduler, ServerMetrics serverMetrics,
+      boolean nativeTransportEnabled) {
     _port = port;
     _queryScheduler = queryScheduler;
     _serverMetrics = serverMetrics;
+    _nativeTransport = NettyTransportUtils.useNativeTransport(nativeTransportEnabled);
   }
 
   public void start() {
-    _bossGroup = new NioEventLoopGroup();
-    _workerGroup = new NioEventLoopGroup();
+    _bossGroup = NettyTransportUtils.newEventLoopGroup(_nativeTransport);
+    _workerGroup = NettyTransportUtils.newEventLoopGroup(_nativeTransport);
     try {
       ServerBootstrap serverBootstrap = new ServerBootstrap();
-      _channel = serverBootstrap.group(_bossGroup, _workerGroup).channel(NioServerSocketChannel.class)
+      _channel = serverBootstrap.group(_bossGroup, _workerGroup)
+          .channel(NettyTransportUtils.getServerSocketChannelClass(_nativeTransport))
           .option(ChannelOption.SO_BACKLOG, 128).childOption(ChannelOption.SO_KEEPALIVE, true)
+          .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
           .childHandler(new ChannelInitializer<SocketChannel>() {
             @Override
             protected void initChannel(SocketChannel ch) {
@@ -19,16 +19,18 @@
 package org.apache.pinot.core.transport;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.concurrent.ThreadSafe;
@@ -44,17 +46,41 @@ import org.apache.thrift.protocol.TCompactProtocol;
  * The {@code ServerChannels} class manages the channels between broker to all the connected servers.
  * <p>There is only one channel between the broker and each connected server (we count OFFLINE and REALTIME as different
  * servers)
+ * <p>When request batching is enabled, the requests to the same server arriving within the configured delay after a
+ * request are sent in one batched frame (see {@link InstanceRequestBatchUtils}) to reduce the per request framing
+ * overhead. A request to an idle server is sent immediately.
+ * <p>A query that is no longer needed can be cancelled on the servers by sending a cancel frame (see
+ * {@link InstanceRequestCancelUtils}) over the same channel as the query.
+ * <p>The channels use the native epoll transport if enabled and available (see {@link NettyTransportUtils}), and the
+ * pooled direct buffers for the socket I/O.
  */
 @ThreadSafe
 public class ServerChannels {
+  // Max number of requests in one batched frame, the pending requests are sent immediately once reaching this limit
+  private static final int MAX_REQUEST_BATCH_SIZE = 64;
+
   private final QueryRouter _queryRouter;
   private final BrokerMetrics _brokerMetrics;
+  private final long _requestBatchDelayUs;
   private final ConcurrentHashMap<ServerRoutingInstance, ServerChannel> _serverToChannelMap = new ConcurrentHashMap<>();
-  private final EventLoopGroup _eventLoopGroup = new NioEventLoopGroup();
+  private final boolean _nativeTransport;
+  private final EventLoopGroup _eventLoopGroup;
 
   public ServerChannels(QueryRouter queryRouter, BrokerMetrics brokerMetrics) {
+    this(queryRouter, brokerMetrics, 0L, false);
+  }
+
+  /**
+   * Constructor with request batching enabled if the given request batch delay (in microseconds) is positive, and
+   * native epoll transport used if enabled and available.
+   */
+  public ServerChannels(QueryRouter queryRouter, BrokerMetrics brokerMetrics, long requestBatchDelayUs,
+      boolean nativeTransportEnabled) {
     _queryRouter = queryRouter;
     _brokerMetrics = brokerMetrics;
+    _requestBatchDelayUs = requestBatchDelayUs;
+    _nativeTransport = NettyTransportUtils.useNativeTransport(nativeTransportEnabled);
+    _eventLoopGroup = NettyTransportUtils.newEventLoopGroup(_nativeTransport);
   }
 
   public void sendRequest(ServerRoutingInstance serverRoutingInstance, InstanceRequest instanceRequest)
@@ -62,22 +88,41 @@ public class ServerChannels {
     _serverToChannelMap.computeIfAbsent(serverRoutingInstance, ServerChannel::new).sendRequest(instanceRequest);
   }
 
+  /**
+   * Sends the cancel frame for the given request id to the server. The cancel frame is skipped if the channel to the
+   * server is not connected, in which case the server cannot send back the response either.
+   * <p>The cancel frame is sent on the event loop of the channel, and this method never blocks.
+   */
+  public void sendCancel(ServerRoutingInstance serverRoutingInstance, long requestId) {
+    ServerChannel serverChannel = _serverToChannelMap.get(serverRoutingInstance);
+    if (serverChannel != null) {
+      serverChannel.sendCancel(requestId);
+    }
+  }
+
   public void shutDown() {
     // Shut down immediately
     _eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
   }
 
+  /**
+   * The channel to a server, which connects lazily on the first request and reconnects once the connection is closed.
+   * <p>The connect is not done under any lock, so that the requests to the server do not block each other while the
+   * connection is being established, and the pending requests for batching are only accessed from the event loop of
+   * the connection.
+   */
   @ThreadSafe
   private class ServerChannel {
     final TSerializer _serializer = new TSerializer(new TCompactProtocol.Factory());
     final ServerRoutingInstance _serverRoutingInstance;
     final Bootstrap _bootstrap;
-    Channel _channel;
+    volatile Connection _connection;
 
     ServerChannel(ServerRoutingInstance serverRoutingInstance) {
       _serverRoutingInstance = serverRoutingInstance;
       _bootstrap = new Bootstrap().remoteAddress(serverRoutingInstance.getHostname(), serverRoutingInstance.getPort())
-          .group(_eventLoopGroup).channel(NioSocketChannel.class).option(ChannelOption.SO_KEEPALIVE, true)
+          .group(_eventLoopGroup).channel(NettyTransportUtils.getSocketChannelClass(_nativeTransport))
+          .option(ChannelOption.SO_KEEPALIVE, true).option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
           .handler(new ChannelInitializer<SocketChannel>() {
             @Override
             protected void initChannel(SocketChannel ch) {
@@ -91,17 +136,136 @@ public class ServerChannels {
           });
     }
 
-    synchronized void sendRequest(InstanceRequest instanceRequest)
+    void sendRequest(InstanceRequest instanceRequest)
         throws Exception {
-      if (_channel == null || !_channel.isActive()) {
-        long startTime = System.currentTimeMillis();
-        _channel = _bootstrap.connect().sync().channel();
-        _brokerMetrics.setValueOfGlobalGauge(BrokerGauge.NETTY_CONNECTION_CONNECT_TIME_MS,
-            System.currentTimeMillis() - startTime);
+      Connection connection = getConnection();
+      // NOTE: Wait for the connect outside of the lock
+      connection._connectFuture.sync();
+      byte[] requestBytes;
+      synchronized (_serializer) {
+        requestBytes = _serializer.serialize(instanceRequest);
+      }
+      if (_requestBatchDelayUs <= 0) {
+        connection.writeRequestBytes(requestBytes, 1);
+      } else {
+        connection._channel.eventLoop().execute(() -> connection.addPendingRequest(requestBytes));
+      }
+    }
+
+    /**
+     * Hands the cancel off to the event loop of the connection without blocking, so that it can be called from the
+     * I/O threads. The cancel is skipped if the channel is not connected.
+     */
+    void sendCancel(long requestId) {
+      Connection connection = _connection;
+      if (connection != null && connection._channel.isActive()) {
+        connection._channel.eventLoop().execute(() -> connection.sendCancel(requestId));
+      }
+    }
+
+    /**
+     * Returns the current connection, or starts a new connection if the current one is failed or closed. Only the
+     * (asynchronous) connect is started under the lock.
+     */
+    Connection getConnection() {
+      Connection connection = _connection;
+      if (connection != null && !connection.isClosed()) {
+        return connection;
+      }
+      synchronized (this) {
+        connection = _connection;
+        if (connection == null || connection.isClosed()) {
+          connection = new Connection(_bootstrap.connect());
+          _connection = connection;
+        }
+        return connection;
       }
-      byte[] requestBytes = _serializer.serialize(instanceRequest);
+    }
+  }
+
+  /**
+   * A connection to a server. The pending requests for batching are only accessed from the event loop of the channel.
+   * <p>When the connection is idle, the first request is sent immediately, and the requests arriving within the batch
+   * delay after it are collected and sent in one batched frame, so that a single request is never delayed.
+   */
+  private class Connection {
+    final ChannelFuture _connectFuture;
+    final Channel _channel;
+    // Serialized requests waiting to be sent in the next batched frame
+    final List<byte[]> _pendingRequests = new ArrayList<>();
+    boolean _batching;
+
+    Connection(ChannelFuture connectFuture) {
+      long startTime = System.currentTimeMillis();
+      _connectFuture = connectFuture;
+      _channel = connectFuture.channel();
+      connectFuture.addListener(future -> {
+        if (future.isSuccess()) {
+          _brokerMetrics.setValueOfGlobalGauge(BrokerGauge.NETTY_CONNECTION_CONNECT_TIME_MS,
+              System.currentTimeMillis() - startTime);
+        }
+      });
+    }
+
+    /**
+     * Returns {@code true} if the connect failed or the channel is closed.
+     */
+    boolean isClosed() {
+      return _connectFuture.isDone() && !_channel.isActive();
+    }
+
+    void addPendingRequest(byte[] requestBytes) {
+      if (!_batching) {
+        writeRequestBytes(requestBytes, 1);
+        _batching = true;
+        _channel.eventLoop().schedule(this::flushBatch, _requestBatchDelayUs, TimeUnit.MICROSECONDS);
+        return;
+      }
+      _pendingRequests.add(requestBytes);
+      if (_pendingRequests.size() >= MAX_REQUEST_BATCH_SIZE) {
+        flushPendingRequests();
+      }
+    }
+
+    /**
+     * Sends the requests collected within the batch delay, and keeps collecting for another batch delay if there are
+     * any, or goes back to idle otherwise.
+     */
+    void flushBatch() {
+      if (_pendingRequests.isEmpty()) {
+        _batching = false;
+      } else {
+        flushPendingRequests();
+        _channel.eventLoop().schedule(this::flushBatch, _requestBatchDelayUs, TimeUnit.MICROSECONDS);
+      }
+    }
+
+    void sendCancel(long requestId) {
+      // Flush the pending requests first so that the cancel frame always arrives after the request
+      flushPendingRequests();
+      byte[] cancelBytes = InstanceRequestCancelUtils.serialize(requestId);
+      _channel.writeAndFlush(Unpooled.wrappedBuffer(cancelBytes), _channel.voidPromise());
+      _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_QUERY_CANCELS_SENT, 1);
+      _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_BYTES_SENT, cancelBytes.length);
+    }
+
+    void flushPendingRequests() {
+      int numPendingRequests = _pendingRequests.size();
+      if (numPendingRequests == 0) {
+        return;
+      }
+      if (numPendingRequests == 1) {
+        writeRequestBytes(_pendingRequests.get(0), 1);
+      } else {
+        writeRequestBytes(InstanceRequestBatchUtils.serialize(_pendingRequests), numPendingRequests);
+        _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_REQUEST_BATCHES_SENT, 1);
+      }
+      _pendingRequests.clear();
+    }
+
+    void writeRequestBytes(byte[] requestBytes, int numRequests) {
       _channel.writeAndFlush(Unpooled.wrappedBuffer(requestBytes), _channel.voidPromise());
-      _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_REQUESTS_SENT, 1);
+      _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_REQUESTS_SENT, numRequests);
       _brokerMetrics.addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_BYTES_SENT, requestBytes.length);
     }
   }
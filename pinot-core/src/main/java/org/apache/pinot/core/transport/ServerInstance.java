@@ -27,9 +27,11 @@ import org.apache.pinot.spi.config.table.TableType;
 public class ServerInstance {
   private static final int SERVER_INSTANCE_PREFIX_LENGTH = Helix.PREFIX_OF_SERVER_INSTANCE.length();
   private static final String HOSTNAME_PORT_DELIMITER = "_";
+  private static final int INVALID_PORT = -1;
 
   private final String _hostname;
   private final int _port;
+  private final int _grpcPort;
 
   /**
    * By default (auto joined instances), server instance name is of format: {@code Server_<hostname>_<port>}, e.g.
@@ -52,12 +54,15 @@ public class ServerInstance {
       _hostname = hostnameAndPort[0];
       _port = Integer.parseInt(hostnameAndPort[1]);
     }
+    String grpcPort = instanceConfig.getRecord().getSimpleField(Helix.Instance.GRPC_PORT_KEY);
+    _grpcPort = grpcPort != null ? Integer.parseInt(grpcPort) : INVALID_PORT;
   }
 
   @VisibleForTesting
   ServerInstance(String hostname, int port) {
     _hostname = hostname;
     _port = port;
+    _grpcPort = INVALID_PORT;
   }
 
   public String getHostname() {
@@ -68,6 +73,13 @@ public class ServerInstance {
     return _port;
   }
 
+  /**
+   * Returns the port of the gRPC query server, or {@code -1} if the server does not have gRPC query server enabled.
+   */
+  public int getGrpcPort() {
+    return _grpcPort;
+  }
+
   public ServerRoutingInstance toServerRoutingInstance(TableType tableType) {
     return new ServerRoutingInstance(_hostname, _port, tableType);
   }
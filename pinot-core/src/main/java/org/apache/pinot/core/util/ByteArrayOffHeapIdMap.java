@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.util;
+
+import it.unimi.dsi.fastutil.ints.IntSet;
+import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import org.apache.pinot.core.realtime.impl.dictionary.BaseOffHeapLinearProbingMutableDictionary;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.utils.ByteArray;
+
+
+/**
+ * Implementation of {@link IdMap} with {@link ByteArray} as key.
+ *
+ * This implementation extends the {@link BaseOffHeapLinearProbingMutableDictionary} for code-reuse of off-heap
+ * functionality, so that both the hash table and the keys are stored off-heap. The dictionary related APIs are not
+ * supported.
+ */
+public class ByteArrayOffHeapIdMap extends BaseOffHeapLinearProbingMutableDictionary implements IdMap<ByteArray> {
+
+  public ByteArrayOffHeapIdMap(int estimatedCardinality, int avgKeyLength, PinotDataBufferMemoryManager memoryManager,
+      String allocationContext) {
+    super(estimatedCardinality, 0, memoryManager, allocationContext, avgKeyLength);
+  }
+
+  @Override
+  public int put(ByteArray key) {
+    return indexValue(key.getBytes());
+  }
+
+  @Override
+  public int getId(ByteArray key) {
+    return getDictId(key.getBytes());
+  }
+
+  @Override
+  public ByteArray getKey(int id) {
+    return id < length() ? new ByteArray(getValue(id)) : null;
+  }
+
+  @Override
+  public int size() {
+    return length();
+  }
+
+  @Override
+  public int index(Object value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int[] index(Object[] values) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int compare(int dictId1, int dictId2) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public IntSet getDictIdsInRange(String lower, String upper, boolean includeLower, boolean includeUpper) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Comparable getMinVal() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Comparable getMaxVal() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Object getSortedValues() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public DataType getValueType() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int indexOf(String stringValue) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Object get(int dictId) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int getIntValue(int dictId) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long getLongValue(int dictId) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public float getFloatValue(int dictId) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public double getDoubleValue(int dictId) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String getStringValue(int dictId) {
+    throw new UnsupportedOperationException();
+  }
+}
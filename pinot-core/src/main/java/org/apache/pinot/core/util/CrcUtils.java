@@ -56,7 +56,7 @@ public class CrcUtils {
 
   /**
    * Helper method to get all normal (non-directory) files under a directory recursively.
-   * <p>NOTE: do not include the segment creation meta file.
+   * <p>NOTE: do not include the segment creation meta file and the binary metadata file.
    */
   private static void getAllNormalFiles(File dir, List<File> normalFiles) {
     File[] files = dir.listFiles();
@@ -65,7 +65,11 @@ public class CrcUtils {
       if (file.isFile()) {
         // Certain file systems, e.g. HDFS will create .crc files when perform data copy.
         // We should ignore both SEGMENT_CREATION_META and generated '.crc' files.
-        if (!file.getName().equals(V1Constants.SEGMENT_CREATION_META) && !file.getName().endsWith(CRC_FILE_EXTENSTION)) {
+        // The binary metadata file is derived from the metadata properties file and can be (re-)created after the CRC
+        // is computed, so it should be ignored as well.
+        String fileName = file.getName();
+        if (!fileName.equals(V1Constants.SEGMENT_CREATION_META) && !fileName.endsWith(CRC_FILE_EXTENSTION) && !fileName
+            .equals(V1Constants.MetadataKeys.BINARY_METADATA_FILE_NAME)) {
           normalFiles.add(file);
         }
       } else {
@@ -75,4 +75,21 @@ public class QueryOptions {
       return null;
     }
   }
+
+  public static boolean isPartialResults(Map<String, String> queryOptions) {
+    return Boolean.parseBoolean(queryOptions.get(Request.QueryOptionKey.PARTIAL_RESULTS));
+  }
+
+  @Nullable
+  public static Long getPartialResultsTimeoutMs(Map<String, String> queryOptions) {
+    String partialResultsTimeoutMsString = queryOptions.get(Request.QueryOptionKey.PARTIAL_RESULTS_TIMEOUT_MS);
+    if (partialResultsTimeoutMsString != null) {
+      long partialResultsTimeoutMs = Long.parseLong(partialResultsTimeoutMsString);
+      Preconditions.checkState(partialResultsTimeoutMs > 0, "Partial results timeout must be positive, got: %s",
+          partialResultsTimeoutMs);
+      return partialResultsTimeoutMs;
+    } else {
+      return null;
+    }
+  }
 }
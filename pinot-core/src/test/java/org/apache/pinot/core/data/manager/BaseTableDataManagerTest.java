@@ -37,7 +37,9 @@ import org.apache.pinot.core.data.manager.config.TableDataManagerConfig;
 import org.apache.pinot.core.data.manager.offline.ImmutableSegmentDataManager;
 import org.apache.pinot.core.data.manager.offline.OfflineTableDataManager;
 import org.apache.pinot.core.indexsegment.immutable.ImmutableSegment;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegmentImpl;
 import org.apache.pinot.core.segment.index.metadata.SegmentMetadata;
+import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
 import org.testng.Assert;
 import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
@@ -193,6 +195,36 @@ public class BaseTableDataManagerTest {
     tableDataManager.shutDown();
   }
 
+  @Test
+  public void testReleaseIdleColumns()
+      throws Exception {
+    TableDataManager tableDataManager = makeTestableManager();
+    final String segmentName = "TestSegment";
+    ImmutableSegmentImpl immutableSegment = mock(ImmutableSegmentImpl.class);
+    SegmentMetadataImpl segmentMetadata = mock(SegmentMetadataImpl.class);
+    when(immutableSegment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    when(immutableSegment.getSegmentName()).thenReturn(segmentName);
+    when(immutableSegment.releaseIdleColumns(anyLong())).thenReturn(1);
+    tableDataManager.addSegment(immutableSegment);
+
+    // Columns should not be released while the segment is acquired by a query
+    SegmentDataManager segmentDataManager = tableDataManager.acquireSegment(segmentName);
+    Assert.assertEquals(tableDataManager.releaseIdleColumns(0L), 0);
+    verify(immutableSegment, never()).releaseIdleColumns(anyLong());
+    tableDataManager.releaseSegment(segmentDataManager);
+    Assert.assertEquals(tableDataManager.releaseIdleColumns(0L), 1);
+    verify(immutableSegment, times(1)).releaseIdleColumns(0L);
+
+    // Columns of a removed segment should not be released while the last query is still using it
+    segmentDataManager = tableDataManager.acquireSegment(segmentName);
+    tableDataManager.removeSegment(segmentName);
+    Assert.assertEquals(segmentDataManager.getReferenceCount(), 1);
+    Assert.assertEquals(tableDataManager.releaseIdleColumns(0L), 0);
+    verify(immutableSegment, times(1)).releaseIdleColumns(anyLong());
+    tableDataManager.releaseSegment(segmentDataManager);
+    tableDataManager.shutDown();
+  }
+
   /*
    * These tests simulate the access of segments via OfflineTableDataManager.
    *
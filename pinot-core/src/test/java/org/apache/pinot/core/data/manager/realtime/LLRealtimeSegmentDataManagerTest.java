@@ -554,6 +554,19 @@ public class LLRealtimeSegmentDataManagerTest {
       Assert.assertEquals(segmentDataManager.getStopReason(), SegmentCompletionProtocol.REASON_ROW_LIMIT);
       segmentDataManager.destroy();
     }
+    // test reaching segment memory limit
+    {
+      FakeLLRealtimeSegmentDataManager segmentDataManager = createFakeSegmentManager();
+      segmentDataManager._state.set(segmentDataManager, LLRealtimeSegmentDataManager.State.INITIAL_CONSUMING);
+      segmentDataManager.setSegmentMaxMemoryBytes(1L);
+      // Memory limit does not apply until the segment has indexed a minimum number of rows
+      segmentDataManager.setNumRowsIndexed(100);
+      Assert.assertFalse(segmentDataManager.invokeEndCriteriaReached());
+      segmentDataManager.setNumRowsIndexed(maxRowsInSegment / 2);
+      Assert.assertTrue(segmentDataManager.invokeEndCriteriaReached());
+      Assert.assertEquals(segmentDataManager.getStopReason(), SegmentCompletionProtocol.REASON_MEMORY_LIMIT);
+      segmentDataManager.destroy();
+    }
     // test reaching max time limit
     {
       FakeLLRealtimeSegmentDataManager segmentDataManager = createFakeSegmentManager();
@@ -966,6 +979,10 @@ public class LLRealtimeSegmentDataManagerTest {
       setInt(numRows, "_segmentMaxRowCount");
     }
 
+    public void setSegmentMaxMemoryBytes(long maxMemoryBytes) {
+      setLong(maxMemoryBytes, "_segmentMaxMemoryBytes");
+    }
+
     private void setLong(long value, String fieldName) {
       try {
         Field field = LLRealtimeSegmentDataManager.class.getDeclaredField(fieldName);
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.pinot.common.utils.StringUtil;
+import org.apache.pinot.core.data.recordtransformer.RecordTransformer;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.stream.LongMsgOffset;
+import org.apache.pinot.spi.stream.MessageBatch;
+import org.apache.pinot.spi.stream.StreamMessageDecoder;
+import org.apache.pinot.spi.stream.StreamPartitionMsgOffset;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class ParallelMessageDecoderTest {
+  private static final String COLUMN_NAME = "value";
+  private static final String FAIL_TRANSFORM_KEY = "failTransform";
+  private static final int NUM_BATCHES = 7;
+  private static final int NUM_MESSAGES_PER_BATCH = 333;
+
+  @Test
+  public void testDecode()
+      throws Exception {
+    // Message i: i % 10 == 0 cannot be decoded, i % 10 == 1 has 2 records, i % 10 == 2 fails the transform, i % 10 == 3
+    // has 2 records where the second one fails the transform
+    List<MessageBatch> messageBatches = new ArrayList<>();
+    int numMessages = 0;
+    for (int i = 0; i < NUM_BATCHES; i++) {
+      List<byte[]> messages = new ArrayList<>();
+      for (int j = 0; j < NUM_MESSAGES_PER_BATCH; j++) {
+        messages.add(StringUtil.encodeUtf8(Integer.toString(numMessages++)));
+      }
+      messageBatches.add(new TestMessageBatch(messages));
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      // NOTE: 4 ranges share 2 threads, as the decoder threads are shared by all the consuming partitions
+      for (int numThreads : new int[]{1, 4}) {
+        ParallelMessageDecoder decoder = new ParallelMessageDecoder(numThreads, TestMessageDecoder::new,
+            TestRecordTransformer::new, executorService);
+        ParallelMessageDecoder.DecodedMessage[] decodedMessages = decoder.decode(messageBatches);
+        assertEquals(decodedMessages.length, numMessages);
+        for (int i = 0; i < numMessages; i++) {
+          ParallelMessageDecoder.DecodedMessage decodedMessage = decodedMessages[i];
+          List<GenericRow> rows = decodedMessage.getRows();
+          switch (i % 10) {
+            case 0:
+              assertTrue(rows.isEmpty());
+              assertEquals(decodedMessage.getNumRowsDropped(), 1);
+              assertFalse(decodedMessage.isErrored());
+              break;
+            case 1:
+              assertEquals(rows.size(), 2);
+              assertEquals(rows.get(0).getValue(COLUMN_NAME), i);
+              assertEquals(rows.get(1).getValue(COLUMN_NAME), i);
+              assertEquals(decodedMessage.getNumRowsDropped(), 0);
+              assertFalse(decodedMessage.isErrored());
+              break;
+            case 2:
+              assertTrue(rows.isEmpty());
+              assertTrue(decodedMessage.isErrored());
+              break;
+            case 3:
+              // The rows transformed before the failure are kept
+              assertEquals(rows.size(), 1);
+              assertEquals(rows.get(0).getValue(COLUMN_NAME), i);
+              assertTrue(decodedMessage.isErrored());
+              break;
+            default:
+              assertEquals(rows.size(), 1);
+              assertEquals(rows.get(0).getValue(COLUMN_NAME), i);
+              assertEquals(decodedMessage.getNumRowsDropped(), 0);
+              assertFalse(decodedMessage.isErrored());
+              break;
+          }
+        }
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  private static class TestMessageBatch implements MessageBatch<byte[]> {
+    private final List<byte[]> _messages;
+
+    TestMessageBatch(List<byte[]> messages) {
+      _messages = messages;
+    }
+
+    @Override
+    public int getMessageCount() {
+      return _messages.size();
+    }
+
+    @Override
+    public byte[] getMessageAtIndex(int index) {
+      return _messages.get(index);
+    }
+
+    @Override
+    public int getMessageOffsetAtIndex(int index) {
+      return 0;
+    }
+
+    @Override
+    public int getMessageLengthAtIndex(int index) {
+      return _messages.get(index).length;
+    }
+
+    @Override
+    public long getNextStreamMessageOffsetAtIndex(int index) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public StreamPartitionMsgOffset getNextStreamParitionMsgOffsetAtIndex(int index) {
+      return new LongMsgOffset(index + 1);
+    }
+  }
+
+  private static class TestMessageDecoder implements StreamMessageDecoder<byte[]> {
+    @Override
+    public void init(Map<String, String> props, Set<String> fieldsToRead, String topicName) {
+    }
+
+    @Override
+    public GenericRow decode(byte[] payload, GenericRow destination) {
+      return decode(payload, 0, payload.length, destination);
+    }
+
+    @Override
+    public GenericRow decode(byte[] payload, int offset, int length, GenericRow destination) {
+      int value = Integer.parseInt(new String(payload, offset, length));
+      switch (value % 10) {
+        case 0:
+          return null;
+        case 1:
+        case 3:
+          GenericRow row1 = new GenericRow();
+          row1.putValue(COLUMN_NAME, value);
+          GenericRow row2 = new GenericRow();
+          row2.putValue(COLUMN_NAME, value);
+          if (value % 10 == 3) {
+            row2.putValue(FAIL_TRANSFORM_KEY, true);
+          }
+          destination.putValue(GenericRow.MULTIPLE_RECORDS_KEY, Arrays.asList(row1, row2));
+          return destination;
+        default:
+          destination.putValue(COLUMN_NAME, value);
+          return destination;
+      }
+    }
+  }
+
+  private static class TestRecordTransformer implements RecordTransformer {
+    @Override
+    public GenericRow transform(GenericRow record) {
+      if ((int) record.getValue(COLUMN_NAME) % 10 == 2 || record.getValue(FAIL_TRANSFORM_KEY) != null) {
+        throw new IllegalStateException("Failed to transform");
+      }
+      return record;
+    }
+  }
+}
@@ -92,6 +92,84 @@ public class MutableSegmentImplAggregateMetricsTest {
     mutableSegmentImpl.destroy();
   }
 
+  @Test
+  public void testAggregateMetricsWithRawDimensionsAndTimeBucket() {
+    Schema schema = new Schema.SchemaBuilder().setSchemaName("testSchema")
+        .addSingleValueDimension(DIMENSION_1, FieldSpec.DataType.LONG)
+        .addSingleValueDimension(DIMENSION_2, FieldSpec.DataType.STRING).addMetric(METRIC, FieldSpec.DataType.LONG)
+        .addMetric(METRIC_2, FieldSpec.DataType.FLOAT)
+        .addDateTime(TIME_COLUMN1, FieldSpec.DataType.LONG, "1:MILLISECONDS:EPOCH", "1:MILLISECONDS").build();
+    Map<String, String> aggregateMetricsFunctions = new HashMap<>();
+    aggregateMetricsFunctions.put(METRIC, "MIN");
+    aggregateMetricsFunctions.put(METRIC_2, "max");
+    long timeBucketMs = TimeUnit.MINUTES.toMillis(5);
+    MutableSegmentImpl mutableSegmentImpl = MutableSegmentImplTestUtils
+        .createMutableSegmentImpl(schema, new HashSet<>(Arrays.asList(DIMENSION_1, METRIC, METRIC_2, TIME_COLUMN1)),
+            Collections.emptySet(), Collections.emptySet(), true, false, TIME_COLUMN1, aggregateMetricsFunctions,
+            timeBucketMs, true);
+
+    Random random = new Random();
+    Map<String, Long> expectedValues = new HashMap<>();
+    Map<String, Float> expectedValuesFloat = new HashMap<>();
+    StreamMessageMetadata defaultMetadata = new StreamMessageMetadata(System.currentTimeMillis());
+    for (int i = 0; i < NUM_ROWS; i++) {
+      // Include time values before the epoch, which should be truncated towards negative infinity
+      long timeMs = (random.nextInt(10) - 5) * timeBucketMs + random.nextInt((int) timeBucketMs);
+      GenericRow row = new GenericRow();
+      // High-cardinality raw dimension
+      row.putField(DIMENSION_1, (long) random.nextInt(100) << 40);
+      row.putField(DIMENSION_2, "value" + random.nextInt(5));
+      row.putField(TIME_COLUMN1, timeMs);
+      long metricValue = random.nextInt();
+      row.putField(METRIC, metricValue);
+      float metricValueFloat = random.nextFloat();
+      row.putField(METRIC_2, metricValueFloat);
+
+      mutableSegmentImpl.index(row, defaultMetadata);
+
+      // Update expected values, time value should be truncated to the 5 minutes bucket
+      Assert.assertEquals(row.getValue(TIME_COLUMN1), Math.floorDiv(timeMs, timeBucketMs) * timeBucketMs);
+      String key = row.getValue(DIMENSION_1) + KEY_SEPARATOR + row.getValue(DIMENSION_2) + KEY_SEPARATOR + row
+          .getValue(TIME_COLUMN1);
+      expectedValues.merge(key, metricValue, Math::min);
+      expectedValuesFloat.merge(key, metricValueFloat, Math::max);
+    }
+
+    int numDocsIndexed = mutableSegmentImpl.getNumDocsIndexed();
+    Assert.assertEquals(numDocsIndexed, expectedValues.size());
+    Assert.assertTrue(numDocsIndexed < NUM_ROWS);
+
+    GenericRow reuse = new GenericRow();
+    for (int docId = 0; docId < numDocsIndexed; docId++) {
+      GenericRow row = mutableSegmentImpl.getRecord(docId, reuse);
+      String key = row.getValue(DIMENSION_1) + KEY_SEPARATOR + row.getValue(DIMENSION_2) + KEY_SEPARATOR + row
+          .getValue(TIME_COLUMN1);
+      Assert.assertEquals(row.getValue(METRIC), expectedValues.get(key));
+      Assert.assertEquals(row.getValue(METRIC_2), expectedValuesFloat.get(key));
+    }
+    mutableSegmentImpl.destroy();
+  }
+
+  @Test
+  public void testAggregateMetricsDisabledWithRawDimensions() {
+    Schema schema = new Schema.SchemaBuilder().setSchemaName("testSchema")
+        .addSingleValueDimension(DIMENSION_1, FieldSpec.DataType.LONG).addMetric(METRIC, FieldSpec.DataType.LONG)
+        .build();
+    // Raw dimensions require the linear-probing dictionary, so the rows should not be aggregated
+    MutableSegmentImpl mutableSegmentImpl = MutableSegmentImplTestUtils
+        .createMutableSegmentImpl(schema, new HashSet<>(Arrays.asList(DIMENSION_1, METRIC)), Collections.emptySet(),
+            Collections.emptySet(), true);
+    StreamMessageMetadata defaultMetadata = new StreamMessageMetadata(System.currentTimeMillis());
+    for (int i = 0; i < 10; i++) {
+      GenericRow row = new GenericRow();
+      row.putField(DIMENSION_1, 1L);
+      row.putField(METRIC, 1L);
+      mutableSegmentImpl.index(row, defaultMetadata);
+    }
+    Assert.assertEquals(mutableSegmentImpl.getNumDocsIndexed(), 10);
+    mutableSegmentImpl.destroy();
+  }
+
   private void testAggregateMetrics(MutableSegmentImpl mutableSegmentImpl) {
     String[] stringValues = new String[10];
     Float[] floatValues = new Float[10];
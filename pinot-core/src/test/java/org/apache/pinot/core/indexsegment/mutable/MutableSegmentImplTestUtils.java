@@ -18,6 +18,8 @@
  */
 package org.apache.pinot.core.indexsegment.mutable;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import org.apache.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
@@ -48,17 +50,29 @@ public class MutableSegmentImplTestUtils {
   public static MutableSegmentImpl createMutableSegmentImpl(@Nonnull Schema schema,
       @Nonnull Set<String> noDictionaryColumns, @Nonnull Set<String> varLengthDictionaryColumns,
       @Nonnull Set<String> invertedIndexColumns, boolean aggregateMetrics, boolean nullHandlingEnabled) {
+    return createMutableSegmentImpl(schema, noDictionaryColumns, varLengthDictionaryColumns, invertedIndexColumns,
+        aggregateMetrics, nullHandlingEnabled, null, Collections.emptyMap(), 0L, false);
+  }
+
+  public static MutableSegmentImpl createMutableSegmentImpl(@Nonnull Schema schema,
+      @Nonnull Set<String> noDictionaryColumns, @Nonnull Set<String> varLengthDictionaryColumns,
+      @Nonnull Set<String> invertedIndexColumns, boolean aggregateMetrics, boolean nullHandlingEnabled,
+      String timeColumnName, @Nonnull Map<String, String> aggregateMetricsFunctions,
+      long aggregateMetricsTimeBucketMs, boolean linearProbingDictionaryEnabled) {
     RealtimeSegmentStatsHistory statsHistory = mock(RealtimeSegmentStatsHistory.class);
     when(statsHistory.getEstimatedCardinality(anyString())).thenReturn(200);
     when(statsHistory.getEstimatedAvgColSize(anyString())).thenReturn(32);
 
     RealtimeSegmentConfig realtimeSegmentConfig =
         new RealtimeSegmentConfig.Builder().setSegmentName(SEGMENT_NAME).setStreamName(STEAM_NAME).setSchema(schema)
+            .setTimeColumnName(timeColumnName)
             .setCapacity(100000).setAvgNumMultiValues(2).setNoDictionaryColumns(noDictionaryColumns)
             .setVarLengthDictionaryColumns(varLengthDictionaryColumns).setInvertedIndexColumns(invertedIndexColumns)
             .setRealtimeSegmentZKMetadata(new RealtimeSegmentZKMetadata())
             .setMemoryManager(new DirectMemoryManager(SEGMENT_NAME)).setStatsHistory(statsHistory)
-            .setAggregateMetrics(aggregateMetrics).setNullHandlingEnabled(nullHandlingEnabled).build();
+            .setAggregateMetrics(aggregateMetrics).setAggregateMetricsFunctions(aggregateMetricsFunctions)
+            .setAggregateMetricsTimeBucketMs(aggregateMetricsTimeBucketMs).setNullHandlingEnabled(nullHandlingEnabled)
+            .setLinearProbingDictionaryEnabled(linearProbingDictionaryEnabled).build();
     return new MutableSegmentImpl(realtimeSegmentConfig);
   }
 }
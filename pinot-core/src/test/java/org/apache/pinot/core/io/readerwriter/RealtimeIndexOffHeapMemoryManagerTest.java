@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.io.readerwriter;
+
+import org.apache.pinot.core.io.writer.impl.DirectMemoryManager;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class RealtimeIndexOffHeapMemoryManagerTest {
+  private static final long MB = 1024 * 1024;
+
+  @Test
+  public void testShouldReleaseForServerLimit()
+      throws Exception {
+    long baselineBytes = RealtimeIndexOffHeapMemoryManager.getServerAllocatedBytes();
+    DirectMemoryManager memoryManager1 = new DirectMemoryManager("segment1");
+    DirectMemoryManager memoryManager2 = new DirectMemoryManager("segment2");
+    DirectMemoryManager memoryManager3 = new DirectMemoryManager("segment3");
+    try {
+      memoryManager1.allocate(3 * MB, "col");
+      memoryManager2.allocate(2 * MB, "col");
+      memoryManager3.allocate(MB, "col");
+      long totalBytes = baselineBytes + 6 * MB;
+
+      // Under the limit
+      assertFalse(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager1, totalBytes));
+      assertFalse(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager3, totalBytes));
+
+      // Releasing the largest consumer is enough
+      long limitBytes = totalBytes - 2 * MB;
+      assertTrue(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager1, limitBytes));
+      assertFalse(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager2, limitBytes));
+      assertFalse(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager3, limitBytes));
+
+      // Need to release the 2 largest consumers
+      limitBytes = totalBytes - 4 * MB;
+      assertTrue(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager1, limitBytes));
+      assertTrue(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager2, limitBytes));
+      assertFalse(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager3, limitBytes));
+
+      // Closed memory managers should not be counted
+      memoryManager1.close();
+      assertTrue(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager2, limitBytes));
+      assertFalse(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager3, limitBytes));
+
+      // New allocation should invalidate the cached decision
+      memoryManager3.allocate(2 * MB, "col");
+      assertFalse(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager2, limitBytes));
+      assertTrue(RealtimeIndexOffHeapMemoryManager.shouldReleaseForServerLimit(memoryManager3, limitBytes));
+    } finally {
+      memoryManager1.close();
+      memoryManager2.close();
+      memoryManager3.close();
+    }
+  }
+}
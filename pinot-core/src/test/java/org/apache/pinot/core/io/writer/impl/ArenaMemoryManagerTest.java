@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.io.writer.impl;
+
+import com.yammer.metrics.core.MetricsRegistry;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
+import org.apache.pinot.core.segment.memory.PinotDataBuffer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class ArenaMemoryManagerTest {
+  private static final long REGION_SIZE = 1024 * 1024;
+
+  @Test
+  public void testSmallBlocksShareRegion()
+      throws Exception {
+    OffHeapMemoryArena arena = new OffHeapMemoryArena(REGION_SIZE, 4 * REGION_SIZE,
+        new ServerMetrics(new MetricsRegistry()));
+    PinotDataBufferMemoryManager memoryManager = new ArenaMemoryManager(arena, "someSegment");
+    PinotDataBuffer buf1 = memoryManager.allocate(500, "col1");
+    PinotDataBuffer buf2 = memoryManager.allocate(1001, "col2");
+    PinotDataBuffer buf3 = memoryManager.allocate(1000, "col1");
+    buf1.putLong(0, 1L);
+    buf2.putLong(993, 2L);
+    buf3.putLong(0, 3L);
+    Assert.assertEquals(buf1.getLong(0), 1L);
+    Assert.assertEquals(buf2.getLong(993), 2L);
+    Assert.assertEquals(buf3.getLong(0), 3L);
+    Assert.assertEquals(buf2.size(), 1001);
+
+    // All buffers are carved out of a single region
+    Assert.assertEquals(arena.getAllocatedBytes(), REGION_SIZE);
+    Assert.assertEquals(memoryManager.getTotalAllocatedBytes(), 2501);
+
+    memoryManager.close();
+    Assert.assertEquals(arena.getAllocatedBytes(), REGION_SIZE);
+    Assert.assertEquals(arena.getFreeBytes(), REGION_SIZE);
+  }
+
+  @Test
+  public void testRegionsRecycledAcrossSegments()
+      throws Exception {
+    OffHeapMemoryArena arena = new OffHeapMemoryArena(REGION_SIZE, 2 * REGION_SIZE,
+        new ServerMetrics(new MetricsRegistry()));
+    PinotDataBufferMemoryManager memoryManager1 = new ArenaMemoryManager(arena, "segment1");
+    PinotDataBuffer buf = memoryManager1.allocate(REGION_SIZE - 8, "col");
+    buf.putLong(0, 123L);
+    // Neither buffer fits in the current region, so a new region is acquired for each
+    memoryManager1.allocate(REGION_SIZE / 2 + 8, "col");
+    memoryManager1.allocate(REGION_SIZE / 2 + 8, "col");
+    Assert.assertEquals(arena.getAllocatedBytes(), 3 * REGION_SIZE);
+    memoryManager1.close();
+
+    // Only the max free bytes are retained
+    Assert.assertEquals(arena.getFreeBytes(), 2 * REGION_SIZE);
+    Assert.assertEquals(arena.getAllocatedBytes(), 2 * REGION_SIZE);
+
+    // The next segment reuses the free regions, which are cleared
+    PinotDataBufferMemoryManager memoryManager2 = new ArenaMemoryManager(arena, "segment2");
+    buf = memoryManager2.allocate(REGION_SIZE, "col");
+    for (long offset = 0; offset < REGION_SIZE; offset += Long.BYTES) {
+      Assert.assertEquals(buf.getLong(offset), 0L);
+    }
+    Assert.assertEquals(arena.getFreeBytes(), REGION_SIZE);
+    Assert.assertEquals(arena.getAllocatedBytes(), 2 * REGION_SIZE);
+    memoryManager2.close();
+    Assert.assertEquals(arena.getFreeBytes(), 2 * REGION_SIZE);
+  }
+
+  @Test
+  public void testLargeBlocks()
+      throws Exception {
+    OffHeapMemoryArena arena = new OffHeapMemoryArena(REGION_SIZE, 4 * REGION_SIZE,
+        new ServerMetrics(new MetricsRegistry()));
+    PinotDataBufferMemoryManager memoryManager = new ArenaMemoryManager(arena, "someSegment");
+    long largeSize = 3 * REGION_SIZE;
+    PinotDataBuffer buf = memoryManager.allocate(largeSize, "col");
+    buf.putByte(largeSize - 1, (byte) 34);
+    Assert.assertEquals(buf.getByte(largeSize - 1), (byte) 34);
+    Assert.assertEquals(arena.getAllocatedBytes(), largeSize);
+
+    // Large regions are released instead of being retained
+    memoryManager.close();
+    Assert.assertEquals(arena.getAllocatedBytes(), 0);
+    Assert.assertEquals(arena.getFreeBytes(), 0);
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.filter.predicate;
+
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.core.query.request.context.ExpressionContext;
+import org.apache.pinot.core.query.request.context.predicate.EqPredicate;
+import org.apache.pinot.core.query.request.context.predicate.Predicate;
+import org.apache.pinot.core.realtime.impl.dictionary.BaseMutableDictionary;
+import org.apache.pinot.core.segment.index.readers.BaseImmutableDictionary;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+
+public class PredicateEvaluatorCacheTest {
+  private static final ExpressionContext COLUMN_EXPRESSION = ExpressionContext.forIdentifier("column");
+
+  @Test
+  public void testGetPredicateEvaluator() {
+    PredicateEvaluatorCache cache = new PredicateEvaluatorCache(2, new ServerMetrics(new MetricsRegistry()));
+    Dictionary dictionary1 = mock(BaseImmutableDictionary.class);
+    Dictionary dictionary2 = mock(BaseImmutableDictionary.class);
+    AtomicInteger numCreated = new AtomicInteger();
+
+    // Equal predicates on the same dictionary should share the predicate evaluator
+    PredicateEvaluator predicateEvaluator = getPredicateEvaluator(cache, "foo", dictionary1, numCreated);
+    assertSame(getPredicateEvaluator(cache, "foo", dictionary1, numCreated), predicateEvaluator);
+    assertEquals(numCreated.get(), 1);
+    assertEquals(cache.getNumDictionaries(), 1);
+
+    // Different dictionary
+    assertNotSame(getPredicateEvaluator(cache, "foo", dictionary2, numCreated), predicateEvaluator);
+    assertEquals(numCreated.get(), 2);
+    assertEquals(cache.getNumDictionaries(), 2);
+
+    // Different predicate
+    assertNotSame(getPredicateEvaluator(cache, "bar", dictionary1, numCreated), predicateEvaluator);
+    assertEquals(numCreated.get(), 3);
+
+    // Least recently used predicate evaluator should be evicted
+    getPredicateEvaluator(cache, "baz", dictionary1, numCreated);
+    assertEquals(numCreated.get(), 4);
+    getPredicateEvaluator(cache, "foo", dictionary1, numCreated);
+    assertEquals(numCreated.get(), 5);
+
+    // Predicate evaluators should not be cached for mutable dictionaries
+    Dictionary mutableDictionary = mock(BaseMutableDictionary.class);
+    getPredicateEvaluator(cache, "foo", mutableDictionary, numCreated);
+    getPredicateEvaluator(cache, "foo", mutableDictionary, numCreated);
+    assertEquals(numCreated.get(), 7);
+    assertEquals(cache.getNumDictionaries(), 2);
+  }
+
+  @Test
+  public void testPredicateEvaluatorProvider() {
+    BaseImmutableDictionary dictionary = mock(BaseImmutableDictionary.class);
+    when(dictionary.getValueType()).thenReturn(DataType.STRING);
+    when(dictionary.indexOf("foo")).thenReturn(1);
+    when(dictionary.length()).thenReturn(10);
+    Predicate predicate = new EqPredicate(COLUMN_EXPRESSION, "foo");
+
+    try {
+      PredicateEvaluatorProvider
+          .setPredicateEvaluatorCache(new PredicateEvaluatorCache(10, new ServerMetrics(new MetricsRegistry())));
+      PredicateEvaluator predicateEvaluator =
+          PredicateEvaluatorProvider.getPredicateEvaluator(predicate, dictionary, DataType.STRING);
+      assertSame(PredicateEvaluatorProvider
+          .getPredicateEvaluator(new EqPredicate(COLUMN_EXPRESSION, "foo"), dictionary, DataType.STRING),
+          predicateEvaluator);
+      assertEquals(predicateEvaluator.getMatchingDictIds(), new int[]{1});
+
+      // Predicate evaluators should not be shared once the cache is disabled
+      PredicateEvaluatorProvider.setPredicateEvaluatorCache(null);
+      assertNotSame(PredicateEvaluatorProvider.getPredicateEvaluator(predicate, dictionary, DataType.STRING),
+          predicateEvaluator);
+    } finally {
+      PredicateEvaluatorProvider.setPredicateEvaluatorCache(null);
+    }
+  }
+
+  private static PredicateEvaluator getPredicateEvaluator(PredicateEvaluatorCache cache, String value,
+      Dictionary dictionary, AtomicInteger numCreated) {
+    return cache.getPredicateEvaluator(new EqPredicate(COLUMN_EXPRESSION, value), dictionary, () -> {
+      numCreated.incrementAndGet();
+      return mock(PredicateEvaluator.class);
+    });
+  }
+}
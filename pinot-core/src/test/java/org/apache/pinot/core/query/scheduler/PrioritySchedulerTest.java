@@ -232,6 +232,38 @@ public class PrioritySchedulerTest {
     scheduler.stop();
   }
 
+  @Test
+  public void testCancelQueuedQuery()
+      throws Exception {
+    // Use one query runner so that the second query is queued while the first one is running
+    Map<String, Object> properties = new HashMap<>();
+    properties.put(ResourceManager.QUERY_RUNNER_CONFIG_KEY, 1);
+    useBarrier = true;
+    startupBarrier = new CyclicBarrier(2);
+    validationBarrier = new CyclicBarrier(2);
+    numQueries = new CountDownLatch(3);
+
+    TestPriorityScheduler scheduler = TestPriorityScheduler.create(new PinotConfiguration(properties));
+    scheduler.start();
+    ListenableFuture<byte[]> runningResult = scheduler.submit(createServerQueryRequest("1", metrics));
+    startupBarrier.await();
+    ListenableFuture<byte[]> queuedResult = scheduler.submit(createServerQueryRequest("1", metrics));
+    assertTrue(queuedResult.cancel(true));
+    validationBarrier.await();
+    runningResult.get(10, TimeUnit.SECONDS);
+
+    // The cancelled query should be dropped without executing, and the next query should be executed
+    useBarrier = false;
+    ListenableFuture<byte[]> nextResult = scheduler.submit(createServerQueryRequest("1", metrics));
+    DataTable dataTable = DataTableFactory.getDataTable(nextResult.get(10, TimeUnit.SECONDS));
+    assertEquals(dataTable.getMetadata().get("table"), "1");
+    assertEquals(numQueries.getCount(), 1);
+    TestSchedulerGroup group = TestPriorityScheduler.groupFactory.groupMap.get("1");
+    assertEquals(group.numPending(), 0);
+    assertEquals(group.numRunning(), 0);
+    scheduler.stop();
+  }
+
   static class TestPriorityScheduler extends PriorityScheduler {
     static TestSchedulerGroupFactory groupFactory;
     static LongAccumulator latestQueryTime;
@@ -198,6 +198,39 @@ public class RealtimeSegmentStatsHistoryTest {
     }
   }
 
+  @Test
+  public void testEstimatedBytesPerRow()
+      throws Exception {
+    final String tmpDir = System.getProperty("java.io.tmpdir");
+    File serializedFile = new File(tmpDir, STATS_FILE_NAME);
+    FileUtils.deleteQuietly(serializedFile);
+    serializedFile.deleteOnExit();
+
+    RealtimeSegmentStatsHistory history = RealtimeSegmentStatsHistory.deserialzeFrom(serializedFile);
+    Assert.assertEquals(history.getEstimatedBytesPerRow(), -1);
+
+    RealtimeSegmentStatsHistory.SegmentStats segmentStats = new RealtimeSegmentStatsHistory.SegmentStats();
+    segmentStats.setNumRowsIndexed(1000);
+    segmentStats.setMemUsedBytes(100_000);
+    history.addSegmentStats(segmentStats);
+    Assert.assertEquals(history.getEstimatedBytesPerRow(), 100);
+
+    // Bytes per row is weighted by the number of rows indexed in each segment
+    segmentStats = new RealtimeSegmentStatsHistory.SegmentStats();
+    segmentStats.setNumRowsIndexed(3000);
+    segmentStats.setMemUsedBytes(700_000);
+    history.addSegmentStats(segmentStats);
+    Assert.assertEquals(history.getEstimatedBytesPerRow(), 200);
+
+    // Segments without memory usage are ignored
+    segmentStats = new RealtimeSegmentStatsHistory.SegmentStats();
+    segmentStats.setNumRowsIndexed(5000);
+    history.addSegmentStats(segmentStats);
+    Assert.assertEquals(history.getEstimatedBytesPerRow(), 200);
+
+    FileUtils.deleteQuietly(serializedFile);
+  }
+
   @Test
   public void testMultiThreadedUse()
       throws Exception {
@@ -35,6 +35,7 @@ import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.utils.ByteArray;
 import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
 import org.apache.pinot.core.io.writer.impl.DirectMemoryManager;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.Test;
@@ -71,6 +72,11 @@ public class MutableDictionaryTest {
           "stringColumn", 32)) {
         testSingleReaderSingleWriter(dictionary, FieldSpec.DataType.STRING);
       }
+      // Start with a small hash table so that readers run concurrently with the incremental growth
+      try (BaseMutableDictionary dictionary = new StringOffHeapLinearProbingMutableDictionary(10, 0, _memoryManager,
+          "stringColumn", 32)) {
+        testSingleReaderSingleWriter(dictionary, FieldSpec.DataType.STRING);
+      }
     } catch (Throwable t) {
       Assert.fail("Failed with random seed: " + RANDOM_SEED, t);
     }
@@ -99,6 +105,11 @@ public class MutableDictionaryTest {
           "stringColumn", 32)) {
         testMultiReadersSingleWriter(dictionary, FieldSpec.DataType.STRING);
       }
+      // Start with a small hash table so that readers run concurrently with the incremental growth
+      try (BaseMutableDictionary dictionary = new StringOffHeapLinearProbingMutableDictionary(10, 0, _memoryManager,
+          "stringColumn", 32)) {
+        testMultiReadersSingleWriter(dictionary, FieldSpec.DataType.STRING);
+      }
     } catch (Throwable t) {
       Assert.fail("Failed with random seed: " + RANDOM_SEED, t);
     }
@@ -149,6 +160,92 @@ public class MutableDictionaryTest {
     }
   }
 
+  @Test
+  public void testOffHeapLinearProbingMutableDictionary() {
+    int[] estCardinalities = {10, EST_CARDINALITY, NUM_ENTRIES * 2};
+
+    try {
+      for (int estCardinality : estCardinalities) {
+        try (BaseMutableDictionary dictionary = new StringOffHeapLinearProbingMutableDictionary(estCardinality, 0,
+            _memoryManager, "stringColumn", 32)) {
+          testMutableDictionary(dictionary, FieldSpec.DataType.STRING);
+        }
+        try (BaseMutableDictionary dictionary = new BytesOffHeapLinearProbingMutableDictionary(estCardinality, 0,
+            _memoryManager, "bytesColumn", 32)) {
+          testMutableDictionary(dictionary, FieldSpec.DataType.BYTES);
+        }
+      }
+    } catch (Throwable t) {
+      Assert.fail("Failed with random seed: " + RANDOM_SEED, t);
+    }
+  }
+
+  @Test
+  public void testOffHeapLinearProbingMutableDictionaryShortValues() {
+    // Values up to 7 bytes are compared inline in the hash table
+    try (BaseMutableDictionary dictionary = new StringOffHeapLinearProbingMutableDictionary(10, 0, _memoryManager,
+        "stringColumn", 4)) {
+      List<String> values = new ArrayList<>();
+      for (int i = 0; i < NUM_ENTRIES; i++) {
+        String value = Integer.toString(i, 36);
+        values.add(value);
+        Assert.assertEquals(dictionary.index(value), i);
+      }
+      Assert.assertEquals(dictionary.index(""), NUM_ENTRIES);
+      Assert.assertEquals(dictionary.index("\u0000"), NUM_ENTRIES + 1);
+      for (int i = 0; i < NUM_ENTRIES; i++) {
+        Assert.assertEquals(dictionary.index(values.get(i)), i);
+        Assert.assertEquals(dictionary.indexOf(values.get(i)), i);
+        Assert.assertEquals(dictionary.getStringValue(i), values.get(i));
+      }
+      Assert.assertEquals(dictionary.indexOf(""), NUM_ENTRIES);
+      Assert.assertEquals(dictionary.indexOf("\u0000"), NUM_ENTRIES + 1);
+      Assert.assertEquals(dictionary.indexOf("\u0000\u0000"), Dictionary.NULL_VALUE_INDEX);
+      // 7 bytes values are inlined, 8 bytes values are not
+      Assert.assertEquals(dictionary.index("abcdefg"), NUM_ENTRIES + 2);
+      Assert.assertEquals(dictionary.index("abcdefgh"), NUM_ENTRIES + 3);
+      Assert.assertEquals(dictionary.indexOf("abcdefg"), NUM_ENTRIES + 2);
+      Assert.assertEquals(dictionary.indexOf("abcdefgh"), NUM_ENTRIES + 3);
+      Assert.assertEquals(dictionary.indexOf("abcdefg\u0000"), Dictionary.NULL_VALUE_INDEX);
+      Assert.assertEquals(dictionary.length(), NUM_ENTRIES + 4);
+    } catch (Throwable t) {
+      Assert.fail("Failed with random seed: " + RANDOM_SEED, t);
+    }
+  }
+
+  @Test
+  public void testOffHeapLinearProbingMutableDictionaryReleasePreviousTables()
+      throws Exception {
+    try (PinotDataBufferMemoryManager memoryManager = new DirectMemoryManager("testReleasePreviousTables");
+        StringOffHeapLinearProbingMutableDictionary dictionary = new StringOffHeapLinearProbingMutableDictionary(10, 0,
+            memoryManager, "stringColumn", 8)) {
+      for (int i = 0; i < NUM_ENTRIES; i++) {
+        dictionary.index(Integer.toString(i));
+      }
+      // Capacity of the current table, which is kept at most 3/4 full
+      long capacity = Long.highestOneBit(NUM_ENTRIES * 4L / 3) << 1;
+      // The current table plus at most the previous table (half the size) being migrated
+      Assert.assertTrue(dictionary.getHashTableMemUsed() <= capacity * 16 * 3 / 2);
+      Assert.assertEquals(memoryManager.getTotalAllocatedBytes(), dictionary.getTotalOffHeapMemUsed());
+    }
+  }
+
+  @Test
+  public void testMutableDictionaryFactory() {
+    try (BaseMutableDictionary dictionary = MutableDictionaryFactory
+        .getMutableDictionary(FieldSpec.DataType.STRING, true, _memoryManager, 8, 10, "stringColumn")) {
+      Assert.assertTrue(dictionary instanceof StringOffHeapMutableDictionary);
+    } catch (Exception e) {
+      Assert.fail("Caught exception", e);
+    }
+    try (BaseMutableDictionary dictionary = MutableDictionaryFactory
+        .getMutableDictionary(FieldSpec.DataType.BYTES, true, true, _memoryManager, 8, 10, "bytesColumn")) {
+      Assert.assertTrue(dictionary instanceof BytesOffHeapLinearProbingMutableDictionary);
+    } catch (Exception e) {
+      Assert.fail("Caught exception", e);
+    }
+  }
+
   private void testMutableDictionary(BaseMutableDictionary dictionary, FieldSpec.DataType dataType) {
     Map<Object, Integer> valueToDictId = new HashMap<>();
     int numEntries = 0;
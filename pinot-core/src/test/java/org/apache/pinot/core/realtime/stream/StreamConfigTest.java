@@ -195,6 +195,8 @@ public class StreamConfigTest {
     Assert.assertEquals(streamConfig.getFlushThresholdTimeMillis(), StreamConfig.DEFAULT_FLUSH_THRESHOLD_TIME_MILLIS);
     Assert.assertEquals(streamConfig.getFlushThresholdSegmentSizeBytes(),
         StreamConfig.DEFAULT_FLUSH_THRESHOLD_SEGMENT_SIZE_BYTES);
+    Assert.assertEquals(streamConfig.getFlushThresholdMemorySizeBytes(),
+        StreamConfig.DEFAULT_FLUSH_THRESHOLD_MEMORY_SIZE_BYTES);
 
     consumerType = "lowLevel,highLevel";
     String offsetCriteria = "smallest";
@@ -205,6 +207,7 @@ public class StreamConfigTest {
     String flushThresholdTime = "2h";
     String flushThresholdRows = "500";
     String flushSegmentSize = "20M";
+    String flushMemorySize = "500M";
     streamConfigMap
         .put(StreamConfigProperties.constructStreamProperty(streamType, StreamConfigProperties.STREAM_CONSUMER_TYPES),
             consumerType);
@@ -222,6 +225,7 @@ public class StreamConfigTest {
     streamConfigMap.put(StreamConfigProperties.SEGMENT_FLUSH_THRESHOLD_ROWS, flushThresholdRows);
     streamConfigMap.put(StreamConfigProperties.SEGMENT_FLUSH_THRESHOLD_TIME, flushThresholdTime);
     streamConfigMap.put(StreamConfigProperties.SEGMENT_FLUSH_THRESHOLD_SEGMENT_SIZE, flushSegmentSize);
+    streamConfigMap.put(StreamConfigProperties.SEGMENT_FLUSH_THRESHOLD_MEMORY_SIZE, flushMemorySize);
 
     streamConfig = new StreamConfig(tableName, streamConfigMap);
     Assert.assertEquals(streamConfig.getType(), streamType);
@@ -239,6 +243,7 @@ public class StreamConfigTest {
     Assert.assertEquals(streamConfig.getFlushThresholdTimeMillis(),
         (long) TimeUtils.convertPeriodToMillis(flushThresholdTime));
     Assert.assertEquals(streamConfig.getFlushThresholdSegmentSizeBytes(), DataSizeUtils.toBytes(flushSegmentSize));
+    Assert.assertEquals(streamConfig.getFlushThresholdMemorySizeBytes(), DataSizeUtils.toBytes(flushMemorySize));
 
     // Backward compatibility check for flushThresholdTime
     flushThresholdTime = "18000000";
@@ -357,6 +362,12 @@ public class StreamConfigTest {
     streamConfig = new StreamConfig(tableName, streamConfigMap);
     Assert.assertEquals(streamConfig.getFlushThresholdSegmentSizeBytes(),
         StreamConfig.DEFAULT_FLUSH_THRESHOLD_SEGMENT_SIZE_BYTES);
+
+    // Invalid flush memory size
+    streamConfigMap.put(StreamConfigProperties.SEGMENT_FLUSH_THRESHOLD_MEMORY_SIZE, "size");
+    streamConfig = new StreamConfig(tableName, streamConfigMap);
+    Assert.assertEquals(streamConfig.getFlushThresholdMemorySizeBytes(),
+        StreamConfig.DEFAULT_FLUSH_THRESHOLD_MEMORY_SIZE_BYTES);
   }
 
   /**
@@ -22,20 +22,26 @@ import com.fasterxml.jackson.databind.JsonNode;
 import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
+import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.io.FileUtils;
 import org.apache.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import org.apache.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import org.apache.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import org.apache.pinot.core.segment.creator.impl.V1Constants;
 import org.apache.pinot.core.segment.index.metadata.ColumnMetadata;
 import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.core.segment.store.SegmentDirectoryPaths;
 import org.apache.pinot.segments.v1.creator.SegmentTestUtils;
+import org.apache.pinot.spi.env.CommonsConfigurationUtils;
 import org.apache.pinot.util.TestUtils;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 
@@ -103,4 +109,78 @@ public class SegmentMetadataImplTest {
       assertEquals(jsonColumnMeta.get("hasDictionary").asBoolean(), columnMeta.hasDictionary());
     }
   }
+
+  @Test
+  public void testBinaryMetadata()
+      throws Exception {
+    File metadataFile = SegmentDirectoryPaths.findMetadataFile(segmentDirectory);
+    File binaryMetadataFile =
+        new File(metadataFile.getParentFile(), V1Constants.MetadataKeys.BINARY_METADATA_FILE_NAME);
+
+    // Binary metadata file should be created with the segment
+    assertTrue(binaryMetadataFile.exists());
+    SegmentMetadataImpl binaryMetadata = new SegmentMetadataImpl(segmentDirectory);
+
+    // Binary metadata file should not be created when loading the segment metadata
+    assertTrue(binaryMetadataFile.delete());
+    SegmentMetadataImpl propertiesMetadata = new SegmentMetadataImpl(segmentDirectory);
+    assertFalse(binaryMetadataFile.exists());
+    assertMetadataEquals(binaryMetadata, propertiesMetadata);
+
+    // Binary metadata file should be created explicitly
+    SegmentMetadataImpl.createBinaryMetadataFile(segmentDirectory);
+    assertTrue(binaryMetadataFile.exists());
+    assertMetadataEquals(new SegmentMetadataImpl(segmentDirectory), propertiesMetadata);
+
+    // Stale binary metadata file should be ignored when the metadata properties file is modified
+    long lastModified = binaryMetadataFile.lastModified();
+    PropertiesConfiguration metadataProperties = CommonsConfigurationUtils.fromFile(metadataFile);
+    metadataProperties.setProperty(V1Constants.MetadataKeys.Segment.TABLE_NAME, "modifiedTable");
+    metadataProperties.save();
+    assertTrue(metadataFile.setLastModified(lastModified + 1000L));
+    assertEquals(new SegmentMetadataImpl(segmentDirectory).getTableName(), "modifiedTable");
+    assertEquals(binaryMetadataFile.lastModified(), lastModified);
+
+    // Stale binary metadata file should be re-created explicitly
+    assertTrue(binaryMetadataFile.setLastModified(lastModified - 1000L));
+    SegmentMetadataImpl.createBinaryMetadataFile(segmentDirectory);
+    assertFalse(binaryMetadataFile.lastModified() == lastModified - 1000L);
+    assertEquals(new SegmentMetadataImpl(segmentDirectory).getTableName(), "modifiedTable");
+  }
+
+  @Test
+  public void testSharedSchema()
+      throws IOException {
+    File binaryMetadataFile = new File(SegmentDirectoryPaths.findMetadataFile(segmentDirectory).getParentFile(),
+        V1Constants.MetadataKeys.BINARY_METADATA_FILE_NAME);
+    SegmentMetadataImpl metadata1 = new SegmentMetadataImpl(segmentDirectory);
+    assertTrue(binaryMetadataFile.delete());
+    SegmentMetadataImpl metadata2 = new SegmentMetadataImpl(segmentDirectory);
+
+    // Schema and field specs should be shared no matter the metadata is loaded from the binary or properties file
+    assertSame(metadata1.getSchema(), metadata2.getSchema());
+    for (String column : metadata1.getAllColumns()) {
+      assertSame(metadata1.getColumnMetadataFor(column).getFieldSpec(),
+          metadata2.getColumnMetadataFor(column).getFieldSpec());
+    }
+  }
+
+  private static void assertMetadataEquals(SegmentMetadataImpl actual, SegmentMetadataImpl expected) {
+    assertEquals(actual.getName(), expected.getName());
+    assertEquals(actual.getTableName(), expected.getTableName());
+    assertEquals(actual.getSegmentVersion(), expected.getSegmentVersion());
+    assertEquals(actual.getTotalDocs(), expected.getTotalDocs());
+    assertEquals(actual.getPaddingCharacter(), expected.getPaddingCharacter());
+    assertEquals(actual.getCreatorName(), expected.getCreatorName());
+    assertEquals(actual.getTimeColumn(), expected.getTimeColumn());
+    assertEquals(actual.getTimeUnit(), expected.getTimeUnit());
+    assertEquals(actual.getTimeInterval(), expected.getTimeInterval());
+    assertEquals(actual.getTimeGranularity(), expected.getTimeGranularity());
+    assertEquals(actual.getCrc(), expected.getCrc());
+    assertEquals(actual.getSchema(), expected.getSchema());
+    assertEquals(actual.getAllColumns(), expected.getAllColumns());
+    for (String column : expected.getAllColumns()) {
+      assertEquals(actual.getColumnMetadataFor(column).toString(), expected.getColumnMetadataFor(column).toString());
+    }
+  }
 }
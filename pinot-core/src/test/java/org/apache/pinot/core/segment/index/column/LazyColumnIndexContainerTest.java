@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.segment.index.column;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.segment.ReadMode;
+import org.apache.pinot.core.common.DataSource;
+import org.apache.pinot.core.data.readers.GenericRowRecordReader;
+import org.apache.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.core.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.core.segment.index.loader.IndexLoadingConfig;
+import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.core.segment.index.readers.Dictionary;
+import org.apache.pinot.core.segment.store.SegmentDirectory;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class LazyColumnIndexContainerTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "LazyColumnIndexContainerTest");
+  private static final String SEGMENT_NAME = "testSegment";
+  private static final String DIMENSION = "dim";
+  private static final String METRIC = "met";
+  private static final int NUM_ROWS = 100;
+
+  private File _indexDir;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(TEMP_DIR);
+    TableConfig tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName("testTable").build();
+    Schema schema = new Schema.SchemaBuilder().addSingleValueDimension(DIMENSION, FieldSpec.DataType.STRING)
+        .addMetric(METRIC, FieldSpec.DataType.LONG).build();
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(tableConfig, schema);
+    config.setOutDir(TEMP_DIR.getAbsolutePath());
+    config.setSegmentName(SEGMENT_NAME);
+    List<GenericRow> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(DIMENSION, "value" + i % 10);
+      row.putValue(METRIC, (long) i);
+      rows.add(row);
+    }
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new GenericRowRecordReader(rows));
+    driver.build();
+    _indexDir = driver.getOutputDirectory();
+  }
+
+  @Test
+  public void testLazyLoading()
+      throws Exception {
+    SegmentMetadataImpl segmentMetadata = new SegmentMetadataImpl(_indexDir);
+    SegmentDirectory segmentDirectory = SegmentDirectory.createFromLocalFS(_indexDir, segmentMetadata, ReadMode.mmap);
+    try (SegmentDirectory.Reader segmentReader = segmentDirectory.createReader()) {
+      LazyColumnIndexContainer container =
+          new LazyColumnIndexContainer(segmentReader, segmentMetadata.getColumnMetadataFor(DIMENSION),
+              new IndexLoadingConfig(), _indexDir);
+      assertFalse(container.isLoaded());
+      assertEquals(container.getLastAccessTimeMs(), 0L);
+
+      // Accessing any index should load the column
+      Dictionary dictionary = container.getDictionary();
+      assertTrue(container.isLoaded());
+      assertTrue(container.getLastAccessTimeMs() > 0L);
+      assertEquals(dictionary.length(), 10);
+      assertSame(container.getDictionary(), dictionary);
+      assertSame(container.getForwardIndex(), container.getForwardIndex());
+
+      // Column accessed recently should not be released
+      assertFalse(container.releaseIfIdle(60_000L));
+      assertTrue(container.isLoaded());
+
+      // Idle column should be released, and loaded again on the next access
+      assertTrue(container.releaseIfIdle(0L));
+      assertFalse(container.isLoaded());
+      assertFalse(container.releaseIfIdle(0L));
+      Dictionary reloadedDictionary = container.getDictionary();
+      assertTrue(container.isLoaded());
+      assertNotSame(reloadedDictionary, dictionary);
+      assertEquals(reloadedDictionary.length(), 10);
+
+      container.close();
+      assertFalse(container.isLoaded());
+    } finally {
+      segmentDirectory.close();
+    }
+  }
+
+  @Test
+  public void testLoadSegmentWithLazyColumnLoading()
+      throws Exception {
+    IndexLoadingConfig indexLoadingConfig = new IndexLoadingConfig();
+    indexLoadingConfig.setReadMode(ReadMode.mmap);
+    indexLoadingConfig.setLazyColumnLoading(true);
+    ImmutableSegmentImpl segment = (ImmutableSegmentImpl) ImmutableSegmentLoader.load(_indexDir, indexLoadingConfig);
+    try {
+      // Nothing should be released before the columns are loaded
+      assertEquals(segment.releaseIdleColumns(0L), 0);
+
+      DataSource dataSource = segment.getDataSource(METRIC);
+      assertEquals(dataSource.getDictionary().length(), NUM_ROWS);
+      assertEquals(segment.releaseIdleColumns(60_000L), 0);
+      assertEquals(segment.releaseIdleColumns(0L), 1);
+
+      // Released column should be loaded again on the next access
+      assertEquals(segment.getDataSource(METRIC).getDictionary().length(), NUM_ROWS);
+    } finally {
+      segment.destroy();
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+}
@@ -0,0 +1,253 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.segment.index.creator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.core.data.readers.GenericRowRecordReader;
+import org.apache.pinot.core.data.readers.PinotSegmentRecordReader;
+import org.apache.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import org.apache.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.core.segment.store.SegmentDirectoryPaths;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Tests that the optional segment creation modes (single-pass creation, multi-threaded index creation) generate the
+ * same segment as the regular single-threaded two-pass creation.
+ */
+public class SegmentGenerationModesTest {
+  private static final File TEMP_DIR =
+      new File(FileUtils.getTempDirectory(), SegmentGenerationModesTest.class.getSimpleName());
+  private static final String TABLE_NAME = "testTable";
+  private static final String SEGMENT_NAME = "testSegment";
+  // Not a multiple of the parallel indexing batch size so that the last batch is partial
+  private static final int NUM_ROWS = 10_001;
+
+  private static final String INT_COLUMN = "intColumn";
+  private static final String LONG_COLUMN = "longColumn";
+  private static final String FLOAT_COLUMN = "floatColumn";
+  private static final String DOUBLE_COLUMN = "doubleColumn";
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final String BYTES_COLUMN = "bytesColumn";
+  private static final String MV_INT_COLUMN = "mvIntColumn";
+  private static final String MV_STRING_COLUMN = "mvStringColumn";
+  private static final String RAW_LONG_COLUMN = "rawLongColumn";
+  private static final String RAW_STRING_COLUMN = "rawStringColumn";
+
+  private Schema _schema;
+  private TableConfig _tableConfig;
+  private List<GenericRow> _rows;
+  private File _expectedSegmentDir;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(TEMP_DIR);
+
+    _schema = new Schema.SchemaBuilder().setSchemaName(TABLE_NAME)
+        .addSingleValueDimension(INT_COLUMN, DataType.INT)
+        .addSingleValueDimension(LONG_COLUMN, DataType.LONG)
+        .addMetric(FLOAT_COLUMN, DataType.FLOAT)
+        .addMetric(DOUBLE_COLUMN, DataType.DOUBLE)
+        .addSingleValueDimension(STRING_COLUMN, DataType.STRING)
+        .addSingleValueDimension(BYTES_COLUMN, DataType.BYTES)
+        .addMultiValueDimension(MV_INT_COLUMN, DataType.INT)
+        .addMultiValueDimension(MV_STRING_COLUMN, DataType.STRING)
+        .addMetric(RAW_LONG_COLUMN, DataType.LONG)
+        .addSingleValueDimension(RAW_STRING_COLUMN, DataType.STRING).build();
+    _tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName(TABLE_NAME)
+        .setInvertedIndexColumns(Arrays.asList(STRING_COLUMN, MV_INT_COLUMN))
+        .setNoDictionaryColumns(Arrays.asList(RAW_LONG_COLUMN, RAW_STRING_COLUMN)).setNullHandlingEnabled(true)
+        .build();
+
+    Random random = new Random();
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(INT_COLUMN, random.nextInt(100));
+      row.putValue(LONG_COLUMN, random.nextLong());
+      row.putValue(FLOAT_COLUMN, random.nextFloat());
+      row.putValue(DOUBLE_COLUMN, random.nextDouble());
+      // Leave some values empty to generate null value vectors
+      row.putValue(STRING_COLUMN, random.nextInt(10) == 0 ? null : "value_" + random.nextInt(1000));
+      byte[] bytes = new byte[random.nextInt(8)];
+      random.nextBytes(bytes);
+      row.putValue(BYTES_COLUMN, bytes);
+      int numValues = 1 + random.nextInt(3);
+      Object[] values = new Object[numValues];
+      for (int j = 0; j < numValues; j++) {
+        values[j] = random.nextInt(50);
+      }
+      row.putValue(MV_INT_COLUMN, values);
+      row.putValue(MV_STRING_COLUMN, random.nextInt(10) == 0 ? null : new Object[]{"mv_" + random.nextInt(20)});
+      row.putValue(RAW_LONG_COLUMN, random.nextLong());
+      row.putValue(RAW_STRING_COLUMN, "raw_\u00e9_" + random.nextInt());
+      _rows.add(row);
+    }
+
+    _expectedSegmentDir = buildSegment(false, 1, new GenericRowRecordReader(_rows));
+  }
+
+  @DataProvider
+  public static Object[][] creationModes() {
+    // Single-pass creation, number of index creation threads
+    return new Object[][]{{true, 1}, {false, 4}, {true, 4}};
+  }
+
+  @Test(dataProvider = "creationModes")
+  public void testCreationMode(boolean singlePassCreation, int numIndexCreationThreads)
+      throws Exception {
+    CountingRecordReader recordReader = new CountingRecordReader(_rows);
+    File segmentDir = buildSegment(singlePassCreation, numIndexCreationThreads, recordReader);
+
+    if (singlePassCreation) {
+      // Input should only be read once, and the spill file should be cleaned up
+      assertEquals(recordReader._numRowsRead, NUM_ROWS);
+      assertEquals(segmentDir.getParentFile().listFiles().length, 1);
+    }
+
+    // Index files should be identical
+    assertTrue(FileUtils.contentEquals(getIndexFile(_expectedSegmentDir), getIndexFile(segmentDir)));
+
+    // Records should be identical
+    try (PinotSegmentRecordReader expectedReader = new PinotSegmentRecordReader(_expectedSegmentDir);
+        PinotSegmentRecordReader actualReader = new PinotSegmentRecordReader(segmentDir)) {
+      int numRecords = 0;
+      while (expectedReader.hasNext()) {
+        assertTrue(actualReader.hasNext());
+        GenericRow expected = expectedReader.next();
+        GenericRow actual = actualReader.next();
+        for (String column : _schema.getColumnNames()) {
+          Object expectedValue = expected.getValue(column);
+          if (expectedValue instanceof Object[]) {
+            assertEquals((Object[]) actual.getValue(column), (Object[]) expectedValue);
+          } else if (expectedValue instanceof byte[]) {
+            assertEquals((byte[]) actual.getValue(column), (byte[]) expectedValue);
+          } else {
+            assertEquals(actual.getValue(column), expectedValue);
+          }
+          assertEquals(actual.isNullValue(column), expected.isNullValue(column));
+        }
+        numRecords++;
+      }
+      assertFalse(actualReader.hasNext());
+      assertEquals(numRecords, NUM_ROWS);
+    }
+  }
+
+  @Test
+  public void testSharedIndexCreationExecutor()
+      throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      for (int i = 0; i < 2; i++) {
+        SegmentGeneratorConfig config = getSegmentGeneratorConfig(new File(TEMP_DIR, "shared_" + i), false, 1);
+        config.setIndexCreationExecutor(executorService);
+        SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+        driver.init(config, new GenericRowRecordReader(_rows));
+        driver.build();
+        File segmentDir = driver.getOutputDirectory();
+        assertTrue(FileUtils.contentEquals(getIndexFile(_expectedSegmentDir), getIndexFile(segmentDir)));
+
+        // The shared executor is owned by the caller and should not be shut down by the segment build
+        assertFalse(executorService.isShutdown());
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test
+  public void testSinglePassCreationWithoutBuild()
+      throws Exception {
+    File outDir = new File(TEMP_DIR, "withoutBuild");
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(getSegmentGeneratorConfig(outDir, true, 1), new GenericRowRecordReader(_rows));
+
+    // Spill file should be cleaned up when the driver is closed without building the segment
+    assertEquals(outDir.listFiles().length, 1);
+    driver.close();
+    assertEquals(outDir.listFiles().length, 0);
+  }
+
+  private File buildSegment(boolean singlePassCreation, int numIndexCreationThreads,
+      GenericRowRecordReader recordReader)
+      throws Exception {
+    File outDir = new File(TEMP_DIR, (singlePassCreation ? "singlePass" : "twoPass") + "_" + numIndexCreationThreads);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(getSegmentGeneratorConfig(outDir, singlePassCreation, numIndexCreationThreads), recordReader);
+    driver.build();
+    return driver.getOutputDirectory();
+  }
+
+  private SegmentGeneratorConfig getSegmentGeneratorConfig(File outDir, boolean singlePassCreation,
+      int numIndexCreationThreads) {
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(_tableConfig, _schema);
+    config.setOutDir(outDir.getAbsolutePath());
+    config.setTableName(TABLE_NAME);
+    config.setSegmentName(SEGMENT_NAME);
+    config.setSinglePassCreation(singlePassCreation);
+    config.setNumIndexCreationThreads(numIndexCreationThreads);
+    return config;
+  }
+
+  private static File getIndexFile(File segmentDir) {
+    return new File(new File(segmentDir, SegmentDirectoryPaths.V3_SUBDIRECTORY_NAME),
+        SegmentDirectoryPaths.V3_INDEX_FILE_NAME);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  private static class CountingRecordReader extends GenericRowRecordReader {
+    int _numRowsRead;
+
+    CountingRecordReader(List<GenericRow> rows) {
+      super(rows);
+    }
+
+    @Override
+    public GenericRow next(GenericRow reuse) {
+      _numRowsRead++;
+      return super.next(reuse);
+    }
+  }
+}
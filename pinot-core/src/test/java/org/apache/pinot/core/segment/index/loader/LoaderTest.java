@@ -129,6 +129,21 @@ public class LoaderTest {
     Assert.assertFalse(v3TempDir.exists());
   }
 
+  @Test
+  public void testLoadWithWarmUp()
+      throws Exception {
+    constructV1Segment();
+
+    IndexLoadingConfig indexLoadingConfig = new IndexLoadingConfig();
+    indexLoadingConfig.setReadMode(ReadMode.mmap);
+    indexLoadingConfig.setSegmentVersion(SegmentVersion.v3);
+    indexLoadingConfig.setWarmUpColumns(new HashSet<>(new SegmentMetadataImpl(_indexDir).getAllColumns()));
+    IndexSegment indexSegment = ImmutableSegmentLoader.load(_indexDir, indexLoadingConfig);
+    Assert.assertEquals(indexSegment.getSegmentMetadata().getVersion(), SegmentVersion.v3.toString());
+    // Destroying the segment should cancel the warm-up before releasing the buffers
+    indexSegment.destroy();
+  }
+
   private void testConversion()
       throws Exception {
     // Do not set segment version, should not convert the segment
@@ -20,8 +20,11 @@ package org.apache.pinot.core.segment.index.loader;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import org.apache.commons.io.FileUtils;
 import org.apache.pinot.common.utils.CommonConstants;
+import org.apache.pinot.core.segment.store.SegmentDirectoryPaths;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -90,6 +93,35 @@ public class LoaderUtilsTest {
     FileUtils.deleteDirectory(indexDir);
   }
 
+  @Test
+  public void testCopySegmentDirectory()
+      throws IOException {
+    File srcDir = new File(TEST_DIR, "srcSegment");
+    File destDir = new File(TEST_DIR, "destSegment");
+    File srcV3Dir = new File(srcDir, SegmentDirectoryPaths.V3_SUBDIRECTORY_NAME);
+    File destV3Dir = new File(destDir, SegmentDirectoryPaths.V3_SUBDIRECTORY_NAME);
+    FileUtils.writeStringToFile(new File(srcV3Dir, "metadata.properties"), "metadata", StandardCharsets.UTF_8);
+    FileUtils.writeStringToFile(new File(srcV3Dir, SegmentDirectoryPaths.V3_INDEX_FILE_NAME), "index",
+        StandardCharsets.UTF_8);
+
+    LoaderUtils.copySegmentDirectory(srcDir, destDir);
+    Assert.assertEquals(FileUtils.readFileToString(new File(destV3Dir, "metadata.properties"), StandardCharsets.UTF_8),
+        "metadata");
+    File srcIndexFile = new File(srcV3Dir, SegmentDirectoryPaths.V3_INDEX_FILE_NAME);
+    File destIndexFile = new File(destV3Dir, SegmentDirectoryPaths.V3_INDEX_FILE_NAME);
+    Assert.assertEquals(FileUtils.readFileToString(destIndexFile, StandardCharsets.UTF_8), "index");
+    // The index file should be hard-linked
+    Assert.assertTrue(Files.isSameFile(srcIndexFile.toPath(), destIndexFile.toPath()));
+
+    // The other files should be copied
+    FileUtils.writeStringToFile(new File(destV3Dir, "metadata.properties"), "modified", StandardCharsets.UTF_8);
+    Assert.assertEquals(FileUtils.readFileToString(new File(srcV3Dir, "metadata.properties"), StandardCharsets.UTF_8),
+        "metadata");
+
+    FileUtils.deleteDirectory(srcDir);
+    FileUtils.deleteDirectory(destDir);
+  }
+
   @AfterClass
   public void tearDown()
       throws IOException {
@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.segment.index.loader;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.pinot.core.segment.memory.PinotDataBuffer;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+
+public class SegmentWarmUpTaskTest {
+  private static final String SEGMENT_NAME = "testSegment";
+
+  @Test
+  public void testWarmUp()
+      throws Exception {
+    try (PinotDataBuffer buffer1 = PinotDataBuffer.allocateDirect(3 * 1024 * 1024 + 1, ByteOrder.BIG_ENDIAN, null);
+        PinotDataBuffer buffer2 = PinotDataBuffer.allocateDirect(100, ByteOrder.BIG_ENDIAN, null)) {
+      SegmentWarmUpTask task = new SegmentWarmUpTask(SEGMENT_NAME, Arrays.asList(buffer1, buffer2), null);
+      task.run();
+      assertEquals(task.getNumBytesWarmedUp(), buffer1.size() + buffer2.size());
+    }
+  }
+
+  @Test
+  public void testCancel()
+      throws Exception {
+    try (PinotDataBuffer buffer = PinotDataBuffer.allocateDirect(1024 * 1024, ByteOrder.BIG_ENDIAN, null)) {
+      SegmentWarmUpTask task = new SegmentWarmUpTask(SEGMENT_NAME, Collections.singletonList(buffer), null);
+      task.cancel();
+      task.run();
+      assertEquals(task.getNumBytesWarmedUp(), 0L);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.segment.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class RemoteIndexCacheTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), RemoteIndexCacheTest.class.getName());
+  private static final File REMOTE_FILE = new File(TEMP_DIR, "remote");
+  private static final File CACHE_DIR = new File(TEMP_DIR, "cache");
+
+  @BeforeClass
+  public void setUp()
+      throws IOException {
+    FileUtils.deleteDirectory(TEMP_DIR);
+    byte[] bytes = new byte[1000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+    FileUtils.writeByteArrayToFile(REMOTE_FILE, bytes);
+  }
+
+  @Test
+  public void testAcquireAndEvict()
+      throws IOException {
+    URI remoteUri = REMOTE_FILE.toURI();
+    RemoteIndexCache cache = new RemoteIndexCache(CACHE_DIR, 250);
+
+    File file1 = cache.acquire(remoteUri, 0, 100);
+    Assert.assertEquals(FileUtils.readFileToByteArray(file1)[10], (byte) 10);
+    File file2 = cache.acquire(remoteUri, 100, 100);
+    Assert.assertEquals(FileUtils.readFileToByteArray(file2)[10], (byte) 110);
+    // Acquiring the same range again should hit the cache
+    Assert.assertEquals(cache.acquire(remoteUri, 100, 100), file2);
+    Assert.assertEquals(cache.getNumEntries(), 2);
+    Assert.assertEquals(cache.getSizeBytes(), 200);
+
+    // Entries in use should not be evicted even if the cache is over the max size
+    File file3 = cache.acquire(remoteUri, 200, 100);
+    Assert.assertEquals(cache.getSizeBytes(), 300);
+    Assert.assertTrue(file1.exists());
+
+    // Released entries should be evicted in LRU order
+    cache.release(remoteUri, 0);
+    Assert.assertFalse(file1.exists());
+    Assert.assertEquals(cache.getSizeBytes(), 200);
+    cache.release(remoteUri, 100);
+    Assert.assertTrue(file2.exists());
+    cache.release(remoteUri, 200);
+    cache.release(remoteUri, 100);
+    Assert.assertEquals(cache.getNumEntries(), 2);
+    Assert.assertTrue(file3.exists());
+
+    // Fetching out of the range of the remote file should fail
+    try {
+      cache.acquire(remoteUri, 900, 200);
+      Assert.fail();
+    } catch (IOException e) {
+      // Expected
+    }
+    Assert.assertEquals(cache.getNumEntries(), 2);
+  }
+
+  @Test
+  public void testInvalidate()
+      throws IOException {
+    URI remoteUri = REMOTE_FILE.toURI();
+    RemoteIndexCache cache = new RemoteIndexCache(CACHE_DIR, 1000);
+
+    File file1 = cache.acquire(remoteUri, 0, 100);
+    File file2 = cache.acquire(remoteUri, 100, 100);
+    cache.release(remoteUri, 0);
+    Assert.assertEquals(cache.getSizeBytes(), 200);
+
+    // Only the entries not in use should be removed
+    cache.invalidate(remoteUri);
+    Assert.assertFalse(file1.exists());
+    Assert.assertTrue(file2.exists());
+    Assert.assertEquals(cache.getNumEntries(), 1);
+    Assert.assertEquals(cache.getSizeBytes(), 100);
+
+    cache.release(remoteUri, 100);
+    cache.invalidate(remoteUri);
+    Assert.assertFalse(file2.exists());
+    Assert.assertEquals(cache.getNumEntries(), 0);
+    Assert.assertEquals(cache.getSizeBytes(), 0);
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws IOException {
+    FileUtils.deleteDirectory(TEMP_DIR);
+  }
+}
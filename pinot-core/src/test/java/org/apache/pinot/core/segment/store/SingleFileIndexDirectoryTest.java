@@ -20,6 +20,7 @@ package org.apache.pinot.core.segment.store;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
 import org.apache.commons.configuration.ConfigurationException;
@@ -156,13 +157,99 @@ public class SingleFileIndexDirectoryTest {
     }
   }
 
-  @Test(expectedExceptions = UnsupportedOperationException.class)
+  @Test
   public void testRemoveIndex()
       throws IOException, ConfigurationException {
+    when(segmentMetadata.getAllColumns()).thenReturn(new HashSet<>(Arrays.asList("col1", "col2")));
     try (SingleFileIndexDirectory sfd = new SingleFileIndexDirectory(TEMP_DIR, segmentMetadata, ReadMode.mmap)) {
       sfd.newBuffer("col1", ColumnIndexType.DICTIONARY, 1024);
-      Assert.assertFalse(sfd.isIndexRemovalSupported());
+      sfd.newBuffer("col2", ColumnIndexType.DICTIONARY, 1024).putInt(0, 2);
+      Assert.assertTrue(sfd.isIndexRemovalSupported());
       sfd.removeIndex("col1", ColumnIndexType.DICTIONARY);
+      Assert.assertFalse(sfd.hasIndexFor("col1", ColumnIndexType.DICTIONARY));
+      Assert.assertTrue(sfd.hasIndexFor("col2", ColumnIndexType.DICTIONARY));
+      // Removing a missing index should be no-op
+      sfd.removeIndex("col1", ColumnIndexType.INVERTED_INDEX);
+    }
+
+    // Removed index should stay removed after reloading, and the dead space should be kept before compaction
+    try (SingleFileIndexDirectory sfd = new SingleFileIndexDirectory(TEMP_DIR, segmentMetadata, ReadMode.mmap)) {
+      Assert.assertFalse(sfd.hasIndexFor("col1", ColumnIndexType.DICTIONARY));
+      Assert.assertEquals(sfd.getBuffer("col2", ColumnIndexType.DICTIONARY).getInt(0), 2);
+      Assert.assertEquals(sfd.getDeadSpaceBytes(), 1024 + 8);
+    }
+  }
+
+  @Test
+  public void testReplaceIndex()
+      throws IOException, ConfigurationException {
+    when(segmentMetadata.getAllColumns()).thenReturn(new HashSet<>(Arrays.asList("col1", "col2")));
+    try (SingleFileIndexDirectory sfd = new SingleFileIndexDirectory(TEMP_DIR, segmentMetadata, ReadMode.mmap)) {
+      sfd.newBuffer("col1", ColumnIndexType.INVERTED_INDEX, 1024).putInt(0, 1);
+      sfd.newBuffer("col2", ColumnIndexType.INVERTED_INDEX, 4096).putInt(0, 2);
+    }
+
+    try (SingleFileIndexDirectory sfd = new SingleFileIndexDirectory(TEMP_DIR, segmentMetadata, ReadMode.heap)) {
+      sfd.removeIndex("col1", ColumnIndexType.INVERTED_INDEX);
+      sfd.newBuffer("col1", ColumnIndexType.INVERTED_INDEX, 2048).putInt(0, 3);
+    }
+
+    // The replaced index is appended to the index file, and the dead space is below the compaction threshold
+    File indexFile = new File(TEMP_DIR, SegmentDirectoryPaths.V3_INDEX_FILE_NAME);
+    Assert.assertEquals(indexFile.length(), 1024 + 4096 + 2048 + 3 * 8);
+    try (SingleFileIndexDirectory sfd = new SingleFileIndexDirectory(TEMP_DIR, segmentMetadata, ReadMode.mmap)) {
+      Assert.assertEquals(sfd.getBuffer("col1", ColumnIndexType.INVERTED_INDEX).size(), 2048);
+      Assert.assertEquals(sfd.getBuffer("col1", ColumnIndexType.INVERTED_INDEX).getInt(0), 3);
+      Assert.assertEquals(sfd.getBuffer("col2", ColumnIndexType.INVERTED_INDEX).getInt(0), 2);
+    }
+  }
+
+  @Test
+  public void testCompaction()
+      throws IOException, ConfigurationException {
+    when(segmentMetadata.getAllColumns()).thenReturn(new HashSet<>(Arrays.asList("col1", "col2")));
+    try (SingleFileIndexDirectory sfd = new SingleFileIndexDirectory(TEMP_DIR, segmentMetadata, ReadMode.mmap)) {
+      sfd.newBuffer("col1", ColumnIndexType.DICTIONARY, 4096).putInt(0, 1);
+      sfd.newBuffer("col1", ColumnIndexType.INVERTED_INDEX, 4096);
+      sfd.newBuffer("col2", ColumnIndexType.DICTIONARY, 1024).putInt(0, 2);
+    }
+
+    File indexFile = new File(TEMP_DIR, SegmentDirectoryPaths.V3_INDEX_FILE_NAME);
+    try (SingleFileIndexDirectory sfd = new SingleFileIndexDirectory(TEMP_DIR, segmentMetadata, ReadMode.mmap)) {
+      // Dead space over the threshold, should be compacted on close
+      sfd.removeIndex("col1", ColumnIndexType.INVERTED_INDEX);
+      sfd.removeIndex("col1", ColumnIndexType.DICTIONARY);
+      Assert.assertTrue(
+          sfd.getDeadSpaceBytes() > SingleFileIndexDirectory.COMPACTION_DEAD_SPACE_THRESHOLD * indexFile.length());
+    }
+    Assert.assertEquals(indexFile.length(), 1024 + 8);
+    Assert.assertFalse(new File(TEMP_DIR,
+        SegmentDirectoryPaths.V3_INDEX_FILE_NAME + SingleFileIndexDirectory.COMPACTION_TEMP_FILE_SUFFIX).exists());
+
+    try (SingleFileIndexDirectory sfd = new SingleFileIndexDirectory(TEMP_DIR, segmentMetadata, ReadMode.mmap)) {
+      Assert.assertEquals(sfd.getDeadSpaceBytes(), 0);
+      Assert.assertFalse(sfd.hasIndexFor("col1", ColumnIndexType.DICTIONARY));
+      Assert.assertEquals(sfd.getBuffer("col2", ColumnIndexType.DICTIONARY).getInt(0), 2);
+    }
+  }
+
+  @Test
+  public void testInterruptedIndexMapRewrite()
+      throws IOException, ConfigurationException {
+    when(segmentMetadata.getAllColumns()).thenReturn(new HashSet<>(Arrays.asList("col1", "col2")));
+    try (SingleFileIndexDirectory sfd = new SingleFileIndexDirectory(TEMP_DIR, segmentMetadata, ReadMode.mmap)) {
+      sfd.newBuffer("col1", ColumnIndexType.DICTIONARY, 1024).putInt(0, 1);
+      sfd.newBuffer("col2", ColumnIndexType.DICTIONARY, 1024).putInt(0, 2);
+    }
+
+    // A partially written index map left behind by an interrupted rewrite should never be promoted
+    File tempMapFile = new File(TEMP_DIR,
+        SingleFileIndexDirectory.INDEX_MAP_FILE + SingleFileIndexDirectory.REWRITE_TEMP_FILE_SUFFIX);
+    FileUtils.writeStringToFile(tempMapFile, "col1.dictionary.startOffset = 8\ncol1.dict", StandardCharsets.UTF_8);
+    try (SingleFileIndexDirectory sfd = new SingleFileIndexDirectory(TEMP_DIR, segmentMetadata, ReadMode.mmap)) {
+      Assert.assertFalse(tempMapFile.exists());
+      Assert.assertEquals(sfd.getBuffer("col1", ColumnIndexType.DICTIONARY).getInt(0), 1);
+      Assert.assertEquals(sfd.getBuffer("col2", ColumnIndexType.DICTIONARY).getInt(0), 2);
     }
   }
 }
@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.segment.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.segment.ReadMode;
+import org.apache.pinot.core.indexsegment.generator.SegmentVersion;
+import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.core.segment.memory.PinotDataBuffer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+public class TieredIndexDirectoryTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), TieredIndexDirectoryTest.class.getName());
+  private static final File SEGMENT_DIR = new File(TEMP_DIR, "segment");
+  private static final File REMOTE_DIR = new File(TEMP_DIR, "remote");
+  private static final File CACHE_DIR = new File(TEMP_DIR, "cache");
+  private static final int NUM_INDEXES = 10;
+
+  private SegmentMetadataImpl _segmentMetadata;
+
+  @BeforeMethod
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteDirectory(TEMP_DIR);
+    FileUtils.forceMkdir(SEGMENT_DIR);
+    _segmentMetadata = ColumnIndexDirectoryTestHelper.writeMetadata(SegmentVersion.v3);
+    try (SingleFileIndexDirectory columnDirectory = new SingleFileIndexDirectory(SEGMENT_DIR, _segmentMetadata,
+        ReadMode.mmap)) {
+      ColumnIndexDirectoryTestHelper.performMultipleWrites(columnDirectory, "foo", 10 * 4096, NUM_INDEXES);
+    }
+    RemoteIndexCache.init(CACHE_DIR, 1024 * 1024);
+  }
+
+  @Test
+  public void testMoveToRemote()
+      throws Exception {
+    File indexFile = new File(SEGMENT_DIR, SegmentDirectoryPaths.V3_INDEX_FILE_NAME);
+    long indexFileLength = indexFile.length();
+    Assert.assertFalse(TieredIndexDirectory.isTiered(SEGMENT_DIR));
+    TieredIndexDirectory.moveToRemote(SEGMENT_DIR, REMOTE_DIR.toURI());
+    Assert.assertTrue(TieredIndexDirectory.isTiered(SEGMENT_DIR));
+
+    // Only dictionaries and bloom filters (4 out of 10 indexes) should be kept locally
+    Assert.assertEquals(REMOTE_DIR.listFiles().length, 1);
+    Assert.assertEquals(REMOTE_DIR.listFiles()[0].length(), indexFileLength);
+    Assert.assertEquals(indexFile.length(), 4 * (4096 + SingleFileIndexDirectory.MAGIC_MARKER_SIZE_BYTES));
+
+    // Moving again should be no-op
+    TieredIndexDirectory.moveToRemote(SEGMENT_DIR, REMOTE_DIR.toURI());
+    Assert.assertEquals(indexFile.length(), 4 * (4096 + SingleFileIndexDirectory.MAGIC_MARKER_SIZE_BYTES));
+
+    RemoteIndexCache cache = RemoteIndexCache.getInstance();
+    for (ReadMode readMode : ReadMode.values()) {
+      try (TieredIndexDirectory columnDirectory = new TieredIndexDirectory(SEGMENT_DIR, _segmentMetadata, readMode)) {
+        ColumnIndexDirectoryTestHelper.verifyMultipleReads(columnDirectory, "foo", NUM_INDEXES);
+        Assert.assertEquals(cache.getNumEntries(), 6);
+      }
+    }
+  }
+
+  @Test
+  public void testRemoveAndAddIndex()
+      throws Exception {
+    TieredIndexDirectory.moveToRemote(SEGMENT_DIR, REMOTE_DIR.toURI());
+    try (TieredIndexDirectory columnDirectory = new TieredIndexDirectory(SEGMENT_DIR, _segmentMetadata,
+        ReadMode.mmap)) {
+      Assert.assertTrue(columnDirectory.hasIndexFor("foo.1", ColumnIndexType.FORWARD_INDEX));
+      columnDirectory.removeIndex("foo.1", ColumnIndexType.FORWARD_INDEX);
+      Assert.assertFalse(columnDirectory.hasIndexFor("foo.1", ColumnIndexType.FORWARD_INDEX));
+      // New indexes are always added locally
+      columnDirectory.newBuffer("foo.1", ColumnIndexType.FORWARD_INDEX, 1024).putInt(0, 1);
+    }
+
+    try (TieredIndexDirectory columnDirectory = new TieredIndexDirectory(SEGMENT_DIR, _segmentMetadata,
+        ReadMode.mmap)) {
+      Assert.assertEquals(columnDirectory.getBuffer("foo.1", ColumnIndexType.FORWARD_INDEX).size(), 1024);
+      Assert.assertEquals(columnDirectory.getBuffer("foo.1", ColumnIndexType.FORWARD_INDEX).getInt(0), 1);
+    }
+  }
+
+  @Test
+  public void testReleaseBuffer()
+      throws Exception {
+    TieredIndexDirectory.moveToRemote(SEGMENT_DIR, REMOTE_DIR.toURI());
+    RemoteIndexCache cache = RemoteIndexCache.getInstance();
+    try (TieredIndexDirectory columnDirectory = new TieredIndexDirectory(SEGMENT_DIR, _segmentMetadata,
+        ReadMode.mmap)) {
+      PinotDataBuffer buffer = columnDirectory.getBuffer("foo.1", ColumnIndexType.FORWARD_INDEX);
+      Assert.assertSame(columnDirectory.getBuffer("foo.1", ColumnIndexType.FORWARD_INDEX), buffer);
+      Assert.assertEquals(cache.getNumEntries(), 1);
+
+      // Released entries can be removed from the cache, and are fetched again on the next access
+      columnDirectory.releaseBuffer("foo.1", ColumnIndexType.FORWARD_INDEX);
+      cache.invalidate(new URI(FileUtils.readFileToString(new File(SEGMENT_DIR,
+          TieredIndexDirectory.REMOTE_INDEX_URI_FILE), StandardCharsets.UTF_8)));
+      Assert.assertEquals(cache.getNumEntries(), 0);
+      Assert.assertNotSame(columnDirectory.getBuffer("foo.1", ColumnIndexType.FORWARD_INDEX), buffer);
+      Assert.assertEquals(cache.getNumEntries(), 1);
+    }
+    // Closing the directory should not delete the remote index file still referenced by the segment directory
+    Assert.assertEquals(REMOTE_DIR.listFiles().length, 1);
+  }
+
+  @Test
+  public void testDeleteRemoteIndexFileOnDrop()
+      throws Exception {
+    TieredIndexDirectory.moveToRemote(SEGMENT_DIR, REMOTE_DIR.toURI());
+    Assert.assertEquals(REMOTE_DIR.listFiles().length, 1);
+    TieredIndexDirectory.deleteRemoteIndexFile(SEGMENT_DIR);
+    Assert.assertEquals(REMOTE_DIR.listFiles().length, 0);
+  }
+
+  @Test
+  public void testDeleteRemoteIndexFileOnRefresh()
+      throws Exception {
+    TieredIndexDirectory.moveToRemote(SEGMENT_DIR, REMOTE_DIR.toURI());
+    try (TieredIndexDirectory columnDirectory = new TieredIndexDirectory(SEGMENT_DIR, _segmentMetadata,
+        ReadMode.mmap)) {
+      columnDirectory.getBuffer("foo.1", ColumnIndexType.FORWARD_INDEX);
+      // Replace the segment directory with a segment not tiered
+      FileUtils.deleteQuietly(new File(SEGMENT_DIR, TieredIndexDirectory.REMOTE_INDEX_MAP_FILE));
+    }
+    // The remote index file no longer referenced should be deleted when the directory of the old segment is closed
+    Assert.assertEquals(REMOTE_DIR.listFiles().length, 0);
+    Assert.assertEquals(RemoteIndexCache.getInstance().getNumEntries(), 0);
+  }
+
+  @Test(expectedExceptions = RuntimeException.class)
+  public void testAddExistingRemoteIndex()
+      throws Exception {
+    TieredIndexDirectory.moveToRemote(SEGMENT_DIR, REMOTE_DIR.toURI());
+    try (TieredIndexDirectory columnDirectory = new TieredIndexDirectory(SEGMENT_DIR, _segmentMetadata,
+        ReadMode.mmap)) {
+      columnDirectory.newBuffer("foo.1", ColumnIndexType.FORWARD_INDEX, 1024);
+    }
+  }
+
+  @AfterMethod
+  public void tearDown()
+      throws IOException {
+    RemoteIndexCache.reset();
+    FileUtils.deleteDirectory(TEMP_DIR);
+  }
+}
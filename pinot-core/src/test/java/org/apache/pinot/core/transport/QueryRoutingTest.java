@@ -19,25 +19,34 @@
 package org.apache.pinot.core.transport;
 
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.pinot.common.exception.QueryException;
+import org.apache.pinot.common.metrics.BrokerMeter;
 import org.apache.pinot.common.metrics.BrokerMetrics;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.request.BrokerRequest;
 import org.apache.pinot.common.utils.DataTable;
 import org.apache.pinot.core.common.datatable.DataTableImplV2;
+import org.apache.pinot.core.query.request.ServerQueryRequest;
 import org.apache.pinot.core.query.scheduler.QueryScheduler;
 import org.apache.pinot.pql.parsers.Pql2Compiler;
 import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.util.TestUtils;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
@@ -229,6 +238,249 @@ public class QueryRoutingTest {
     assertTrue(System.currentTimeMillis() - startTimeMs < 1000);
   }
 
+  @Test
+  public void testRequestBatching()
+      throws Exception {
+    int port = TEST_PORT + 1;
+    ServerInstance serverInstance = new ServerInstance("localhost", port);
+    ServerRoutingInstance serverRoutingInstance = serverInstance.toServerRoutingInstance(TableType.OFFLINE);
+    Map<ServerInstance, List<String>> routingTable = Collections.singletonMap(serverInstance, Collections.emptyList());
+
+    // Respond with the request id of the received request
+    QueryScheduler queryScheduler = mock(QueryScheduler.class);
+    when(queryScheduler.submit(any())).thenAnswer(invocation -> {
+      DataTable dataTable = new DataTableImplV2();
+      dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY,
+          Long.toString(invocation.<ServerQueryRequest>getArgument(0).getRequestId()));
+      return Futures.immediateFuture(dataTable.toBytes());
+    });
+    BrokerMetrics brokerMetrics = mock(BrokerMetrics.class);
+    QueryServer queryServer = new QueryServer(port, queryScheduler, mock(ServerMetrics.class));
+    queryServer.start();
+    QueryRouter queryRouter = new QueryRouter("testBroker", brokerMetrics, 1_000_000L, false);
+
+    // A request to an idle server should be sent immediately without waiting for the batch delay
+    long startTimeMs = System.currentTimeMillis();
+    Map<ServerRoutingInstance, ServerResponse> response =
+        queryRouter.submitQuery(123L, "testTable", BROKER_REQUEST, routingTable, null, null, 10_000L).getResponse();
+    assertTrue(System.currentTimeMillis() - startTimeMs < 500);
+    assertNotNull(response.get(serverRoutingInstance).getDataTable());
+    verify(brokerMetrics).addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_REQUESTS_SENT, 1);
+
+    // Requests submitted within the batch delay after the first request should be sent in one batched frame, and the
+    // responses should be de-multiplexed by the request id
+    int numRequests = 5;
+    AsyncQueryResponse[] asyncQueryResponses = new AsyncQueryResponse[numRequests];
+    for (int i = 0; i < numRequests; i++) {
+      asyncQueryResponses[i] =
+          queryRouter.submitQuery(i, "testTable", BROKER_REQUEST, routingTable, null, null, 10_000L);
+    }
+    for (int i = 0; i < numRequests; i++) {
+      response = asyncQueryResponses[i].getResponse();
+      assertEquals(response.size(), 1);
+      DataTable dataTable = response.get(serverRoutingInstance).getDataTable();
+      assertNotNull(dataTable);
+      assertEquals(dataTable.getMetadata().get(DataTable.REQUEST_ID_METADATA_KEY), Integer.toString(i));
+    }
+    verify(brokerMetrics).addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_REQUEST_BATCHES_SENT, 1);
+    verify(brokerMetrics).addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_REQUESTS_SENT, numRequests);
+
+    queryRouter.shutDown();
+    queryServer.shutDown();
+  }
+
+  @Test
+  public void testNativeTransport()
+      throws Exception {
+    int port = TEST_PORT + 2;
+    ServerInstance serverInstance = new ServerInstance("localhost", port);
+    ServerRoutingInstance serverRoutingInstance = serverInstance.toServerRoutingInstance(TableType.OFFLINE);
+    Map<ServerInstance, List<String>> routingTable = Collections.singletonMap(serverInstance, Collections.emptyList());
+    long requestId = 123;
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(requestId));
+    byte[] responseBytes = dataTable.toBytes();
+
+    // Native transport should be used if available, or fall back to NIO transport
+    QueryServer queryServer =
+        new QueryServer(port, mockQueryScheduler(0, responseBytes), mock(ServerMetrics.class), true);
+    queryServer.start();
+    QueryRouter queryRouter = new QueryRouter("testBroker", mock(BrokerMetrics.class), 0L, true);
+
+    AsyncQueryResponse asyncQueryResponse =
+        queryRouter.submitQuery(requestId, "testTable", BROKER_REQUEST, routingTable, null, null, 10_000L);
+    Map<ServerRoutingInstance, ServerResponse> response = asyncQueryResponse.getResponse();
+    assertEquals(response.size(), 1);
+    ServerResponse serverResponse = response.get(serverRoutingInstance);
+    assertNotNull(serverResponse.getDataTable());
+    assertEquals(serverResponse.getResponseSize(), responseBytes.length);
+
+    queryRouter.shutDown();
+    queryServer.shutDown();
+  }
+
+  @Test
+  public void testQueryCancellation()
+      throws Exception {
+    int port = TEST_PORT + 3;
+    ServerInstance serverInstance = new ServerInstance("localhost", port);
+    ServerRoutingInstance serverRoutingInstance = serverInstance.toServerRoutingInstance(TableType.OFFLINE);
+    Map<ServerInstance, List<String>> routingTable = Collections.singletonMap(serverInstance, Collections.emptyList());
+
+    // Never respond to the query
+    SettableFuture<byte[]> queryFuture = SettableFuture.create();
+    SettableFuture<byte[]> interruptedQueryFuture = SettableFuture.create();
+    QueryScheduler queryScheduler = mock(QueryScheduler.class);
+    when(queryScheduler.submit(any())).thenReturn(queryFuture, interruptedQueryFuture);
+    BrokerMetrics brokerMetrics = mock(BrokerMetrics.class);
+    ServerMetrics serverMetrics = mock(ServerMetrics.class);
+    QueryServer queryServer = new QueryServer(port, queryScheduler, serverMetrics);
+    queryServer.start();
+    QueryRouter queryRouter = new QueryRouter("testBroker", brokerMetrics, 0L, false, true);
+
+    // The query should be cancelled on the server after timing out on the broker
+    AsyncQueryResponse asyncQueryResponse =
+        queryRouter.submitQuery(123L, "testTable", BROKER_REQUEST, routingTable, null, null, 100L);
+    Map<ServerRoutingInstance, ServerResponse> response = asyncQueryResponse.getResponse();
+    assertEquals(response.size(), 1);
+    assertNull(response.get(serverRoutingInstance).getDataTable());
+    verify(brokerMetrics, timeout(10_000L)).addMeteredGlobalValue(BrokerMeter.NETTY_CONNECTION_QUERY_CANCELS_SENT, 1);
+    TestUtils.waitForCondition(aVoid -> queryFuture.isCancelled(), 10_000L,
+        "Failed to cancel the query on the server");
+
+    // The query should be cancelled on the server after the thread waiting for the response is interrupted
+    AsyncQueryResponse interruptedAsyncQueryResponse =
+        queryRouter.submitQuery(124L, "testTable", BROKER_REQUEST, routingTable, null, null, 60_000L);
+    AtomicBoolean interrupted = new AtomicBoolean();
+    Thread waitingThread = new Thread(() -> {
+      try {
+        interruptedAsyncQueryResponse.getResponse();
+      } catch (InterruptedException e) {
+        interrupted.set(true);
+      }
+    });
+    waitingThread.start();
+    waitingThread.interrupt();
+    waitingThread.join(10_000L);
+    assertTrue(interrupted.get());
+    TestUtils.waitForCondition(aVoid -> interruptedQueryFuture.isCancelled(), 10_000L,
+        "Failed to cancel the interrupted query on the server");
+
+    queryRouter.shutDown();
+    queryServer.shutDown();
+  }
+
+  @Test
+  public void testHedgedRequest()
+      throws Exception {
+    int slowPort = TEST_PORT + 4;
+    int hedgePort = TEST_PORT + 5;
+    ServerInstance slowServerInstance = new ServerInstance("localhost", slowPort);
+    ServerRoutingInstance slowServer = slowServerInstance.toServerRoutingInstance(TableType.OFFLINE);
+    ServerInstance hedgeServerInstance = new ServerInstance("localhost", hedgePort);
+    ServerRoutingInstance hedgeServer = hedgeServerInstance.toServerRoutingInstance(TableType.OFFLINE);
+    List<String> segments = Collections.singletonList("segment");
+
+    // Slow server never responds to the query, hedge server responds with the request id of the received request
+    SettableFuture<byte[]> slowQueryFuture = SettableFuture.create();
+    QueryScheduler slowQueryScheduler = mock(QueryScheduler.class);
+    when(slowQueryScheduler.submit(any())).thenReturn(slowQueryFuture);
+    QueryServer slowQueryServer = new QueryServer(slowPort, slowQueryScheduler, mock(ServerMetrics.class));
+    slowQueryServer.start();
+    QueryScheduler hedgeQueryScheduler = mock(QueryScheduler.class);
+    when(hedgeQueryScheduler.submit(any())).thenAnswer(invocation -> {
+      DataTable dataTable = new DataTableImplV2();
+      dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY,
+          Long.toString(invocation.<ServerQueryRequest>getArgument(0).getRequestId()));
+      return Futures.immediateFuture(dataTable.toBytes());
+    });
+    QueryServer hedgeQueryServer = new QueryServer(hedgePort, hedgeQueryScheduler, mock(ServerMetrics.class));
+    hedgeQueryServer.start();
+    QueryRouter queryRouter = new QueryRouter("testBroker", mock(BrokerMetrics.class), 0L, false, true);
+
+    // The response from the hedge server should be taken, and the query should be cancelled on the slow server
+    long requestId = 123;
+    AsyncQueryResponse asyncQueryResponse = queryRouter
+        .submitQuery(requestId, "testTable", BROKER_REQUEST, Collections.singletonMap(slowServerInstance, segments),
+            null, null, 10_000L);
+    assertFalse(asyncQueryResponse.awaitResponses(100L));
+    assertFalse(asyncQueryResponse.hasResponded(slowServer));
+    assertTrue(queryRouter.submitHedgedRequest(asyncQueryResponse, "testTable", slowServer, BROKER_REQUEST,
+        Collections.singletonMap(hedgeServerInstance, segments)));
+    long startTimeMs = System.currentTimeMillis();
+    Map<ServerRoutingInstance, ServerResponse> response = asyncQueryResponse.getResponse();
+    assertTrue(System.currentTimeMillis() - startTimeMs < 1000);
+    assertEquals(response.size(), 1);
+    DataTable dataTable = response.get(hedgeServer).getDataTable();
+    assertNotNull(dataTable);
+    // Hedged request should have a separate (negative) request id
+    assertTrue(Long.parseLong(dataTable.getMetadata().get(DataTable.REQUEST_ID_METADATA_KEY)) < 0);
+    assertTrue(asyncQueryResponse.hasResponded(slowServer));
+    assertEquals(asyncQueryResponse.getNumHedgedRequestsWon(), 1);
+    TestUtils.waitForCondition(aVoid -> slowQueryFuture.isCancelled(), 10_000L,
+        "Failed to cancel the query on the slow server");
+
+    queryRouter.shutDown();
+    slowQueryServer.shutDown();
+    hedgeQueryServer.shutDown();
+  }
+
+  @Test
+  public void testHedgedRequestWithException()
+      throws Exception {
+    int slowPort = TEST_PORT + 6;
+    int hedgePort = TEST_PORT + 7;
+    long requestId = 123;
+    ServerInstance slowServerInstance = new ServerInstance("localhost", slowPort);
+    ServerRoutingInstance slowServer = slowServerInstance.toServerRoutingInstance(TableType.OFFLINE);
+    ServerInstance hedgeServerInstance = new ServerInstance("localhost", hedgePort);
+    ServerRoutingInstance hedgeServer = hedgeServerInstance.toServerRoutingInstance(TableType.OFFLINE);
+    List<String> segments = Collections.singletonList("segment");
+
+    // Slow server responds when the future is set, hedge server responds with an exception
+    SettableFuture<byte[]> slowQueryFuture = SettableFuture.create();
+    QueryScheduler slowQueryScheduler = mock(QueryScheduler.class);
+    when(slowQueryScheduler.submit(any())).thenReturn(slowQueryFuture);
+    QueryServer slowQueryServer = new QueryServer(slowPort, slowQueryScheduler, mock(ServerMetrics.class));
+    slowQueryServer.start();
+    AtomicBoolean hedgeResponded = new AtomicBoolean();
+    QueryScheduler hedgeQueryScheduler = mock(QueryScheduler.class);
+    when(hedgeQueryScheduler.submit(any())).thenAnswer(invocation -> {
+      DataTable dataTable = new DataTableImplV2();
+      dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY,
+          Long.toString(invocation.<ServerQueryRequest>getArgument(0).getRequestId()));
+      dataTable.addException(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, "Test error"));
+      hedgeResponded.set(true);
+      return Futures.immediateFuture(dataTable.toBytes());
+    });
+    QueryServer hedgeQueryServer = new QueryServer(hedgePort, hedgeQueryScheduler, mock(ServerMetrics.class));
+    hedgeQueryServer.start();
+    QueryRouter queryRouter = new QueryRouter("testBroker", mock(BrokerMetrics.class), 0L, false, true);
+
+    // The hedged request should not win with the exception, and the broker should keep waiting for the slow server
+    AsyncQueryResponse asyncQueryResponse = queryRouter
+        .submitQuery(requestId, "testTable", BROKER_REQUEST, Collections.singletonMap(slowServerInstance, segments),
+            null, null, 10_000L);
+    assertTrue(queryRouter.submitHedgedRequest(asyncQueryResponse, "testTable", slowServer, BROKER_REQUEST,
+        Collections.singletonMap(hedgeServerInstance, segments)));
+    TestUtils.waitForCondition(aVoid -> hedgeResponded.get(), 10_000L, "Failed to get the hedged request");
+    assertFalse(asyncQueryResponse.awaitResponses(500L));
+    assertFalse(asyncQueryResponse.hasResponded(slowServer));
+
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.getMetadata().put(DataTable.REQUEST_ID_METADATA_KEY, Long.toString(requestId));
+    slowQueryFuture.set(dataTable.toBytes());
+    Map<ServerRoutingInstance, ServerResponse> response = asyncQueryResponse.getResponse();
+    assertEquals(response.size(), 1);
+    assertNotNull(response.get(slowServer).getDataTable());
+    assertFalse(response.containsKey(hedgeServer));
+    assertEquals(asyncQueryResponse.getNumHedgedRequestsWon(), 0);
+
+    queryRouter.shutDown();
+    slowQueryServer.shutDown();
+    hedgeQueryServer.shutDown();
+  }
+
   @AfterClass
   public void tearDown() {
     _queryRouter.shutDown();
@@ -19,16 +19,28 @@
 package org.apache.pinot.core.util;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
 import org.apache.pinot.common.segment.ReadMode;
+import org.apache.pinot.common.utils.TarGzCompressionUtils;
+import org.apache.pinot.core.data.readers.GenericRowRecordReader;
 import org.apache.pinot.core.indexsegment.IndexSegment;
 import org.apache.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import org.apache.pinot.core.indexsegment.immutable.ImmutableSegmentLoader;
 import org.apache.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import org.apache.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import org.apache.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
 import org.apache.pinot.core.segment.index.metadata.SegmentMetadata;
+import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
 import org.apache.pinot.segments.v1.creator.SegmentTestUtils;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
 import org.apache.pinot.util.TestUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -74,6 +86,40 @@ public class CrcUtilsTest {
     FileUtils.deleteQuietly(INDEX_DIR);
   }
 
+  @Test
+  public void testCrcOfUntarredSegment()
+      throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    Schema schema = new Schema.SchemaBuilder().setSchemaName("testTable")
+        .addSingleValueDimension("dimension", FieldSpec.DataType.STRING).addMetric("metric", FieldSpec.DataType.LONG)
+        .build();
+    TableConfig tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName("testTable").build();
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(tableConfig, schema);
+    config.setOutDir(INDEX_DIR.getAbsolutePath());
+    config.setSegmentName("testSegment");
+    List<GenericRow> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue("dimension", "value" + i % 10);
+      row.putValue("metric", (long) i);
+      rows.add(row);
+    }
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new GenericRowRecordReader(rows));
+    driver.build();
+    File indexDir = driver.getOutputDirectory();
+    long expectedCrc = Long.parseLong(new SegmentMetadataImpl(indexDir).getCrc());
+
+    // The CRC computed over the untarred segment should match the CRC in the segment metadata
+    File tarFile = new File(INDEX_DIR, indexDir.getName() + TarGzCompressionUtils.TAR_GZ_FILE_EXTENSION);
+    TarGzCompressionUtils.createTarGzFile(indexDir, tarFile);
+    File untarDir = new File(INDEX_DIR, "untarred");
+    File untarredIndexDir = TarGzCompressionUtils.untar(tarFile, untarDir).get(0);
+    Assert.assertEquals(CrcUtils.forAllFilesInFolder(untarredIndexDir).computeCrc(), expectedCrc);
+
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
   private String makeSegmentAndReturnPath()
       throws Exception {
     final String filePath = TestUtils.getFileFromResourceUrl(CrcUtils.class.getClassLoader().getResource(AVRO_DATA));
@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segments.v1.creator;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import java.io.IOException;
+import java.util.Random;
+import org.apache.pinot.core.io.writer.impl.DirectMemoryManager;
+import org.apache.pinot.core.util.ByteArrayOffHeapIdMap;
+import org.apache.pinot.core.util.IdMap;
+import org.apache.pinot.spi.utils.ByteArray;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Unit test for {@link ByteArrayOffHeapIdMap}
+ */
+public class ByteArrayIdMapTest {
+  private static final int NUM_ROWS = 10001;
+  private static final int MAX_KEY_LENGTH = 20;
+  private static final int INITIAL_CARDINALITY = 23;
+  private static final Random RANDOM = new Random();
+
+  private DirectMemoryManager _memoryManager;
+  private IdMap<ByteArray> _idMap;
+
+  @BeforeClass
+  public void setup() {
+    _memoryManager = new DirectMemoryManager(ByteArrayIdMapTest.class.getName());
+    _idMap = new ByteArrayOffHeapIdMap(INITIAL_CARDINALITY, MAX_KEY_LENGTH / 2, _memoryManager,
+        ByteArrayIdMapTest.class.getName());
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws IOException {
+    _idMap.close();
+    _memoryManager.close();
+  }
+
+  /**
+   * This test indexes a specified number of values of variable length in the class being tested and checks
+   * correctness by comparing results against {@link BiMap} for the same input.
+   */
+  @Test
+  public void test() {
+    BiMap<ByteArray, Integer> expectedMap = addValues(_idMap);
+    int numValues = expectedMap.size();
+
+    // Test invalid Value
+    Assert.assertEquals(_idMap.getId(new ByteArray(new byte[MAX_KEY_LENGTH + 1])), IdMap.INVALID_ID);
+    Assert.assertNull(_idMap.getKey(numValues));
+
+    Assert.assertEquals(_idMap.size(), numValues);
+    for (int id = 0; id < numValues; id++) {
+      ByteArray actual = _idMap.getKey(id);
+      ByteArray expected = expectedMap.inverse().get(id);
+
+      Assert.assertEquals(actual, expected);
+      Assert.assertEquals(_idMap.getId(actual), id);
+    }
+  }
+
+  private BiMap<ByteArray, Integer> addValues(IdMap<ByteArray> idMap) {
+    BiMap<ByteArray, Integer> map = HashBiMap.create();
+    int numValues = 0;
+
+    for (int row = 0; row < NUM_ROWS; row++) {
+      // Keys of length 0 to MAX_KEY_LENGTH with a small value range, so there will be duplicates.
+      byte[] bytes = new byte[RANDOM.nextInt(MAX_KEY_LENGTH + 1)];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = (byte) RANDOM.nextInt(2);
+      }
+      ByteArray value = new ByteArray(bytes);
+      int id = idMap.put(value);
+
+      Integer expectedId = map.get(value);
+      if (expectedId == null) {
+        map.put(value, numValues);
+        Assert.assertEquals(id, numValues++);
+      } else {
+        Assert.assertEquals(id, expectedId.intValue());
+      }
+    }
+    return map;
+  }
+}
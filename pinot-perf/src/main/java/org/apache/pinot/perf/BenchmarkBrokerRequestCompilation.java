@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.manager.zk.ZNRecordSerializer;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.manager.zk.ZkClient;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.apache.pinot.broker.api.RequestStatistics;
+import org.apache.pinot.broker.broker.AllowAllAccessControlFactory;
+import org.apache.pinot.broker.requesthandler.BaseBrokerRequestHandler;
+import org.apache.pinot.broker.requesthandler.BrokerRequestCompilationCache;
+import org.apache.pinot.broker.routing.RoutingManager;
+import org.apache.pinot.broker.routing.RoutingTable;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.response.BrokerResponse;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.utils.CommonConstants.Broker;
+import org.apache.pinot.common.utils.ZkStarter;
+import org.apache.pinot.common.utils.helix.TableCache;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.JsonUtils;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+
+/**
+ * Benchmark for the broker request handling, with and without the {@link BrokerRequestCompilationCache}.
+ * <p>Each invocation handles a query end-to-end in the broker request handler (compilation, table and column name
+ * resolution, access control, quota, validation, optimization, routing and query logging), except for the
+ * scatter-gather to the servers and the reduce, which are stubbed out because they do not depend on the compilation
+ * cache. The benchmark runs in a single thread and reports the throughput, which is the broker QPS per core excluding
+ * the scatter-gather and reduce cost.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-server", "-Xmx4G"})
+public class BenchmarkBrokerRequestCompilation {
+  private static final String TABLE_NAME = "myTable";
+  private static final int NUM_SLIDING_QUERIES = 1000;
+  private static final String SQL_QUERY =
+      "SELECT country, DISTINCTCOUNT(userId), SUM(clicks) FROM myTable WHERE daysSinceEpoch BETWEEN %d AND %d "
+          + "AND browser IN ('chrome', 'firefox', 'safari') AND (platform = 'mobile' OR platform = 'tablet') "
+          + "GROUP BY country ORDER BY SUM(clicks) DESC LIMIT 100";
+  private static final String PQL_QUERY =
+      "SELECT DISTINCTCOUNT(userId), SUM(clicks) FROM myTable WHERE daysSinceEpoch BETWEEN %d AND %d "
+          + "AND browser IN ('chrome', 'firefox', 'safari') AND (platform = 'mobile' OR platform = 'tablet') "
+          + "GROUP BY country TOP 100";
+
+  @Param({"sql", "pql"})
+  private String _queryFormat;
+
+  // 0 to disable the compilation cache
+  @Param({"0", "1048576"})
+  private long _compilationCacheMaxBytes;
+
+  // Whether each query slides the time filter (different literals), or repeats the same query text
+  @Param({"false", "true"})
+  private boolean _slidingTimeFilter;
+
+  private ZkStarter.ZookeeperInstance _zkInstance;
+  private ZkClient _zkClient;
+  private BaseBrokerRequestHandler _brokerRequestHandler;
+  private JsonNode[] _requests;
+  private int _requestIndex;
+
+  @Setup
+  public void setUp() {
+    _zkInstance = ZkStarter.startLocalZkServer();
+    _zkClient =
+        new ZkClient(ZkStarter.DEFAULT_ZK_STR, ZkClient.DEFAULT_SESSION_TIMEOUT, ZkClient.DEFAULT_CONNECTION_TIMEOUT,
+            new ZNRecordSerializer());
+    ZkHelixPropertyStore<ZNRecord> propertyStore = new ZkHelixPropertyStore<>(new ZkBaseDataAccessor<>(_zkClient),
+        "/BenchmarkBrokerRequestCompilation/PROPERTYSTORE", null);
+
+    Map<String, Object> properties = new HashMap<>();
+    properties.put(Broker.CONFIG_OF_BROKER_REQUEST_COMPILATION_CACHE_MAX_BYTES, _compilationCacheMaxBytes);
+    // Keep the query logging out of the measurement
+    properties.put(Broker.CONFIG_OF_BROKER_QUERY_LOG_MAX_RATE_PER_SECOND, 1);
+    BrokerMetrics brokerMetrics = new BrokerMetrics("", new MetricsRegistry(), false);
+    _brokerRequestHandler =
+        new NoScatterGatherBrokerRequestHandler(new PinotConfiguration(properties), new SingleTableRoutingManager(
+            brokerMetrics), new TableCache(propertyStore, false), brokerMetrics);
+    _brokerRequestHandler.start();
+
+    int numQueries = _slidingTimeFilter ? NUM_SLIDING_QUERIES : 1;
+    _requests = new JsonNode[numQueries];
+    for (int i = 0; i < numQueries; i++) {
+      ObjectNode request = JsonUtils.newObjectNode();
+      if (_queryFormat.equals("sql")) {
+        request.put(Broker.Request.SQL, String.format(SQL_QUERY, 18000 + i, 18030 + i));
+      } else {
+        request.put(Broker.Request.PQL, String.format(PQL_QUERY, 18000 + i, 18030 + i));
+      }
+      _requests[i] = request;
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    _brokerRequestHandler.shutDown();
+    _zkClient.close();
+    ZkStarter.stopLocalZkServer(_zkInstance);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public BrokerResponse handleRequest()
+      throws Exception {
+    JsonNode request = _requests[_requestIndex];
+    _requestIndex = (_requestIndex + 1) % _requests.length;
+    return _brokerRequestHandler.handleRequest(request, null, new RequestStatistics());
+  }
+
+  /**
+   * Routing manager that routes the OFFLINE table to a single segment on a single server.
+   */
+  private static class SingleTableRoutingManager extends RoutingManager {
+    final String _offlineTableName = TableNameBuilder.OFFLINE.tableNameWithType(TABLE_NAME);
+    final RoutingTable _routingTable = new RoutingTable(
+        Collections.singletonMap(new ServerInstance(new InstanceConfig("Server_localhost_8098")),
+            Collections.singletonList("mySegment_0")), Collections.emptyList());
+
+    SingleTableRoutingManager(BrokerMetrics brokerMetrics) {
+      super(brokerMetrics);
+    }
+
+    @Override
+    public boolean routingExists(String tableNameWithType) {
+      return tableNameWithType.equals(_offlineTableName);
+    }
+
+    @Override
+    public RoutingTable getRoutingTable(BrokerRequest brokerRequest) {
+      return _routingTable;
+    }
+  }
+
+  /**
+   * Broker request handler that returns an empty response instead of querying the servers.
+   */
+  private static class NoScatterGatherBrokerRequestHandler extends BaseBrokerRequestHandler {
+
+    NoScatterGatherBrokerRequestHandler(PinotConfiguration config, RoutingManager routingManager,
+        TableCache tableCache, BrokerMetrics brokerMetrics) {
+      super(config, routingManager, new AllowAllAccessControlFactory(), tableName -> true, tableCache, brokerMetrics);
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void shutDown() {
+    }
+
+    @Override
+    protected BrokerResponse processBrokerRequest(long requestId, BrokerRequest originalBrokerRequest,
+        @Nullable BrokerRequest offlineBrokerRequest, @Nullable Map<ServerInstance, List<String>> offlineRoutingTable,
+        @Nullable BrokerRequest realtimeBrokerRequest,
+        @Nullable Map<ServerInstance, List<String>> realtimeRoutingTable, long timeoutMs, ServerStats serverStats,
+        RequestStatistics requestStatistics) {
+      return new BrokerResponseNative();
+    }
+  }
+
+  public static void main(String[] args)
+      throws Exception {
+    ChainedOptionsBuilder opt = new OptionsBuilder().include(BenchmarkBrokerRequestCompilation.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(5)).warmupIterations(2).measurementTime(TimeValue.seconds(10))
+        .measurementIterations(3).forks(1).threads(1);
+    new Runner(opt.build()).run();
+  }
+}
@@ -20,8 +20,11 @@ package org.apache.pinot.perf;
 
 import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
 import org.apache.pinot.core.io.writer.impl.DirectMemoryManager;
+import org.apache.pinot.core.realtime.impl.dictionary.BaseOffHeapLinearProbingMutableDictionary;
 import org.apache.pinot.core.realtime.impl.dictionary.BaseOffHeapMutableDictionary;
 import org.apache.pinot.core.realtime.impl.dictionary.LongOffHeapMutableDictionary;
+import org.apache.pinot.core.realtime.impl.dictionary.StringOffHeapLinearProbingMutableDictionary;
+import org.apache.pinot.core.realtime.impl.dictionary.StringOffHeapMutableDictionary;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.TearDown;
 
@@ -122,12 +125,77 @@ public class BenchmarkOffHeapDictionaryMemory {
     printStats();
   }
 
+  // Compares memory and insert/lookup throughput of the off-heap string dictionaries
+  private void testStringMem(final int maxOverflowSize)
+      throws Exception {
+    String[] uniqueColValues = new String[_cardinality];
+    for (int i = 0; i < uniqueColValues.length; i++) {
+      uniqueColValues[i] = Long.toHexString((long) (Math.random() * Long.MAX_VALUE)) + "_" + i;
+    }
+    String[] colValues = new String[_nRows];
+    for (int i = 0; i < colValues.length; i++) {
+      colValues[i] = uniqueColValues[(int) (Math.random() * _cardinality)];
+    }
+
+    for (int div = 1; div <= _nDivs; div++) {
+      int initialCardinality = _cardinality / div;
+      long insertTimeMs = 0;
+      long lookupTimeMs = 0;
+      long totalMem = 0;
+      for (int i = 0; i < _nRuns; i++) {
+        try (StringOffHeapMutableDictionary dictionary = new StringOffHeapMutableDictionary(initialCardinality,
+            maxOverflowSize, _memoryManager, "stringColumn", 16)) {
+          long startTimeMs = System.currentTimeMillis();
+          for (String colValue : colValues) {
+            dictionary.index(colValue);
+          }
+          insertTimeMs += System.currentTimeMillis() - startTimeMs;
+          startTimeMs = System.currentTimeMillis();
+          for (String colValue : colValues) {
+            dictionary.indexOf(colValue);
+          }
+          lookupTimeMs += System.currentTimeMillis() - startTimeMs;
+          totalMem += dictionary.getTotalOffHeapMemUsed();
+        }
+      }
+      long linearProbingInsertTimeMs = 0;
+      long linearProbingLookupTimeMs = 0;
+      long linearProbingTotalMem = 0;
+      for (int i = 0; i < _nRuns; i++) {
+        try (BaseOffHeapLinearProbingMutableDictionary dictionary = new StringOffHeapLinearProbingMutableDictionary(
+            initialCardinality, maxOverflowSize, _memoryManager, "stringColumn", 16)) {
+          long startTimeMs = System.currentTimeMillis();
+          for (String colValue : colValues) {
+            dictionary.index(colValue);
+          }
+          linearProbingInsertTimeMs += System.currentTimeMillis() - startTimeMs;
+          startTimeMs = System.currentTimeMillis();
+          for (String colValue : colValues) {
+            dictionary.indexOf(colValue);
+          }
+          linearProbingLookupTimeMs += System.currentTimeMillis() - startTimeMs;
+          linearProbingTotalMem += dictionary.getTotalOffHeapMemUsed();
+        }
+      }
+      System.out.println(
+          "Div=" + div + ",TotalMem:" + totalMem / _nRuns / 1024 / 1024 + "MB,InsertTime:" + insertTimeMs / _nRuns
+              + "ms,LookupTime:" + lookupTimeMs / _nRuns + "ms,LinearProbingTotalMem:"
+              + linearProbingTotalMem / _nRuns / 1024 / 1024 + "MB,LinearProbingInsertTime:"
+              + linearProbingInsertTimeMs / _nRuns + "ms,LinearProbingLookupTime:" + linearProbingLookupTimeMs / _nRuns
+              + "ms");
+    }
+  }
+
   public static void main(String[] args)
       throws Exception {
     BenchmarkOffHeapDictionaryMemory benchmark = new BenchmarkOffHeapDictionaryMemory();
+    benchmark.setUp();
     System.out.println("Results with overflow:");
     benchmark.testMem(1000);
     System.out.println("Results without overflow:");
     benchmark.testMem(0);
+    System.out.println("String dictionary results with overflow:");
+    benchmark.testStringMem(1000);
+    benchmark.tearDown();
   }
 }
@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.pinot.common.metrics.BrokerMetrics;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.request.BrokerRequest;
+import org.apache.pinot.common.utils.DataTable;
+import org.apache.pinot.core.common.datatable.DataTableImplV2;
+import org.apache.pinot.core.data.manager.InstanceDataManager;
+import org.apache.pinot.core.query.executor.QueryExecutor;
+import org.apache.pinot.core.query.request.ServerQueryRequest;
+import org.apache.pinot.core.query.scheduler.QueryScheduler;
+import org.apache.pinot.core.query.scheduler.fcfs.FCFSQueryScheduler;
+import org.apache.pinot.core.transport.QueryRouter;
+import org.apache.pinot.core.transport.QueryServer;
+import org.apache.pinot.core.transport.ServerInstance;
+import org.apache.pinot.core.transport.ServerResponse;
+import org.apache.pinot.core.transport.ServerRoutingInstance;
+import org.apache.pinot.pql.parsers.Pql2Compiler;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+
+/**
+ * Benchmark for the query routing between a local broker ({@link QueryRouter}) and server ({@link QueryServer}), with
+ * different Netty transports and request batching delays.
+ * <p>The server returns an empty data table without executing the query, so the benchmark measures the transport
+ * overhead (request serialization, framing, socket I/O, scheduling and response de-serialization) only.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-server", "-Xmx4G"})
+public class BenchmarkQueryRouting {
+  private static final int PORT = 18098;
+  private static final String RAW_TABLE_NAME = "myTable";
+  private static final BrokerRequest BROKER_REQUEST =
+      new Pql2Compiler().compileToBrokerRequest("SELECT COUNT(*) FROM myTable");
+  private static final ServerInstance SERVER_INSTANCE =
+      new ServerInstance(new InstanceConfig("Server_localhost_" + PORT));
+  private static final Map<ServerInstance, List<String>> ROUTING_TABLE =
+      Collections.singletonMap(SERVER_INSTANCE, Collections.singletonList("mySegment"));
+
+  @Param({"false", "true"})
+  private boolean _nativeTransport;
+
+  @Param({"0", "50"})
+  private long _requestBatchDelayUs;
+
+  private final AtomicLong _requestId = new AtomicLong();
+  private QueryScheduler _queryScheduler;
+  private QueryServer _queryServer;
+  private QueryRouter _queryRouter;
+
+  @Setup
+  public void setUp() {
+    ServerMetrics serverMetrics = new ServerMetrics(new MetricsRegistry());
+    _queryScheduler = new FCFSQueryScheduler(new PinotConfiguration(), new EmptyResponseQueryExecutor(), serverMetrics,
+        new LongAccumulator(Long::max, 0));
+    _queryScheduler.start();
+    _queryServer = new QueryServer(PORT, _queryScheduler, serverMetrics, _nativeTransport);
+    _queryServer.start();
+    _queryRouter = new QueryRouter("myBroker", new BrokerMetrics(new MetricsRegistry()), _requestBatchDelayUs,
+        _nativeTransport);
+  }
+
+  @TearDown
+  public void tearDown() {
+    _queryRouter.shutDown();
+    _queryServer.shutDown();
+    _queryScheduler.stop();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public Map<ServerRoutingInstance, ServerResponse> routeQuery()
+      throws Exception {
+    return _queryRouter
+        .submitQuery(_requestId.getAndIncrement(), RAW_TABLE_NAME, BROKER_REQUEST, ROUTING_TABLE, null, null, 10_000L)
+        .getResponse();
+  }
+
+  /**
+   * Query executor that returns an empty data table without executing the query.
+   */
+  private static class EmptyResponseQueryExecutor implements QueryExecutor {
+    @Override
+    public void init(PinotConfiguration config, InstanceDataManager instanceDataManager, ServerMetrics serverMetrics) {
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void shutDown() {
+    }
+
+    @Override
+    public DataTable processQuery(ServerQueryRequest queryRequest, ExecutorService executorService) {
+      return new DataTableImplV2();
+    }
+  }
+
+  public static void main(String[] args)
+      throws Exception {
+    ChainedOptionsBuilder opt = new OptionsBuilder().include(BenchmarkQueryRouting.class.getSimpleName())
+        .warmupTime(TimeValue.seconds(5)).warmupIterations(2).measurementTime(TimeValue.seconds(10))
+        .measurementIterations(3).forks(1).threads(16);
+    new Runner(opt.build()).run();
+  }
+}
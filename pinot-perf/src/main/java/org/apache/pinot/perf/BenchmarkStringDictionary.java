@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.pinot.common.utils.StringUtil;
 import org.apache.pinot.core.io.readerwriter.PinotDataBufferMemoryManager;
 import org.apache.pinot.core.io.writer.impl.DirectMemoryManager;
+import org.apache.pinot.core.realtime.impl.dictionary.StringOffHeapLinearProbingMutableDictionary;
 import org.apache.pinot.core.realtime.impl.dictionary.StringOffHeapMutableDictionary;
 import org.apache.pinot.core.realtime.impl.dictionary.StringOnHeapMutableDictionary;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -60,6 +61,7 @@ public class BenchmarkStringDictionary {
   private PinotDataBufferMemoryManager _memoryManager;
   private String[] _values;
   private StringOffHeapMutableDictionary _offHeapDictionary;
+  private StringOffHeapLinearProbingMutableDictionary _offHeapLinearProbingDictionary;
   private StringOnHeapMutableDictionary _onHeapDictionary;
 
   @Setup
@@ -67,12 +69,16 @@ public class BenchmarkStringDictionary {
     _memoryManager = new DirectMemoryManager("");
     _offHeapDictionary =
         new StringOffHeapMutableDictionary(CARDINALITY, CARDINALITY / 10, _memoryManager, null, _maxValueLength / 2);
+    _offHeapLinearProbingDictionary =
+        new StringOffHeapLinearProbingMutableDictionary(CARDINALITY, CARDINALITY / 10, _memoryManager, null,
+            _maxValueLength / 2);
     _onHeapDictionary = new StringOnHeapMutableDictionary();
     String[] uniqueValues = new String[CARDINALITY];
     for (int i = 0; i < CARDINALITY; i++) {
       String value = generateRandomString(RANDOM.nextInt(_maxValueLength + 1));
       uniqueValues[i] = value;
       _offHeapDictionary.index(value);
+      _offHeapLinearProbingDictionary.index(value);
       _onHeapDictionary.index(value);
     }
     _values = new String[NUM_RECORDS];
@@ -86,6 +92,7 @@ public class BenchmarkStringDictionary {
       throws Exception {
     _onHeapDictionary.close();
     _offHeapDictionary.close();
+    _offHeapLinearProbingDictionary.close();
     _memoryManager.close();
   }
 
@@ -107,6 +114,15 @@ public class BenchmarkStringDictionary {
     return sum;
   }
 
+  @Benchmark
+  public int offHeapLinearProbingStringDictionaryRead() {
+    int sum = 0;
+    for (String stringValue : _values) {
+      sum += _offHeapLinearProbingDictionary.indexOf(stringValue);
+    }
+    return sum;
+  }
+
   @Benchmark
   public int onHeapStringDictionaryRead() {
     int sum = 0;
@@ -129,6 +145,19 @@ public class BenchmarkStringDictionary {
     }
   }
 
+  @Benchmark
+  public int offHeapLinearProbingStringDictionaryWrite()
+      throws IOException {
+    try (StringOffHeapLinearProbingMutableDictionary offHeapDictionary = new StringOffHeapLinearProbingMutableDictionary(
+        CARDINALITY, CARDINALITY / 10, _memoryManager, null, _maxValueLength / 2)) {
+      int value = 0;
+      for (String stringValue : _values) {
+        value += offHeapDictionary.index(stringValue);
+      }
+      return value;
+    }
+  }
+
   @Benchmark
   public int onHeapStringDictionaryWrite()
       throws IOException {
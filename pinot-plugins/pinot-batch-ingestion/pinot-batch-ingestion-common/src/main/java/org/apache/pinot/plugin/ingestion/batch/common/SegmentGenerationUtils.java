@@ -28,10 +28,12 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.IOUtils;
+import org.apache.pinot.common.utils.TarGzCompressionUtils;
 import org.apache.pinot.spi.config.table.TableConfig;
 import org.apache.pinot.spi.data.Schema;
 import org.apache.pinot.spi.filesystem.PinotFS;
 import org.apache.pinot.spi.filesystem.PinotFSFactory;
+import org.apache.pinot.spi.ingestion.batch.spec.SegmentGenerationJobSpec;
 import org.apache.pinot.spi.utils.JsonUtils;
 
 
@@ -41,6 +43,15 @@ public class SegmentGenerationUtils {
   public static final String PINOT_PLUGINS_TAR_GZ = "pinot-plugins.tar.gz";
   public static final String PINOT_PLUGINS_DIR = "pinot-plugins-dir";
 
+  /**
+   * Returns the compression type of the segment tar files configured in the job spec, GZIP by default.
+   */
+  public static TarGzCompressionUtils.CompressionType getSegmentTarCompressionType(SegmentGenerationJobSpec spec) {
+    String segmentTarCompressionType = spec.getSegmentTarCompressionType();
+    return segmentTarCompressionType != null ? TarGzCompressionUtils.CompressionType
+        .valueOf(segmentTarCompressionType.toUpperCase()) : TarGzCompressionUtils.CompressionType.GZIP;
+  }
+
   public static String generateSchemaURI(String controllerUri, String table) {
     return String.format("%s/tables/%s/schema", controllerUri, table);
   }
@@ -83,8 +83,9 @@ public class SegmentPushUtils implements Serializable {
       URI tarFileURI = URI.create(tarFilePath);
       File tarFile = new File(tarFilePath);
       String fileName = tarFile.getName();
-      Preconditions.checkArgument(fileName.endsWith(Constants.TAR_GZ_FILE_EXT));
-      String segmentName = fileName.substring(0, fileName.length() - Constants.TAR_GZ_FILE_EXT.length());
+      String fileExtension = Constants.getSegmentTarFileExtension(fileName);
+      Preconditions.checkArgument(fileExtension != null, "Not a segment tar file: %s", fileName);
+      String segmentName = fileName.substring(0, fileName.length() - fileExtension.length());
       for (PinotClusterSpec pinotClusterSpec : spec.getPinotClusterSpecs()) {
         URI controllerURI;
         try {
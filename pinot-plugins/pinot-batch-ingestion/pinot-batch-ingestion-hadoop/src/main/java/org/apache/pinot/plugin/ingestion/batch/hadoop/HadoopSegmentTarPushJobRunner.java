@@ -83,7 +83,7 @@ public class HadoopSegmentTarPushJobRunner implements IngestionJobRunner, Serial
 
     List<String> segmentsToPush = new ArrayList<>();
     for (String file : files) {
-      if (file.endsWith(Constants.TAR_GZ_FILE_EXT)) {
+      if (Constants.getSegmentTarFileExtension(file) != null) {
         segmentsToPush.add(file);
       }
     }
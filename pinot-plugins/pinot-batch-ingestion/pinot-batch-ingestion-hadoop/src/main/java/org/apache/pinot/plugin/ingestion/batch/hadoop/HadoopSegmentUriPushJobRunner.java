@@ -86,7 +86,7 @@ public class HadoopSegmentUriPushJobRunner implements IngestionJobRunner, Serial
     List<String> segmentUris = new ArrayList<>();
     for (String file : files) {
       URI uri = URI.create(file);
-      if (uri.getPath().endsWith(Constants.TAR_GZ_FILE_EXT)) {
+      if (Constants.getSegmentTarFileExtension(uri.getPath()) != null) {
         URI updatedURI = SegmentPushUtils
             .generateSegmentTarURI(outputDirURI, uri, _spec.getPushJobSpec().getSegmentUriPrefix(),
                 _spec.getPushJobSpec().getSegmentUriSuffix());
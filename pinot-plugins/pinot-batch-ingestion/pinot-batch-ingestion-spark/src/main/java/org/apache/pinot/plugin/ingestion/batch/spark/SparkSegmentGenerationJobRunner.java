@@ -48,7 +48,6 @@ import org.apache.pinot.spi.env.PinotConfiguration;
 import org.apache.pinot.spi.filesystem.PinotFS;
 import org.apache.pinot.spi.filesystem.PinotFSFactory;
 import org.apache.pinot.spi.ingestion.batch.runner.IngestionJobRunner;
-import org.apache.pinot.spi.ingestion.batch.spec.Constants;
 import org.apache.pinot.spi.ingestion.batch.spec.PinotClusterSpec;
 import org.apache.pinot.spi.ingestion.batch.spec.PinotFSSpec;
 import org.apache.pinot.spi.ingestion.batch.spec.SegmentGenerationJobSpec;
@@ -302,16 +301,20 @@ public class SparkSegmentGenerationJobRunner implements IngestionJobRunner, Seri
               SegmentGenerationUtils.getTableConfig(_spec.getTableSpec().getTableConfigURI()).toJsonNode());
           taskSpec.setSequenceId(idx);
           taskSpec.setSegmentNameGeneratorSpec(_spec.getSegmentNameGeneratorSpec());
+          taskSpec.setNumIndexCreationThreads(_spec.getSegmentCreationNumThreads());
+          taskSpec.setSinglePassCreation(_spec.isSinglePassSegmentCreation());
 
           SegmentGenerationTaskRunner taskRunner = new SegmentGenerationTaskRunner(taskSpec);
           String segmentName = taskRunner.run();
 
           // Tar segment directory to compress file
           File localSegmentDir = new File(localOutputTempDir, segmentName);
-          String segmentTarFileName = segmentName + Constants.TAR_GZ_FILE_EXT;
+          TarGzCompressionUtils.CompressionType compressionType =
+              SegmentGenerationUtils.getSegmentTarCompressionType(_spec);
+          String segmentTarFileName = segmentName + compressionType.getFileExtension();
           File localSegmentTarFile = new File(localOutputTempDir, segmentTarFileName);
           LOGGER.info("Tarring segment from: {} to: {}", localSegmentDir, localSegmentTarFile);
-          TarGzCompressionUtils.createTarGzFile(localSegmentDir, localSegmentTarFile);
+          TarGzCompressionUtils.createTarFile(localSegmentDir, localSegmentTarFile, compressionType);
           long uncompressedSegmentSize = FileUtils.sizeOf(localSegmentDir);
           long compressedSegmentSize = FileUtils.sizeOf(localSegmentTarFile);
           LOGGER.info("Size for segment: {}, uncompressed: {}, compressed: {}", segmentName,
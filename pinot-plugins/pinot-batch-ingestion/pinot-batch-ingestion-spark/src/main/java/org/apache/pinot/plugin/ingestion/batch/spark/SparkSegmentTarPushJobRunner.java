@@ -87,7 +87,7 @@ public class SparkSegmentTarPushJobRunner implements IngestionJobRunner, Seriali
 
     List<String> segmentsToPush = new ArrayList<>();
     for (String file : files) {
-      if (file.endsWith(Constants.TAR_GZ_FILE_EXT)) {
+      if (Constants.getSegmentTarFileExtension(file) != null) {
         segmentsToPush.add(file);
       }
     }
@@ -91,7 +91,7 @@ public class SparkSegmentUriPushJobRunner implements IngestionJobRunner, Seriali
     List<String> segmentUris = new ArrayList<>();
     for (String file : files) {
       URI uri = URI.create(file);
-      if (uri.getPath().endsWith(Constants.TAR_GZ_FILE_EXT)) {
+      if (Constants.getSegmentTarFileExtension(uri.getPath()) != null) {
         URI updatedURI = SegmentPushUtils
             .generateSegmentTarURI(outputDirURI, uri, _spec.getPushJobSpec().getSegmentUriPrefix(),
                 _spec.getPushJobSpec().getSegmentUriSuffix());
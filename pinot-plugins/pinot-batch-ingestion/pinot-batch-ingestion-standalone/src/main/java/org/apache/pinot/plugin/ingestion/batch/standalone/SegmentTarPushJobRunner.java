@@ -81,7 +81,7 @@ public class SegmentTarPushJobRunner implements IngestionJobRunner {
 
     List<String> segmentsToPush = new ArrayList<>();
     for (String file : files) {
-      if (file.endsWith(Constants.TAR_GZ_FILE_EXT)) {
+      if (Constants.getSegmentTarFileExtension(file) != null) {
         segmentsToPush.add(file);
       }
     }
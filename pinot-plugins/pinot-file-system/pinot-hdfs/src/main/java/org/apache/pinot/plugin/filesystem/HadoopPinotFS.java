@@ -27,7 +27,9 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileUtil;
@@ -237,6 +239,19 @@ public class HadoopPinotFS extends PinotFS {
     return _hadoopFS.open(path);
   }
 
+  @Override
+  public InputStream open(URI uri, long offset, long length)
+      throws IOException {
+    FSDataInputStream inputStream = _hadoopFS.open(new Path(uri));
+    try {
+      inputStream.seek(offset);
+    } catch (IOException e) {
+      inputStream.close();
+      throw e;
+    }
+    return new BoundedInputStream(inputStream, length);
+  }
+
   private void authenticate(Configuration hadoopConf,
       PinotConfiguration configs) {
     String principal = configs.getProperty(PRINCIPAL);
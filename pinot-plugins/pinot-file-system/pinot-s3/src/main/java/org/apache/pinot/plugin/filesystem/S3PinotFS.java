@@ -18,6 +18,7 @@
  */
 package org.apache.pinot.plugin.filesystem;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -510,6 +511,19 @@ public class S3PinotFS extends PinotFS {
     }
   }
 
+  @Override
+  public InputStream open(URI uri, long offset, long length)
+      throws IOException {
+    if (length <= 0) {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+    // Only fetch the requested range of the object (the end of the HTTP range is inclusive)
+    String path = sanitizePath(uri.getPath());
+    GetObjectRequest getObjectRequest = GetObjectRequest.builder().bucket(uri.getHost()).key(path)
+        .range("bytes=" + offset + "-" + (offset + length - 1)).build();
+    return _s3Client.getObjectAsBytes(getObjectRequest).asInputStream();
+  }
+
   @Override
   public void close()
       throws IOException {
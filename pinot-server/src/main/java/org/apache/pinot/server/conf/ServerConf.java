@@ -73,6 +73,11 @@ public class ServerConf {
     return _serverConf.getProperty(Helix.KEY_OF_SERVER_NETTY_PORT, Helix.DEFAULT_SERVER_NETTY_PORT);
   }
 
+  public boolean isNettyNativeTransportEnabled() {
+    return _serverConf.getProperty(Server.CONFIG_OF_NETTY_NATIVE_TRANSPORT_ENABLED,
+        Server.DEFAULT_NETTY_NATIVE_TRANSPORT_ENABLED);
+  }
+
   public boolean isEnableGrpcServer() {
     return _serverConf.getProperty(Server.CONFIG_OF_ENABLE_GRPC_SERVER, Server.DEFAULT_ENABLE_GRPC_SERVER);
   }
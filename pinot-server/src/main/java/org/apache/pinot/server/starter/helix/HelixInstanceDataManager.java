@@ -19,11 +19,20 @@
 package org.apache.pinot.server.starter.helix;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 
 import javax.annotation.Nullable;
@@ -35,8 +44,10 @@ import org.apache.helix.HelixManager;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.store.zk.ZkHelixPropertyStore;
 import org.apache.pinot.common.metadata.ZKMetadataProvider;
+import org.apache.pinot.common.metrics.ServerGauge;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.utils.CommonConstants;
+import org.apache.pinot.common.utils.NamedThreadFactory;
 import org.apache.pinot.core.data.manager.InstanceDataManager;
 import org.apache.pinot.core.data.manager.SegmentDataManager;
 import org.apache.pinot.core.data.manager.TableDataManager;
@@ -48,6 +59,7 @@ import org.apache.pinot.core.indexsegment.mutable.MutableSegmentImpl;
 import org.apache.pinot.core.segment.index.loader.IndexLoadingConfig;
 import org.apache.pinot.core.segment.index.loader.LoaderUtils;
 import org.apache.pinot.core.segment.index.metadata.SegmentMetadata;
+import org.apache.pinot.core.segment.store.RemoteIndexCache;
 import org.apache.pinot.spi.config.table.TableConfig;
 import org.apache.pinot.spi.data.Schema;
 import org.apache.pinot.spi.env.PinotConfiguration;
@@ -73,6 +85,9 @@ public class HelixInstanceDataManager implements InstanceDataManager {
   private HelixManager _helixManager;
   private ServerMetrics _serverMetrics;
   private ZkHelixPropertyStore<ZNRecord> _propertyStore;
+  private ExecutorService _segmentReloadExecutor;
+  private ScheduledExecutorService _idleColumnReleaseExecutor;
+  private SegmentLoadThrottle _segmentLoadThrottle;
 
   @Override
   public synchronized void init(PinotConfiguration config, HelixManager helixManager, ServerMetrics serverMetrics)
@@ -97,9 +112,51 @@ public class HelixInstanceDataManager implements InstanceDataManager {
     // Initialize the table data manager provider
     TableDataManagerProvider.init(_instanceDataManagerConfig);
 
+    int maxParallelReloadThreads = Math.max(_instanceDataManagerConfig.getMaxParallelReloadThreads(), 1);
+    _segmentReloadExecutor =
+        Executors.newFixedThreadPool(maxParallelReloadThreads, new NamedThreadFactory("segment-reload"));
+    _segmentLoadThrottle = new SegmentLoadThrottle(_instanceDataManagerConfig.getMaxParallelSegmentLoadsPerDisk());
+    LOGGER.info("Reloading segments with {} threads, max parallel segment loads per disk: {}",
+        maxParallelReloadThreads, _instanceDataManagerConfig.getMaxParallelSegmentLoadsPerDisk());
+
+    // Initialize the cache for the indexes of the cold segments stored in the remote directory
+    if (_instanceDataManagerConfig.getColdSegmentRemoteDir() != null) {
+      try {
+        RemoteIndexCache.init(new File(_instanceDataManagerConfig.getRemoteIndexCacheDir()),
+            _instanceDataManagerConfig.getRemoteIndexCacheMaxSizeBytes());
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to initialize the remote index cache", e);
+      }
+    }
+
+    // Periodically release the indexes of the lazily loaded columns not accessed for a while
+    long columnIdleReleaseTimeMs = _instanceDataManagerConfig.getColumnIdleReleaseTimeMs();
+    if (columnIdleReleaseTimeMs > 0) {
+      LOGGER.info("Releasing indexes of columns idle for {}ms", columnIdleReleaseTimeMs);
+      _idleColumnReleaseExecutor =
+          Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("idle-column-release"));
+      long intervalMs = Math.max(columnIdleReleaseTimeMs / 2, 1000L);
+      _idleColumnReleaseExecutor.scheduleWithFixedDelay(() -> releaseIdleColumns(columnIdleReleaseTimeMs), intervalMs,
+          intervalMs, TimeUnit.MILLISECONDS);
+    }
+
     LOGGER.info("Initialized Helix instance data manager");
   }
 
+  private void releaseIdleColumns(long idleTimeMs) {
+    for (TableDataManager tableDataManager : _tableDataManagerMap.values()) {
+      try {
+        int numColumnsReleased = tableDataManager.releaseIdleColumns(idleTimeMs);
+        if (numColumnsReleased > 0) {
+          LOGGER.info("Released indexes for {} idle columns of table: {}", numColumnsReleased,
+              tableDataManager.getTableName());
+        }
+      } catch (Exception e) {
+        LOGGER.error("Caught exception while releasing idle columns for table: {}", tableDataManager.getTableName(), e);
+      }
+    }
+  }
+
   @Override
   public synchronized void start() {
     _propertyStore = _helixManager.getHelixPropertyStore();
@@ -108,6 +165,10 @@ public class HelixInstanceDataManager implements InstanceDataManager {
 
   @Override
   public synchronized void shutDown() {
+    _segmentReloadExecutor.shutdownNow();
+    if (_idleColumnReleaseExecutor != null) {
+      _idleColumnReleaseExecutor.shutdownNow();
+    }
     for (TableDataManager tableDataManager : _tableDataManagerMap.values()) {
       tableDataManager.shutDown();
     }
@@ -120,8 +181,16 @@ public class HelixInstanceDataManager implements InstanceDataManager {
     LOGGER.info("Adding segment: {} to table: {}", segmentName, offlineTableName);
     TableConfig tableConfig = ZKMetadataProvider.getTableConfig(_propertyStore, offlineTableName);
     Preconditions.checkNotNull(tableConfig);
-    _tableDataManagerMap.computeIfAbsent(offlineTableName, k -> createTableDataManager(k, tableConfig))
-        .addSegment(indexDir, new IndexLoadingConfig(_instanceDataManagerConfig, tableConfig));
+    TableDataManager tableDataManager =
+        _tableDataManagerMap.computeIfAbsent(offlineTableName, k -> createTableDataManager(k, tableConfig));
+    Semaphore diskSemaphore = _segmentLoadThrottle.acquire(indexDir);
+    _serverMetrics.addValueToGlobalGauge(ServerGauge.SEGMENTS_LOADING, 1L);
+    try {
+      tableDataManager.addSegment(indexDir, new IndexLoadingConfig(_instanceDataManagerConfig, tableConfig));
+    } finally {
+      _serverMetrics.addValueToGlobalGauge(ServerGauge.SEGMENTS_LOADING, -1L);
+      _segmentLoadThrottle.release(diskSemaphore);
+    }
     LOGGER.info("Added segment: {} to table: {}", segmentName, offlineTableName);
   }
 
@@ -187,11 +256,52 @@ public class HelixInstanceDataManager implements InstanceDataManager {
 
     Schema schema = ZKMetadataProvider.getTableSchema(_propertyStore, tableNameWithType);
 
-    for (SegmentMetadata segmentMetadata : getAllSegmentsMetadata(tableNameWithType)) {
-      reloadSegment(tableNameWithType, segmentMetadata, tableConfig, schema);
+    // Reload the segments in parallel with the shared reload executor. Queries keep being served by the old version of
+    // each segment until it is replaced, and the old version is destroyed once all the queries acquiring it release it.
+    // Keep reloading the other segments if some segments failed to reload, and throw at the end.
+    List<SegmentMetadata> segmentsMetadata = getAllSegmentsMetadata(tableNameWithType);
+    int numSegments = segmentsMetadata.size();
+    AtomicInteger numSegmentsPending = new AtomicInteger(numSegments);
+    _serverMetrics.setValueOfTableGauge(tableNameWithType, ServerGauge.SEGMENTS_PENDING_RELOAD, numSegments);
+    List<Future<?>> futures = new ArrayList<>(numSegments);
+    for (SegmentMetadata segmentMetadata : segmentsMetadata) {
+      futures.add(_segmentReloadExecutor.submit(() -> {
+        try {
+          reloadSegment(tableNameWithType, segmentMetadata, tableConfig, schema);
+        } finally {
+          _serverMetrics.setValueOfTableGauge(tableNameWithType, ServerGauge.SEGMENTS_PENDING_RELOAD,
+              numSegmentsPending.decrementAndGet());
+        }
+        return null;
+      }));
+    }
+    int numFailedSegments = 0;
+    Throwable firstFailure = null;
+    try {
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          numFailedSegments++;
+          if (firstFailure == null) {
+            firstFailure = e.getCause();
+          }
+          LOGGER.error("Failed to reload segment in table: {}", tableNameWithType, e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      for (Future<?> future : futures) {
+        future.cancel(false);
+      }
+      throw e;
+    }
+    if (firstFailure != null) {
+      throw new Exception(
+          String.format("Failed to reload %d/%d segments in table: %s", numFailedSegments, numSegments,
+              tableNameWithType), firstFailure);
     }
 
-    LOGGER.info("Reloaded all segments in table: {}", tableNameWithType);
+    LOGGER.info("Reloaded all {} segments in table: {}", numSegments, tableNameWithType);
   }
 
   private void reloadSegment(String tableNameWithType, SegmentMetadata segmentMetadata, TableConfig tableConfig,
@@ -233,8 +343,12 @@ public class HelixInstanceDataManager implements InstanceDataManager {
 
     // This method might modify the file on disk. Use segment lock to prevent race condition
     Lock segmentLock = SegmentLocks.getSegmentLock(tableNameWithType, segmentName);
+    Semaphore diskSemaphore = null;
     try {
       segmentLock.lock();
+      // NOTE: Acquire the disk permit after the segment lock, in the same order as adding or replacing the segment
+      //       (see SegmentFetcherAndLoader), to prevent deadlock between reload and download of the same segment
+      diskSemaphore = _segmentLoadThrottle.acquire(indexDir);
 
       // First rename index directory to segment backup directory so that original segment have all file descriptors
       // point to the segment backup directory to ensure original segment serves queries properly
@@ -244,7 +358,7 @@ public class HelixInstanceDataManager implements InstanceDataManager {
           "Failed to rename index directory: %s to segment backup directory: %s", indexDir, segmentBackupDir);
 
       // Copy from segment backup directory back to index directory
-      FileUtils.copyDirectory(segmentBackupDir, indexDir);
+      LoaderUtils.copySegmentDirectory(segmentBackupDir, indexDir);
 
       // Load from index directory
       ImmutableSegment immutableSegment = ImmutableSegmentLoader
@@ -274,6 +388,7 @@ public class HelixInstanceDataManager implements InstanceDataManager {
       }
       throw reloadFailureException;
     } finally {
+      _segmentLoadThrottle.release(diskSemaphore);
       segmentLock.unlock();
     }
   }
@@ -18,13 +18,17 @@
  */
 package org.apache.pinot.server.starter.helix;
 
+import java.io.File;
 import java.util.Optional;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.pinot.common.segment.ReadMode;
 import org.apache.pinot.common.utils.CommonConstants.Server;
 import org.apache.pinot.core.data.manager.config.InstanceDataManagerConfig;
+import org.apache.pinot.core.io.writer.impl.OffHeapMemoryArena;
 import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.DataSizeUtils;
+import org.apache.pinot.spi.utils.TimeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -78,6 +82,55 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
   // Direct memory allocation may mean setting heap size appropriately when starting JVM.
   // The metric ServerGauge.REALTIME_OFFHEAP_MEMORY_USED should indicate how much memory is needed.
   private static final String DIRECT_REALTIME_OFFHEAP_ALLOCATION = "realtime.alloc.offheap.direct";
+  // Or whether the allocation should be from a server-wide arena of direct memory regions, which are recycled
+  // across consuming segments. Takes precedence over direct allocation.
+  private static final String ARENA_REALTIME_OFFHEAP_ALLOCATION = "realtime.alloc.offheap.arena";
+  // Size (e.g. "32M") of the regions in the arena, and max size (e.g. "2G") of the free regions retained by the arena
+  private static final String ARENA_REALTIME_OFFHEAP_REGION_SIZE = "realtime.alloc.offheap.arena.region.size";
+  private static final String ARENA_REALTIME_OFFHEAP_MAX_FREE_SIZE = "realtime.alloc.offheap.arena.max.free.size";
+  // Memory budget (e.g. "8G") for all the consuming segments on this server. When the memory allocated by the
+  // consuming segments approaches this budget, consuming segments are completed early to release memory.
+  // A value of <= 0 (the default) indicates unlimited.
+  private static final String REALTIME_MAX_CONSUMING_MEMORY_SIZE = "realtime.max.consuming.memory.size";
+
+  // Number of threads in the server-wide pool shared by the lagging consuming partitions to decode stream messages in
+  // parallel while catching up with the stream. A value of <= 0 (the default) disables the catch-up mode.
+  private static final String REALTIME_CATCHUP_DECODER_THREADS = "realtime.catchup.decoder.threads";
+  // Lag (number of messages behind the latest stream offset) above which a consuming partition switches to the
+  // catch-up mode. The partition switches back to the normal mode once the lag drops below half of this value.
+  private static final String REALTIME_CATCHUP_LAG_THRESHOLD = "realtime.catchup.lag.threshold";
+  private static final long DEFAULT_REALTIME_CATCHUP_LAG_THRESHOLD = 100_000L;
+
+  // Number of threads in the pool shared by all the completed consuming segments of the server to build their column
+  // indexes in parallel. A value of <= 1 (the default) builds the indexes in the segment building thread.
+  private static final String REALTIME_SEGMENT_BUILD_THREADS = "realtime.segment.build.threads";
+
+  // Max data size (e.g. "100M") read per second by the background warm-up of newly loaded segments, shared by all the
+  // segments on this server. Warm-up is configured per table (see IndexingConfig.warmUpColumns). A value of <= 0 (the
+  // default) indicates unlimited.
+  private static final String SEGMENT_WARMUP_MAX_BYTES_PER_SECOND = "segment.warmup.max.bytes.per.second";
+
+  // Tiered storage: the large indexes (all but dictionary and bloom filter) of the segments whose end time is older
+  // than this age (e.g. "30d") are moved to the remote directory (in PinotFS) when the segment is loaded, and fetched
+  // on demand into the local remote index cache. Disabled if not configured.
+  private static final String TIERED_STORAGE_COLD_SEGMENT_AGE = "tiered.storage.cold.segment.age";
+  // Remote directory (PinotFS URI) to store the indexes of the cold segments. Each server stores its own copy of the
+  // indexes under <remote dir>/<instance id>, and deletes them when the segment is dropped or refreshed.
+  private static final String TIERED_STORAGE_REMOTE_DIR = "tiered.storage.remote.dir";
+  // Local directory and max data size (e.g. "100G") of the cache for the indexes fetched from the remote directory. The
+  // directory is cleaned up on startup, and defaults to a sibling of the instance data directory (outside of the table
+  // data directories).
+  private static final String TIERED_STORAGE_CACHE_DIR = "tiered.storage.cache.dir";
+  private static final String TIERED_STORAGE_CACHE_MAX_SIZE = "tiered.storage.cache.max.size";
+  private static final String DEFAULT_TIERED_STORAGE_CACHE_DIR_NAME = "remoteIndexCache";
+  private static final String DEFAULT_TIERED_STORAGE_CACHE_MAX_SIZE = "10G";
+
+  // Idle time (e.g. "1h") after which the indexes of the lazily loaded columns (see IndexingConfig.lazyColumnLoading)
+  // not accessed by any query are released. The released columns are loaded again on the next access. Columns are only
+  // released from the segments not being queried. Disabled if not configured, unless tiered storage is enabled (the
+  // remote indexes of the columns are only evictable from the cache once released).
+  private static final String SEGMENT_COLUMN_IDLE_RELEASE_TIME = "segment.column.idle.release.time";
+  private static final long DEFAULT_TIERED_STORAGE_COLUMN_IDLE_RELEASE_TIME_MS = 10 * 60 * 1000L;
 
   // Number of simultaneous segments that can be refreshed on one server.
   // Segment refresh works by loading the old as well as new versions of segments in memory, assigning
@@ -93,6 +146,14 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
   //
   private static final String MAX_PARALLEL_REFRESH_THREADS = "max.parallel.refresh.threads";
 
+  // Number of threads used to reload the segments of a table in parallel (shared by all the tables on the server).
+  // Reloading a segment loads the new version of the segment while the old version is still serving queries, so
+  // reloading more segments in parallel temporarily uses more memory.
+  private static final String MAX_PARALLEL_RELOAD_THREADS = "max.parallel.reload.threads";
+  // Max number of segments loaded or reloaded concurrently from the same disk, to avoid saturating the I/O of a single
+  // disk when loading a large number of segments (e.g. on server startup). A value of <= 0 indicates unlimited.
+  private static final String MAX_PARALLEL_SEGMENT_LOADS_PER_DISK = "max.parallel.segment.loads.per.disk";
+
   private final static String[] REQUIRED_KEYS = {INSTANCE_ID, INSTANCE_DATA_DIR, READ_MODE};
   private PinotConfiguration _instanceDataManagerConfiguration = null;
 
@@ -176,6 +237,138 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
     return _instanceDataManagerConfiguration.getProperty(DIRECT_REALTIME_OFFHEAP_ALLOCATION, false);
   }
 
+  @Override
+  public boolean isArenaRealtimeOffHeapAllocation() {
+    return _instanceDataManagerConfiguration.getProperty(ARENA_REALTIME_OFFHEAP_ALLOCATION, false);
+  }
+
+  @Override
+  public long getRealtimeArenaRegionBytes() {
+    return getDataSizeBytes(ARENA_REALTIME_OFFHEAP_REGION_SIZE, OffHeapMemoryArena.DEFAULT_REGION_SIZE);
+  }
+
+  @Override
+  public long getRealtimeArenaMaxFreeBytes() {
+    return getDataSizeBytes(ARENA_REALTIME_OFFHEAP_MAX_FREE_SIZE, OffHeapMemoryArena.DEFAULT_MAX_FREE_BYTES);
+  }
+
+  private long getDataSizeBytes(String key, long defaultBytes) {
+    String dataSize = _instanceDataManagerConfiguration.getProperty(key);
+    if (dataSize == null) {
+      return defaultBytes;
+    }
+    try {
+      long bytes = DataSizeUtils.toBytes(dataSize);
+      if (bytes > 0) {
+        return bytes;
+      }
+    } catch (Exception e) {
+      // Fall through to the default value
+    }
+    LOGGER.warn("Invalid config {}: {}, using the default value: {}", key, dataSize, defaultBytes);
+    return defaultBytes;
+  }
+
+  @Override
+  public long getRealtimeMaxConsumingMemoryBytes() {
+    String maxConsumingMemorySize = _instanceDataManagerConfiguration.getProperty(REALTIME_MAX_CONSUMING_MEMORY_SIZE);
+    if (maxConsumingMemorySize == null) {
+      return -1;
+    }
+    try {
+      return DataSizeUtils.toBytes(maxConsumingMemorySize);
+    } catch (Exception e) {
+      LOGGER.warn("Invalid config {}: {}, ignoring the consuming memory budget", REALTIME_MAX_CONSUMING_MEMORY_SIZE,
+          maxConsumingMemorySize);
+      return -1;
+    }
+  }
+
+  @Override
+  public int getRealtimeCatchUpDecoderThreads() {
+    return _instanceDataManagerConfiguration.getProperty(REALTIME_CATCHUP_DECODER_THREADS, 0);
+  }
+
+  @Override
+  public long getRealtimeCatchUpLagThreshold() {
+    return _instanceDataManagerConfiguration
+        .getProperty(REALTIME_CATCHUP_LAG_THRESHOLD, DEFAULT_REALTIME_CATCHUP_LAG_THRESHOLD);
+  }
+
+  @Override
+  public int getRealtimeSegmentBuildThreads() {
+    return _instanceDataManagerConfiguration.getProperty(REALTIME_SEGMENT_BUILD_THREADS, 1);
+  }
+
+  @Override
+  public long getSegmentWarmUpMaxBytesPerSecond() {
+    String maxBytesPerSecond = _instanceDataManagerConfiguration.getProperty(SEGMENT_WARMUP_MAX_BYTES_PER_SECOND);
+    if (maxBytesPerSecond == null) {
+      return -1;
+    }
+    try {
+      return DataSizeUtils.toBytes(maxBytesPerSecond);
+    } catch (Exception e) {
+      LOGGER.warn("Invalid config {}: {}, not rate limiting the segment warm-up", SEGMENT_WARMUP_MAX_BYTES_PER_SECOND,
+          maxBytesPerSecond);
+      return -1;
+    }
+  }
+
+  @Override
+  public long getColdSegmentAgeMs() {
+    String coldSegmentAge = _instanceDataManagerConfiguration.getProperty(TIERED_STORAGE_COLD_SEGMENT_AGE);
+    if (coldSegmentAge == null || getColdSegmentRemoteDir() == null) {
+      return -1;
+    }
+    try {
+      return TimeUtils.convertPeriodToMillis(coldSegmentAge);
+    } catch (Exception e) {
+      LOGGER.warn("Invalid config {}: {}, disabling tiered storage", TIERED_STORAGE_COLD_SEGMENT_AGE, coldSegmentAge);
+      return -1;
+    }
+  }
+
+  @Override
+  public String getColdSegmentRemoteDir() {
+    return _instanceDataManagerConfiguration.getProperty(TIERED_STORAGE_REMOTE_DIR);
+  }
+
+  public String getRemoteIndexCacheDir() {
+    File instanceBaseDir = new File(getInstanceDataDir()).getAbsoluteFile().getParentFile();
+    return _instanceDataManagerConfiguration.getProperty(TIERED_STORAGE_CACHE_DIR,
+        new File(instanceBaseDir, DEFAULT_TIERED_STORAGE_CACHE_DIR_NAME).getAbsolutePath());
+  }
+
+  public long getRemoteIndexCacheMaxSizeBytes() {
+    String maxSize = _instanceDataManagerConfiguration
+        .getProperty(TIERED_STORAGE_CACHE_MAX_SIZE, DEFAULT_TIERED_STORAGE_CACHE_MAX_SIZE);
+    try {
+      return DataSizeUtils.toBytes(maxSize);
+    } catch (Exception e) {
+      LOGGER.warn("Invalid config {}: {}, using default: {}", TIERED_STORAGE_CACHE_MAX_SIZE, maxSize,
+          DEFAULT_TIERED_STORAGE_CACHE_MAX_SIZE);
+      return DataSizeUtils.toBytes(DEFAULT_TIERED_STORAGE_CACHE_MAX_SIZE);
+    }
+  }
+
+  /**
+   * Returns the idle time after which the indexes of the lazily loaded columns are released, or -1 if disabled.
+   */
+  public long getColumnIdleReleaseTimeMs() {
+    String idleReleaseTime = _instanceDataManagerConfiguration.getProperty(SEGMENT_COLUMN_IDLE_RELEASE_TIME);
+    if (idleReleaseTime == null) {
+      return getColdSegmentAgeMs() > 0 ? DEFAULT_TIERED_STORAGE_COLUMN_IDLE_RELEASE_TIME_MS : -1;
+    }
+    try {
+      return TimeUtils.convertPeriodToMillis(idleReleaseTime);
+    } catch (Exception e) {
+      LOGGER.warn("Invalid config {}: {}, not releasing idle columns", SEGMENT_COLUMN_IDLE_RELEASE_TIME,
+          idleReleaseTime);
+      return -1;
+    }
+  }
+
   public boolean shouldReloadConsumingSegment() {
     return _instanceDataManagerConfiguration
         .getProperty(INSTANCE_RELOAD_CONSUMING_SEGMENT, Server.DEFAULT_RELOAD_CONSUMING_SEGMENT);
@@ -190,6 +383,14 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
     return _instanceDataManagerConfiguration.getProperty(MAX_PARALLEL_REFRESH_THREADS, 1);
   }
 
+  public int getMaxParallelReloadThreads() {
+    return _instanceDataManagerConfiguration.getProperty(MAX_PARALLEL_RELOAD_THREADS, 1);
+  }
+
+  public int getMaxParallelSegmentLoadsPerDisk() {
+    return _instanceDataManagerConfiguration.getProperty(MAX_PARALLEL_SEGMENT_LOADS_PER_DISK, 0);
+  }
+
   public int getMaxParallelSegmentBuilds() {
     return _instanceDataManagerConfiguration.getProperty(MAX_PARALLEL_SEGMENT_BUILDS, 0);
   }
@@ -20,6 +20,7 @@ package org.apache.pinot.server.starter.helix;
 
 import java.io.File;
 import java.util.UUID;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.Lock;
 
 import javax.annotation.Nullable;
@@ -38,15 +39,19 @@ import org.apache.pinot.core.segment.index.loader.LoaderUtils;
 import org.apache.pinot.core.segment.index.loader.V3RemoveIndexException;
 import org.apache.pinot.core.segment.index.metadata.SegmentMetadata;
 import org.apache.pinot.core.segment.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.core.segment.store.SegmentDirectory;
+import org.apache.pinot.core.util.CrcUtils;
 import org.apache.pinot.spi.crypt.PinotCrypter;
 import org.apache.pinot.spi.crypt.PinotCrypterFactory;
 import org.apache.pinot.spi.env.PinotConfiguration;
 import org.apache.pinot.spi.filesystem.PinotFSFactory;
+import org.apache.pinot.spi.utils.DataSizeUtils;
 import org.apache.pinot.spi.utils.retry.AttemptsExceededException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
 
 
 public class SegmentFetcherAndLoader {
@@ -57,12 +62,36 @@ public class SegmentFetcherAndLoader {
 
   private final InstanceDataManager _instanceDataManager;
   private final ServerMetrics _serverMetrics;
+  private final boolean _untarStreamed;
+  private final RateLimiter _downloadRateLimiter;
+  private final Semaphore _downloadSemaphore;
 
   public SegmentFetcherAndLoader(PinotConfiguration config, InstanceDataManager instanceDataManager, ServerMetrics serverMetrics)
       throws Exception {
     _instanceDataManager = instanceDataManager;
     _serverMetrics = serverMetrics;
 
+    _untarStreamed = config.getProperty(CommonConstants.Server.CONFIG_OF_SEGMENT_DOWNLOAD_UNTAR_STREAMED,
+        CommonConstants.Server.DEFAULT_SEGMENT_DOWNLOAD_UNTAR_STREAMED);
+    String maxBytesPerSecond =
+        config.getProperty(CommonConstants.Server.CONFIG_OF_SEGMENT_DOWNLOAD_MAX_BYTES_PER_SECOND);
+    long downloadRateLimit = -1;
+    if (maxBytesPerSecond != null) {
+      try {
+        downloadRateLimit = DataSizeUtils.toBytes(maxBytesPerSecond);
+      } catch (Exception e) {
+        LOGGER.warn("Invalid config {}: {}, not rate limiting the segment download",
+            CommonConstants.Server.CONFIG_OF_SEGMENT_DOWNLOAD_MAX_BYTES_PER_SECOND, maxBytesPerSecond);
+      }
+    }
+    _downloadRateLimiter = downloadRateLimit > 0 ? RateLimiter.create(downloadRateLimit) : null;
+    int maxParallelSegmentDownloads = config
+        .getProperty(CommonConstants.Server.CONFIG_OF_MAX_PARALLEL_SEGMENT_DOWNLOADS,
+            CommonConstants.Server.DEFAULT_MAX_PARALLEL_SEGMENT_DOWNLOADS);
+    _downloadSemaphore = maxParallelSegmentDownloads > 0 ? new Semaphore(maxParallelSegmentDownloads, true) : null;
+    LOGGER.info("Initializing segment fetcher with untarStreamed: {}, downloadRateLimit: {}, maxParallelDownloads: {}",
+        _untarStreamed, downloadRateLimit, maxParallelSegmentDownloads);
+
     PinotConfiguration pinotFSConfig = config.subset(CommonConstants.Server.PREFIX_OF_CONFIG_OF_PINOT_FS_FACTORY);
     PinotConfiguration segmentFetcherFactoryConfig =
         config.subset(CommonConstants.Server.PREFIX_OF_CONFIG_OF_SEGMENT_FETCHER_FACTORY);
@@ -106,6 +135,7 @@ public class SegmentFetcherAndLoader {
           } catch (Exception e) {
             // The localSegmentDir should help us get the table name,
             LOGGER.error("Failed to load segment metadata from {}. Deleting it.", indexDir, e);
+            SegmentDirectory.deleteRemoteIndexes(indexDir);
             FileUtils.deleteQuietly(indexDir);
             localSegmentMetadata = null;
           }
@@ -121,12 +151,14 @@ public class SegmentFetcherAndLoader {
             LOGGER.info(
                 "Unable to remove local index from V3 format segment: {}, table: {}, try to reload it from controller.",
                 segmentName, tableNameWithType, e);
+            SegmentDirectory.deleteRemoteIndexes(indexDir);
             FileUtils.deleteQuietly(indexDir);
             localSegmentMetadata = null;
           } catch (Exception e) {
             LOGGER
                 .error("Failed to load {} of table {} from local, will try to reload it from controller!", segmentName,
                     tableNameWithType, e);
+            SegmentDirectory.deleteRemoteIndexes(indexDir);
             FileUtils.deleteQuietly(indexDir);
             localSegmentMetadata = null;
           }
@@ -153,7 +185,8 @@ public class SegmentFetcherAndLoader {
         PinotCrypter crypter = (crypterName != null) ? PinotCrypterFactory.create(crypterName) : null;
 
         // Retry will be done here.
-        String localSegmentDir = downloadSegmentToLocal(uri, crypter, tableNameWithType, segmentName);
+        String localSegmentDir =
+            downloadSegmentToLocal(uri, crypter, tableNameWithType, segmentName, newSegmentZKMetadata.getCrc());
         SegmentMetadata segmentMetadata = new SegmentMetadataImpl(new File(localSegmentDir));
         _instanceDataManager.addOfflineSegment(tableNameWithType, segmentName, new File(localSegmentDir));
         LOGGER.info("Downloaded segment {} of table {} crc {} from controller", segmentName, tableNameWithType,
@@ -187,7 +220,36 @@ public class SegmentFetcherAndLoader {
     return newCrc != existedCrc;
   }
 
-  private String downloadSegmentToLocal(String uri, PinotCrypter crypter, String tableName, String segmentName)
+  private String downloadSegmentToLocal(String uri, PinotCrypter crypter, String tableName, String segmentName,
+      long expectedCrc)
+      throws Exception {
+    if (_downloadSemaphore != null) {
+      long startTimeMs = System.currentTimeMillis();
+      _downloadSemaphore.acquire();
+      LOGGER.info("Acquired download permit for segment: {} of table: {} after {}ms", segmentName, tableName,
+          System.currentTimeMillis() - startTimeMs);
+    }
+    try {
+      // Encrypted segments need to be decrypted from a local file
+      if (_untarStreamed && crypter == null) {
+        return downloadAndStreamUntarSegment(uri, tableName, segmentName, expectedCrc);
+      } else {
+        return downloadAndUntarSegment(uri, crypter, tableName, segmentName, expectedCrc);
+      }
+    } finally {
+      if (_downloadSemaphore != null) {
+        _downloadSemaphore.release();
+      }
+    }
+  }
+
+  /**
+   * Downloads the segment tar file to local disk and untars it. Uncompressed tar files have no checksum over the
+   * content, so for all the compression types the CRC of the untarred segment is checked against the expected CRC from
+   * the segment ZK metadata.
+   */
+  private String downloadAndUntarSegment(String uri, PinotCrypter crypter, String tableName, String segmentName,
+      long expectedCrc)
       throws Exception {
     File tempDir = new File(new File(_instanceDataManager.getSegmentFileDirectory(), tableName),
         "tmp-" + segmentName + "-" + UUID.randomUUID());
@@ -213,18 +275,11 @@ public class SegmentFetcherAndLoader {
         return null;
       }
 
+      File tempIndexDir;
       try {
         // If an exception is thrown when untarring, it means the tar file is broken OR not found after the retry.
         // Thus, there's no need to retry again.
-        File tempIndexDir = TarGzCompressionUtils.untar(tempTarFile, tempSegmentDir).get(0);
-        File indexDir = new File(new File(_instanceDataManager.getSegmentDataDirectory(), tableName), segmentName);
-        if (indexDir.exists()) {
-          LOGGER.info("Deleting existing index directory for segment: {} for table: {}", segmentName, tableName);
-          FileUtils.deleteDirectory(indexDir);
-        }
-        FileUtils.moveDirectory(tempIndexDir, indexDir);
-        LOGGER.info("Successfully downloaded segment: {} for table: {} to: {}", segmentName, tableName, indexDir);
-        return indexDir.getAbsolutePath();
+        tempIndexDir = TarGzCompressionUtils.untar(tempTarFile, tempSegmentDir).get(0);
       } catch (Exception e) {
         LOGGER.error("Exception when untarring segment: {} for table: {} from {} to {}", segmentName, tableName,
             tempTarFile, tempSegmentDir);
@@ -232,11 +287,74 @@ public class SegmentFetcherAndLoader {
         Utils.rethrowException(e);
         return null;
       }
+
+      validateSegmentCrc(tempIndexDir, tableName, segmentName, expectedCrc);
+      return moveSegmentToDataDirectory(tempIndexDir, tableName, segmentName);
+    } finally {
+      FileUtils.deleteQuietly(tempDir);
+    }
+  }
+
+  /**
+   * Downloads and untars the segment in a streamed way without storing the tar.gz file on local disk. The integrity of
+   * the download is verified by computing the CRC over the untarred index files and checking it against the expected
+   * CRC from the segment ZK metadata.
+   */
+  private String downloadAndStreamUntarSegment(String uri, String tableName, String segmentName, long expectedCrc)
+      throws Exception {
+    File tempDir = new File(new File(_instanceDataManager.getSegmentFileDirectory(), tableName),
+        "tmp-" + segmentName + "-" + UUID.randomUUID());
+    FileUtils.forceMkdir(tempDir);
+    File tempSegmentDir = new File(tempDir, segmentName);
+    try {
+      File tempIndexDir;
+      try {
+        tempIndexDir =
+            SegmentFetcherFactory.fetchUntarSegmentToLocalStreamed(uri, tempSegmentDir, _downloadRateLimiter);
+        LOGGER.info("Downloaded and untarred segment: {} for table: {} from: {} to: {}", segmentName, tableName, uri,
+            tempIndexDir);
+      } catch (AttemptsExceededException e) {
+        LOGGER.error("Attempts exceeded when downloading and untarring segment: {} for table: {} from: {} to: {}",
+            segmentName, tableName, uri, tempSegmentDir);
+        _serverMetrics.addMeteredTableValue(tableName, ServerMeter.SEGMENT_DOWNLOAD_FAILURES, 1L);
+        Utils.rethrowException(e);
+        return null;
+      }
+
+      validateSegmentCrc(tempIndexDir, tableName, segmentName, expectedCrc);
+      return moveSegmentToDataDirectory(tempIndexDir, tableName, segmentName);
     } finally {
       FileUtils.deleteQuietly(tempDir);
     }
   }
 
+  /**
+   * Computes the CRC over the index files of the downloaded segment (the same way as the segment CRC is computed when
+   * the segment is created), and checks it against the expected CRC from the segment ZK metadata.
+   */
+  private void validateSegmentCrc(File indexDir, String tableName, String segmentName, long expectedCrc)
+      throws Exception {
+    long crc = CrcUtils.forAllFilesInFolder(indexDir).computeCrc();
+    if (crc != expectedCrc) {
+      _serverMetrics.addMeteredTableValue(tableName, ServerMeter.SEGMENT_DOWNLOAD_FAILURES, 1L);
+      throw new IllegalStateException(String
+          .format("CRC: %d of downloaded segment: %s for table: %s does not match expected CRC: %d", crc, segmentName,
+              tableName, expectedCrc));
+    }
+  }
+
+  private String moveSegmentToDataDirectory(File tempIndexDir, String tableName, String segmentName)
+      throws Exception {
+    File indexDir = new File(new File(_instanceDataManager.getSegmentDataDirectory(), tableName), segmentName);
+    if (indexDir.exists()) {
+      LOGGER.info("Deleting existing index directory for segment: {} for table: {}", segmentName, tableName);
+      FileUtils.deleteDirectory(indexDir);
+    }
+    FileUtils.moveDirectory(tempIndexDir, indexDir);
+    LOGGER.info("Successfully downloaded segment: {} for table: {} to: {}", segmentName, tableName, indexDir);
+    return indexDir.getAbsolutePath();
+  }
+
   public String getSegmentLocalDirectory(String tableName, String segmentId) {
     return _instanceDataManager.getSegmentDataDirectory() + "/" + tableName + "/" + segmentId;
   }
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.server.starter.helix;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Throttles the number of segments that are loaded (or reloaded) concurrently from the same disk, so that loading a
+ * large number of segments in parallel does not saturate the I/O of a single disk while the other disks are idle.
+ * Disks are identified by the {@link FileStore} of the segment index directory.
+ */
+public class SegmentLoadThrottle {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentLoadThrottle.class);
+
+  private final int _maxParallelLoadsPerDisk;
+  private final ConcurrentHashMap<FileStore, Semaphore> _diskSemaphores = new ConcurrentHashMap<>();
+
+  /**
+   * @param maxParallelLoadsPerDisk Max number of segments loaded concurrently from the same disk, <= 0 for unlimited
+   */
+  public SegmentLoadThrottle(int maxParallelLoadsPerDisk) {
+    _maxParallelLoadsPerDisk = maxParallelLoadsPerDisk;
+  }
+
+  /**
+   * Blocks until a segment can be loaded from the disk of the given index directory. The returned semaphore must be
+   * passed to {@link #release(Semaphore)} once the segment is loaded.
+   *
+   * @param indexDir Segment index directory (or any file on the same disk)
+   * @return Semaphore to release, or null if the load is not throttled
+   */
+  @Nullable
+  public Semaphore acquire(File indexDir)
+      throws InterruptedException {
+    if (_maxParallelLoadsPerDisk <= 0) {
+      return null;
+    }
+    FileStore fileStore = getFileStore(indexDir);
+    if (fileStore == null) {
+      return null;
+    }
+    Semaphore semaphore =
+        _diskSemaphores.computeIfAbsent(fileStore, k -> new Semaphore(_maxParallelLoadsPerDisk, true));
+    semaphore.acquire();
+    return semaphore;
+  }
+
+  public void release(@Nullable Semaphore semaphore) {
+    if (semaphore != null) {
+      semaphore.release();
+    }
+  }
+
+  @Nullable
+  private static FileStore getFileStore(File file) {
+    // The index directory might not exist yet (or might be renamed during reload), use the closest existing ancestor
+    File existingFile = file.getAbsoluteFile();
+    while (existingFile != null && !existingFile.exists()) {
+      existingFile = existingFile.getParentFile();
+    }
+    if (existingFile == null) {
+      return null;
+    }
+    try {
+      return Files.getFileStore(existingFile.toPath());
+    } catch (IOException e) {
+      LOGGER.warn("Failed to get the file store for: {}, not throttling the segment load", existingFile, e);
+      return null;
+    }
+  }
+}
@@ -145,8 +145,8 @@ public class SegmentMessageHandlerFactory implements MessageHandlerFactory {
       try {
         if (_segmentName.equals("")) {
           acquireSema("ALL", _logger);
-          // NOTE: the method aborts if any segment reload encounters an unhandled exception - can lead to inconsistent
-          // state across segments
+          // NOTE: the segments are reloaded in parallel, and the method throws after all the segments are processed if
+          // any segment reload encounters an unhandled exception - can lead to inconsistent state across segments
           _instanceDataManager.reloadAllSegments(_tableNameWithType);
         } else {
           // Reload one segment
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.server.starter.helix;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+
+public class SegmentLoadThrottleTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "SegmentLoadThrottleTest");
+
+  @BeforeClass
+  public void setUp()
+      throws IOException {
+    FileUtils.deleteQuietly(TEMP_DIR);
+    FileUtils.forceMkdir(new File(TEMP_DIR, "segment1"));
+  }
+
+  @Test
+  public void testUnlimited()
+      throws InterruptedException {
+    SegmentLoadThrottle throttle = new SegmentLoadThrottle(0);
+    assertNull(throttle.acquire(new File(TEMP_DIR, "segment1")));
+    // Should not throw
+    throttle.release(null);
+  }
+
+  @Test
+  public void testThrottlePerDisk()
+      throws InterruptedException {
+    SegmentLoadThrottle throttle = new SegmentLoadThrottle(2);
+
+    // Segments on the same disk should share the same semaphore, including the ones that do not exist yet
+    Semaphore semaphore1 = throttle.acquire(new File(TEMP_DIR, "segment1"));
+    assertNotNull(semaphore1);
+    Semaphore semaphore2 = throttle.acquire(new File(TEMP_DIR, "segment2"));
+    assertSame(semaphore2, semaphore1);
+    assertEquals(semaphore1.availablePermits(), 0);
+
+    throttle.release(semaphore1);
+    assertEquals(semaphore1.availablePermits(), 1);
+    throttle.release(semaphore2);
+    assertEquals(semaphore1.availablePermits(), 2);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+}
@@ -44,7 +44,22 @@ public class IndexingConfig extends BaseJsonConfig {
   private boolean _enableDynamicStarTreeCreation;
   private SegmentPartitionConfig _segmentPartitionConfig;
   private boolean _aggregateMetrics;
+  // Map from metric column to the function (SUM, MIN or MAX) used to aggregate it, SUM if not specified
+  private Map<String, String> _aggregateMetricsFunctions;
+  // Period (e.g. "5m") to truncate the time column values to before aggregating metrics
+  private String _aggregateMetricsTimeBucket;
   private boolean _nullHandlingEnabled;
+  // Whether to use the open-addressing (linear probing) off-heap dictionary for the STRING and BYTES columns of the
+  // consuming segments instead of the default off-heap dictionary
+  private boolean _linearProbingDictionaryEnabled;
+  // Columns whose indexes (dictionary, sorted, inverted, range index and bloom filter) are warmed up in the background
+  // after the segment is loaded with mmap, to avoid page faults on the first queries
+  private List<String> _warmUpColumns;
+  // Whether to warm up the star-tree index in the background after the segment is loaded with mmap
+  private boolean _warmUpStarTree;
+  // Whether to load the column indexes lazily on first access (instead of when the segment is loaded), and release the
+  // indexes of the columns not queried for a while
+  private boolean _lazyColumnLoading;
 
   /**
    * The list of columns for which the variable length dictionary needs to be enabled in offline
@@ -218,6 +233,49 @@ public class IndexingConfig extends BaseJsonConfig {
     _aggregateMetrics = value;
   }
 
+  @Nullable
+  public Map<String, String> getAggregateMetricsFunctions() {
+    return _aggregateMetricsFunctions;
+  }
+
+  public void setAggregateMetricsFunctions(Map<String, String> aggregateMetricsFunctions) {
+    _aggregateMetricsFunctions = aggregateMetricsFunctions;
+  }
+
+  @Nullable
+  public String getAggregateMetricsTimeBucket() {
+    return _aggregateMetricsTimeBucket;
+  }
+
+  public void setAggregateMetricsTimeBucket(String aggregateMetricsTimeBucket) {
+    _aggregateMetricsTimeBucket = aggregateMetricsTimeBucket;
+  }
+
+  @Nullable
+  public List<String> getWarmUpColumns() {
+    return _warmUpColumns;
+  }
+
+  public void setWarmUpColumns(List<String> warmUpColumns) {
+    _warmUpColumns = warmUpColumns;
+  }
+
+  public boolean isWarmUpStarTree() {
+    return _warmUpStarTree;
+  }
+
+  public void setWarmUpStarTree(boolean warmUpStarTree) {
+    _warmUpStarTree = warmUpStarTree;
+  }
+
+  public boolean isLazyColumnLoading() {
+    return _lazyColumnLoading;
+  }
+
+  public void setLazyColumnLoading(boolean lazyColumnLoading) {
+    _lazyColumnLoading = lazyColumnLoading;
+  }
+
   public boolean isNullHandlingEnabled() {
     return _nullHandlingEnabled;
   }
@@ -225,4 +283,12 @@ public class IndexingConfig extends BaseJsonConfig {
   public void setNullHandlingEnabled(boolean nullHandlingEnabled) {
     _nullHandlingEnabled = nullHandlingEnabled;
   }
+
+  public boolean isLinearProbingDictionaryEnabled() {
+    return _linearProbingDictionaryEnabled;
+  }
+
+  public void setLinearProbingDictionaryEnabled(boolean linearProbingDictionaryEnabled) {
+    _linearProbingDictionaryEnabled = linearProbingDictionaryEnabled;
+  }
 }
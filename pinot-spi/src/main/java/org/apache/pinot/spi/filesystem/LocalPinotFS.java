@@ -26,12 +26,16 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.pinot.spi.env.PinotConfiguration;
 
 
@@ -154,6 +158,19 @@ public class LocalPinotFS extends PinotFS {
     return new BufferedInputStream(new FileInputStream(toFile(uri)));
   }
 
+  @Override
+  public InputStream open(URI uri, long offset, long length)
+      throws IOException {
+    FileChannel fileChannel = FileChannel.open(toFile(uri).toPath(), StandardOpenOption.READ);
+    try {
+      fileChannel.position(offset);
+    } catch (IOException e) {
+      fileChannel.close();
+      throw e;
+    }
+    return new BufferedInputStream(new BoundedInputStream(Channels.newInputStream(fileChannel), length));
+  }
+
   private static File toFile(URI uri) {
     // NOTE: Do not use new File(uri) because scheme might not exist and it does not decode '+' to ' '
     //       Do not use uri.getPath() because it does not decode '+' to ' '
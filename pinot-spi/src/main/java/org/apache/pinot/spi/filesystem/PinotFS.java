@@ -27,6 +27,8 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 
 import org.apache.pinot.spi.annotations.InterfaceAudience;
 import org.apache.pinot.spi.annotations.InterfaceStability;
@@ -231,6 +233,29 @@ public abstract class PinotFS implements Closeable, Serializable {
   public abstract InputStream open(URI uri)
       throws IOException;
 
+  /**
+   * Opens a file in the underlying filesystem and returns an InputStream to read the range of the file starting at the
+   * given offset with the given length. The caller should close the returned inputstream.
+   * Filesystems that support seekable or ranged reads should override this method to only read the requested range
+   * from the underlying storage. The default implementation skips the bytes before the offset from {@link #open(URI)}.
+   * @param uri location of the file to open
+   * @param offset offset of the first byte to read
+   * @param length number of bytes to read
+   * @return a new InputStream positioned at the offset, returning at most length bytes
+   * @throws IOException on any IO error - missing file, not a file, offset beyond the end of the file etc
+   */
+  public InputStream open(URI uri, long offset, long length)
+      throws IOException {
+    InputStream inputStream = open(uri);
+    try {
+      IOUtils.skipFully(inputStream, offset);
+    } catch (IOException e) {
+      inputStream.close();
+      throw e;
+    }
+    return new BoundedInputStream(inputStream, length);
+  }
+
   /**
    * For certain filesystems, we may need to close the filesystem and do relevant operations to prevent leaks.
    * By default, this method does nothing.
@@ -23,4 +23,23 @@ public class Constants {
    * By default Pinot segments are compressed in 'tar.gz' format then pushed to controller.
    */
   public static final String TAR_GZ_FILE_EXT = ".tar.gz";
+
+  /**
+   * Pinot segments can also be archived as LZ4 compressed or uncompressed tar files, which are much faster to create
+   * and extract than 'tar.gz' because segments are mostly compressed internally already.
+   */
+  public static final String TAR_LZ4_FILE_EXT = ".tar.lz4";
+  public static final String TAR_FILE_EXT = ".tar";
+
+  /**
+   * Returns the file extension if the given file is a segment tar file, null otherwise.
+   */
+  public static String getSegmentTarFileExtension(String fileName) {
+    for (String fileExtension : new String[]{TAR_GZ_FILE_EXT, TAR_LZ4_FILE_EXT, TAR_FILE_EXT}) {
+      if (fileName.endsWith(fileExtension)) {
+        return fileExtension;
+      }
+    }
+    return null;
+  }
 }
@@ -104,6 +104,22 @@ public class SegmentGenerationJobSpec implements Serializable {
    */
   private PushJobSpec _pushJobSpec;
 
+  /**
+   * Compression of the segment tar files: 'GZIP' (default), 'LZ4' or 'NONE'.
+   */
+  private String _segmentTarCompressionType;
+
+  /**
+   * Number of threads used to create the column indexes of each segment in parallel. Default is 1 (single-threaded).
+   */
+  private int _segmentCreationNumThreads = 1;
+
+  /**
+   * Whether to read and decode each input file only once when creating its segment. The transformed rows are spilled
+   * to a local file while collecting the stats, and the indexes are created from that file. Default is false.
+   */
+  private boolean _singlePassSegmentCreation;
+
   public ExecutionFrameworkSpec getExecutionFrameworkSpec() {
     return _executionFrameworkSpec;
   }
@@ -232,6 +248,28 @@ public class SegmentGenerationJobSpec implements Serializable {
   public void setPushJobSpec(PushJobSpec pushJobSpec) {
     _pushJobSpec = pushJobSpec;
   }
-}
 
+  public String getSegmentTarCompressionType() {
+    return _segmentTarCompressionType;
+  }
 
+  public void setSegmentTarCompressionType(String segmentTarCompressionType) {
+    _segmentTarCompressionType = segmentTarCompressionType;
+  }
+
+  public int getSegmentCreationNumThreads() {
+    return _segmentCreationNumThreads;
+  }
+
+  public void setSegmentCreationNumThreads(int segmentCreationNumThreads) {
+    _segmentCreationNumThreads = segmentCreationNumThreads;
+  }
+
+  public boolean isSinglePassSegmentCreation() {
+    return _singlePassSegmentCreation;
+  }
+
+  public void setSinglePassSegmentCreation(boolean singlePassSegmentCreation) {
+    _singlePassSegmentCreation = singlePassSegmentCreation;
+  }
+}
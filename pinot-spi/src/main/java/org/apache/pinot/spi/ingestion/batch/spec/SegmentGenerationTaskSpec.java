@@ -64,6 +64,16 @@ public class SegmentGenerationTaskSpec implements Serializable {
    */
   private int _sequenceId;
 
+  /**
+   * Number of threads used to create the column indexes of the segment in parallel
+   */
+  private int _numIndexCreationThreads = 1;
+
+  /**
+   * Whether to read the input file only once
+   */
+  private boolean _singlePassCreation;
+
   public JsonNode getTableConfig() {
     return _tableConfig;
   }
@@ -119,4 +129,20 @@ public class SegmentGenerationTaskSpec implements Serializable {
   public void setSequenceId(int sequenceId) {
     _sequenceId = sequenceId;
   }
+
+  public int getNumIndexCreationThreads() {
+    return _numIndexCreationThreads;
+  }
+
+  public void setNumIndexCreationThreads(int numIndexCreationThreads) {
+    _numIndexCreationThreads = numIndexCreationThreads;
+  }
+
+  public boolean isSinglePassCreation() {
+    return _singlePassCreation;
+  }
+
+  public void setSinglePassCreation(boolean singlePassCreation) {
+    _singlePassCreation = singlePassCreation;
+  }
 }
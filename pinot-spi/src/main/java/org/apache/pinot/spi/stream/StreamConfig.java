@@ -48,6 +48,7 @@ public class StreamConfig {
   public static final long DEFAULT_FLUSH_THRESHOLD_TIME_MILLIS = TimeUnit.MILLISECONDS.convert(6, TimeUnit.HOURS);
   public static final long DEFAULT_FLUSH_THRESHOLD_SEGMENT_SIZE_BYTES = 200 * 1024 * 1024; // 200M
   public static final int DEFAULT_FLUSH_AUTOTUNE_INITIAL_ROWS = 100_000;
+  public static final long DEFAULT_FLUSH_THRESHOLD_MEMORY_SIZE_BYTES = -1; // No memory budget
 
   public static final String DEFAULT_CONSUMER_FACTORY_CLASS_NAME_STRING =
       "org.apache.pinot.plugin.stream.kafka09.KafkaConsumerFactory";
@@ -73,6 +74,7 @@ public class StreamConfig {
   private final long _flushThresholdTimeMillis;
   private final long _flushThresholdSegmentSizeBytes;
   private final int _flushAutotuneInitialRows; // initial num rows to use for SegmentSizeBasedFlushThresholdUpdater
+  private final long _flushThresholdMemorySizeBytes; // off-heap memory budget for a consuming segment
 
   private final String _groupId;
 
@@ -164,6 +166,7 @@ public class StreamConfig {
     _flushThresholdRows = extractFlushThresholdRows(streamConfigMap);
     _flushThresholdTimeMillis = extractFlushThresholdTimeMillis(streamConfigMap);
     _flushThresholdSegmentSizeBytes = extractFlushThresholdSegmentSize(streamConfigMap);
+    _flushThresholdMemorySizeBytes = extractFlushThresholdMemorySize(streamConfigMap);
 
     int autotuneInitialRows = 0;
     String initialRowsValue = streamConfigMap.get(StreamConfigProperties.SEGMENT_FLUSH_AUTOTUNE_INITIAL_ROWS);
@@ -209,6 +212,22 @@ public class StreamConfig {
     }
   }
 
+  private long extractFlushThresholdMemorySize(Map<String, String> streamConfigMap) {
+    String key = StreamConfigProperties.SEGMENT_FLUSH_THRESHOLD_MEMORY_SIZE;
+    String flushThresholdMemorySizeStr = streamConfigMap.get(key);
+    if (flushThresholdMemorySizeStr != null) {
+      try {
+        long memorySizeBytes = DataSizeUtils.toBytes(flushThresholdMemorySizeStr);
+        if (memorySizeBytes > 0) {
+          return memorySizeBytes;
+        }
+      } catch (Exception e) {
+        LOGGER.warn("Invalid config {}: {}, defaulting to no memory threshold", key, flushThresholdMemorySizeStr);
+      }
+    }
+    return DEFAULT_FLUSH_THRESHOLD_MEMORY_SIZE_BYTES;
+  }
+
   protected int extractFlushThresholdRows(Map<String, String> streamConfigMap) {
     String key = StreamConfigProperties.SEGMENT_FLUSH_THRESHOLD_ROWS;
     String flushThresholdRowsStr = streamConfigMap.get(key);
@@ -313,6 +332,13 @@ public class StreamConfig {
     return _flushAutotuneInitialRows;
   }
 
+  /**
+   * Returns the off-heap memory budget in bytes for a consuming segment, or a non-positive value if not configured.
+   */
+  public long getFlushThresholdMemorySizeBytes() {
+    return _flushThresholdMemorySizeBytes;
+  }
+
   public String getGroupId() {
     return _groupId;
   }
@@ -332,7 +358,8 @@ public class StreamConfig {
         + _offsetCriteria + '\'' + ", _connectionTimeoutMillis=" + _connectionTimeoutMillis + ", _fetchTimeoutMillis="
         + _fetchTimeoutMillis + ", _flushThresholdRows=" + _flushThresholdRows + ", _flushThresholdTimeMillis="
         + _flushThresholdTimeMillis + ", _flushSegmentDesiredSizeBytes=" + _flushThresholdSegmentSizeBytes
-        + ", _flushAutotuneInitialRows=" + _flushAutotuneInitialRows + ", _decoderClass='" + _decoderClass + '\''
+        + ", _flushAutotuneInitialRows=" + _flushAutotuneInitialRows + ", _flushThresholdMemorySizeBytes="
+        + _flushThresholdMemorySizeBytes + ", _decoderClass='" + _decoderClass + '\''
         + ", _decoderProperties=" + _decoderProperties + ", _groupId='" + _groupId + ", _tableNameWithType='"
         + _tableNameWithType + '}';
   }
@@ -354,7 +381,9 @@ public class StreamConfig {
         .isEqual(_flushThresholdRows, that._flushThresholdRows) && EqualityUtils
         .isEqual(_flushThresholdTimeMillis, that._flushThresholdTimeMillis) && EqualityUtils
         .isEqual(_flushThresholdSegmentSizeBytes, that._flushThresholdSegmentSizeBytes) && EqualityUtils
-        .isEqual(_flushAutotuneInitialRows, that._flushAutotuneInitialRows) && EqualityUtils.isEqual(_type, that._type)
+        .isEqual(_flushAutotuneInitialRows, that._flushAutotuneInitialRows) && EqualityUtils
+        .isEqual(_flushThresholdMemorySizeBytes, that._flushThresholdMemorySizeBytes) && EqualityUtils
+        .isEqual(_type, that._type)
         && EqualityUtils.isEqual(_topicName, that._topicName) && EqualityUtils
         .isEqual(_consumerTypes, that._consumerTypes) && EqualityUtils
         .isEqual(_consumerFactoryClassName, that._consumerFactoryClassName) && EqualityUtils
@@ -377,6 +406,7 @@ public class StreamConfig {
     result = EqualityUtils.hashCodeOf(result, _flushThresholdTimeMillis);
     result = EqualityUtils.hashCodeOf(result, _flushThresholdSegmentSizeBytes);
     result = EqualityUtils.hashCodeOf(result, _flushAutotuneInitialRows);
+    result = EqualityUtils.hashCodeOf(result, _flushThresholdMemorySizeBytes);
     result = EqualityUtils.hashCodeOf(result, _decoderClass);
     result = EqualityUtils.hashCodeOf(result, _decoderProperties);
     result = EqualityUtils.hashCodeOf(result, _groupId);
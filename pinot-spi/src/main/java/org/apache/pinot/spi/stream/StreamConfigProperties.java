@@ -96,6 +96,16 @@ public class StreamConfigProperties {
   public static final String DEPRECATED_SEGMENT_FLUSH_DESIRED_SIZE = "realtime.segment.flush.desired.size";
   public static final String SEGMENT_FLUSH_THRESHOLD_SEGMENT_SIZE = "realtime.segment.flush.threshold.segment.size";
 
+  /**
+   * Off-heap memory budget for a single consuming segment, parsed using DataSize class (e.g. "500M").
+   *
+   * When set, the server sizes each new consuming segment from the bytes per row observed on past consuming segments
+   * of the table (see RealtimeSegmentStatsHistory), so that the segment is expected to fit within this budget. The
+   * segment is also completed early if the memory allocated for it reaches the budget before the row or time
+   * threshold is hit. By default there is no memory budget.
+   */
+  public static final String SEGMENT_FLUSH_THRESHOLD_MEMORY_SIZE = "realtime.segment.flush.threshold.memory.size";
+
   /**
    * The initial num rows to use for segment size auto tuning. By default 100_000 is used.
    */
@@ -38,6 +38,15 @@ public class IndexingConfigTest {
     IndexingConfig indexingConfig = new IndexingConfig();
     indexingConfig.setLoadMode("MMAP");
     indexingConfig.setAggregateMetrics(true);
+    Map<String, String> aggregateMetricsFunctions = new HashMap<>();
+    aggregateMetricsFunctions.put("m1", "MIN");
+    aggregateMetricsFunctions.put("m2", "MAX");
+    indexingConfig.setAggregateMetricsFunctions(aggregateMetricsFunctions);
+    indexingConfig.setAggregateMetricsTimeBucket("5m");
+    List<String> warmUpColumns = Arrays.asList("a", "d");
+    indexingConfig.setWarmUpColumns(warmUpColumns);
+    indexingConfig.setWarmUpStarTree(true);
+    indexingConfig.setLazyColumnLoading(true);
     List<String> invertedIndexColumns = Arrays.asList("a", "b", "c");
     indexingConfig.setInvertedIndexColumns(invertedIndexColumns);
     List<String> sortedColumn = Arrays.asList("d", "e", "f");
@@ -57,6 +66,11 @@ public class IndexingConfigTest {
 
     assertEquals(indexingConfig.getLoadMode(), "MMAP");
     assertTrue(indexingConfig.isAggregateMetrics());
+    assertEquals(indexingConfig.getAggregateMetricsFunctions(), aggregateMetricsFunctions);
+    assertEquals(indexingConfig.getAggregateMetricsTimeBucket(), "5m");
+    assertEquals(indexingConfig.getWarmUpColumns(), warmUpColumns);
+    assertTrue(indexingConfig.isWarmUpStarTree());
+    assertTrue(indexingConfig.isLazyColumnLoading());
     assertEquals(indexingConfig.getInvertedIndexColumns(), invertedIndexColumns);
     assertEquals(indexingConfig.getSortedColumn(), sortedColumn);
     assertEquals(indexingConfig.getOnHeapDictionaryColumns(), onHeapDictionaryColumns);
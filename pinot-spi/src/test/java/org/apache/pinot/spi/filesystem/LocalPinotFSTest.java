@@ -20,8 +20,11 @@ package org.apache.pinot.spi.filesystem;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -67,6 +70,22 @@ public class LocalPinotFSTest {
     _newTmpDir.delete();
   }
 
+  @Test
+  public void testOpenRange()
+      throws Exception {
+    LocalPinotFS localPinotFS = new LocalPinotFS();
+    File file = new File(_absoluteTmpDirPath, "rangeFile");
+    FileUtils.writeStringToFile(file, "0123456789", StandardCharsets.UTF_8);
+    try (InputStream inputStream = localPinotFS.open(file.toURI(), 3, 4)) {
+      Assert.assertEquals(IOUtils.toString(inputStream, StandardCharsets.UTF_8), "3456");
+    }
+    // Range beyond the end of the file should be truncated
+    try (InputStream inputStream = localPinotFS.open(file.toURI(), 8, 4)) {
+      Assert.assertEquals(IOUtils.toString(inputStream, StandardCharsets.UTF_8), "89");
+    }
+    FileUtils.deleteQuietly(file);
+  }
+
   @Test
   public void testFS()
       throws Exception {